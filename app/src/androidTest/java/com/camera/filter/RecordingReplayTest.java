@@ -0,0 +1,163 @@
+package com.camera.filter;
+
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// Draws recorded frames the way RecordingFrameSource does, into an offscreen surface, and checks
+// the read back pixels against the recorded planes. Odd sizes exercise the unpadded chroma rows.
+@RunWith(AndroidJUnit4.class)
+public class RecordingReplayTest {
+
+    private static final int WIDTH = 33;
+
+    private static final int HEIGHT = 17;
+
+    private EGLDisplay display;
+
+    private EGLContext context;
+
+    private EGLSurface surface;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        assertTrue(EGL14.eglInitialize(display, version, 0, version, 1));
+        int[] attributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_PBUFFER_BIT,
+                EGL14.EGL_NONE};
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        assertTrue(EGL14.eglChooseConfig(display, attributes, 0, configs, 0, 1, count, 0));
+        assertTrue(count[0] > 0);
+        context = EGL14.eglCreateContext(display, configs[0], EGL14.EGL_NO_CONTEXT,
+                new int[]{EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE}, 0);
+        surface = EGL14.eglCreatePbufferSurface(display, configs[0],
+                new int[]{EGL14.EGL_WIDTH, WIDTH, EGL14.EGL_HEIGHT, HEIGHT, EGL14.EGL_NONE}, 0);
+        assertTrue(EGL14.eglMakeCurrent(display, surface, surface, context));
+        file = File.createTempFile("replay", ".frames",
+                InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir());
+    }
+
+    @After
+    public void tearDown() {
+        EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+        EGL14.eglDestroySurface(display, surface);
+        EGL14.eglDestroyContext(display, context);
+        EGL14.eglReleaseThread();
+        file.delete();
+    }
+
+    private static ByteBuffer randomFrame(FramePixelFormat format, long seed) {
+        byte[] bytes = new byte[format.frameBytes(WIDTH, HEIGHT)];
+        new Random(seed).nextBytes(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    // Records the frames, replays each one and returns the pixels read back, top row first
+    private byte[][] replay(FramePixelFormat format, ByteBuffer... frames) throws IOException {
+        try (FrameRecordingWriter writer = new FrameRecordingWriter(file, format, WIDTH, HEIGHT)) {
+            for (int i = 0; i < frames.length; i++) {
+                writer.write(frames[i].duplicate(), i * 33_333_333L);
+            }
+        }
+        byte[][] replayed = new byte[frames.length][];
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            PlaneFrameRenderer renderer = new PlaneFrameRenderer(format, WIDTH, HEIGHT);
+            GLES20.glViewport(0, 0, WIDTH, HEIGHT);
+            ByteBuffer pixels = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4).order(ByteOrder.nativeOrder());
+            for (int frame = 0; frame < frames.length; frame++) {
+                renderer.draw(reader, frame);
+                pixels.clear();
+                GLES20.glReadPixels(0, 0, WIDTH, HEIGHT, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels);
+                assertEquals(GLES20.GL_NO_ERROR, GLES20.glGetError());
+                // Framebuffer rows count from the bottom
+                byte[] topDown = new byte[WIDTH * HEIGHT * 4];
+                for (int row = 0; row < HEIGHT; row++) {
+                    pixels.position((HEIGHT - 1 - row) * WIDTH * 4);
+                    pixels.get(topDown, row * WIDTH * 4, WIDTH * 4);
+                }
+                replayed[frame] = topDown;
+            }
+            renderer.release();
+        }
+        return replayed;
+    }
+
+    @Test
+    public void grayFramesReplayTheirLumaExactly() throws IOException {
+        ByteBuffer[] frames = new ByteBuffer[2];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = randomFrame(FramePixelFormat.I420, i);
+            for (int j = WIDTH * HEIGHT; j < frames[i].capacity(); j++) {
+                frames[i].put(j, (byte) 128);
+            }
+        }
+        byte[][] replayed = replay(FramePixelFormat.I420, frames);
+        for (int frame = 0; frame < frames.length; frame++) {
+            for (int i = 0; i < WIDTH * HEIGHT; i++) {
+                int y = frames[frame].get(i) & 0xff;
+                for (int channel = 0; channel < 3; channel++) {
+                    assertEquals("frame " + frame + " pixel " + i, y, replayed[frame][i * 4 + channel] & 0xff);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void colorFramesMatchTheCpuConversion() throws IOException {
+        ByteBuffer frame = randomFrame(FramePixelFormat.I420, 7);
+        byte[] replayed = replay(FramePixelFormat.I420, frame)[0];
+        int[] expected = new int[WIDTH * HEIGHT];
+        PixelConverter.i420ToArgb(frame.duplicate(), expected, WIDTH, HEIGHT);
+        for (int i = 0; i < expected.length; i++) {
+            for (int channel = 0; channel < 3; channel++) {
+                int want = (expected[i] >> (16 - 8 * channel)) & 0xff;
+                int got = replayed[i * 4 + channel] & 0xff;
+                // Shader float math against the converter's 16 bit fixed point
+                assertTrue("pixel " + i + " channel " + channel + ": " + got + " vs " + want,
+                        Math.abs(got - want) <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void rgbaFramesReplayExactly() throws IOException {
+        ByteBuffer frame = randomFrame(FramePixelFormat.RGBA_8888, 3);
+        // Opaque, the surface's alpha could otherwise be premultiplied
+        for (int i = 3; i < frame.capacity(); i += 4) {
+            frame.put(i, (byte) 0xff);
+        }
+        byte[] replayed = replay(FramePixelFormat.RGBA_8888, frame)[0];
+        byte[] recorded = new byte[frame.capacity()];
+        frame.duplicate().get(recorded);
+        assertArrayEquals(recorded, replayed);
+    }
+}
@@ -0,0 +1,205 @@
+package com.camera.filter;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One burst: the GL thread reads consecutive frames into a preallocated ring, a worker thread
+// turns them into bitmaps for the listener. A full ring skips the frame instead of stalling the preview.
+public class BurstCapture {
+
+    public static final int DEFAULT_RING_SIZE = 4;
+
+    // The burst thread gives up when no frame arrives for this long, e.g. once nothing is drawn anymore
+    public static final long STALL_TIMEOUT_NANOS = 2_000_000_000L;
+
+    public interface BurstListener {
+        // Called on the burst thread in capture order. Blocking here is fine, it only makes the ring fill up.
+        void onBurstFrame(int index, Bitmap bitmap, long captureLatencyNanos);
+
+        // Called on the main thread once every frame has been delivered
+        void onBurstComplete(BurstStats stats);
+    }
+
+    private final FrameRing<ByteBuffer> ring;
+
+    private final int frameCount;
+
+    private final int width;
+
+    private final int height;
+
+    private final PixelBufferPool pixelBufferPool;
+
+    private final BurstListener listener;
+
+    // GL thread state
+    private int framesSeen = 0;
+
+    private int skippedFrames = 0;
+
+    private int inFlight = 0;
+
+    private volatile boolean cancelled = false;
+
+    private volatile boolean producerDone = false;
+
+    // GL thread, set once the slots still waiting for a read will never be filled
+    private boolean abandoned = false;
+
+    private volatile boolean finished = false;
+
+    private volatile int reportedSkippedFrames = 0;
+
+    public BurstCapture(int frameCount, int ringSize, int width, int height,
+                        PixelBufferPool pixelBufferPool, BurstListener listener) {
+        this.frameCount = frameCount;
+        this.width = width;
+        this.height = height;
+        this.pixelBufferPool = pixelBufferPool;
+        this.listener = listener;
+        List<ByteBuffer> buffers = new ArrayList<>(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            buffers.add(pixelBufferPool.acquireBuffer(width * height * 4));
+        }
+        ring = new FrameRing<>(buffers);
+    }
+
+    // The ring was sized for this surface, frames of any other size can not be read into it
+    public boolean hasSize(int width, int height) {
+        return this.width == width && this.height == height;
+    }
+
+    // GL thread, once per rendered frame. Returns the slot to read this frame into, or null.
+    public FrameRing.Slot<ByteBuffer> nextSlot() {
+        if (framesSeen >= frameCount || cancelled || abandoned) {
+            // A cancel with nothing in flight has no fill left to end the burst
+            checkProducerDone();
+            return null;
+        }
+        framesSeen++;
+        FrameRing.Slot<ByteBuffer> slot = ring.tryAcquire();
+        if (slot == null) {
+            skippedFrames++;
+            checkProducerDone();
+            return null;
+        }
+        inFlight++;
+        slot.sequence = framesSeen - 1;
+        slot.width = width;
+        slot.height = height;
+        slot.buffer.clear();
+        return slot;
+    }
+
+    // GL thread, copies pixels read for a slot returned by nextSlot() into it. Reads that complete
+    // after the burst was abandoned are dropped, their buffers may already be back in the pool.
+    public void fillSlot(FrameRing.Slot<ByteBuffer> slot, ByteBuffer pixels, long frameAvailableNanos) {
+        if (abandoned) {
+            return;
+        }
+        slot.buffer.put(pixels);
+        onSlotFilled(slot, frameAvailableNanos);
+    }
+
+    // GL thread, once the pixels of a slot returned by nextSlot() are in its buffer
+    public void onSlotFilled(FrameRing.Slot<ByteBuffer> slot, long frameAvailableNanos) {
+        if (abandoned) {
+            return;
+        }
+        slot.latencyNanos = System.nanoTime() - frameAvailableNanos;
+        slot.buffer.position(0);
+        ring.publish(slot);
+        inFlight--;
+        checkProducerDone();
+    }
+
+    private void checkProducerDone() {
+        if ((framesSeen >= frameCount || cancelled) && inFlight == 0) {
+            reportedSkippedFrames = skippedFrames;
+            producerDone = true;
+        }
+    }
+
+    // GL thread, when the reads still in flight will never complete: the context was lost or the
+    // burst is being dropped. Those frames count as skipped and the burst ends with what it has.
+    public void abandon() {
+        if (abandoned) {
+            return;
+        }
+        cancelled = true;
+        abandoned = true;
+        skippedFrames += inFlight;
+        inFlight = 0;
+        checkProducerDone();
+    }
+
+    public boolean isProducerDone() {
+        return producerDone;
+    }
+
+    // True once run() returned, whether or not the GL thread finished its part
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Burst thread, returns once the GL thread is done and every published frame was delivered
+    public void run(Handler mainHandler) {
+        long[] latencies = new long[frameCount];
+        int captured = 0;
+        long lastProgress = System.nanoTime();
+        try {
+            while (true) {
+                FrameRing.Slot<ByteBuffer> slot = ring.poll(20, TimeUnit.MILLISECONDS);
+                if (slot == null) {
+                    if (producerDone && ring.getFilledCount() == 0) {
+                        break;
+                    }
+                    if (System.nanoTime() - lastProgress > STALL_TIMEOUT_NANOS) {
+                        // No frames are being drawn, stop waiting for reads that may never complete
+                        cancel();
+                        break;
+                    }
+                    continue;
+                }
+                lastProgress = System.nanoTime();
+                int[] argb = pixelBufferPool.acquireInts(slot.width * slot.height);
+                PixelConverter.rgbaToArgbFlipped(slot.buffer.asIntBuffer(), argb, slot.width, slot.height);
+                Bitmap bitmap = Bitmap.createBitmap(slot.width, slot.height, Bitmap.Config.ARGB_8888);
+                bitmap.setPixels(argb, 0, slot.width, 0, 0, slot.width, slot.height);
+                pixelBufferPool.release(argb);
+
+                int index = slot.sequence;
+                long latency = slot.latencyNanos;
+                // Free the slot before handing off so the GL thread can refill it while we encode
+                ring.recycle(slot);
+                latencies[captured++] = latency;
+                listener.onBurstFrame(index, bitmap, latency);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // After an interrupt or a stall the GL thread may still be writing, leave the buffers to the GC then
+            if (producerDone) {
+                for (ByteBuffer buffer : ring.getBuffers()) {
+                    pixelBufferPool.release(buffer);
+                }
+            }
+        }
+        long[] capturedLatencies = new long[captured];
+        System.arraycopy(latencies, 0, capturedLatencies, 0, captured);
+        // Frames that never arrived count as skipped
+        int skipped = producerDone ? reportedSkippedFrames : frameCount - captured;
+        BurstStats stats = new BurstStats(frameCount, skipped, capturedLatencies);
+        finished = true;
+        mainHandler.post(() -> listener.onBurstComplete(stats));
+    }
+}
@@ -0,0 +1,69 @@
+package com.camera.filter;
+
+import java.util.Arrays;
+
+public class BurstStats {
+
+    private final int requestedFrames;
+
+    private final int skippedFrames;
+
+    private final long[] latenciesNanos;
+
+    public BurstStats(int requestedFrames, int skippedFrames, long[] latenciesNanos) {
+        this.requestedFrames = requestedFrames;
+        this.skippedFrames = skippedFrames;
+        this.latenciesNanos = latenciesNanos.clone();
+        Arrays.sort(this.latenciesNanos);
+    }
+
+    public int getRequestedFrames() {
+        return requestedFrames;
+    }
+
+    public int getCapturedFrames() {
+        return latenciesNanos.length;
+    }
+
+    // Frames rendered during the burst that found the ring buffer full
+    public int getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    public long getMinLatencyNanos() {
+        return latenciesNanos.length == 0 ? 0 : latenciesNanos[0];
+    }
+
+    public long getMaxLatencyNanos() {
+        return latenciesNanos.length == 0 ? 0 : latenciesNanos[latenciesNanos.length - 1];
+    }
+
+    public long getMeanLatencyNanos() {
+        if (latenciesNanos.length == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (long latency : latenciesNanos) {
+            sum += latency;
+        }
+        return sum / latenciesNanos.length;
+    }
+
+    // Nearest rank percentile, percentile in [0, 100]
+    public long getLatencyPercentileNanos(double percentile) {
+        if (latenciesNanos.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * latenciesNanos.length);
+        return latenciesNanos[Math.max(0, Math.min(latenciesNanos.length - 1, rank - 1))];
+    }
+
+    @Override
+    public String toString() {
+        return "captured=" + getCapturedFrames() + "/" + requestedFrames
+                + " skipped=" + skippedFrames
+                + " latencyMs(mean=" + getMeanLatencyNanos() / 1_000_000.0
+                + " p95=" + getLatencyPercentileNanos(95) / 1_000_000.0
+                + " max=" + getMaxLatencyNanos() / 1_000_000.0 + ")";
+    }
+}
@@ -1,9 +1,9 @@
 package com.camera.filter;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.graphics.ImageFormat;
 import android.graphics.SurfaceTexture;
 import android.hardware.camera2.CameraAccessException;
 import android.hardware.camera2.CameraCaptureSession;
@@ -11,30 +11,91 @@ import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CameraManager;
 import android.hardware.camera2.CaptureRequest;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
 import android.view.Surface;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
-public class Camera{
+// Camera2 control runs on its own HandlerThread, listener callbacks are posted to the main thread
+public class Camera implements FrameSource {
+
+    private static final String TAG = "Camera";
 
     private SurfaceTexture surfaceTexture;
 
     private Context context;
 
-    private CameraDevice cameraDevice;
+    private final HandlerThread cameraThread = new HandlerThread("CameraThread");
 
-    private int width;
+    private final Handler cameraHandler;
 
-    private int height;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-    private boolean isFrontCamera = true;
+    // Camera thread only
+    private CameraDevice cameraDevice;
 
     private CameraCaptureSession cameraCaptureSession;
 
-    private CameraStateListener cameraStateListener;
+    private Surface previewSurface;
+
+    private List<StreamSize> outputSizes = new ArrayList<>();
+
+    private List<StreamSize> jpegSizes = new ArrayList<>();
+
+    private int sensorOrientation = 0;
+
+    // Full resolution JPEG stream next to the preview, recreated with every session
+    private ImageReader stillReader;
+
+    private PendingStill pendingStill;
+
+    // YUV stream at the preview size while raw frames are recorded, recreated with every session
+    private ImageReader rawReader;
+
+    private RawFrameRecorder rawRecorder;
+
+    private volatile StreamSize stillSize;
+
+    private volatile StreamSize previewSize;
+
+    private volatile float aspectRatio;
+
+    private final long targetPixels;
+
+    private volatile boolean isFrontCamera = true;
+
+    private volatile CameraStateListener cameraStateListener;
+
+    private volatile SwitchLatencyTracker switchLatencyTracker;
+
+    public interface StillCallback {
+        // Main thread. The JPEG is in sensor orientation, rotating it clockwise by rotationDegrees
+        // turns it upright for the portrait UI. captureNanos runs from takePicture to the JPEG.
+        void onStillCaptured(byte[] jpeg, int rotationDegrees, long captureNanos);
+        void onStillFailed(String error);
+    }
+
+    private static class PendingStill {
+        final StillCallback callback;
+        final long requestedNanos;
+        final int rotationDegrees;
+
+        PendingStill(StillCallback callback, long requestedNanos, int rotationDegrees) {
+            this.callback = callback;
+            this.requestedNanos = requestedNanos;
+            this.rotationDegrees = rotationDegrees;
+        }
+    }
 
     public void setCameraStateListener(CameraStateListener cameraStateListener) {
         this.cameraStateListener = cameraStateListener;
@@ -44,26 +105,61 @@ public class Camera{
         void onCameraClosed();
         void onCameraError(String error);
     }
-    public Camera(Context context, SurfaceTexture surfaceTexture, int width, int height) {
+
+    public Camera(Context context, SurfaceTexture surfaceTexture, float aspectRatio) {
+        this(context, surfaceTexture, aspectRatio, StreamSizeSelector.DEFAULT_TARGET_PIXELS);
+    }
+
+    // aspectRatio is width / height of the preview, targetPixels the smallest stream size wanted
+    public Camera(Context context, SurfaceTexture surfaceTexture, float aspectRatio, long targetPixels) {
         this.context = context;
         this.surfaceTexture = surfaceTexture;
-        this.width = width;
-        this.height = height;
+        this.aspectRatio = aspectRatio;
+        this.targetPixels = targetPixels;
+        cameraThread.start();
+        cameraHandler = new Handler(cameraThread.getLooper());
+        // Warm the registry before the first open needs it
+        cameraHandler.post(() -> {
+            try {
+                CameraRegistry.getInstance(context);
+            } catch (CameraAccessException e) {
+                Log.w(TAG, "Could not read camera characteristics", e);
+            }
+        });
+    }
+
+    // Opens the back camera
+    @Override
+    public void start() {
+        openBackCamera();
+    }
+
+    public void setSwitchLatencyTracker(SwitchLatencyTracker switchLatencyTracker) {
+        this.switchLatencyTracker = switchLatencyTracker;
     }
 
     public void openFrontCamera() {
-        closeCamera();
         isFrontCamera = true;
-        openCamera(true);
+        cameraHandler.post(() -> {
+            closeDevice();
+            openCamera(true);
+        });
     }
 
     public void openBackCamera() {
-        closeCamera();
         isFrontCamera = false;
-        openCamera(false);
+        cameraHandler.post(() -> {
+            closeDevice();
+            openCamera(false);
+        });
     }
 
+    // Only the device and session are replaced, the SurfaceTexture, its Surface and the GL side stay
     public boolean rotateCamera(){
+        SwitchLatencyTracker tracker = switchLatencyTracker;
+        if (tracker != null) {
+            tracker.onSwitchRequested(System.nanoTime());
+        }
         if(isFrontCamera){
             openBackCamera();
         } else {
@@ -72,13 +168,134 @@ public class Camera{
         return isFrontCamera;
     }
 
-    public void openCamera(boolean isFrontCamera) {
+    // Restarts the session with the stream size that best fits the new ratio, if it differs
+    @Override
+    public void setAspectRatio(float aspectRatio) {
+        this.aspectRatio = aspectRatio;
+        cameraHandler.post(() -> {
+            if (cameraDevice == null) {
+                return;
+            }
+            StreamSize size = StreamSizeSelector.select(outputSizes, this.aspectRatio, targetPixels);
+            if (size != null && !size.equals(previewSize)) {
+                closeSession();
+                startPreview();
+            }
+        });
+    }
+
+    @Override
+    public StreamSize getPreviewSize() {
+        return previewSize;
+    }
+
+    // Size of the JPEG stream, null before the first session
+    public StreamSize getStillSize() {
+        return stillSize;
+    }
+
+    // Captures one JPEG at the still stream size while the preview keeps running. Only one
+    // capture is in flight at a time, a second request fails right away.
+    public void takePicture(StillCallback callback) {
+        long requestedNanos = System.nanoTime();
+        cameraHandler.post(() -> {
+            if (cameraCaptureSession == null || stillReader == null) {
+                mainHandler.post(() -> callback.onStillFailed("Camera not ready"));
+                return;
+            }
+            if (pendingStill != null) {
+                mainHandler.post(() -> callback.onStillFailed("Still capture in progress"));
+                return;
+            }
+            try {
+                CaptureRequest.Builder builder = cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE);
+                builder.addTarget(previewSurface);
+                builder.addTarget(stillReader.getSurface());
+                builder.set(CaptureRequest.JPEG_QUALITY, (byte) 95);
+                // Orientation is applied while processing, so the pixels stay in sensor orientation
+                builder.set(CaptureRequest.JPEG_ORIENTATION, 0);
+                pendingStill = new PendingStill(callback, requestedNanos, sensorOrientation);
+                cameraCaptureSession.capture(builder.build(), null, cameraHandler);
+            } catch (CameraAccessException e) {
+                pendingStill = null;
+                mainHandler.post(() -> callback.onStillFailed(e.getMessage()));
+            }
+        });
+    }
+
+    // Adds a YUV stream at the preview size and hands every frame of it to recorder, which must
+    // have the current preview size. Restarts the session.
+    public void startRawRecording(RawFrameRecorder recorder) {
+        cameraHandler.post(() -> {
+            rawRecorder = recorder;
+            restartSession();
+        });
+    }
+
+    // Frames already handed to the recorder are still written, close it after this
+    public void stopRawRecording() {
+        cameraHandler.post(() -> {
+            rawRecorder = null;
+            restartSession();
+        });
+    }
+
+    // Camera thread
+    private void restartSession() {
+        if (cameraDevice != null) {
+            closeSession();
+            startPreview();
+        }
+    }
+
+    // Camera thread
+    private void onRawFrameAvailable(ImageReader reader) {
+        Image image = reader.acquireNextImage();
+        if (image == null) {
+            return;
+        }
+        RawFrameRecorder recorder = rawRecorder;
+        if (recorder != null) {
+            recorder.onImage(image);
+        } else {
+            image.close();
+        }
+    }
+
+    // Camera thread
+    private void onStillAvailable(ImageReader reader) {
+        Image image = reader.acquireNextImage();
+        if (image == null) {
+            return;
+        }
+        byte[] jpeg;
+        try {
+            ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+            jpeg = new byte[buffer.remaining()];
+            buffer.get(jpeg);
+        } finally {
+            image.close();
+        }
+        PendingStill still = pendingStill;
+        pendingStill = null;
+        if (still != null) {
+            long captureNanos = System.nanoTime() - still.requestedNanos;
+            mainHandler.post(() -> still.callback.onStillCaptured(jpeg, still.rotationDegrees, captureNanos));
+        }
+    }
+
+    // Camera thread
+    private void openCamera(boolean isFrontCamera) {
         CameraManager cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
         try {
-            String cameraId = getCameraId(cameraManager, isFrontCamera ? CameraCharacteristics.LENS_FACING_FRONT : CameraCharacteristics.LENS_FACING_BACK);
+            CameraRegistry.CameraInfo cameraInfo = CameraRegistry.getInstance(context).get(
+                    isFrontCamera ? CameraCharacteristics.LENS_FACING_FRONT : CameraCharacteristics.LENS_FACING_BACK);
 
-            if (cameraId != null && ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
-                cameraManager.openCamera(cameraId, new CameraDevice.StateCallback() {
+            if (cameraInfo != null && ActivityCompat.checkSelfPermission(context, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+                outputSizes = cameraInfo.outputSizes;
+                jpegSizes = cameraInfo.jpegSizes;
+                sensorOrientation = cameraInfo.sensorOrientation;
+                cameraManager.openCamera(cameraInfo.id, new CameraDevice.StateCallback() {
                     @Override
                     public void onOpened(@NonNull CameraDevice camera) {
                         cameraDevice = camera;
@@ -89,82 +306,151 @@ public class Camera{
                     public void onDisconnected(@NonNull CameraDevice camera) {
                         cameraDevice = null;
                         camera.close();
-                        if(cameraStateListener != null) cameraStateListener.onCameraClosed();
+                        notifyListener(listener -> listener.onCameraClosed());
                     }
 
                     @Override
                     public void onError(@NonNull CameraDevice camera, int error) {
                         cameraDevice = null;
                         camera.close();
-                        if(cameraStateListener != null) cameraStateListener.onCameraError("Camera error: " + error);
+                        notifyListener(listener -> listener.onCameraError("Camera error: " + error));
                     }
-                }, null);
+                }, cameraHandler);
             }
 
         } catch (CameraAccessException e) {
-            if(cameraStateListener != null) cameraStateListener.onCameraError(e.getMessage());
+            notifyListener(listener -> listener.onCameraError(e.getMessage()));
         }
     }
 
+    // Camera thread
     private void startPreview(){
-        surfaceTexture.setDefaultBufferSize(width, height);
-        @SuppressLint("Recycle")
-        Surface surface = new Surface(surfaceTexture);
+        StreamSize size = StreamSizeSelector.select(outputSizes, aspectRatio, targetPixels);
+        if (size == null) {
+            // Nothing reported, let the camera pick what is closest to the target
+            size = new StreamSize(1920, 1080);
+        }
+        previewSize = size;
+        Log.d(TAG, "Preview size " + size + " for aspect ratio " + aspectRatio);
+        surfaceTexture.setDefaultBufferSize(size.getWidth(), size.getHeight());
+        if (previewSurface == null) {
+            previewSurface = new Surface(surfaceTexture);
+        }
+        Surface surface = previewSurface;
+
+        // Largest JPEG size with the preview's shape
+        StreamSize still = StreamSizeSelector.select(jpegSizes, aspectRatio, Long.MAX_VALUE);
+        List<Surface> outputs = new ArrayList<>();
+        outputs.add(surface);
+        if (still != null) {
+            stillReader = ImageReader.newInstance(still.getWidth(), still.getHeight(), ImageFormat.JPEG, 2);
+            stillReader.setOnImageAvailableListener(this::onStillAvailable, cameraHandler);
+            outputs.add(stillReader.getSurface());
+        }
+        stillSize = still;
+        RawFrameRecorder recorder = rawRecorder;
+        if (recorder != null) {
+            if (recorder.getWidth() == size.getWidth() && recorder.getHeight() == size.getHeight()) {
+                rawReader = ImageReader.newInstance(size.getWidth(), size.getHeight(), ImageFormat.YUV_420_888, 3);
+                rawReader.setOnImageAvailableListener(this::onRawFrameAvailable, cameraHandler);
+                outputs.add(rawReader.getSurface());
+            } else {
+                Log.w(TAG, "Raw recording is " + recorder.getWidth() + "x" + recorder.getHeight()
+                        + ", preview " + size + ", not recording");
+            }
+        }
 
         try {
             CaptureRequest.Builder captureRequestBuilder = cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
             captureRequestBuilder.addTarget(surface);
+            if (rawReader != null) {
+                captureRequestBuilder.addTarget(rawReader.getSurface());
+            }
             CaptureRequest captureRequest = captureRequestBuilder.build();
 
-            cameraDevice.createCaptureSession(List.of(surface), new CameraCaptureSession.StateCallback() {
+            cameraDevice.createCaptureSession(outputs, new CameraCaptureSession.StateCallback() {
                 @Override
                 public void onConfigured(@NonNull CameraCaptureSession session) {
                     cameraCaptureSession = session;
                     try {
-                        session.setRepeatingRequest(captureRequest, null, null);
-                        if(cameraStateListener != null) cameraStateListener.onCameraOpened();
+                        session.setRepeatingRequest(captureRequest, null, cameraHandler);
+                        SwitchLatencyTracker tracker = switchLatencyTracker;
+                        if (tracker != null) {
+                            tracker.onSessionStarted(System.nanoTime());
+                        }
+                        notifyListener(listener -> listener.onCameraOpened());
                     } catch (CameraAccessException e) {
-                        if(cameraStateListener != null) cameraStateListener.onCameraError(e.getMessage());
+                        notifyListener(listener -> listener.onCameraError(e.getMessage()));
                     }
                 }
 
                 @Override
                 public void onConfigureFailed(@NonNull CameraCaptureSession session) {
-                    if(cameraStateListener != null) cameraStateListener.onCameraError("Configuration failed");
+                    notifyListener(listener -> listener.onCameraError("Configuration failed"));
                 }
-            }, null);
+            }, cameraHandler);
         } catch (CameraAccessException e) {
-            if(cameraStateListener != null) cameraStateListener.onCameraError(e.getMessage());
+            notifyListener(listener -> listener.onCameraError(e.getMessage()));
         } catch (Exception e) {
-            if(cameraStateListener != null) cameraStateListener.onCameraError("Unexpected error: " + e.getMessage());
+            notifyListener(listener -> listener.onCameraError("Unexpected error: " + e.getMessage()));
         }
     }
 
+    private interface ListenerCall {
+        void call(CameraStateListener listener);
+    }
+
+    // The listener is read on the main thread, so one swapped in from a callback sees the next event
+    private void notifyListener(ListenerCall call) {
+        mainHandler.post(() -> {
+            CameraStateListener listener = cameraStateListener;
+            if (listener != null) call.call(listener);
+        });
+    }
+
     public void closeCamera(){
-        if(cameraDevice != null) {
-            cameraDevice.close();
-            cameraDevice = null;
-        }
+        cameraHandler.post(this::closeDevice);
+    }
+
+    // Closes the camera and stops the camera thread once the close has run
+    @Override
+    public void release() {
+        cameraHandler.post(() -> {
+            closeDevice();
+            if (previewSurface != null) {
+                previewSurface.release();
+                previewSurface = null;
+            }
+        });
+        cameraThread.quitSafely();
+    }
+
+    private void closeSession() {
         if(cameraCaptureSession != null) {
             cameraCaptureSession.close();
             cameraCaptureSession = null;
         }
+        if (stillReader != null) {
+            stillReader.close();
+            stillReader = null;
+        }
+        if (rawReader != null) {
+            rawReader.close();
+            rawReader = null;
+        }
+        PendingStill still = pendingStill;
+        pendingStill = null;
+        if (still != null) {
+            mainHandler.post(() -> still.callback.onStillFailed("Camera closed"));
+        }
     }
 
-    public static String getCameraId(CameraManager cameraManager, int lensFacing) {
-        try {
-            for (String cameraId : cameraManager.getCameraIdList()) {
-                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
-                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
-
-                if (facing != null && facing == lensFacing) {
-                    return cameraId;
-                }
-            }
-        } catch (CameraAccessException e) {
-            e.printStackTrace();
+    // Camera thread
+    private void closeDevice(){
+        closeSession();
+        if(cameraDevice != null) {
+            cameraDevice.close();
+            cameraDevice = null;
         }
-
-        return null;
     }
 }
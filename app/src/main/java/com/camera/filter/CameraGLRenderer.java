@@ -2,39 +2,47 @@ package com.camera.filter;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.SurfaceTexture;
 import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.GLUtils;
 import android.opengl.Matrix;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.IntBuffer;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 public class CameraGLRenderer implements GLSurfaceView.Renderer {
 
+    private static final String TAG = "CameraGLRenderer";
+
     private Context context;
 
     public CameraGLRenderer(Context context) {
         this.context = context;
+        this.importedLuts = new ImportedLuts(context);
     }
 
+    // Outlives the GL surface so parsed .cube files survive a surface recreation
+    private final ImportedLuts importedLuts;
+
     private final float[] vPMatrix = new float[16];
     private final float[] projectionMatrix = new float[16];
     private final float[] viewMatrix = new float[16];
     private SurfaceTexture surfaceTexture;
     private int textureId = 0;
-    private AtomicBoolean updateSurface = new AtomicBoolean(false);
-    private FrameAvailableListener frameAvailableListener;
+    private final FramePacer framePacer = new FramePacer(FramePacer.Mode.VSYNC);
+    private final RenderScheduler renderScheduler = new RenderScheduler(framePacer);
+    private volatile FrameAvailableListener frameAvailableListener;
 
     private SurfaceReadyListener surfaceReadyListener;
 
@@ -44,12 +52,67 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
 
     private CaptureListener captureListener;
 
-    private int width = 0, height = 0;
+    private volatile ReadbackMode readbackMode = ReadbackMode.ASYNC_PBO;
+
+    private PixelReadback pixelReadback;
+
+    // Swizzling and bitmap creation run here so they never stall the GL thread
+    private final ExecutorService readbackExecutor = Executors.newSingleThreadExecutor();
+
+    private final PixelBufferPool pixelBufferPool = new PixelBufferPool();
+
+    private final ExecutorService burstExecutor = Executors.newSingleThreadExecutor();
+
+    private volatile BurstRequest pendingBurst;
+
+    // Replaced on the GL thread only
+    private volatile BurstCapture burstCapture;
+
+    private volatile long lastFrameAvailableNanos = 0;
+
+    private volatile SwitchLatencyTracker switchLatencyTracker;
 
-    private int overlayTextureId = 0;
+    private final PipelineTimings timings = new PipelineTimings();
+
+    // Null without EXT_disjoint_timer_query
+    private GpuTimer gpuTimer;
+
+    private int width = 0, height = 0;
 
     private OverlayPreview overlayPreview;
 
+    // Replaced on the GL thread, volatile for release()
+    private volatile OverlayTextureCache overlayTextureCache;
+
+    // Replaced on the GL thread, volatile for release()
+    private volatile ThumbnailRenderer thumbnailRenderer;
+
+    // Replaces the single filter program while set
+    private volatile FilterGraph filterGraph;
+
+    private FilterGraphRenderer filterGraphRenderer;
+
+    private final long startNanos = System.nanoTime();
+
+    private final ResolutionController resolutionController = new ResolutionController();
+
+    // Filter pass target while rendering below the surface resolution
+    private ScaledRenderTarget scaledRenderTarget;
+
+    private volatile ThumbnailRenderer.Listener thumbnailListener;
+
+    // What the GL thread should be recording into, null to stop. Set from any thread.
+    private final AtomicReference<VideoRecorder> requestedRecorder = new AtomicReference<>();
+
+    // GL thread only, both null while not recording
+    private VideoRecorder recorder;
+
+    private EncoderSurface encoderSurface;
+
+    private volatile Runnable renderRequester;
+
+    private final Runnable drawThumbnailSource = () -> cameraPreview.drawUnfiltered(vPMatrix);
+
     public interface FrameAvailableListener {
         void onFrameAvailable(SurfaceTexture surfaceTexture);
     }
@@ -62,13 +125,37 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
         void onCapture(Bitmap bitmap);
     }
 
-    private CameraPreview cameraPreview;
+    public enum ReadbackMode {
+        // glReadPixels straight into client memory, blocks until the frame is rendered
+        SYNC,
+        // glReadPixels into a pixel pack buffer that is mapped one frame later, needs ES 3
+        ASYNC_PBO
+    }
+
+    // Replaced on the GL thread, volatile for release()
+    private volatile CameraPreview cameraPreview;
+
+    // Shared by every pass, created with the GL context
+    private FullScreenQuad quad;
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
-        int[] textures = new int[2];
-        GLES20.glGenTextures(2, textures, 0);
+        // The encoder surface belonged to the lost context, the recording ends with the frames it has
+        if (recorder != null) {
+            requestedRecorder.compareAndSet(recorder, null);
+            recorder.endOfInput();
+            recorder = null;
+            encoderSurface = null;
+        }
+        // Reads into the burst's slots were queued in the lost context and will never complete
+        BurstCapture lostBurst = burstCapture;
+        if (lostBurst != null) {
+            lostBurst.abandon();
+            burstCapture = null;
+        }
+        releaseGlResources();
+        int[] textures = new int[1];
+        GLES20.glGenTextures(1, textures, 0);
         textureId = textures[0];
-        overlayTextureId = textures[1];
         GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
 
         GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
@@ -78,26 +165,50 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
         GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
         GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
 
-
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, overlayTextureId);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
         GLES20.glEnable(GLES20.GL_BLEND);
         GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
         surfaceTexture = new SurfaceTexture(textureId);
 
-        cameraPreview = new CameraPreview();
-
-        surfaceTexture.setOnFrameAvailableListener(surfaceTexture -> {
-            updateSurface.set(true);
-            handler.post(()-> {
-                if (frameAvailableListener != null) {
-                    frameAvailableListener.onFrameAvailable(surfaceTexture);
-                }
-            });
+        LutFileCache lutFileCache = new LutFileCache(new File(context.getCacheDir(), "luts"));
+        quad = new FullScreenQuad();
+        cameraPreview = new CameraPreview(quad, new LutTextureCache(lutFileCache, importedLuts, LutBaker.DEFAULT_SIZE));
+
+        // Draws are requested from the scheduler thread, the main thread only hears about frames if someone listens
+        renderScheduler.attach(surfaceTexture, surfaceTexture -> {
+            long now = System.nanoTime();
+            lastFrameAvailableNanos = now;
+            SwitchLatencyTracker tracker = switchLatencyTracker;
+            if (tracker != null) {
+                tracker.onFrame(now);
+            }
+            if (frameAvailableListener != null) {
+                handler.post(()-> {
+                    if (frameAvailableListener != null) {
+                        frameAvailableListener.onFrameAvailable(surfaceTexture);
+                    }
+                });
+            }
         });
 
-        overlayPreview = new OverlayPreview();
+        overlayPreview = new OverlayPreview(quad);
+        overlayTextureCache = new OverlayTextureCache(context.getAssets());
+        filterGraphRenderer = new FilterGraphRenderer(quad, overlayTextureCache);
+        scaledRenderTarget = new ScaledRenderTarget(quad);
+
+        thumbnailRenderer = new ThumbnailRenderer(FilterType.getAllFilters(), ThumbnailRenderer.DEFAULT_SHORT_SIDE,
+                ThumbnailRenderer.DEFAULT_INTERVAL_NANOS, handler, thumbnails -> {
+                    ThumbnailRenderer.Listener listener = thumbnailListener;
+                    if (listener != null) {
+                        listener.onThumbnails(thumbnails);
+                    }
+                });
+
+        pixelReadback = PixelReadback.isSupported() ? new PixelReadback() : null;
+
+        gpuTimer = GpuTimer.isSupported() ? new GpuTimer(timings, PipelineTimings.Stage.GPU_FRAME) : null;
+        if (gpuTimer != null) {
+            gpuTimer.setListener(resolutionController::onFrameTime);
+        }
 
         handler.post(() -> {
             if (surfaceReadyListener != null) {
@@ -111,6 +222,7 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
         this.width = width;
         this.height = height;
         GLES20.glViewport(0, 0, width, height);
+        overlayTextureCache.setTargetSize(width, height);
         float ratio = (float) width / height;
         if(ratio > 1.0f){
             Matrix.frustumM(projectionMatrix, 0, -1, 1, -1.0f / ratio, 1.0f / ratio, 3, 7);
@@ -119,16 +231,24 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
         }
     }
 
-    private volatile boolean applyOverlay = false;
-
     private volatile String overLayPath;
 
+    private volatile float overlayAlpha = 1.0f;
+
     @Override
     public void onDrawFrame(GL10 gl) {
+        long frameStart = System.nanoTime();
+        long drawsBefore = quad.getDrawCount();
+        if (gpuTimer != null) {
+            gpuTimer.begin();
+        }
 
-        if (updateSurface.compareAndSet(true, false)) {
+        // Latching once per queued frame leaves the newest one current, the older ones are dropped
+        int frames = framePacer.onRenderStarted();
+        for (int i = 0; i < frames; i++) {
             surfaceTexture.updateTexImage();
         }
+        long frameAvailableNanos = lastFrameAvailableNanos;
 
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
 
@@ -141,52 +261,215 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
 
         Matrix.multiplyMM(vPMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
 
-        cameraPreview.draw(vPMatrix);
+        long stageStart = System.nanoTime();
+        boolean recording = updateRecording();
+        // Captures and bursts read the screen, so their frames are always filtered at full resolution
+        boolean fullResolution = captureNextFrame.get() || pendingBurst != null || burstCapture != null;
+        float scale = fullResolution ? ResolutionController.MAX_SCALE : resolutionController.getScale();
+        boolean scaled = scale < ResolutionController.MAX_SCALE;
+        // While recording the frame is rendered once offscreen, then drawn to the screen and the encoder
+        boolean offscreen = scaled || recording;
+        int filterWidth = scaled ? ResolutionController.scaledSize(width, scale) : width;
+        int filterHeight = scaled ? ResolutionController.scaledSize(height, scale) : height;
+        if (offscreen) {
+            scaledRenderTarget.begin(filterWidth, filterHeight);
+        }
+        FilterGraph graph = filterGraph;
+        if (graph != null) {
+            // Wraps every 1000 s so grain keeps float precision
+            float time = ((frameStart - startNanos) % 1_000_000_000_000L) / 1e9f;
+            filterGraphRenderer.draw(graph, vPMatrix, offscreen ? scaledRenderTarget.getFramebuffer() : 0,
+                    filterWidth, filterHeight, time);
+        } else {
+            cameraPreview.draw(vPMatrix);
+        }
+        if (recording) {
+            // Into the offscreen frame so the overlay is baked into the video too
+            drawOverlay();
+        }
+        if (offscreen) {
+            scaledRenderTarget.drawToScreen(width, height);
+        }
+        timings.record(PipelineTimings.Stage.CAMERA_PREVIEW, System.nanoTime() - stageStart);
+
+        if (!recording) {
+            drawOverlay();
+        }
 
 
-        if(applyOverlay && overLayPath != null){
-            Bitmap overlayBitmap = loadBitmap(overLayPath);
-            GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, overlayBitmap, 0);
-            applyOverlay = false;
+        boolean capture = captureNextFrame.compareAndSet(true, false);
+        boolean async = pixelReadback != null && readbackMode == ReadbackMode.ASYNC_PBO;
+        PixelReadback.Callback readbackCallback = capture && async ? this::onPixelsRead : null;
+        if(capture && !async){
+            captureBitmap();
+        }
+
+        BurstCapture burst = updateBurst();
+        if(burst != null && !burst.hasSize(width, height)){
+            // The surface changed size mid burst, its slots no longer fit the frame. nextSlot() then
+            // returns null and ends the burst once the reads already queued are in.
+            burst.cancel();
+        }
+        FrameRing.Slot<ByteBuffer> burstSlot = burst != null ? burst.nextSlot() : null;
+        if(burstSlot != null){
+            if(async){
+                PixelReadback.Callback captureCallback = readbackCallback;
+                readbackCallback = (pixels, w, h) -> {
+                    if(captureCallback != null) {
+                        captureCallback.onPixelsRead(pixels, w, h);
+                        pixels.position(0);
+                    }
+                    burst.fillSlot(burstSlot, pixels, frameAvailableNanos);
+                };
+            }else{
+                GLES20.glReadPixels(
+                        0, 0, width, height,
+                        GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, burstSlot.buffer
+                );
+                burst.onSlotFilled(burstSlot, frameAvailableNanos);
+            }
         }
-        if(overLayPath != null){
-            overlayPreview.draw(vPMatrix);
+
+        if(pixelReadback != null && (async || pixelReadback.hasPendingReads())){
+            pixelReadback.onFrameDrawn(width, height, readbackCallback);
         }
 
+        if(thumbnailListener != null){
+            thumbnailRenderer.onFrameDrawn(System.nanoTime(), width, height, drawThumbnailSource);
+        }
 
-        if(captureNextFrame.compareAndSet(true, false)){
-            captureBitmap();
+        if (recording) {
+            encodeFrame();
         }
 
+        if (gpuTimer != null) {
+            gpuTimer.end();
+        }
+        long frameNanos = System.nanoTime() - frameStart;
+        timings.record(PipelineTimings.Stage.FRAME, frameNanos);
+        if (gpuTimer == null) {
+            // Without GPU timings the CPU side of the frame is the only cost there is to go by
+            resolutionController.onFrameTime(frameNanos);
+        }
+        timings.recordDrawCalls((int) (quad.getDrawCount() - drawsBefore));
+
+    }
+
+    private void drawOverlay() {
+        String overlayPath = overLayPath;
+        if(overlayPath != null){
+            // Drawn from the next frame on once the asset is decoded and uploaded
+            OverlayTextureCache.OverlayTexture overlayTexture = overlayTextureCache.getTexture(overlayPath);
+            if(overlayTexture != null){
+                long stageStart = System.nanoTime();
+                overlayPreview.draw(vPMatrix, overlayTexture.id);
+                timings.record(PipelineTimings.Stage.OVERLAY, System.nanoTime() - stageStart);
+            }
+        }
+    }
+
+    // Ends or starts recordings as requested, true while one is running. endOfInput may have been
+    // called already by stopRecording, it only takes effect once.
+    private boolean updateRecording() {
+        VideoRecorder requested = requestedRecorder.get();
+        if (recorder != null && recorder != requested) {
+            encoderSurface.release();
+            encoderSurface = null;
+            recorder.endOfInput();
+            recorder = null;
+        }
+        if (requested != null && recorder == null) {
+            try {
+                encoderSurface = new EncoderSurface(requested.getInputSurface());
+                recorder = requested;
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Could not record into the encoder", e);
+                requestedRecorder.compareAndSet(requested, null);
+                requested.endOfInput();
+            }
+        }
+        return recorder != null;
+    }
+
+    // Draws the offscreen frame into the encoder, stamped with the camera time of the latched frame
+    private void encodeFrame() {
+        if (requestedRecorder.get() != recorder) {
+            // Stopped during this frame, its input has ended
+            return;
+        }
+        long timestampNanos = surfaceTexture.getTimestamp();
+        RecordingStats stats = recorder.getStats();
+        if (!stats.onFrameRendered(timestampNanos)) {
+            return;
+        }
+        long start = System.nanoTime();
+        VideoSettings settings = recorder.getSettings();
+        if (encoderSurface.makeCurrent()) {
+            scaledRenderTarget.drawToScreen(settings.getWidth(), settings.getHeight());
+            if (!encoderSurface.swapAndRestore(timestampNanos)) {
+                stats.onFrameLost();
+            }
+        } else {
+            stats.onFrameLost();
+        }
+        GLES20.glViewport(0, 0, width, height);
+        timings.record(PipelineTimings.Stage.RECORD, System.nanoTime() - start);
+    }
+
+    private BurstCapture updateBurst() {
+        BurstCapture current = burstCapture;
+        if (current != null && current.isFinished() && !current.isProducerDone()) {
+            // The burst thread gave up waiting, reads completing after this are dropped
+            current.abandon();
+        }
+        if (current != null && current.isProducerDone()) {
+            burstCapture = null;
+        }
+        BurstRequest request = pendingBurst;
+        if (request != null && burstCapture == null) {
+            pendingBurst = null;
+            BurstCapture burst = new BurstCapture(request.frameCount, BurstCapture.DEFAULT_RING_SIZE,
+                    width, height, pixelBufferPool, request.listener);
+            burstCapture = burst;
+            burstExecutor.execute(() -> burst.run(handler));
+        }
+        return burstCapture;
     }
 
     private void captureBitmap() {
-        int[] buffer = new int[width * height];
-        IntBuffer intBuffer = IntBuffer.wrap(buffer);
-        intBuffer.position(0);
+        long start = System.nanoTime();
+        ByteBuffer pixels = pixelBufferPool.acquireBuffer(width * height * 4);
         GLES20.glReadPixels(
                 0, 0, width, height,
-                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, intBuffer
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels
         );
+        timings.record(PipelineTimings.Stage.CAPTURE_READBACK, System.nanoTime() - start);
+        convertAndDeliver(pixels, width, height);
+    }
 
-        int[] pixelsBuffer = new int[width * height];
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                int pix = buffer[i * width + j];
-                int pb = (pix >> 16) & 0xff;
-                int pr = (pix << 16) & 0x00ff0000;
-                int pix1 = (pix & 0xff00ff00) | pr | pb;
-                pixelsBuffer[(height - i - 1) * width + j] = pix1;
-            }
-        }
-        Bitmap bitmap = Bitmap.createBitmap(
-                pixelsBuffer, width, height,
-                Bitmap.Config.ARGB_8888
-        );
-        handler.post(()->{
-            if(captureListener != null) {
-                captureListener.onCapture(bitmap);
-            }
+    private void onPixelsRead(ByteBuffer mappedPixels, int width, int height) {
+        ByteBuffer pixels = pixelBufferPool.acquireBuffer(width * height * 4);
+        pixels.put(mappedPixels);
+        pixels.position(0);
+        convertAndDeliver(pixels, width, height);
+    }
+
+    private void convertAndDeliver(ByteBuffer pixels, int width, int height) {
+        readbackExecutor.execute(() -> {
+            long start = System.nanoTime();
+            int[] argb = pixelBufferPool.acquireInts(width * height);
+            PixelConverter.rgbaToArgbFlipped(pixels.asIntBuffer(), argb, width, height);
+            pixelBufferPool.release(pixels);
+
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.setPixels(argb, 0, width, 0, 0, width, height);
+            pixelBufferPool.release(argb);
+            timings.record(PipelineTimings.Stage.CAPTURE_CONVERT, System.nanoTime() - start);
+            handler.post(()->{
+                if(captureListener != null) {
+                    captureListener.onCapture(bitmap);
+                }
+            });
         });
     }
 
@@ -195,10 +478,137 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
         this.captureListener = captureListener;
     }
 
+    // Reads the next frameCount rendered frames through the active filter and overlay.
+    // A burst requested while another one is running starts once that one is done.
+    public void startBurst(int frameCount, BurstCapture.BurstListener listener) {
+        if (frameCount < 1) {
+            throw new IllegalArgumentException("Burst needs at least one frame: " + frameCount);
+        }
+        pendingBurst = new BurstRequest(frameCount, listener);
+    }
+
+    public void cancelBurst() {
+        pendingBurst = null;
+        BurstCapture burst = burstCapture;
+        if (burst != null) {
+            burst.cancel();
+        }
+    }
+
+    private static class BurstRequest {
+        final int frameCount;
+        final BurstCapture.BurstListener listener;
+
+        BurstRequest(int frameCount, BurstCapture.BurstListener listener) {
+            this.frameCount = frameCount;
+            this.listener = listener;
+        }
+    }
+
+    // Stops the renderer's own threads for good, from the activity's onDestroy. Frames arriving
+    // later are no longer scheduled. GL objects are deleted with the view's context.
+    public void release() {
+        cancelBurst();
+        renderScheduler.release();
+        readbackExecutor.shutdown();
+        burstExecutor.shutdown();
+        CameraPreview preview = cameraPreview;
+        if (preview != null) {
+            preview.shutdown();
+        }
+        OverlayTextureCache overlays = overlayTextureCache;
+        if (overlays != null) {
+            overlays.shutdown();
+        }
+        ThumbnailRenderer thumbnails = thumbnailRenderer;
+        if (thumbnails != null) {
+            thumbnails.shutdown();
+        }
+    }
+
+    // Releases what the previous context's onSurfaceCreated made before it is replaced. Those
+    // objects died with that context and their names are not in use in the new one yet, so the
+    // deletes are no-ops, but the helpers' background threads would otherwise live on.
+    private void releaseGlResources() {
+        if (cameraPreview != null) {
+            cameraPreview.release();
+        }
+        if (overlayTextureCache != null) {
+            overlayTextureCache.release();
+        }
+        if (thumbnailRenderer != null) {
+            thumbnailRenderer.release();
+        }
+    }
+
+    public PixelBufferPool getPixelBufferPool() {
+        return pixelBufferPool;
+    }
+
+    public void setReadbackMode(ReadbackMode readbackMode) {
+        this.readbackMode = readbackMode;
+    }
+
+    // The view's requestRender, called straight from the scheduler thread when a frame should be drawn
+    public void setRenderRequester(Runnable renderRequester) {
+        this.renderRequester = renderRequester;
+        renderScheduler.setRenderRequester(renderRequester);
+    }
+
+    // Renders every new camera frame into the recorder's input surface as well, filtered and with the
+    // overlay, until stopRecording or another recording replaces it
+    public void startRecording(VideoRecorder recorder) {
+        requestedRecorder.set(recorder);
+        requestRender();
+    }
+
+    // Ends the recorder's input right away, so the file is finalized even when no further frame is
+    // drawn, e.g. from onStop. The completion finishes once the frames drawn so far are written. The
+    // GL thread releases the encoder surface with its next frame.
+    public void stopRecording() {
+        VideoRecorder stopped = requestedRecorder.getAndSet(null);
+        if (stopped != null) {
+            stopped.endOfInput();
+        }
+        requestRender();
+    }
+
+    public boolean isRecording() {
+        return requestedRecorder.get() != null;
+    }
+
+    // The encoder is only switched on the GL thread, so make sure a frame comes even without camera frames
+    private void requestRender() {
+        Runnable requester = renderRequester;
+        if (requester != null) {
+            requester.run();
+        }
+    }
+
+    // Per stage CPU and GPU durations, readable from any thread
+    public PipelineTimings getTimings() {
+        return timings;
+    }
+
+    // Received, rendered and dropped camera frames
+    public FramePacer getFramePacer() {
+        return framePacer;
+    }
+
     public void setFrameAvailableListener(FrameAvailableListener frameAvailableListener) {
         this.frameAvailableListener = frameAvailableListener;
     }
 
+    // Thumbnails of FilterType.getAllFilters() in order, refreshed a few times per second while set
+    public void setThumbnailListener(ThumbnailRenderer.Listener thumbnailListener) {
+        this.thumbnailListener = thumbnailListener;
+    }
+
+    // Frames reaching the SurfaceTexture end a pending camera switch measurement
+    public void setSwitchLatencyTracker(SwitchLatencyTracker switchLatencyTracker) {
+        this.switchLatencyTracker = switchLatencyTracker;
+    }
+
     public void setSurfaceReadyListener(SurfaceReadyListener surfaceReadyListener) {
         this.surfaceReadyListener = surfaceReadyListener;
         if(surfaceTexture != null){
@@ -210,6 +620,54 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
         cameraPreview.setFilterType(filterType);
     }
 
+    // Filters at a fixed fraction of the surface resolution, from ResolutionController.MIN_SCALE to 1
+    public void setResolutionScale(float scale) {
+        resolutionController.setFixedScale(scale);
+    }
+
+    // Picks the scale from measured frame times, on by default
+    public void setAutoResolution(boolean auto) {
+        resolutionController.setAuto(auto);
+    }
+
+    public ResolutionController getResolutionController() {
+        return resolutionController;
+    }
+
+    // Draws the camera image through the graph instead of the current filter, null switches back
+    public void setFilterGraph(FilterGraph filterGraph) {
+        this.filterGraph = filterGraph;
+    }
+
+    public void setLutFilter(LutFilter lutFilter) {
+        cameraPreview.setLutFilter(lutFilter);
+    }
+
+    // What the preview currently applies, for processing stills the same way
+    public FilterType getFilterType() {
+        return cameraPreview.getFilterType();
+    }
+
+    public LutFilter getLutFilter() {
+        return cameraPreview.getLutFilter();
+    }
+
+    public String getOverlayPath() {
+        return overLayPath;
+    }
+
+    public float getOverlayAlpha() {
+        return overlayAlpha;
+    }
+
+    public ImportedLuts getImportedLuts() {
+        return importedLuts;
+    }
+
+    public void setLutEnabled(boolean lutEnabled) {
+        cameraPreview.setLutEnabled(lutEnabled);
+    }
+
 
     private AtomicBoolean isFrontCamera = new AtomicBoolean(false);
 
@@ -217,28 +675,16 @@ public class CameraGLRenderer implements GLSurfaceView.Renderer {
         isFrontCamera.set(frontCamera);
     }
 
-    private Bitmap loadBitmap(String assetPath) {
-        try {
-            InputStream inputStream = context.getAssets().open(assetPath);
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-            inputStream.close();
-            return bitmap;
-        } catch (IOException e) {
-            throw new RuntimeException("Error loading bitmap from assets: " + assetPath, e);
-        }
-    }
-
     public void setOverlay(String overLayPath) {
-        applyOverlay = true;
         this.overLayPath = overLayPath;
     }
 
     public void clearOverlay() {
-        applyOverlay = false;
         overLayPath = null;
     }
 
     public void setAlpha(float alpha) {
+        overlayAlpha = alpha;
         overlayPreview.setAlpha(alpha);
     }
 }
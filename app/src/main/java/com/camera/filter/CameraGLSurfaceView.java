@@ -1,11 +1,24 @@
 package com.camera.filter;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.opengl.GLSurfaceView;
 import android.util.AttributeSet;
 import android.util.Pair;
 
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLDisplay;
+
 public class CameraGLSurfaceView extends GLSurfaceView {
+
+    // From EGL_ANDROID_recordable, not in the EGL10 constants
+    private static final int EGL_RECORDABLE_ANDROID = 0x3142;
+
+    private static final int EGL_OPENGL_ES2_BIT = 0x4;
+
+    private static final int EGL_OPENGL_ES3_BIT_KHR = 0x40;
+
     public CameraGLSurfaceView(Context context) {
         super(context);
     }
@@ -15,8 +28,73 @@ public class CameraGLSurfaceView extends GLSurfaceView {
     }
 
     public void setCameraGLRenderer(CameraGLRenderer renderer) {
-        setEGLContextClientVersion(2);
+        // ES 3 is needed for pixel pack buffers, the shaders themselves stay ES 2 compatible
+        boolean glEs3 = supportsGlEs3();
+        setEGLContextClientVersion(glEs3 ? 3 : 2);
+        setEGLConfigChooser(new RecordableConfigChooser(glEs3));
         setRenderer(renderer);
         setRenderMode(RENDERMODE_WHEN_DIRTY);
+        renderer.setRenderRequester(this::requestRender);
+    }
+
+    private boolean supportsGlEs3() {
+        ActivityManager activityManager = (ActivityManager) getContext().getSystemService(Context.ACTIVITY_SERVICE);
+        return activityManager != null
+                && activityManager.getDeviceConfigurationInfo().reqGlEsVersion >= 0x30000;
+    }
+
+    // RGB 888 with a 16 bit depth buffer like GLSurfaceView's default, but recordable where available,
+    // so the same context can also draw into a MediaCodec input surface
+    private static class RecordableConfigChooser implements EGLConfigChooser {
+
+        private final int renderableType;
+
+        RecordableConfigChooser(boolean glEs3) {
+            renderableType = glEs3 ? EGL_OPENGL_ES3_BIT_KHR : EGL_OPENGL_ES2_BIT;
+        }
+
+        @Override
+        public EGLConfig chooseConfig(EGL10 egl, EGLDisplay display) {
+            EGLConfig config = choose(egl, display, true);
+            if (config == null) {
+                config = choose(egl, display, false);
+            }
+            if (config == null) {
+                throw new IllegalArgumentException("No RGB 888 EGL config");
+            }
+            return config;
+        }
+
+        private EGLConfig choose(EGL10 egl, EGLDisplay display, boolean recordable) {
+            int[] attributes = {
+                    EGL10.EGL_RED_SIZE, 8,
+                    EGL10.EGL_GREEN_SIZE, 8,
+                    EGL10.EGL_BLUE_SIZE, 8,
+                    EGL10.EGL_DEPTH_SIZE, 16,
+                    EGL10.EGL_RENDERABLE_TYPE, renderableType,
+                    recordable ? EGL_RECORDABLE_ANDROID : EGL10.EGL_NONE, 1,
+                    EGL10.EGL_NONE
+            };
+            int[] count = new int[1];
+            if (!egl.eglChooseConfig(display, attributes, null, 0, count) || count[0] == 0) {
+                return null;
+            }
+            EGLConfig[] configs = new EGLConfig[count[0]];
+            egl.eglChooseConfig(display, attributes, configs, configs.length, count);
+            // Larger sizes sort first, take the first one that is exactly 8 bits per color
+            int[] value = new int[1];
+            for (EGLConfig config : configs) {
+                if (size(egl, display, config, EGL10.EGL_RED_SIZE, value) == 8
+                        && size(egl, display, config, EGL10.EGL_GREEN_SIZE, value) == 8
+                        && size(egl, display, config, EGL10.EGL_BLUE_SIZE, value) == 8) {
+                    return config;
+                }
+            }
+            return null;
+        }
+
+        private static int size(EGL10 egl, EGLDisplay display, EGLConfig config, int attribute, int[] value) {
+            return egl.eglGetConfigAttrib(display, config, attribute, value) ? value[0] : 0;
+        }
     }
 }
@@ -0,0 +1,83 @@
+package com.camera.filter;
+
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.SurfaceTexture;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.util.Size;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Camera ids and the characteristics we use, read once per process. Querying characteristics
+// goes through the camera service and is slow enough to show up in every front/back switch.
+public class CameraRegistry {
+
+    public static class CameraInfo {
+        public final String id;
+        public final int lensFacing;
+        public final int sensorOrientation;
+        public final List<StreamSize> outputSizes;
+        // Still capture sizes, usually up to the full sensor
+        public final List<StreamSize> jpegSizes;
+
+        CameraInfo(String id, int lensFacing, int sensorOrientation, List<StreamSize> outputSizes,
+                   List<StreamSize> jpegSizes) {
+            this.id = id;
+            this.lensFacing = lensFacing;
+            this.sensorOrientation = sensorOrientation;
+            this.outputSizes = Collections.unmodifiableList(outputSizes);
+            this.jpegSizes = Collections.unmodifiableList(jpegSizes);
+        }
+    }
+
+    private static CameraRegistry instance;
+
+    // First camera per lens facing, the order getCameraIdList reports them in
+    private final Map<Integer, CameraInfo> byFacing = new HashMap<>();
+
+    private CameraRegistry(CameraManager cameraManager) throws CameraAccessException {
+        for (String cameraId : cameraManager.getCameraIdList()) {
+            CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+            Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
+            if (facing == null || byFacing.containsKey(facing)) {
+                continue;
+            }
+            Integer orientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+            StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            byFacing.put(facing, new CameraInfo(cameraId, facing, orientation != null ? orientation : 0,
+                    toStreamSizes(map != null ? map.getOutputSizes(SurfaceTexture.class) : null),
+                    toStreamSizes(map != null ? map.getOutputSizes(ImageFormat.JPEG) : null)));
+        }
+    }
+
+    // Blocks on the camera service the first time, later calls return the cached registry
+    public static synchronized CameraRegistry getInstance(Context context) throws CameraAccessException {
+        if (instance == null) {
+            CameraManager cameraManager = (CameraManager) context.getApplicationContext().getSystemService(Context.CAMERA_SERVICE);
+            instance = new CameraRegistry(cameraManager);
+        }
+        return instance;
+    }
+
+    // CameraCharacteristics.LENS_FACING_FRONT or LENS_FACING_BACK, null if there is no such camera
+    public CameraInfo get(int lensFacing) {
+        return byFacing.get(lensFacing);
+    }
+
+    private static List<StreamSize> toStreamSizes(Size[] outputSizes) {
+        List<StreamSize> sizes = new ArrayList<>();
+        if (outputSizes != null) {
+            for (Size size : outputSizes) {
+                sizes.add(new StreamSize(size.getWidth(), size.getHeight()));
+            }
+        }
+        return sizes;
+    }
+}
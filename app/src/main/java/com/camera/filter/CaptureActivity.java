@@ -1,7 +1,5 @@
 package com.camera.filter;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.widget.ImageView;
 
@@ -13,6 +11,8 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.bumptech.glide.Glide;
 
+import java.io.File;
+
 public class CaptureActivity extends AppCompatActivity {
 
     ImageView ivCapture;
@@ -22,8 +22,8 @@ public class CaptureActivity extends AppCompatActivity {
         setContentView(R.layout.activity_capture);
         String imagePath = getIntent().getStringExtra(MainActivity.class.getName());
         ivCapture = findViewById(R.id.iv_capture);
-        Bitmap bitmap = BitmapFactory.decodeFile(imagePath);
-        ivCapture.setImageBitmap(bitmap);
+        // Full sensor photos are far larger than the screen, Glide decodes them down to the view size
+        Glide.with(this).load(new File(imagePath)).into(ivCapture);
 
     }
 }
\ No newline at end of file
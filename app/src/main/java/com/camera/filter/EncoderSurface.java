@@ -0,0 +1,66 @@
+package com.camera.filter;
+
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.view.Surface;
+
+// EGL window surface on an encoder's input Surface, sharing the context GLSurfaceView made current,
+// so textures and framebuffers rendered for the preview can be drawn into the encoder directly.
+// Drawing into it switches surfaces in the middle of a frame, swap puts the view's surfaces back.
+// GL thread only.
+public class EncoderSurface {
+
+    private final EGLDisplay display;
+
+    private final EGLContext context;
+
+    private final EGLSurface surface;
+
+    private EGLSurface viewDrawSurface = EGL14.EGL_NO_SURFACE;
+
+    private EGLSurface viewReadSurface = EGL14.EGL_NO_SURFACE;
+
+    public EncoderSurface(Surface inputSurface) {
+        display = EGL14.eglGetCurrentDisplay();
+        context = EGL14.eglGetCurrentContext();
+        if (context == null || context.equals(EGL14.EGL_NO_CONTEXT)) {
+            throw new IllegalStateException("No current EGL context");
+        }
+        // The view's config, which CameraGLSurfaceView picks as recordable when the device has one
+        int[] configId = new int[1];
+        EGL14.eglQueryContext(display, context, EGL14.EGL_CONFIG_ID, configId, 0);
+        int[] attributes = {EGL14.EGL_CONFIG_ID, configId[0], EGL14.EGL_NONE};
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        if (!EGL14.eglChooseConfig(display, attributes, 0, configs, 0, 1, count, 0) || count[0] == 0) {
+            throw new IllegalStateException("No EGL config with id " + configId[0]);
+        }
+        surface = EGL14.eglCreateWindowSurface(display, configs[0], inputSurface, new int[]{EGL14.EGL_NONE}, 0);
+        if (surface == null || surface.equals(EGL14.EGL_NO_SURFACE)) {
+            throw new IllegalStateException("Could not create encoder surface: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+    }
+
+    // Framebuffer 0 draws into the encoder until swapAndRestore. False leaves the view current.
+    public boolean makeCurrent() {
+        viewDrawSurface = EGL14.eglGetCurrentSurface(EGL14.EGL_DRAW);
+        viewReadSurface = EGL14.eglGetCurrentSurface(EGL14.EGL_READ);
+        return EGL14.eglMakeCurrent(display, surface, surface, context);
+    }
+
+    // Queues the frame to the encoder stamped with the camera time, then makes the view current again
+    public boolean swapAndRestore(long presentationNanos) {
+        EGLExt.eglPresentationTimeANDROID(display, surface, presentationNanos);
+        boolean swapped = EGL14.eglSwapBuffers(display, surface);
+        EGL14.eglMakeCurrent(display, viewDrawSurface, viewReadSurface, context);
+        return swapped;
+    }
+
+    public void release() {
+        EGL14.eglDestroySurface(display, surface);
+    }
+}
@@ -1,28 +1,93 @@
 package com.camera.filter;
 
+import android.content.ContentResolver;
+import android.content.ContentValues;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.provider.MediaStore;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 public final class FileHelper {
 
-    public static String saveBitmapToFile(Context context, Bitmap bitmap) {
-        File file = new File(context.getCacheDir(), "captured_photo.png");
+    private static final String ALBUM = "CameraFilter";
 
-        try {
-            FileOutputStream fos = new FileOutputStream(file);
-            bitmap.compress(Bitmap.CompressFormat.PNG, 100, fos);
-            fos.close();
+    // Where videos are written while recording. The app's external Movies folder needs no
+    // permission and, unlike the cache, is not cleared by the system.
+    public static File videoDirectory(Context context) {
+        File movies = context.getExternalFilesDir(Environment.DIRECTORY_MOVIES);
+        return movies != null ? movies : new File(context.getFilesDir(), "videos");
+    }
+
+    // Moves a finished video into the shared Movies collection so galleries and file managers list
+    // it, and returns where it ended up. Before Android 10 that needs a storage permission, the
+    // file then stays where it was recorded.
+    public static String publishVideo(Context context, File file) throws IOException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
             return file.getAbsolutePath();
-        } catch (FileNotFoundException e) {
-            return null;
+        }
+        String relativePath = Environment.DIRECTORY_MOVIES + "/" + ALBUM;
+        ContentResolver resolver = context.getContentResolver();
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.Video.Media.DISPLAY_NAME, file.getName());
+        values.put(MediaStore.Video.Media.MIME_TYPE, "video/mp4");
+        values.put(MediaStore.Video.Media.RELATIVE_PATH, relativePath);
+        values.put(MediaStore.Video.Media.IS_PENDING, 1);
+        Uri uri = resolver.insert(MediaStore.Video.Media.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY), values);
+        if (uri == null) {
+            throw new IOException("Could not add " + file.getName() + " to the media store");
+        }
+        try (InputStream in = new FileInputStream(file); OutputStream out = resolver.openOutputStream(uri)) {
+            if (out == null) {
+                throw new IOException("Could not open " + uri);
+            }
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            resolver.delete(uri, null, null);
+            throw e;
+        }
+        values.clear();
+        values.put(MediaStore.Video.Media.IS_PENDING, 0);
+        resolver.update(uri, values, null, null);
+        file.delete();
+        return relativePath + "/" + file.getName();
+    }
+
+    public static void saveBitmapToFile(Bitmap bitmap, File file, SaveFormat format, int quality) throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024)) {
+            if (!bitmap.compress(toCompressFormat(format), quality, outputStream)) {
+                throw new IOException("Could not encode " + file.getName());
+            }
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            file.delete();
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    public static Bitmap.CompressFormat toCompressFormat(SaveFormat format) {
+        switch (format) {
+            case JPEG:
+                return Bitmap.CompressFormat.JPEG;
+            case WEBP:
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                        ? Bitmap.CompressFormat.WEBP_LOSSY
+                        : Bitmap.CompressFormat.WEBP;
+            default:
+                return Bitmap.CompressFormat.PNG;
         }
     }
 }
@@ -10,14 +10,23 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class FilterAdapter extends RecyclerView.Adapter<FilterAdapter.FilterViewHolder> {
 
     private List<FilterType> filterTypes;
 
+    // Imported .cube looks, listed after the built in filters
+    private List<LutFilter> lutFilters = new ArrayList<>();
+
     private ItemClickListener itemClickListener;
 
+    private static final Object PAYLOAD_THUMBNAIL = new Object();
+
+    // Live previews indexed like filterTypes, null until the first batch arrives
+    private Bitmap[] thumbnails;
+
     public FilterAdapter(List<FilterType> filterTypes, ItemClickListener itemClickListener) {
         this.filterTypes = filterTypes;
         this.itemClickListener = itemClickListener;
@@ -25,6 +34,19 @@ public class FilterAdapter extends RecyclerView.Adapter<FilterAdapter.FilterView
 
     public interface ItemClickListener {
         void onItemClick(FilterType filterType);
+
+        default void onLutClick(LutFilter lutFilter) {
+        }
+    }
+
+    public void setThumbnails(Bitmap[] thumbnails) {
+        this.thumbnails = thumbnails;
+        notifyItemRangeChanged(0, filterTypes.size(), PAYLOAD_THUMBNAIL);
+    }
+
+    public void setLutFilters(List<LutFilter> lutFilters) {
+        this.lutFilters = new ArrayList<>(lutFilters);
+        notifyDataSetChanged();
     }
 
 
@@ -37,27 +59,58 @@ public class FilterAdapter extends RecyclerView.Adapter<FilterAdapter.FilterView
 
     @Override
     public void onBindViewHolder(@NonNull FilterViewHolder holder, int position) {
-        holder.bind(filterTypes.get(position));
+        if (position < filterTypes.size()) {
+            holder.bind(filterTypes.get(position), position);
+        } else {
+            holder.bind(lutFilters.get(position - filterTypes.size()));
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull FilterViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_THUMBNAIL) && position < filterTypes.size()) {
+            // Only the picture changed, skip rebinding the text and click listener
+            holder.bindThumbnail(position);
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
     }
 
     @Override
     public int getItemCount() {
-        return filterTypes.size();
+        return filterTypes.size() + lutFilters.size();
     }
 
     class FilterViewHolder extends RecyclerView.ViewHolder{
 
         private TextView tvFilterName;
+        private ImageView ivFilterPreview;
         private View itemView;
         public FilterViewHolder(@NonNull View itemView) {
             super(itemView);
             this.itemView = itemView;
             tvFilterName = itemView.findViewById(R.id.tv_filter_name);
+            ivFilterPreview = itemView.findViewById(R.id.iv_filter_preview);
         }
 
-        public void bind(FilterType filterType){
+        public void bind(FilterType filterType, int position){
             tvFilterName.setText(filterType.getDisplayName());
+            bindThumbnail(position);
             itemView.setOnClickListener(v -> itemClickListener.onItemClick(filterType));
         }
+
+        void bindThumbnail(int position) {
+            if (thumbnails != null && position >= 0 && position < thumbnails.length) {
+                ivFilterPreview.setImageBitmap(thumbnails[position]);
+            } else {
+                ivFilterPreview.setImageResource(android.R.drawable.ic_input_add);
+            }
+        }
+
+        public void bind(LutFilter lutFilter){
+            tvFilterName.setText(lutFilter.getDisplayName());
+            ivFilterPreview.setImageResource(android.R.drawable.ic_input_add);
+            itemView.setOnClickListener(v -> itemClickListener.onLutClick(lutFilter));
+        }
     }
 }
\ No newline at end of file
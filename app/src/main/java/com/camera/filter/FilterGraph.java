@@ -0,0 +1,42 @@
+package com.camera.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Ordered chain of stages applied to the camera image. Immutable, build a new graph to change it.
+public class FilterGraph {
+
+    private final List<FilterStage> stages;
+
+    private FilterGraph(List<FilterStage> stages) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+    }
+
+    public List<FilterStage> getStages() {
+        return stages;
+    }
+
+    public boolean isEmpty() {
+        return stages.isEmpty();
+    }
+
+    public static class Builder {
+
+        private final List<FilterStage> stages = new ArrayList<>();
+
+        public Builder add(FilterStage stage) {
+            stages.add(stage);
+            return this;
+        }
+
+        public Builder addAll(List<FilterStage> stages) {
+            this.stages.addAll(stages);
+            return this;
+        }
+
+        public FilterGraph build() {
+            return new FilterGraph(stages);
+        }
+    }
+}
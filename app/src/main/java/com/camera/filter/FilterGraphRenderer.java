@@ -0,0 +1,253 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Draws a FilterGraph. The graph is planned into fused passes once when it changes, each pass gets
+// its own program, and the passes ping-pong between two surface sized framebuffer textures before
+// the last one draws to the screen. GL thread only.
+public class FilterGraphRenderer {
+
+    // Units 0 and 1 belong to the pass input and the LUT
+    private static final int FIRST_STAGE_TEXTURE_UNIT = GLES20.GL_TEXTURE2;
+
+    private static class CompiledPass {
+        final PassScheduler.ScheduledPass scheduled;
+        // Head first, then the pointwise stages
+        final List<FilterStage> stages;
+        final int program;
+        final int mvpMatrixHandle;
+        final int sourceHandle;
+        final int texelSizeHandle;
+        final int timeHandle;
+        // Per stage, in the order of getUniforms()
+        final int[][] uniformHandles;
+        final int[] textureHandles;
+
+        CompiledPass(PassScheduler.ScheduledPass scheduled) {
+            this.scheduled = scheduled;
+            FusionPlanner.Pass pass = scheduled.pass;
+            program = ShaderHelper.createProgram(FilterGraphShaders.VERTEX_SHADER, FilterGraphShaders.fragmentShader(pass));
+            mvpMatrixHandle = GLES20.glGetUniformLocation(program, "uMVPMatrix");
+            sourceHandle = GLES20.glGetUniformLocation(program, "uSource");
+            texelSizeHandle = GLES20.glGetUniformLocation(program, "uTexelSize");
+            timeHandle = GLES20.glGetUniformLocation(program, "uTime");
+
+            stages = stagesOf(pass);
+            uniformHandles = new int[stages.size()][];
+            textureHandles = new int[stages.size()];
+            for (int i = 0; i < stages.size(); i++) {
+                String prefix = prefixOf(pass, i);
+                FilterStage stage = stages.get(i);
+                uniformHandles[i] = new int[stage.getUniforms().size()];
+                int u = 0;
+                for (String name : stage.getUniforms().keySet()) {
+                    uniformHandles[i][u++] = GLES20.glGetUniformLocation(program, prefix + name);
+                }
+                textureHandles[i] = stage.hasTexture() ? GLES20.glGetUniformLocation(program, prefix + "uTexture") : -1;
+            }
+        }
+    }
+
+    private final FullScreenQuad quad;
+
+    private final OverlayTextureCache overlayTextureCache;
+
+    private final FusionPlanner planner;
+
+    private FilterGraph graph;
+
+    private final List<CompiledPass> passes = new ArrayList<>();
+
+    private final int[] framebuffers = new int[2];
+
+    private final int[] textures = new int[2];
+
+    // Bound in place of overlays that are still decoding, so they draw nothing instead of black
+    private final int[] emptyTexture = new int[1];
+
+    private int width = 0;
+
+    private int height = 0;
+
+    // Where SCREEN passes draw, the surface or a ScaledRenderTarget
+    private int outputFramebuffer = 0;
+
+    public FilterGraphRenderer(FullScreenQuad quad, OverlayTextureCache overlayTextureCache) {
+        this(quad, overlayTextureCache, new FusionPlanner());
+    }
+
+    public FilterGraphRenderer(FullScreenQuad quad, OverlayTextureCache overlayTextureCache, FusionPlanner planner) {
+        this.quad = quad;
+        this.overlayTextureCache = overlayTextureCache;
+        this.planner = planner;
+        GLES20.glGenFramebuffers(2, framebuffers, 0);
+        GLES20.glGenTextures(2, textures, 0);
+
+        GLES20.glGenTextures(1, emptyTexture, 0);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, emptyTexture[0]);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, 1, 1, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, ByteBuffer.allocateDirect(4));
+    }
+
+    // Draws the camera texture bound on unit 0 through the graph into outputFramebuffer, which is
+    // width x height like the intermediate textures
+    public void draw(FilterGraph graph, float[] mvpMatrix, int outputFramebuffer, int width, int height,
+                     float timeSeconds) {
+        if (graph != this.graph) {
+            compile(graph);
+        }
+        ensureTargets(width, height);
+        this.outputFramebuffer = outputFramebuffer;
+
+        // Every pass writes opaque pixels over the whole target, blending would only cost bandwidth
+        GLES20.glDisable(GLES20.GL_BLEND);
+        for (CompiledPass compiled : passes) {
+            drawPass(compiled, mvpMatrix, timeSeconds);
+        }
+        GLES20.glEnable(GLES20.GL_BLEND);
+    }
+
+    private void drawPass(CompiledPass compiled, float[] mvpMatrix, float timeSeconds) {
+        PassScheduler.ScheduledPass scheduled = compiled.scheduled;
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebufferFor(scheduled.output));
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glUseProgram(compiled.program);
+
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        if (scheduled.input != PassScheduler.Target.CAMERA) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureFor(scheduled.input));
+        }
+        GLES20.glUniform1i(compiled.sourceHandle, 0);
+        GLES20.glUniformMatrix4fv(compiled.mvpMatrixHandle, 1, false, mvpMatrix, 0);
+        GLES20.glUniform2f(compiled.texelSizeHandle, 1f / width, 1f / height);
+        GLES20.glUniform1f(compiled.timeHandle, timeSeconds);
+
+        List<FilterStage> stages = compiled.stages;
+        int unit = 0;
+        for (int i = 0; i < stages.size(); i++) {
+            FilterStage stage = stages.get(i);
+            int u = 0;
+            for (Map.Entry<String, float[]> uniform : stage.getUniforms().entrySet()) {
+                setUniform(compiled.uniformHandles[i][u++], uniform.getValue());
+            }
+            if (stage.hasTexture()) {
+                OverlayTextureCache.OverlayTexture texture = overlayTextureCache.getTexture(stage.getTextureAsset());
+                GLES20.glActiveTexture(FIRST_STAGE_TEXTURE_UNIT + unit);
+                GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture != null ? texture.id : emptyTexture[0]);
+                GLES20.glUniform1i(compiled.textureHandles[i], FIRST_STAGE_TEXTURE_UNIT - GLES20.GL_TEXTURE0 + unit);
+                unit++;
+            }
+        }
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+
+        quad.draw();
+    }
+
+    private static void setUniform(int handle, float[] value) {
+        switch (value.length) {
+            case 1:
+                GLES20.glUniform1f(handle, value[0]);
+                break;
+            case 2:
+                GLES20.glUniform2f(handle, value[0], value[1]);
+                break;
+            case 3:
+                GLES20.glUniform3f(handle, value[0], value[1], value[2]);
+                break;
+            default:
+                GLES20.glUniform4f(handle, value[0], value[1], value[2], value[3]);
+                break;
+        }
+    }
+
+    private void compile(FilterGraph graph) {
+        releasePrograms();
+        this.graph = graph;
+        for (PassScheduler.ScheduledPass scheduled : PassScheduler.schedule(planner.plan(graph))) {
+            passes.add(new CompiledPass(scheduled));
+        }
+    }
+
+    private void ensureTargets(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        for (int i = 0; i < 2; i++) {
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[i]);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                    GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffers[i]);
+            GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                    GLES20.GL_TEXTURE_2D, textures[i], 0);
+        }
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+    }
+
+    private int framebufferFor(PassScheduler.Target target) {
+        switch (target) {
+            case PING:
+                return framebuffers[0];
+            case PONG:
+                return framebuffers[1];
+            default:
+                return outputFramebuffer;
+        }
+    }
+
+    private int textureFor(PassScheduler.Target target) {
+        return target == PassScheduler.Target.PING ? textures[0] : textures[1];
+    }
+
+    private static List<FilterStage> stagesOf(FusionPlanner.Pass pass) {
+        List<FilterStage> stages = new ArrayList<>(pass.stages.size() + 1);
+        if (pass.head != null) {
+            stages.add(pass.head);
+        }
+        stages.addAll(pass.stages);
+        return stages;
+    }
+
+    private static String prefixOf(FusionPlanner.Pass pass, int index) {
+        if (pass.head == null) {
+            return FilterGraphShaders.stagePrefix(index);
+        }
+        return index == 0 ? FilterGraphShaders.HEAD_PREFIX : FilterGraphShaders.stagePrefix(index - 1);
+    }
+
+    // Passes drawn per frame for the current graph
+    public int getPassCount() {
+        return passes.size();
+    }
+
+    private void releasePrograms() {
+        for (CompiledPass compiled : passes) {
+            GLES20.glDeleteProgram(compiled.program);
+        }
+        passes.clear();
+        graph = null;
+    }
+
+    public void release() {
+        releasePrograms();
+        GLES20.glDeleteFramebuffers(2, framebuffers, 0);
+        GLES20.glDeleteTextures(2, textures, 0);
+        GLES20.glDeleteTextures(1, emptyTexture, 0);
+        width = 0;
+        height = 0;
+    }
+}
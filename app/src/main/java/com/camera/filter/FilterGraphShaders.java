@@ -0,0 +1,73 @@
+package com.camera.filter;
+
+import java.util.List;
+
+// Shader source for the passes of a FilterGraph. Every pass draws the preview quad with the camera
+// mvp, so intermediate textures line up with the screen pixel for pixel and overlays land where
+// OverlayPreview would put them. vTextureCoord is the screen position, which also keeps the
+// built-in looks' vignettes centered on the screen.
+public final class FilterGraphShaders {
+
+    public static final String HEAD_PREFIX = "h_";
+
+    public static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+                    "attribute vec2 aTextureCoord;\n" +
+                    "uniform mat4 uMVPMatrix;\n" +
+                    "varying vec2 vQuadCoord;\n" +
+                    "varying vec2 vTextureCoord;\n" +
+                    "\n" +
+                    "void main() {\n" +
+                    "    gl_Position = uMVPMatrix * aPosition;\n" +
+                    "    vQuadCoord = aTextureCoord;\n" +
+                    "    vTextureCoord = gl_Position.xy / gl_Position.w * 0.5 + 0.5;\n" +
+                    "}\n";
+
+    private FilterGraphShaders() {
+    }
+
+    public static String stagePrefix(int index) {
+        return "s" + index + "_";
+    }
+
+    public static String fragmentShader(FusionPlanner.Pass pass) {
+        if (pass.readsCamera && pass.head != null) {
+            throw new IllegalArgumentException("Neighborhood stages cannot read the camera texture: " + pass.head);
+        }
+        StringBuilder shader = new StringBuilder();
+        if (pass.readsCamera) {
+            shader.append("#extension GL_OES_EGL_image_external : require\n");
+        }
+        shader.append("precision mediump float;\n")
+                .append("\n")
+                .append("varying vec2 vQuadCoord;\n")
+                .append("varying vec2 vTextureCoord;\n")
+                .append(pass.readsCamera ? "uniform samplerExternalOES uSource;\n" : "uniform sampler2D uSource;\n")
+                .append("uniform vec2 uTexelSize;\n")
+                .append("uniform float uTime;\n")
+                .append("\n");
+
+        if (pass.head != null) {
+            shader.append(pass.head.getSource(HEAD_PREFIX)).append("\n");
+        }
+        List<FilterStage> stages = pass.stages;
+        for (int i = 0; i < stages.size(); i++) {
+            shader.append(stages.get(i).getSource(stagePrefix(i))).append("\n");
+        }
+
+        // The camera texture is addressed through the quad, intermediate ones by screen position
+        String sourceCoord = pass.readsCamera ? "vQuadCoord" : "vTextureCoord";
+        shader.append("void main() {\n");
+        if (pass.head != null) {
+            shader.append("    vec4 color = ").append(HEAD_PREFIX).append("apply(").append(sourceCoord).append(");\n");
+        } else {
+            shader.append("    vec4 color = texture2D(uSource, ").append(sourceCoord).append(");\n");
+        }
+        for (int i = 0; i < stages.size(); i++) {
+            shader.append("    color.rgb = ").append(stagePrefix(i)).append("apply(color.rgb);\n");
+        }
+        shader.append("    gl_FragColor = color;\n")
+                .append("}\n");
+        return shader.toString();
+    }
+}
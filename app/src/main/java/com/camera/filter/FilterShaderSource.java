@@ -0,0 +1,312 @@
+package com.camera.filter;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public final class FilterShaderSource {
+
+    public static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+                    "attribute vec2 aTextureCoord;\n" +
+                    "uniform mat4 uMVPMatrix;\n" +
+                    "varying vec2 vTextureCoord;\n" +
+                    "\n" +
+                    "void main() {\n" +
+                    "    gl_Position = uMVPMatrix * aPosition;\n" +
+                    "    vTextureCoord = aTextureCoord;\n" +
+                    "}\n";
+
+    private static final String FRAGMENT_HEADER =
+            "#extension GL_OES_EGL_image_external : require\n" +
+                    "precision mediump float;\n" +
+                    "\n" +
+                    "varying vec2 vTextureCoord;\n" +
+                    "uniform samplerExternalOES sTexture;\n" +
+                    "\n";
+
+    private static final String LUT_FRAGMENT_HEADER =
+            "#extension GL_OES_EGL_image_external : require\n" +
+                    "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+                    "precision highp float;\n" +
+                    "#else\n" +
+                    "precision mediump float;\n" +
+                    "#endif\n" +
+                    "\n" +
+                    "varying vec2 vTextureCoord;\n" +
+                    "uniform samplerExternalOES sTexture;\n" +
+                    "uniform sampler2D uLut;\n" +
+                    "\n";
+
+    private static final Map<FilterType, String> FILTER_FUNCTIONS = new EnumMap<>(FilterType.class);
+
+    // Position dependent terms of the bakeable filters, applied after the LUT lookup
+    private static final Map<FilterType, String> POSITION_TERMS = new EnumMap<>(FilterType.class);
+
+    static {
+        FILTER_FUNCTIONS.put(FilterType.LOMO_CLASSIC,
+                "vec3 applyLomoFilter1(vec3 color) {\n" +
+                        "    // Classic LOMO - tăng contrast, giảm saturation, vignette\n" +
+                        "    color = pow(color, vec3(1.2));\n" +
+                        "    color = mix(vec3(dot(color, vec3(0.299, 0.587, 0.114))), color, 0.7);\n" +
+                        "    float vignette = distance(vTextureCoord, vec2(0.5)) * 1.4;\n" +
+                        "    color *= 1.0 - vignette * 0.5;\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.LOMO_BLUE,
+                "vec3 applyLomoFilter2(vec3 color) {\n" +
+                        "    // Blue LOMO - tông màu xanh lạnh\n" +
+                        "    color.r *= 0.8;\n" +
+                        "    color.g *= 0.9;\n" +
+                        "    color.b *= 1.2;\n" +
+                        "    color = pow(color, vec3(1.1));\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.LOMO_WARM,
+                "vec3 applyLomoFilter3(vec3 color) {\n" +
+                        "    // Warm LOMO - tông màu ấm\n" +
+                        "    color.r *= 1.3;\n" +
+                        "    color.g *= 1.1;\n" +
+                        "    color.b *= 0.8;\n" +
+                        "    color = pow(color, vec3(0.9));\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.LOMO_GREEN,
+                "vec3 applyLomoFilter4(vec3 color) {\n" +
+                        "    // Green LOMO - tông màu xanh lá\n" +
+                        "    color.r *= 0.9;\n" +
+                        "    color.g *= 1.2;\n" +
+                        "    color.b *= 0.9;\n" +
+                        "    color = pow(color, vec3(1.05));\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.LOMO_PURPLE,
+                "vec3 applyLomoFilter5(vec3 color) {\n" +
+                        "    // Purple LOMO - tông màu tím\n" +
+                        "    color.r *= 1.1;\n" +
+                        "    color.g *= 0.8;\n" +
+                        "    color.b *= 1.3;\n" +
+                        "    color = pow(color, vec3(1.15));\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.RETRO_SEVENTIES,
+                "vec3 applyRetroFilter1(vec3 color) {\n" +
+                        "    // Classic 70s - màu vàng ấm\n" +
+                        "    color.r = color.r * 1.4 + 0.1;\n" +
+                        "    color.g = color.g * 1.2 + 0.05;\n" +
+                        "    color.b = color.b * 0.8;\n" +
+                        "    return pow(color, vec3(0.8));\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.RETRO_SEPIA,
+                "vec3 applyRetroFilter2(vec3 color) {\n" +
+                        "    // Sepia Retro\n" +
+                        "    float gray = dot(color, vec3(0.299, 0.587, 0.114));\n" +
+                        "    return vec3(gray * 1.2, gray * 1.0, gray * 0.8);\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.RETRO_FADED_FILM,
+                "vec3 applyRetroFilter3(vec3 color) {\n" +
+                        "    // Faded Film - màu nhạt như phim cũ\n" +
+                        "    color = pow(color, vec3(1.3));\n" +
+                        "    color = color * 0.8 + 0.2;\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.RETRO_VINTAGE_PINK,
+                "vec3 applyRetroFilter4(vec3 color) {\n" +
+                        "    // Vintage Pink - tông hồng cổ điển\n" +
+                        "    color.r = color.r * 1.2 + 0.1;\n" +
+                        "    color.g = color.g * 0.9;\n" +
+                        "    color.b = color.b * 1.1 + 0.05;\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.RETRO_ORANGE_CRUSH,
+                "vec3 applyRetroFilter5(vec3 color) {\n" +
+                        "    // Orange Crush - tông cam retro\n" +
+                        "    color.r = min(color.r * 1.5, 1.0);\n" +
+                        "    color.g = color.g * 1.1;\n" +
+                        "    color.b = color.b * 0.7;\n" +
+                        "    return pow(color, vec3(0.9));\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.CUBE_COLOR_ENHANCE,
+                "vec3 applyCubeFilter1(vec3 color) {\n" +
+                        "    // Color Cube 1 - tăng cường màu đỏ-xanh\n" +
+                        "    color.r = pow(color.r, 0.8);\n" +
+                        "    color.g = pow(color.g, 1.2);\n" +
+                        "    color.b = pow(color.b, 0.9);\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.CUBE_HIGH_CONTRAST,
+                "vec3 applyCubeFilter2(vec3 color) {\n" +
+                        "    // Color Cube 2 - màu sắc tương phản cao\n" +
+                        "    color = pow(color, vec3(0.7));\n" +
+                        "    color = color * 1.3;\n" +
+                        "    return clamp(color, 0.0, 1.0);\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.CUBE_CYAN_MAGENTA,
+                "vec3 applyCubeFilter3(vec3 color) {\n" +
+                        "    // Color Cube 3 - shift màu cyan-magenta\n" +
+                        "    float temp = color.r;\n" +
+                        "    color.r = color.g * 0.8 + color.r * 0.2;\n" +
+                        "    color.g = color.b * 0.8 + color.g * 0.2;\n" +
+                        "    color.b = temp * 0.8 + color.b * 0.2;\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.CUBE_COOL_TONE,
+                "vec3 applyCubeFilter4(vec3 color) {\n" +
+                        "    // Color Cube 4 - màu sắc mát lạnh\n" +
+                        "    color.r *= 0.7;\n" +
+                        "    color.g *= 1.1;\n" +
+                        "    color.b *= 1.4;\n" +
+                        "    return pow(color, vec3(1.1));\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.CUBE_NEON,
+                "vec3 applyCubeFilter5(vec3 color) {\n" +
+                        "    // Color Cube 5 - màu sắc neon\n" +
+                        "    color = pow(color, vec3(0.6));\n" +
+                        "    if(color.r > 0.5) color.r = min(color.r * 1.5, 1.0);\n" +
+                        "    if(color.g > 0.5) color.g = min(color.g * 1.5, 1.0);\n" +
+                        "    if(color.b > 0.5) color.b = min(color.b * 1.5, 1.0);\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.BW_CLASSIC,
+                "vec3 applyBWFilter1(vec3 color) {\n" +
+                        "    // Classic B&W\n" +
+                        "    float gray = dot(color, vec3(0.299, 0.587, 0.114));\n" +
+                        "    return vec3(gray);\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.BW_HIGH_CONTRAST,
+                "vec3 applyBWFilter2(vec3 color) {\n" +
+                        "    // High Contrast B&W\n" +
+                        "    float gray = dot(color, vec3(0.299, 0.587, 0.114));\n" +
+                        "    gray = pow(gray, 1.5);\n" +
+                        "    return vec3(gray);\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.BW_SOFT,
+                "vec3 applyBWFilter3(vec3 color) {\n" +
+                        "    // Soft B&W\n" +
+                        "    float gray = dot(color, vec3(0.2126, 0.7152, 0.0722));\n" +
+                        "    gray = pow(gray, 0.8);\n" +
+                        "    return vec3(gray);\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.BW_RED_CHANNEL,
+                "vec3 applyBWFilter4(vec3 color) {\n" +
+                        "    // Red Channel B&W\n" +
+                        "    float gray = color.r * 0.8 + color.g * 0.1 + color.b * 0.1;\n" +
+                        "    return vec3(gray);\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.BW_BLUE_CHANNEL,
+                "vec3 applyBWFilter5(vec3 color) {\n" +
+                        "    // Blue Channel B&W\n" +
+                        "    float gray = color.r * 0.1 + color.g * 0.2 + color.b * 0.7;\n" +
+                        "    return vec3(gray);\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.VIGNETTE_CLASSIC,
+                "vec3 applyVignetteFilter1(vec3 color) {\n" +
+                        "    // Classic Vignette\n" +
+                        "    float dist = distance(vTextureCoord, vec2(0.5));\n" +
+                        "    float vignette = 1.0 - smoothstep(0.3, 0.8, dist);\n" +
+                        "    return color * vignette;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.VIGNETTE_STRONG,
+                "vec3 applyVignetteFilter2(vec3 color) {\n" +
+                        "    // Strong Vignette\n" +
+                        "    float dist = distance(vTextureCoord, vec2(0.5));\n" +
+                        "    float vignette = 1.0 - smoothstep(0.2, 0.9, dist);\n" +
+                        "    return color * vignette;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.VIGNETTE_OVAL,
+                "vec3 applyVignetteFilter3(vec3 color) {\n" +
+                        "    // Oval Vignette\n" +
+                        "    vec2 pos = vTextureCoord - vec2(0.5);\n" +
+                        "    pos.x *= 1.5; // tạo hình oval\n" +
+                        "    float dist = length(pos);\n" +
+                        "    float vignette = 1.0 - smoothstep(0.4, 0.8, dist);\n" +
+                        "    return color * vignette;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.VIGNETTE_COLOR,
+                "vec3 applyVignetteFilter4(vec3 color) {\n" +
+                        "    // Color Vignette - tông ấm\n" +
+                        "    float dist = distance(vTextureCoord, vec2(0.5));\n" +
+                        "    float vignette = smoothstep(0.5, 1.0, dist);\n" +
+                        "    color.r += vignette * 0.2;\n" +
+                        "    color.g += vignette * 0.1;\n" +
+                        "    return color;\n" +
+                        "}\n");
+        FILTER_FUNCTIONS.put(FilterType.VIGNETTE_TUNNEL,
+                "vec3 applyVignetteFilter5(vec3 color) {\n" +
+                        "    // Tunnel Vignette\n" +
+                        "    vec2 pos = vTextureCoord - vec2(0.5);\n" +
+                        "    float dist = dot(pos, pos);\n" +
+                        "    float vignette = 1.0 - smoothstep(0.1, 0.6, dist);\n" +
+                        "    return color * vignette;\n" +
+                        "}\n");
+
+        POSITION_TERMS.put(FilterType.LOMO_CLASSIC,
+                "    float vignette = distance(vTextureCoord, vec2(0.5)) * 1.4;\n" +
+                        "    finalColor *= 1.0 - vignette * 0.5;\n");
+    }
+
+    private FilterShaderSource() {
+    }
+
+    // Each program only contains the function of its own filter, so main() has no per-pixel branching
+    public static String fragmentShader(FilterType filterType) {
+        StringBuilder builder = new StringBuilder(FRAGMENT_HEADER);
+        String function = FILTER_FUNCTIONS.get(filterType);
+        if (function != null) {
+            builder.append(function).append('\n');
+        }
+        builder.append("void main() {\n")
+                .append("    vec4 color = texture2D(sTexture, vTextureCoord);\n");
+        if (function != null) {
+            builder.append("    gl_FragColor = vec4(").append(functionName(filterType)).append("(color.rgb), color.a);\n");
+        } else {
+            builder.append("    gl_FragColor = color;\n");
+        }
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    // Replaces the color math of a LutBaker.isBakeable filter with a lookup in a texture made by
+    // Lut3D.toTexture. Hardware filtering interpolates red and green, blue is blended between two slices.
+    public static String lutFragmentShader(FilterType filterType, int lutSize) {
+        String size = lutSize + ".0";
+        StringBuilder builder = new StringBuilder(LUT_FRAGMENT_HEADER)
+                .append("vec3 sampleLut(vec3 color) {\n")
+                .append("    float blue = color.b * ").append(lutSize - 1).append(".0;\n")
+                .append("    float slice0 = floor(blue);\n")
+                .append("    float slice1 = min(slice0 + 1.0, ").append(lutSize - 1).append(".0);\n")
+                .append("    float x = (color.r * ").append(lutSize - 1).append(".0 + 0.5) / ").append(size).append(";\n")
+                .append("    float y = (color.g * ").append(lutSize - 1).append(".0 + 0.5) / ").append(size).append(";\n")
+                .append("    vec3 color0 = texture2D(uLut, vec2((slice0 + x) / ").append(size).append(", y)).rgb;\n")
+                .append("    vec3 color1 = texture2D(uLut, vec2((slice1 + x) / ").append(size).append(", y)).rgb;\n")
+                .append("    return mix(color0, color1, blue - slice0);\n")
+                .append("}\n")
+                .append("\n")
+                .append("void main() {\n")
+                .append("    vec4 color = texture2D(sTexture, vTextureCoord);\n")
+                .append("    vec3 finalColor = sampleLut(clamp(color.rgb, 0.0, 1.0));\n");
+        String positionTerm = POSITION_TERMS.get(filterType);
+        if (positionTerm != null) {
+            builder.append(positionTerm);
+        }
+        return builder.append("    gl_FragColor = vec4(finalColor, color.a);\n")
+                .append("}\n")
+                .toString();
+    }
+
+    // GLSL of the filter's vec3 function(vec3 color), null for NONE
+    public static String filterFunction(FilterType filterType) {
+        return FILTER_FUNCTIONS.get(filterType);
+    }
+
+    public static String functionName(FilterType filterType) {
+        if (filterType == FilterType.NONE) {
+            return null;
+        }
+        int index = (filterType.getFilterType() - 1) % 5 + 1;
+        if (filterType.isLomoFilter()) return "applyLomoFilter" + index;
+        if (filterType.isRetroFilter()) return "applyRetroFilter" + index;
+        if (filterType.isCubeFilter()) return "applyCubeFilter" + index;
+        if (filterType.isBWFilter()) return "applyBWFilter" + index;
+        return "applyVignetteFilter" + index;
+    }
+}
@@ -0,0 +1,147 @@
+package com.camera.filter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// One step of a FilterGraph. The GLSL source uses $ as a placeholder for a prefix that keeps the
+// stage's function and uniforms apart from the other stages compiled into the same pass.
+//
+// POINTWISE stages define vec3 $apply(vec3 color). They may read vTextureCoord (screen position,
+// 0..1) and vQuadCoord (the preview quad's texture coordinate) but never neighbouring pixels,
+// so any number of them can be fused into one shader.
+// NEIGHBORHOOD stages define vec4 $apply(vec2 uv) and sample the pass input uSource themselves,
+// with uTexelSize as the size of one input pixel. Each one needs its own pass.
+public class FilterStage {
+
+    public enum Kind {
+        POINTWISE,
+        NEIGHBORHOOD
+    }
+
+    public static final String PREFIX_PLACEHOLDER = "$";
+
+    private final String name;
+
+    private final Kind kind;
+
+    private final String source;
+
+    private final Map<String, float[]> uniforms;
+
+    // Overlay asset sampled through $uTexture, null for stages without a texture input
+    private final String textureAsset;
+
+    public FilterStage(String name, Kind kind, String source, Map<String, float[]> uniforms, String textureAsset) {
+        this.name = name;
+        this.kind = kind;
+        this.source = source;
+        this.uniforms = Collections.unmodifiableMap(new LinkedHashMap<>(uniforms));
+        this.textureAsset = textureAsset;
+    }
+
+    // One of the built-in color looks, run as shader math rather than through a LUT
+    public static FilterStage look(FilterType filterType) {
+        String function = FilterShaderSource.filterFunction(filterType);
+        if (function == null) {
+            throw new IllegalArgumentException("No look for " + filterType);
+        }
+        String source = function.replace(FilterShaderSource.functionName(filterType) + "(", "$apply(");
+        return new FilterStage("look:" + filterType.name(), Kind.POINTWISE, source,
+                Collections.emptyMap(), null);
+    }
+
+    public static FilterStage vignette(float strength) {
+        return new FilterStage("vignette", Kind.POINTWISE,
+                "uniform float $uStrength;\n" +
+                        "vec3 $apply(vec3 color) {\n" +
+                        "    float d = distance(vTextureCoord, vec2(0.5)) * 1.4142;\n" +
+                        "    return color * (1.0 - smoothstep(0.4, 1.0, d) * $uStrength);\n" +
+                        "}\n",
+                uniform("uStrength", strength), null);
+    }
+
+    // Animated through the pass wide uTime, in seconds
+    public static FilterStage grain(float amount) {
+        return new FilterStage("grain", Kind.POINTWISE,
+                "uniform float $uAmount;\n" +
+                        "vec3 $apply(vec3 color) {\n" +
+                        "    vec2 seed = vTextureCoord * 512.0 + vec2(fract(uTime * 7.31), fract(uTime * 3.17)) * 97.0;\n" +
+                        "    float noise = fract(sin(dot(seed, vec2(12.9898, 78.233))) * 43758.5453) - 0.5;\n" +
+                        "    return clamp(color + noise * $uAmount, 0.0, 1.0);\n" +
+                        "}\n",
+                uniform("uAmount", amount), null);
+    }
+
+    // Scratches, dust or any other overlay asset, laid out like OverlayPreview draws it
+    public static FilterStage overlay(String assetPath, float alpha) {
+        return new FilterStage("overlay:" + assetPath, Kind.POINTWISE,
+                "uniform sampler2D $uTexture;\n" +
+                        "uniform float $uAlpha;\n" +
+                        "vec3 $apply(vec3 color) {\n" +
+                        "    vec4 overlay = texture2D($uTexture, vQuadCoord);\n" +
+                        "    return mix(color, overlay.rgb, overlay.a * $uAlpha);\n" +
+                        "}\n",
+                uniform("uAlpha", alpha), assetPath);
+    }
+
+    // Separable gaussian, a horizontal and a vertical stage. radius is in pixels of the pass input.
+    public static List<FilterStage> blur(float radius) {
+        return Arrays.asList(blurPass("blur:h", radius, 1f, 0f), blurPass("blur:v", radius, 0f, 1f));
+    }
+
+    private static FilterStage blurPass(String name, float radius, float dx, float dy) {
+        Map<String, float[]> uniforms = new LinkedHashMap<>();
+        uniforms.put("uDirection", new float[]{dx, dy});
+        uniforms.put("uRadius", new float[]{radius});
+        // 9 taps folded into 5 bilinear fetches, the outer offset lands on the radius
+        return new FilterStage(name, Kind.NEIGHBORHOOD,
+                "uniform vec2 $uDirection;\n" +
+                        "uniform float $uRadius;\n" +
+                        "vec4 $apply(vec2 uv) {\n" +
+                        "    vec2 step = $uDirection * uTexelSize * ($uRadius / 3.2307692);\n" +
+                        "    vec4 sum = texture2D(uSource, uv) * 0.2270270;\n" +
+                        "    sum += (texture2D(uSource, uv + step * 1.3846154) + texture2D(uSource, uv - step * 1.3846154)) * 0.3162162;\n" +
+                        "    sum += (texture2D(uSource, uv + step * 3.2307692) + texture2D(uSource, uv - step * 3.2307692)) * 0.0702703;\n" +
+                        "    return sum;\n" +
+                        "}\n",
+                uniforms, null);
+    }
+
+    private static Map<String, float[]> uniform(String name, float value) {
+        return Collections.singletonMap(name, new float[]{value});
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // Source with the placeholder replaced, ready to paste into a fragment shader
+    public String getSource(String prefix) {
+        return source.replace(PREFIX_PLACEHOLDER, prefix);
+    }
+
+    // Uniform values keyed by their unprefixed name, 1 to 4 floats each
+    public Map<String, float[]> getUniforms() {
+        return uniforms;
+    }
+
+    public String getTextureAsset() {
+        return textureAsset;
+    }
+
+    public boolean hasTexture() {
+        return textureAsset != null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,71 @@
+package com.camera.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Runs every filter over one small shared frame in a single batch, one fork/join task per filter.
+// Output arrays are reused between batches as long as the size stays the same.
+public class FilterThumbnails {
+
+    private final List<FilterType> filterTypes;
+
+    private final ForkJoinPool pool;
+
+    private int[][] pixels = new int[0][];
+
+    private int width = 0;
+
+    private int height = 0;
+
+    public FilterThumbnails(List<FilterType> filterTypes) {
+        this(filterTypes, ForkJoinPool.commonPool());
+    }
+
+    public FilterThumbnails(List<FilterType> filterTypes, ForkJoinPool pool) {
+        this.filterTypes = new ArrayList<>(filterTypes);
+        this.pool = pool;
+    }
+
+    // source holds packed ARGB, top row first
+    public void render(int[] source, int width, int height) {
+        if (width <= 0 || height <= 0 || source.length < width * height) {
+            throw new IllegalArgumentException("Source too small for " + width + "x" + height);
+        }
+        if (width != this.width || height != this.height) {
+            pixels = new int[filterTypes.size()][width * height];
+            this.width = width;
+            this.height = height;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(filterTypes.size());
+        for (int i = 0; i < filterTypes.size(); i++) {
+            FilterType filterType = filterTypes.get(i);
+            int[] out = pixels[i];
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (filterType == FilterType.NONE) {
+                    System.arraycopy(source, 0, out, 0, width * height);
+                } else {
+                    CpuFilterEngine.applyRows(filterType, source, out, width, height, 0, height);
+                }
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    public List<FilterType> getFilterTypes() {
+        return filterTypes;
+    }
+
+    public int[] getPixels(int index) {
+        return pixels[index];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,115 @@
+package com.camera.filter;
+
+// Decides when camera frames get drawn. Time is passed in by the caller, so the policy runs
+// the same against a fake clock in tests. Frames that arrive faster than they are drawn are
+// dropped on purpose: a draw always latches the newest frame and counts the older ones as dropped.
+public class FramePacer {
+
+    public enum Mode {
+        // Draw as soon as a frame arrives, at most one draw in flight
+        IMMEDIATE,
+        // Draw on the next display vsync that has a new frame waiting
+        VSYNC
+    }
+
+    public enum Action {
+        NONE,
+        REQUEST_RENDER,
+        SCHEDULE_VSYNC
+    }
+
+    private Mode mode;
+
+    private long minFrameIntervalNanos = 0;
+
+    private int pendingFrames = 0;
+
+    private boolean renderRequested = false;
+
+    private boolean vsyncScheduled = false;
+
+    private boolean rendered = false;
+
+    private long lastRenderVsyncNanos = 0;
+
+    private long receivedCount = 0;
+
+    private long renderedCount = 0;
+
+    private long droppedCount = 0;
+
+    public FramePacer(Mode mode) {
+        this.mode = mode;
+    }
+
+    public synchronized void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    // Caps the rate in VSYNC mode, e.g. 30 fps camera content on a 120 Hz display. 0 draws on every vsync.
+    public synchronized void setMinFrameIntervalNanos(long minFrameIntervalNanos) {
+        this.minFrameIntervalNanos = Math.max(0, minFrameIntervalNanos);
+    }
+
+    public synchronized Action onFrameAvailable() {
+        receivedCount++;
+        pendingFrames++;
+        if (mode == Mode.IMMEDIATE) {
+            if (renderRequested) {
+                return Action.NONE;
+            }
+            renderRequested = true;
+            return Action.REQUEST_RENDER;
+        }
+        if (vsyncScheduled) {
+            return Action.NONE;
+        }
+        vsyncScheduled = true;
+        return Action.SCHEDULE_VSYNC;
+    }
+
+    public synchronized Action onVsync(long frameTimeNanos) {
+        vsyncScheduled = false;
+        if (pendingFrames == 0 || renderRequested) {
+            // Nothing new, or the previous draw has not started yet and will pick these frames up
+            return Action.NONE;
+        }
+        if (rendered && frameTimeNanos - lastRenderVsyncNanos < minFrameIntervalNanos) {
+            vsyncScheduled = true;
+            return Action.SCHEDULE_VSYNC;
+        }
+        rendered = true;
+        lastRenderVsyncNanos = frameTimeNanos;
+        renderRequested = true;
+        return Action.REQUEST_RENDER;
+    }
+
+    // GL thread, when a draw starts. Returns how many frames to latch so the newest one ends up
+    // current, 0 when the draw was requested for something other than a new frame.
+    public synchronized int onRenderStarted() {
+        renderRequested = false;
+        int frames = pendingFrames;
+        pendingFrames = 0;
+        if (frames > 0) {
+            renderedCount++;
+            droppedCount += frames - 1;
+        }
+        return frames;
+    }
+
+    public synchronized long getReceivedCount() {
+        return receivedCount;
+    }
+
+    public synchronized long getRenderedCount() {
+        return renderedCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+}
@@ -0,0 +1,76 @@
+package com.camera.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Fixed set of preallocated frame buffers handed from one producer to one consumer.
+// The producer never waits: when every slot is still being consumed the frame is skipped.
+public class FrameRing<T> {
+
+    public static class Slot<T> {
+        public final T buffer;
+        public int width;
+        public int height;
+        public int sequence;
+        public long latencyNanos;
+
+        Slot(T buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private final List<T> buffers;
+
+    private final ArrayBlockingQueue<Slot<T>> free;
+
+    private final ArrayBlockingQueue<Slot<T>> filled;
+
+    public FrameRing(List<T> buffers) {
+        if (buffers.isEmpty()) {
+            throw new IllegalArgumentException("Ring needs at least one buffer");
+        }
+        this.buffers = new ArrayList<>(buffers);
+        free = new ArrayBlockingQueue<>(buffers.size());
+        filled = new ArrayBlockingQueue<>(buffers.size());
+        for (T buffer : buffers) {
+            free.add(new Slot<>(buffer));
+        }
+    }
+
+    // Producer side, returns null when the ring is full
+    public Slot<T> tryAcquire() {
+        return free.poll();
+    }
+
+    public void publish(Slot<T> slot) {
+        filled.add(slot);
+    }
+
+    // Hands a slot back without publishing it, e.g. when the read failed
+    public void cancel(Slot<T> slot) {
+        free.add(slot);
+    }
+
+    // Consumer side, returns null on timeout
+    public Slot<T> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return filled.poll(timeout, unit);
+    }
+
+    public void recycle(Slot<T> slot) {
+        free.add(slot);
+    }
+
+    public int getCapacity() {
+        return buffers.size();
+    }
+
+    public int getFilledCount() {
+        return filled.size();
+    }
+
+    public List<T> getBuffers() {
+        return buffers;
+    }
+}
@@ -0,0 +1,19 @@
+package com.camera.filter;
+
+// Feeds frames into the renderer's SurfaceTexture. Camera streams them from a Camera2 device,
+// SyntheticFrameSource and ImageSequenceFrameSource draw them at a fixed rate, so the filter,
+// overlay and capture path also runs where there is no camera. Frames are in sensor orientation,
+// landscape, like camera frames. Main thread.
+public interface FrameSource {
+
+    void start();
+
+    // Width / height of the preview, the source picks a frame size of the same ratio
+    void setAspectRatio(float aspectRatio);
+
+    // Current frame size, null before the first frame size is known
+    StreamSize getPreviewSize();
+
+    // Stops producing frames and frees the source's thread
+    void release();
+}
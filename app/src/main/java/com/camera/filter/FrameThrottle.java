@@ -0,0 +1,56 @@
+package com.camera.filter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Lets a batch of work start at most once per interval and never while the previous batch
+// is still running. tryBegin is called from one producer thread, end from whichever thread
+// finishes the batch.
+public class FrameThrottle {
+
+    private final long intervalNanos;
+
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    private boolean started = false;
+
+    private long lastBeginNanos = 0;
+
+    private long skipped = 0;
+
+    public FrameThrottle(long intervalNanos) {
+        if (intervalNanos < 0) {
+            throw new IllegalArgumentException("Interval must not be negative: " + intervalNanos);
+        }
+        this.intervalNanos = intervalNanos;
+    }
+
+    public boolean tryBegin(long nowNanos) {
+        if (started && nowNanos - lastBeginNanos < intervalNanos) {
+            return false;
+        }
+        if (!busy.compareAndSet(false, true)) {
+            // Due but the consumer is behind, counted so a slow consumer shows up
+            skipped++;
+            return false;
+        }
+        started = true;
+        lastBeginNanos = nowNanos;
+        return true;
+    }
+
+    public void end() {
+        busy.set(false);
+    }
+
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,97 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+// The quad every pass draws, uploaded once into a vertex buffer. On ES 3 a vertex array object
+// also remembers the attribute setup, on ES 2 the pointers are re-specified from the buffer.
+// Programs drawing it must bind aPosition and aTextureCoord to the locations below, which
+// ShaderHelper.createProgram does. GL thread only.
+public class FullScreenQuad {
+
+    public static final int POSITION_LOCATION = 0;
+
+    public static final int TEXTURE_COORD_LOCATION = 1;
+
+    private static final int FLOATS_PER_VERTEX = 5;
+
+    private static final int STRIDE = FLOATS_PER_VERTEX * 4;
+
+    private static final float[] VERTICES = {
+            // x, y, z, u, v
+            -1.0f, -1.0f, 0.0f, 1.0f, 1.0f,  // Bottom-right -> Top-left
+            1.0f, -1.0f, 0.0f, 1.0f, 0.0f,   // Top-right -> Bottom-left
+            -1.0f, 1.0f, 0.0f, 0.0f, 1.0f,   // Bottom-left -> Top-right
+            1.0f, 1.0f, 0.0f, 0.0f, 0.0f     // Top-left -> Bottom-right
+    };
+
+    private final int[] buffer = new int[1];
+
+    private final int[] vertexArray = new int[1];
+
+    private final boolean useVertexArray;
+
+    private long drawCount = 0;
+
+    public FullScreenQuad() {
+        useVertexArray = ShaderHelper.isGlEs3();
+
+        FloatBuffer vertices = ByteBuffer.allocateDirect(VERTICES.length * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer()
+                .put(VERTICES);
+        vertices.position(0);
+
+        GLES20.glGenBuffers(1, buffer, 0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffer[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, VERTICES.length * 4, vertices, GLES20.GL_STATIC_DRAW);
+
+        if (useVertexArray) {
+            GLES30.glGenVertexArrays(1, vertexArray, 0);
+            GLES30.glBindVertexArray(vertexArray[0]);
+            setAttributes();
+            GLES30.glBindVertexArray(0);
+        }
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    private void setAttributes() {
+        GLES20.glEnableVertexAttribArray(POSITION_LOCATION);
+        GLES20.glVertexAttribPointer(POSITION_LOCATION, 3, GLES20.GL_FLOAT, false, STRIDE, 0);
+        GLES20.glEnableVertexAttribArray(TEXTURE_COORD_LOCATION);
+        GLES20.glVertexAttribPointer(TEXTURE_COORD_LOCATION, 2, GLES20.GL_FLOAT, false, STRIDE, 3 * 4);
+    }
+
+    // Draws with whatever program and uniforms are current
+    public void draw() {
+        if (useVertexArray) {
+            GLES30.glBindVertexArray(vertexArray[0]);
+            GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+            GLES30.glBindVertexArray(0);
+        } else {
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffer[0]);
+            setAttributes();
+            GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+            GLES20.glDisableVertexAttribArray(POSITION_LOCATION);
+            GLES20.glDisableVertexAttribArray(TEXTURE_COORD_LOCATION);
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        }
+        drawCount++;
+    }
+
+    // Draw calls issued through this quad since it was created
+    public long getDrawCount() {
+        return drawCount;
+    }
+
+    public void release() {
+        if (useVertexArray) {
+            GLES30.glDeleteVertexArrays(1, vertexArray, 0);
+        }
+        GLES20.glDeleteBuffers(1, buffer, 0);
+    }
+}
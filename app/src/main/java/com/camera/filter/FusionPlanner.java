@@ -0,0 +1,95 @@
+package com.camera.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Splits a FilterGraph into shader passes. Runs of pointwise stages are fused into the pass before
+// them, so a look, vignette, grain and overlay cost one draw instead of four. A neighborhood stage
+// starts a new pass because it has to sample a finished input texture.
+public class FusionPlanner {
+
+    // Units 0 and 1 hold the pass input and the LUT, GLES 2 guarantees 8 fragment units
+    public static final int DEFAULT_MAX_TEXTURES_PER_PASS = 6;
+
+    public static class Pass {
+        // Neighborhood stage reading the input, null if the input is sampled as is
+        public final FilterStage head;
+
+        // Pointwise stages applied in order to the head's result
+        public final List<FilterStage> stages;
+
+        // The first pass reads the external camera texture, the others read an intermediate one
+        public final boolean readsCamera;
+
+        Pass(FilterStage head, List<FilterStage> stages, boolean readsCamera) {
+            this.head = head;
+            this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+            this.readsCamera = readsCamera;
+        }
+
+        public int getTextureCount() {
+            int count = 0;
+            for (FilterStage stage : stages) {
+                if (stage.hasTexture()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return (readsCamera ? "camera" : "texture") + (head != null ? " " + head : "") + " " + stages;
+        }
+    }
+
+    private final boolean fuse;
+
+    private final int maxTexturesPerPass;
+
+    public FusionPlanner() {
+        this(true, DEFAULT_MAX_TEXTURES_PER_PASS);
+    }
+
+    // With fuse off every stage gets its own pass, for comparing against the fused plan
+    public FusionPlanner(boolean fuse, int maxTexturesPerPass) {
+        if (maxTexturesPerPass < 1) {
+            throw new IllegalArgumentException("A pass needs room for at least one texture: " + maxTexturesPerPass);
+        }
+        this.fuse = fuse;
+        this.maxTexturesPerPass = maxTexturesPerPass;
+    }
+
+    // Never empty, the first pass always reads the camera. A graph starting with a neighborhood
+    // stage gets a plain copy pass first, an empty graph is just that copy drawn to the screen.
+    public List<Pass> plan(FilterGraph graph) {
+        List<Pass> passes = new ArrayList<>();
+        FilterStage head = null;
+        List<FilterStage> stages = new ArrayList<>();
+        int textures = 0;
+
+        for (FilterStage stage : graph.getStages()) {
+            boolean empty = head == null && stages.isEmpty();
+            boolean split = stage.getKind() == FilterStage.Kind.NEIGHBORHOOD
+                    || (!fuse && !empty)
+                    || (stage.hasTexture() && textures == maxTexturesPerPass);
+            if (split) {
+                passes.add(new Pass(head, stages, passes.isEmpty()));
+                head = null;
+                stages.clear();
+                textures = 0;
+            }
+            if (stage.getKind() == FilterStage.Kind.NEIGHBORHOOD) {
+                head = stage;
+            } else {
+                stages.add(stage);
+                if (stage.hasTexture()) {
+                    textures++;
+                }
+            }
+        }
+        passes.add(new Pass(head, stages, passes.isEmpty()));
+        return passes;
+    }
+}
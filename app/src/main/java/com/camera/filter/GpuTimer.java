@@ -0,0 +1,102 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+// GPU time per frame through EXT_disjoint_timer_query. Results come back a few frames late, so
+// queries rotate through a small ring and are collected once the GPU has them. GL thread only.
+public class GpuTimer {
+
+    public interface Listener {
+        // GL thread, for every frame measured without a disjoint event
+        void onGpuTime(long nanos);
+    }
+
+    private static final int GL_TIME_ELAPSED_EXT = 0x88BF;
+
+    private static final int GL_GPU_DISJOINT_EXT = 0x8FBB;
+
+    private static final int QUERY_COUNT = 4;
+
+    private final PipelineTimings timings;
+
+    private final PipelineTimings.Stage stage;
+
+    private final int[] queries = new int[QUERY_COUNT];
+
+    private final boolean[] pending = new boolean[QUERY_COUNT];
+
+    private final int[] result = new int[1];
+
+    private int next = 0;
+
+    private boolean active = false;
+
+    private Listener listener;
+
+    // Needs an ES 3 context for query objects and the extension for the time elapsed target
+    public static boolean isSupported() {
+        String extensions = GLES20.glGetString(GLES20.GL_EXTENSIONS);
+        return PixelReadback.isSupported() && extensions != null && extensions.contains("GL_EXT_disjoint_timer_query");
+    }
+
+    public GpuTimer(PipelineTimings timings, PipelineTimings.Stage stage) {
+        this.timings = timings;
+        this.stage = stage;
+        GLES30.glGenQueries(QUERY_COUNT, queries, 0);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Skips the frame when every query is still waiting for the GPU
+    public void begin() {
+        collect();
+        if (pending[next]) {
+            return;
+        }
+        GLES30.glBeginQuery(GL_TIME_ELAPSED_EXT, queries[next]);
+        active = true;
+    }
+
+    public void end() {
+        if (!active) {
+            return;
+        }
+        GLES30.glEndQuery(GL_TIME_ELAPSED_EXT);
+        pending[next] = true;
+        next = (next + 1) % QUERY_COUNT;
+        active = false;
+    }
+
+    private void collect() {
+        // A disjoint event, e.g. a frequency change, makes every result in flight meaningless
+        GLES20.glGetIntegerv(GL_GPU_DISJOINT_EXT, result, 0);
+        boolean disjoint = result[0] != 0;
+        // Oldest first, the slot about to be reused is the oldest
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            int slot = (next + i) % QUERY_COUNT;
+            if (!pending[slot]) {
+                continue;
+            }
+            GLES30.glGetQueryObjectuiv(queries[slot], GLES30.GL_QUERY_RESULT_AVAILABLE, result, 0);
+            if (result[0] == 0) {
+                break;
+            }
+            GLES30.glGetQueryObjectuiv(queries[slot], GLES30.GL_QUERY_RESULT, result, 0);
+            pending[slot] = false;
+            if (!disjoint) {
+                long nanos = result[0] & 0xffffffffL;
+                timings.record(stage, nanos);
+                if (listener != null) {
+                    listener.onGpuTime(nanos);
+                }
+            }
+        }
+    }
+
+    public void release() {
+        GLES30.glDeleteQueries(QUERY_COUNT, queries, 0);
+    }
+}
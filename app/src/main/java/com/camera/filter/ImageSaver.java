@@ -0,0 +1,88 @@
+package com.camera.filter;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+public class ImageSaver {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    public interface SaveCallback {
+        void onSaved(String path);
+        void onError(Throwable error);
+    }
+
+    private final File directory;
+
+    private final PhotoNameGenerator nameGenerator = new PhotoNameGenerator("IMG");
+
+    private final BoundedExecutor executor;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private volatile SaveFormat format;
+
+    private volatile int quality;
+
+    public ImageSaver(File directory, SaveFormat format, int quality) {
+        this(directory, format, quality, 1, DEFAULT_QUEUE_CAPACITY, BoundedExecutor.OverflowPolicy.REJECT);
+    }
+
+    public ImageSaver(File directory, SaveFormat format, int quality, int threads, int queueCapacity,
+                      BoundedExecutor.OverflowPolicy overflowPolicy) {
+        this.directory = directory;
+        this.format = format;
+        setQuality(quality);
+        executor = new BoundedExecutor("ImageSaver", threads, queueCapacity, overflowPolicy);
+    }
+
+    // Encodes and writes on the saver thread. Completes with the absolute path of the new file,
+    // or exceptionally with a RejectedExecutionException when the queue is full.
+    public CompletableFuture<String> save(Bitmap bitmap) {
+        SaveFormat format = this.format;
+        int quality = this.quality;
+        return executor.submit(() -> {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            File file = new File(directory, nameGenerator.nextName(format));
+            FileHelper.saveBitmapToFile(bitmap, file, format, quality);
+            return file.getAbsolutePath();
+        });
+    }
+
+    // Same as save(Bitmap) but reports back on the main thread
+    public void save(Bitmap bitmap, SaveCallback callback) {
+        save(bitmap).whenComplete((path, error) -> handler.post(() -> {
+            if (error == null) {
+                callback.onSaved(path);
+            } else {
+                callback.onError(error);
+            }
+        }));
+    }
+
+    public void setFormat(SaveFormat format) {
+        this.format = format;
+    }
+
+    public void setQuality(int quality) {
+        if (quality < 0 || quality > 100) {
+            throw new IllegalArgumentException("Quality must be between 0 and 100: " + quality);
+        }
+        this.quality = quality;
+    }
+
+    public int getPendingCount() {
+        return executor.getPendingCount();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
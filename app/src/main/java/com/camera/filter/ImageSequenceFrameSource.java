@@ -0,0 +1,216 @@
+package com.camera.filter;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Loops over a sequence of image files, for replaying recorded footage through the pipeline.
+// A decoder thread streams the images, sampled down to about the frame size, into a decode-ahead
+// queue bounded in bytes, so sequences of any length fit. Drawn bitmaps go back to the decoder
+// for reuse. When decoding falls behind the frame rate the last image is drawn again and counted
+// as repeated. Each image is stretched over the whole frame.
+public class ImageSequenceFrameSource extends TimedFrameSource {
+
+    private static final String TAG = "ImageSequenceSource";
+
+    // Decoded frames waiting to be drawn, about four 1080p ARGB frames. Power of two sampling keeps
+    // 1080p images at full size, about 8 MB each.
+    public static final long DEFAULT_DECODE_AHEAD_BYTES = 32L * 1024 * 1024;
+
+    private final List<File> files;
+
+    private final long decodeAheadBytes;
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final Rect frameRect = new Rect();
+
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor();
+
+    // Guarded by this. Decoded frames in play order, and a drawn bitmap the decoder may reuse.
+    private final ArrayDeque<Bitmap> ahead = new ArrayDeque<>();
+
+    private long aheadBytes = 0;
+
+    private Bitmap spare;
+
+    private boolean stopped = false;
+
+    // Source thread only
+    private Bitmap current;
+
+    private long repeatedFrames = 0;
+
+    public ImageSequenceFrameSource(SurfaceTexture surfaceTexture, float aspectRatio, List<File> files) {
+        this(surfaceTexture, aspectRatio, files, DEFAULT_LONG_SIDE, DEFAULT_FRAME_RATE, DEFAULT_DECODE_AHEAD_BYTES);
+    }
+
+    public ImageSequenceFrameSource(SurfaceTexture surfaceTexture, float aspectRatio, List<File> files,
+                                    int longSide, int frameRate, long decodeAheadBytes) {
+        super(surfaceTexture, aspectRatio, longSide, frameRate);
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No images");
+        }
+        if (decodeAheadBytes <= 0) {
+            throw new IllegalArgumentException("Decode-ahead budget must be positive: " + decodeAheadBytes);
+        }
+        this.files = new ArrayList<>(files);
+        this.decodeAheadBytes = decodeAheadBytes;
+    }
+
+    // Images in the directory in name order, such as frame_0001.jpg, frame_0002.jpg, ...
+    public static List<File> listImages(File directory) {
+        File[] files = directory.listFiles(file -> {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png") || name.endsWith(".webp");
+        });
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    @Override
+    protected void onStart() {
+        decoder.execute(this::decodeLoop);
+    }
+
+    // Decoder thread. Keeps the queue filled up to the budget, at least one frame whatever its size.
+    private void decodeLoop() {
+        int index = 0;
+        int failuresInARow = 0;
+        while (true) {
+            Bitmap reuse;
+            synchronized (this) {
+                while (!stopped && !ahead.isEmpty() && aheadBytes >= decodeAheadBytes) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (stopped) {
+                    return;
+                }
+                reuse = spare;
+                spare = null;
+            }
+            File file = files.get(index);
+            index = (index + 1) % files.size();
+            Bitmap bitmap = decode(file, reuse);
+            if (bitmap == null) {
+                Log.w(TAG, "Could not decode " + file);
+                if (++failuresInARow == files.size()) {
+                    Log.w(TAG, "No image could be decoded");
+                    return;
+                }
+                continue;
+            }
+            failuresInARow = 0;
+            synchronized (this) {
+                if (stopped) {
+                    bitmap.recycle();
+                    return;
+                }
+                ahead.add(bitmap);
+                aheadBytes += bitmap.getAllocationByteCount();
+                notifyAll();
+            }
+        }
+    }
+
+    // Decodes into reuse when it is large enough, null if the file can not be decoded
+    private Bitmap decode(File file, Bitmap reuse) {
+        StreamSize size = getPreviewSize();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            if (reuse != null) {
+                reuse.recycle();
+            }
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = OverlayDecodePolicy.inSampleSize(options.outWidth, options.outHeight,
+                size.getWidth(), size.getHeight());
+        options.inMutable = true;
+        options.inBitmap = reuse;
+        try {
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // Too small for this image, decode into a new bitmap instead
+            reuse.recycle();
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    @Override
+    protected void drawFrame(Canvas canvas, long frameIndex, int width, int height) {
+        Bitmap next;
+        synchronized (this) {
+            next = ahead.poll();
+            if (next != null) {
+                aheadBytes -= next.getAllocationByteCount();
+                // The previous frame was posted and synced to the render thread, it can be decoded into
+                if (current != null) {
+                    if (spare == null) {
+                        spare = current;
+                    } else {
+                        current.recycle();
+                    }
+                }
+                notifyAll();
+            }
+        }
+        if (next != null) {
+            current = next;
+        } else if (current != null) {
+            repeatedFrames++;
+        }
+        if (current == null) {
+            canvas.drawColor(0xff000000);
+            return;
+        }
+        frameRect.set(0, 0, width, height);
+        canvas.drawBitmap(current, null, frameRect, paint);
+    }
+
+    @Override
+    protected void onRelease() {
+        synchronized (this) {
+            stopped = true;
+            for (Bitmap bitmap : ahead) {
+                bitmap.recycle();
+            }
+            ahead.clear();
+            aheadBytes = 0;
+            if (spare != null) {
+                spare.recycle();
+                spare = null;
+            }
+            notifyAll();
+        }
+        decoder.shutdown();
+        if (current != null) {
+            current.recycle();
+            current = null;
+        }
+        Log.d(TAG, repeatedFrames + " frames repeated while decoding " + files.size() + " images");
+    }
+}
@@ -0,0 +1,96 @@
+package com.camera.filter;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Finds .cube files in assets/luts and in the app's external luts folder, and keeps parsed LUTs
+// in a byte bounded LRU so switching between imported looks does not parse files again
+public class ImportedLuts {
+
+    private static final String TAG = "ImportedLuts";
+
+    public static final String DIRECTORY = "luts";
+
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    private final AssetManager assets;
+
+    private final File directory;
+
+    private final CubeLutParser parser = new CubeLutParser();
+
+    private final BudgetLruCache<String, Lut3D> cache;
+
+    public ImportedLuts(Context context) {
+        this(context, DEFAULT_BUDGET_BYTES);
+    }
+
+    public ImportedLuts(Context context, long budgetBytes) {
+        this.assets = context.getAssets();
+        this.directory = context.getExternalFilesDir(DIRECTORY);
+        this.cache = new BudgetLruCache<>(budgetBytes, Lut3D::getByteSize);
+    }
+
+    // Touches the disk, call it off the main thread
+    public List<LutFilter> list() {
+        List<LutFilter> filters = new ArrayList<>();
+        try {
+            String[] names = assets.list(DIRECTORY);
+            if (names != null) {
+                Arrays.sort(names);
+                for (String name : names) {
+                    if (isCube(name)) {
+                        filters.add(new LutFilter(LutFilter.displayNameFor(name), DIRECTORY + "/" + name, true));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not list LUT assets", e);
+        }
+        File[] files = directory != null ? directory.listFiles() : null;
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.isFile() && isCube(file.getName())) {
+                    filters.add(new LutFilter(LutFilter.displayNameFor(file.getName()), file.getAbsolutePath(), false));
+                }
+            }
+        }
+        return filters;
+    }
+
+    // Parses on a miss, call it off the GL and main threads
+    public Lut3D load(LutFilter filter) throws IOException {
+        Lut3D lut = cache.get(filter.getKey());
+        if (lut != null) {
+            return lut;
+        }
+        try (InputStream in = filter.isAsset() ? assets.open(filter.getPath()) : new FileInputStream(filter.getPath())) {
+            synchronized (parser) {
+                lut = parser.parse(in);
+            }
+        } catch (IOException e) {
+            throw new IOException(filter.getPath() + ": " + e.getMessage(), e);
+        }
+        cache.put(filter.getKey(), lut);
+        return lut;
+    }
+
+    public BudgetLruCache<String, Lut3D> getCache() {
+        return cache;
+    }
+
+    private static boolean isCube(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(LutFilter.EXTENSION);
+    }
+}
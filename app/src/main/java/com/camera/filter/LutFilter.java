@@ -0,0 +1,69 @@
+package com.camera.filter;
+
+import java.util.Locale;
+
+// A look imported from a .cube file, either bundled under assets/luts or copied into the app's luts folder
+public class LutFilter {
+
+    public static final String EXTENSION = ".cube";
+
+    private final String displayName;
+
+    private final String path;
+
+    private final boolean asset;
+
+    public LutFilter(String displayName, String path, boolean asset) {
+        this.displayName = displayName;
+        this.path = path;
+        this.asset = asset;
+    }
+
+    // "teal_orange.cube" -> "Teal orange"
+    public static String displayNameFor(String fileName) {
+        String name = fileName;
+        if (name.toLowerCase(Locale.ROOT).endsWith(EXTENSION)) {
+            name = name.substring(0, name.length() - EXTENSION.length());
+        }
+        name = name.replace('_', ' ').replace('-', ' ').trim();
+        if (name.isEmpty()) {
+            return fileName;
+        }
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isAsset() {
+        return asset;
+    }
+
+    // Unique across assets and files, used to key parsed LUTs and their textures
+    public String getKey() {
+        return (asset ? "asset:" : "file:") + path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LutFilter)) return false;
+        LutFilter other = (LutFilter) o;
+        return asset == other.asset && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode() * 31 + (asset ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
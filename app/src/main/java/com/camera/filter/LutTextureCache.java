@@ -0,0 +1,168 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// LUT textures for the bakeable filters and imported .cube looks. Baking, loading from disk and
+// parsing run in the background, until a texture is ready getTexture returns null and the preview
+// keeps using a regular shader. Textures live in a VRAM budget, the least recently used are deleted.
+public class LutTextureCache {
+
+    private static final String TAG = "LutTextureCache";
+
+    public static final int LUT_TEXTURE_UNIT = GLES20.GL_TEXTURE1;
+
+    public static final long DEFAULT_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    public static class LutTexture {
+        public final int id;
+        public final int size;
+
+        LutTexture(int id, int size) {
+            this.id = id;
+            this.size = size;
+        }
+    }
+
+    private final LutFileCache fileCache;
+
+    private final ImportedLuts importedLuts;
+
+    private final int lutSize;
+
+    private final int maxTextureSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // GL thread only, the eviction listener runs from put on the GL thread too
+    private final BudgetLruCache<String, LutTexture> textures;
+
+    private final Set<String> requested = new HashSet<>();
+
+    private final ConcurrentLinkedQueue<Loaded> loaded = new ConcurrentLinkedQueue<>();
+
+    private ByteBuffer uploadBuffer;
+
+    private static class Loaded {
+        final String key;
+        final Lut3D lut;
+
+        Loaded(String key, Lut3D lut) {
+            this.key = key;
+            this.lut = lut;
+        }
+    }
+
+    // Must be created on the GL thread
+    public LutTextureCache(LutFileCache fileCache, ImportedLuts importedLuts, int lutSize) {
+        this.fileCache = fileCache;
+        this.importedLuts = importedLuts;
+        this.lutSize = lutSize;
+        int[] max = new int[1];
+        GLES20.glGetIntegerv(GLES20.GL_MAX_TEXTURE_SIZE, max, 0);
+        this.maxTextureSize = max[0] > 0 ? max[0] : 2048;
+        this.textures = new BudgetLruCache<>(DEFAULT_BUDGET_BYTES, texture -> (long) texture.size * texture.size * texture.size * 4,
+                (key, texture) -> {
+                    GLES20.glDeleteTextures(1, new int[]{texture.id}, 0);
+                    requested.remove(key);
+                });
+    }
+
+    public int getLutSize() {
+        return lutSize;
+    }
+
+    // GL thread. Returns null while the LUT is not ready or the filter is not bakeable.
+    public LutTexture getTexture(FilterType filterType) {
+        if (!LutBaker.isBakeable(filterType)) {
+            return null;
+        }
+        return getTexture(filterType.name(), () -> {
+            try {
+                return fileCache.getOrBake(filterType, lutSize);
+            } catch (IOException e) {
+                // Still usable, it just gets baked again next time
+                Log.w(TAG, "Could not cache LUT for " + filterType, e);
+                return LutBaker.bake(filterType, lutSize);
+            }
+        });
+    }
+
+    // GL thread. Returns null while the file is parsed, and for good if it cannot be read.
+    public LutTexture getTexture(LutFilter lutFilter) {
+        return getTexture(lutFilter.getKey(), () -> importedLuts.load(lutFilter));
+    }
+
+    private LutTexture getTexture(String key, Callable<Lut3D> loader) {
+        uploadLoaded();
+        LutTexture texture = textures.get(key);
+        if (texture != null || !requested.add(key)) {
+            return texture;
+        }
+        executor.execute(() -> {
+            try {
+                loaded.add(new Loaded(key, loader.call()));
+            } catch (Exception e) {
+                // Stays requested so a broken file is not parsed again on every frame
+                Log.w(TAG, "Could not load LUT " + key, e);
+            }
+        });
+        return null;
+    }
+
+    private void uploadLoaded() {
+        Loaded next;
+        while ((next = loaded.poll()) != null) {
+            if (!requested.contains(next.key)) {
+                // Released while it was loading
+                continue;
+            }
+            Lut3D lut = next.lut;
+            if (lut.getSize() * lut.getSize() > maxTextureSize) {
+                lut = lut.resample(lutSize);
+            }
+            int size = lut.getSize();
+            if (uploadBuffer == null || uploadBuffer.capacity() < lut.getTextureByteSize()) {
+                uploadBuffer = ByteBuffer.allocateDirect(lut.getTextureByteSize()).order(ByteOrder.nativeOrder());
+            }
+            lut.toTexture(uploadBuffer);
+
+            int[] texture = new int[1];
+            GLES20.glGenTextures(1, texture, 0);
+            // Unit 0 holds the camera and overlay textures, LUTs live on their own unit
+            GLES20.glActiveTexture(LUT_TEXTURE_UNIT);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, size * size, size, 0,
+                    GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, uploadBuffer);
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+            textures.put(next.key, new LutTexture(texture[0], size));
+        }
+    }
+
+    // Stops the loader thread, from any thread. The textures go with the GL context.
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // GL thread, the cache can not be used afterwards
+    public void release() {
+        shutdown();
+        textures.clear();
+        requested.clear();
+        loaded.clear();
+    }
+}
@@ -5,14 +5,17 @@ import android.annotation.SuppressLint;
 import android.app.ProgressDialog;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.graphics.SurfaceTexture;
 import android.os.Bundle;
+import android.util.Log;
 import android.util.Pair;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.SeekBar;
+import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
@@ -24,21 +27,62 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
+    private static final int BURST_FRAME_COUNT = 10;
+
+    private static final float FILM_VIGNETTE_STRENGTH = 0.6f;
+
+    private static final float FILM_GRAIN_AMOUNT = 0.06f;
+
+    // Where frames come from: FRAME_SOURCE_CAMERA by default, or one of the camera-free sources, e.g.
+    // adb shell am start -n com.camera.filter/.MainActivity --es com.camera.filter.FRAME_SOURCE synthetic
+    public static final String EXTRA_FRAME_SOURCE = "com.camera.filter.FRAME_SOURCE";
+
+    // TestPatterns.Pattern name for FRAME_SOURCE_SYNTHETIC
+    public static final String EXTRA_PATTERN = "com.camera.filter.PATTERN";
+
+    // Directory of images for FRAME_SOURCE_IMAGES
+    public static final String EXTRA_IMAGE_DIRECTORY = "com.camera.filter.IMAGE_DIRECTORY";
+
+    // Raw frame recording for FRAME_SOURCE_REPLAY, as written by a long press on the record button
+    public static final String EXTRA_RECORDING_FILE = "com.camera.filter.RECORDING_FILE";
+
+    public static final String FRAME_SOURCE_CAMERA = "camera";
+
+    public static final String FRAME_SOURCE_SYNTHETIC = "synthetic";
+
+    public static final String FRAME_SOURCE_IMAGES = "images";
+
+    public static final String FRAME_SOURCE_REPLAY = "replay";
+
     private CameraGLSurfaceView cameraGLSurfaceView;
     private CameraGLRenderer cameraGLRenderer;
 
     private ImageButton btnCapture, btnRotate;
 
-    private Button btnRatio;
+    private Button btnRatio, btnRecord, btnFilm;
+
+    // Vignette and grain on top of the selected look, drawn through the filter graph
+    private boolean filmEffects = false;
 
     private ProgressDialog progressDialog;
 
+    private FrameSource frameSource;
+
+    // The frame source while it is the camera, null otherwise
     private Camera camera;
 
+    // Set while unprocessed camera frames are recorded
+    private RawFrameRecorder rawFrameRecorder;
+
     private RecyclerView filterRecyclerView, overlayRecyclerView;
     private FilterAdapter filterAdapter;
 
@@ -46,6 +90,18 @@ public class MainActivity extends AppCompatActivity {
 
     private OverlayAdapter overlayAdapter;
 
+    private ImageSaver imageSaver;
+
+    private ImageSaver burstSaver;
+
+    private StillProcessor stillProcessor;
+
+    private final SwitchLatencyTracker switchLatencyTracker = new SwitchLatencyTracker();
+
+    private final PhotoNameGenerator videoNameGenerator = new PhotoNameGenerator("VID");
+
+    private PerfHud perfHud;
+
     private List<Overlay> overlays = List.of(
             new Overlay(0, null),
             new Overlay(1, "scratch/scratch1.png"),
@@ -77,18 +133,45 @@ public class MainActivity extends AppCompatActivity {
         overlayRecyclerView = findViewById(R.id.rv_overlay);
         btnRatio = findViewById(R.id.btn_ratio);
         seekBar = findViewById(R.id.seek_bar);
+        btnRecord = findViewById(R.id.btn_record);
+        btnFilm = findViewById(R.id.btn_film);
 
         cameraGLRenderer = new CameraGLRenderer(this);
         cameraGLSurfaceView.setCameraGLRenderer(cameraGLRenderer);
 
-        filterAdapter = new FilterAdapter(FilterType.getAllFilters(), filterType -> {
-            cameraGLRenderer.setFilterType(filterType);
-            cameraGLSurfaceView.requestRender();
+        cameraGLRenderer.setSwitchLatencyTracker(switchLatencyTracker);
+        switchLatencyTracker.setListener((tapToSessionNanos, tapToFrameNanos) -> Log.d(TAG,
+                "Camera switch: session " + tapToSessionNanos / 1_000_000 + " ms, first frame " + tapToFrameNanos / 1_000_000
+                        + " ms, p50 " + switchLatencyTracker.getPercentileNanos(50) / 1_000_000 + " ms"));
+
+        filterAdapter = new FilterAdapter(FilterType.getAllFilters(), new FilterAdapter.ItemClickListener() {
+            @Override
+            public void onItemClick(FilterType filterType) {
+                cameraGLRenderer.setFilterType(filterType);
+                updateFilterGraph();
+                cameraGLSurfaceView.requestRender();
+            }
+
+            @Override
+            public void onLutClick(LutFilter lutFilter) {
+                cameraGLRenderer.setLutFilter(lutFilter);
+                updateFilterGraph();
+                cameraGLSurfaceView.requestRender();
+            }
         });
         LinearLayoutManager layoutManager = new LinearLayoutManager(this, LinearLayoutManager.HORIZONTAL, false);
         filterRecyclerView.setLayoutManager(layoutManager);
         filterRecyclerView.setAdapter(filterAdapter);
 
+        cameraGLRenderer.setThumbnailListener(filterAdapter::setThumbnails);
+
+        // Listing assets and storage touches the disk
+        ImportedLuts importedLuts = cameraGLRenderer.getImportedLuts();
+        new Thread(() -> {
+            List<LutFilter> lutFilters = importedLuts.list();
+            runOnUiThread(() -> filterAdapter.setLutFilters(lutFilters));
+        }, "ImportedLuts").start();
+
 
         overlayAdapter = new OverlayAdapter(overlays, overlay -> {
             if(overlay.getId() == 0){
@@ -108,33 +191,64 @@ public class MainActivity extends AppCompatActivity {
         progressDialog = new ProgressDialog(this);
         progressDialog.setTitle("Loading...");
 
+        imageSaver = new ImageSaver(new File(getCacheDir(), "captures"), SaveFormat.JPEG, 95);
+
+        stillProcessor = new StillProcessor(getAssets(), cameraGLRenderer.getImportedLuts());
+
         btnCapture.setOnClickListener(v -> {
             progressDialog.show();
-            cameraGLRenderer.requestCapture(bitmap -> {
-                Intent intent = new Intent(MainActivity.this, CaptureActivity.class);
-                intent.putExtra(MainActivity.class.getName(), FileHelper.saveBitmapToFile(MainActivity.this, bitmap));
-                progressDialog.dismiss();
-                startActivity(intent);
+            if (camera != null && camera.getStillSize() != null) {
+                captureStill();
+            } else {
+                // No JPEG stream, fall back to reading back the preview
+                cameraGLRenderer.requestCapture(bitmap -> imageSaver.save(bitmap, new PhotoSaveCallback(null)));
+            }
+        });
+
+        // Burst frames block the burst thread instead of being rejected, a full queue then shows up as skipped frames
+        burstSaver = new ImageSaver(new File(getCacheDir(), "burst"), SaveFormat.JPEG, 90,
+                2, BURST_FRAME_COUNT, BoundedExecutor.OverflowPolicy.BLOCK);
+
+        btnCapture.setOnLongClickListener(v -> {
+            cameraGLRenderer.startBurst(BURST_FRAME_COUNT, new BurstCapture.BurstListener() {
+                @Override
+                public void onBurstFrame(int index, Bitmap bitmap, long captureLatencyNanos) {
+                    // Full screen frames, give their memory back as soon as each one is written
+                    burstSaver.save(bitmap).whenComplete((path, error) -> bitmap.recycle());
+                }
+
+                @Override
+                public void onBurstComplete(BurstStats stats) {
+                    Log.d(TAG, "Burst " + stats);
+                    Toast.makeText(MainActivity.this,
+                            "Burst: " + stats.getCapturedFrames() + " captured, " + stats.getSkippedFrames() + " skipped",
+                            Toast.LENGTH_SHORT).show();
+                }
             });
+            return true;
         });
 
         btnRotate.setOnClickListener(v -> {
-            boolean isFrontCamera = camera.rotateCamera();
-            camera.setCameraStateListener(new Camera.CameraStateListener() {
+            if (camera == null) {
+                return;
+            }
+            Camera switched = camera;
+            boolean isFrontCamera = switched.rotateCamera();
+            switched.setCameraStateListener(new Camera.CameraStateListener() {
                 @Override
                 public void onCameraOpened() {
                     cameraGLRenderer.setFrontCamera(isFrontCamera);
-                    camera.setCameraStateListener(null);
+                    switched.setCameraStateListener(null);
                 }
 
                 @Override
                 public void onCameraClosed() {
-                    camera.setCameraStateListener(null);
+                    switched.setCameraStateListener(null);
                 }
 
                 @Override
                 public void onCameraError(String error) {
-                    camera.setCameraStateListener(null);
+                    switched.setCameraStateListener(null);
                 }
             });
         });
@@ -144,6 +258,41 @@ public class MainActivity extends AppCompatActivity {
             Pair<Integer, Integer> newRatio = ratios.get(currentRatioIndex);
             btnRatio.setText("" + newRatio.first + ":" + newRatio.second);
             updateSurfaceViewRatio(newRatio.first / (float) newRatio.second);
+            if (frameSource != null) {
+                frameSource.setAspectRatio(newRatio.first / (float) newRatio.second);
+            }
+        });
+        // Long press on the ratio button toggles the performance readout
+        perfHud = new PerfHud(findViewById(R.id.tv_perf_hud), cameraGLRenderer.getTimings(), cameraGLRenderer.getFramePacer());
+        btnRatio.setOnLongClickListener(v -> {
+            if (perfHud.isRunning()) {
+                perfHud.stop();
+            } else {
+                perfHud.start();
+            }
+            return true;
+        });
+        btnRecord.setOnClickListener(v -> {
+            if (cameraGLRenderer.isRecording()) {
+                stopRecording();
+            } else {
+                startRecording();
+            }
+        });
+        // Long press records the unfiltered camera frames for replay instead
+        btnRecord.setOnLongClickListener(v -> {
+            if (rawFrameRecorder != null) {
+                stopRawRecording();
+            } else {
+                startRawRecording();
+            }
+            return true;
+        });
+        btnFilm.setOnClickListener(v -> {
+            filmEffects = !filmEffects;
+            btnFilm.setText(filmEffects ? "FILM ON" : "FILM");
+            updateFilterGraph();
+            cameraGLSurfaceView.requestRender();
         });
         seekBar.setMax(100);
         seekBar.setProgress(100);
@@ -167,18 +316,232 @@ public class MainActivity extends AppCompatActivity {
 
 
 
-    private void setupCamera() {
+    // Full sensor resolution through the camera's JPEG stream, filtered like the preview looks right now
+    private void captureStill() {
+        Pair<Integer, Integer> ratio = ratios.get(currentRatioIndex);
+        float aspectRatio = ratio.first / (float) ratio.second;
+        FilterType filterType = cameraGLRenderer.getFilterType();
+        LutFilter lutFilter = cameraGLRenderer.getLutFilter();
+        String overlayPath = cameraGLRenderer.getOverlayPath();
+        float overlayAlpha = cameraGLRenderer.getOverlayAlpha();
+        PipelineTimings timings = cameraGLRenderer.getTimings();
+        camera.takePicture(new Camera.StillCallback() {
+            @Override
+            public void onStillCaptured(byte[] jpeg, int rotationDegrees, long captureNanos) {
+                timings.record(PipelineTimings.Stage.STILL_CAPTURE, captureNanos);
+                stillProcessor.process(jpeg, rotationDegrees, captureNanos, aspectRatio, filterType, lutFilter,
+                        overlayPath, overlayAlpha).whenComplete((result, error) -> runOnUiThread(() -> {
+                    if (error != null) {
+                        Log.w(TAG, "Could not process still", error);
+                        new PhotoSaveCallback(null).onError(error);
+                        return;
+                    }
+                    Log.d(TAG, "Still " + result.report);
+                    timings.record(PipelineTimings.Stage.STILL_PROCESS, result.report.processNanos);
+                    imageSaver.save(result.bitmap, new PhotoSaveCallback(result.bitmap));
+                }));
+            }
+
+            @Override
+            public void onStillFailed(String error) {
+                Log.w(TAG, "Still capture failed: " + error);
+                new PhotoSaveCallback(null).onError(new IllegalStateException(error));
+            }
+        });
+    }
+
+    // With film effects on, the selected look runs as the graph's first stage and the vignette and
+    // grain are fused into the same pass. Imported LUTs have no graph stage, they keep the single
+    // program until another filter is picked.
+    private void updateFilterGraph() {
+        if (!filmEffects || cameraGLRenderer.getLutFilter() != null) {
+            cameraGLRenderer.setFilterGraph(null);
+            return;
+        }
+        FilterType look = cameraGLRenderer.getFilterType();
+        FilterGraph.Builder builder = new FilterGraph.Builder();
+        if (FilterShaderSource.filterFunction(look) != null) {
+            builder.add(FilterStage.look(look));
+        }
+        cameraGLRenderer.setFilterGraph(builder
+                .add(FilterStage.vignette(FILM_VIGNETTE_STRENGTH))
+                .add(FilterStage.grain(FILM_GRAIN_AMOUNT))
+                .build());
+    }
+
+    // Records what the preview shows, at the view's aspect ratio
+    private void startRecording() {
+        File directory = FileHelper.videoDirectory(this);
+        VideoRecorder recorder;
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            VideoSettings settings = VideoSettings.forSurface(cameraGLSurfaceView.getWidth(), cameraGLSurfaceView.getHeight(),
+                    VideoSettings.DEFAULT_MAX_LONG_SIDE, VideoSettings.DEFAULT_FRAME_RATE);
+            recorder = new VideoRecorder(new File(directory, videoNameGenerator.nextName("mp4")), settings);
+            Log.d(TAG, "Recording " + settings);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Could not start recording", e);
+            Toast.makeText(this, "Could not start recording", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        recorder.getCompletion().whenComplete((file, error) -> {
+            if (error != null) {
+                runOnUiThread(() -> {
+                    Log.w(TAG, "Recording failed", error);
+                    // The encoder is gone, stop feeding it
+                    if (cameraGLRenderer.isRecording()) {
+                        stopRecording();
+                    }
+                    Toast.makeText(MainActivity.this, "Could not save video", Toast.LENGTH_SHORT).show();
+                });
+                return;
+            }
+            // Still on the muxer thread, the copy stays off the main thread
+            String location;
+            try {
+                location = FileHelper.publishVideo(getApplicationContext(), file);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Could not publish " + file, e);
+                location = file.getAbsolutePath();
+            }
+            String saved = location;
+            runOnUiThread(() -> Toast.makeText(MainActivity.this, "Saved " + saved + ", "
+                    + recorder.getStats().getDroppedFrames() + " frames dropped", Toast.LENGTH_LONG).show());
+        });
+        cameraGLRenderer.startRecording(recorder);
+        perfHud.setRecordingStats(recorder.getStats());
+        btnRecord.setText("STOP");
+    }
+
+    private void stopRecording() {
+        cameraGLRenderer.stopRecording();
+        perfHud.setRecordingStats(null);
+        btnRecord.setText("REC");
+    }
+
+    private void startRawRecording() {
+        StreamSize size = camera != null ? camera.getPreviewSize() : null;
+        if (size == null) {
+            Toast.makeText(this, "Raw recording needs the camera", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        File directory = new File(getCacheDir(), "recordings");
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            rawFrameRecorder = new RawFrameRecorder(new File(directory, videoNameGenerator.nextName("frames")),
+                    size.getWidth(), size.getHeight(), cameraGLRenderer.getPixelBufferPool());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not start raw recording", e);
+            Toast.makeText(this, "Could not start raw recording", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        camera.startRawRecording(rawFrameRecorder);
+        btnRecord.setText("RAW");
+    }
+
+    private void stopRawRecording() {
+        if (camera != null) {
+            camera.stopRawRecording();
+        }
+        RawFrameRecorder recorder = rawFrameRecorder;
+        rawFrameRecorder = null;
+        btnRecord.setText("REC");
+        recorder.close().whenComplete((file, error) -> runOnUiThread(() -> {
+            if (error != null) {
+                Log.w(TAG, "Raw recording failed", error);
+                Toast.makeText(MainActivity.this, "Could not save raw recording", Toast.LENGTH_SHORT).show();
+            } else {
+                Log.d(TAG, "Raw recording " + file.getAbsolutePath());
+                Toast.makeText(MainActivity.this, "Saved " + file.getName() + ", "
+                        + recorder.getDroppedFrames() + " frames dropped", Toast.LENGTH_SHORT).show();
+            }
+        }));
+    }
+
+    // Opens the saved photo, recycles the bitmap once it is written if given one
+    private class PhotoSaveCallback implements ImageSaver.SaveCallback {
+
+        private final Bitmap bitmap;
+
+        PhotoSaveCallback(Bitmap bitmap) {
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        public void onSaved(String path) {
+            recycle();
+            progressDialog.dismiss();
+            Intent intent = new Intent(MainActivity.this, CaptureActivity.class);
+            intent.putExtra(MainActivity.class.getName(), path);
+            startActivity(intent);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            recycle();
+            progressDialog.dismiss();
+            String message = error instanceof RejectedExecutionException
+                    || error.getCause() instanceof RejectedExecutionException
+                    ? "Still saving the previous photos"
+                    : "Could not save photo";
+            Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+        }
+
+        private void recycle() {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    private void setupFrameSource() {
         cameraGLRenderer.setSurfaceReadyListener(surfaceTexture -> {
-            camera = new Camera(this, surfaceTexture, 1080, 1920);
-            camera.openBackCamera();
             Pair<Integer, Integer> currentRatio = ratios.get(currentRatioIndex);
+            frameSource = createFrameSource(surfaceTexture, currentRatio.first / (float) currentRatio.second);
+            frameSource.start();
             btnRatio.setText("" + currentRatio.first + ":" + currentRatio.second);
             updateSurfaceViewRatio(currentRatio.first / (float) currentRatio.second);
         });
+    }
 
-        cameraGLRenderer.setFrameAvailableListener(surfaceTexture -> {
-            cameraGLSurfaceView.requestRender();
-        });
+    private FrameSource createFrameSource(SurfaceTexture surfaceTexture, float aspectRatio) {
+        String source = getFrameSourceName();
+        if (FRAME_SOURCE_SYNTHETIC.equals(source)) {
+            String pattern = getIntent().getStringExtra(EXTRA_PATTERN);
+            return new SyntheticFrameSource(surfaceTexture, aspectRatio, pattern != null
+                    ? TestPatterns.Pattern.valueOf(pattern) : TestPatterns.Pattern.MOVING_CHECKERBOARD);
+        }
+        if (FRAME_SOURCE_IMAGES.equals(source)) {
+            String directory = getIntent().getStringExtra(EXTRA_IMAGE_DIRECTORY);
+            return new ImageSequenceFrameSource(surfaceTexture, aspectRatio,
+                    ImageSequenceFrameSource.listImages(new File(directory)));
+        }
+        if (FRAME_SOURCE_REPLAY.equals(source)) {
+            String file = getIntent().getStringExtra(EXTRA_RECORDING_FILE);
+            try {
+                return new RecordingFrameSource(surfaceTexture, FrameRecordingReader.open(new File(file)));
+            } catch (IOException e) {
+                // Not worth running without the frames the replay was meant to show
+                throw new IllegalStateException("Could not open recording " + file, e);
+            }
+        }
+        camera = new Camera(this, surfaceTexture, aspectRatio);
+        camera.setSwitchLatencyTracker(switchLatencyTracker);
+        return camera;
+    }
+
+    private String getFrameSourceName() {
+        String source = getIntent().getStringExtra(EXTRA_FRAME_SOURCE);
+        return source != null ? source : FRAME_SOURCE_CAMERA;
+    }
+
+    // For instrumentation tests driving the pipeline directly
+    CameraGLRenderer getRenderer() {
+        return cameraGLRenderer;
     }
 
     @Override
@@ -186,7 +549,7 @@ public class MainActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == 100) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                setupCamera();
+                setupFrameSource();
             }
         }
     }
@@ -194,23 +557,40 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
-        if(ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+        // Only the camera needs the permission
+        if(FRAME_SOURCE_CAMERA.equals(getFrameSourceName())
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
             requestPermissions(new String[]{Manifest.permission.CAMERA}, 100);
         }else{
-            setupCamera();
+            setupFrameSource();
         }
     }
 
     @Override
     protected void onStop() {
         super.onStop();
-        camera.closeCamera();
+        if (cameraGLRenderer.isRecording()) {
+            stopRecording();
+        }
+        if (rawFrameRecorder != null) {
+            stopRawRecording();
+        }
+        // A new source is created in onStart, this one also stops its thread
+        if (frameSource != null) {
+            frameSource.release();
+            frameSource = null;
+            camera = null;
+        }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        camera = null;
+        perfHud.stop();
+        imageSaver.shutdown();
+        stillProcessor.shutdown();
+        burstSaver.shutdown();
+        cameraGLRenderer.release();
     }
 
     public void updateSurfaceViewRatio(float aspectRatio) {
@@ -1,8 +1,7 @@
 package com.camera.filter;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,18 +10,24 @@ import android.widget.ImageView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.io.IOException;
-import java.io.InputStream;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+
 import java.util.List;
 
 public class OverlayAdapter extends RecyclerView.Adapter<OverlayAdapter.ViewHolder> {
 
+    // Matches iv_overlay in overlay_item.xml
+    private static final int THUMBNAIL_SIZE_DP = 80;
+
     private List<Overlay> overlays;
 
     private OverlayClickListener overlayClickListener;
 
     private Context context;
 
+    private int thumbnailSize;
+
     public interface OverlayClickListener {
         void onClick(Overlay overlay);
     }
@@ -36,6 +41,7 @@ public class OverlayAdapter extends RecyclerView.Adapter<OverlayAdapter.ViewHold
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         context = parent.getContext();
+        thumbnailSize = Math.round(THUMBNAIL_SIZE_DP * context.getResources().getDisplayMetrics().density);
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.overlay_item, parent, false);
         return new ViewHolder(view);
     }
@@ -45,6 +51,12 @@ public class OverlayAdapter extends RecyclerView.Adapter<OverlayAdapter.ViewHold
         holder.bind(overlays.get(position));
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.clear();
+    }
+
     @Override
     public int getItemCount() {
         return overlays.size();
@@ -60,8 +72,16 @@ public class OverlayAdapter extends RecyclerView.Adapter<OverlayAdapter.ViewHold
 
         public void bind(Overlay overlay) {
             if(overlay.getId() != 0){
-                Bitmap bitmap = loadImage(overlay.getImagePath());
-                ivOverlay.setImageBitmap(bitmap);
+                // Decoded off the main thread at thumbnail size. Glide keeps the result in its memory
+                // LRU keyed by path and size, and the scaled thumbnail in its disk cache.
+                Glide.with(ivOverlay)
+                        .load(Uri.parse("file:///android_asset/" + overlay.getImagePath()))
+                        .override(thumbnailSize, thumbnailSize)
+                        .centerCrop()
+                        .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                        .into(ivOverlay);
+            } else {
+                clear();
             }
             itemView.setOnClickListener(v -> {
                 if (overlayClickListener != null) {
@@ -70,15 +90,10 @@ public class OverlayAdapter extends RecyclerView.Adapter<OverlayAdapter.ViewHold
             });
         }
 
-        private Bitmap loadImage(String imagePath){
-            try {
-                InputStream inputStream = context.getAssets().open(imagePath);
-                Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-                inputStream.close();
-                return bitmap;
-            } catch (IOException e) {
-                return null;
-            }
+        // Cancels a load still in flight and lets Glide reuse the bitmap
+        void clear() {
+            Glide.with(ivOverlay).clear(ivOverlay);
+            ivOverlay.setImageDrawable(null);
         }
     }
 }
@@ -1,65 +1,24 @@
 package com.camera.filter;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
 
 public class OverlayPreview {
 
-    public OverlayPreview() {
-        vertexBuffer = ByteBuffer.allocateDirect(vertices.length * 4)
-                .order(ByteOrder.nativeOrder())
-                .asFloatBuffer()
-                .put(vertices);
-        vertexBuffer.position(0);
-
-        textureBuffer = ByteBuffer.allocateDirect(textureCoords.length * 4)
-                .order(ByteOrder.nativeOrder())
-                .asFloatBuffer()
-                .put(textureCoords);
-        textureBuffer.position(0);
+    public OverlayPreview(FullScreenQuad quad) {
+        this.quad = quad;
 
-        program = createProgram();
+        program = ShaderHelper.createProgram(vertexShaderCode, fragmentShaderCode);
 
-        positionHandle = GLES20.glGetAttribLocation(program, "aPosition");
-        textureHandle = GLES20.glGetAttribLocation(program, "aTextureCoord");
         mvpMatrixHandle = GLES20.glGetUniformLocation(program, "uMVPMatrix");
         alphaHandle = GLES20.glGetUniformLocation(program, "uAlpha");
     }
 
-    private FloatBuffer vertexBuffer;
-    private FloatBuffer textureBuffer;
+    private final FullScreenQuad quad;
 
     private int program;
 
     private float alpha = 1.0f;
 
-    // Vertex coordinates
-    private float[] vertices = {
-            -1.0f, -1.0f, 0.0f,
-            1.0f, -1.0f, 0.0f,
-            -1.0f,  1.0f, 0.0f,
-            1.0f,  1.0f, 0.0f
-    };
-
-    private float[] textureCoords = {
-            1.0f, 1.0f,  // Bottom-right -> Top-left
-            1.0f, 0.0f,  // Top-right -> Bottom-left
-            0.0f, 1.0f,  // Bottom-left -> Top-right
-            0.0f, 0.0f   // Top-left -> Bottom-right
-    };
-
-    private int positionHandle = 0;
-    private int textureHandle = 0;
     private int mvpMatrixHandle = 0;
     private int alphaHandle = 0;
 
@@ -87,47 +46,25 @@ public class OverlayPreview {
                     "}\n";
 
 
-    private int createProgram(){
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
-
-        int program = GLES20.glCreateProgram();
-
-        GLES20.glAttachShader(program, vertexShader);
-        GLES20.glAttachShader(program, fragmentShader);
-        GLES20.glLinkProgram(program);
-
-        return program;
-    }
-
-    private int loadShader(int type, String shaderCode){
-        int shader = GLES20.glCreateShader(type);
-        GLES20.glShaderSource(shader, shaderCode);
-        GLES20.glCompileShader(shader);
-        return shader;
-    }
-
-    public void draw(float[] mvpMatrix) {
+    public void draw(float[] mvpMatrix, int textureId) {
 
         GLES20.glUseProgram(program);
 
-        // Set vertex attributes
-        GLES20.glEnableVertexAttribArray(positionHandle);
-        GLES20.glVertexAttribPointer(positionHandle, 3, GLES20.GL_FLOAT, false, 0, vertexBuffer);
-        GLES20.glEnableVertexAttribArray(textureHandle);
-        GLES20.glVertexAttribPointer(textureHandle, 2, GLES20.GL_FLOAT, false, 0, textureBuffer);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
         GLES20.glUniformMatrix4fv(mvpMatrixHandle, 1, false, mvpMatrix, 0);
 
         GLES20.glUniform1f(alphaHandle, alpha);
 
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
-
-        GLES20.glDisableVertexAttribArray(positionHandle);
-        GLES20.glDisableVertexAttribArray(textureHandle);
+        quad.draw();
     }
 
     public void setAlpha(float alpha) {
         this.alpha = alpha;
     }
+
+    public void release() {
+        GLES20.glDeleteProgram(program);
+    }
 }
@@ -0,0 +1,165 @@
+package com.camera.filter;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Overlay textures keyed by asset path. Each asset is decoded once on a background thread,
+// downsampled to the surface size, uploaded on the GL thread and kept until the VRAM budget
+// pushes it out. Until a texture is ready getTexture returns null.
+public class OverlayTextureCache {
+
+    private static final String TAG = "OverlayTextureCache";
+
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    public static class OverlayTexture {
+        public final int id;
+        public final int width;
+        public final int height;
+
+        OverlayTexture(int id, int width, int height) {
+            this.id = id;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final AssetManager assets;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // GL thread only, the eviction listener runs from put on the GL thread too
+    private final BudgetLruCache<String, OverlayTexture> textures;
+
+    private final Set<String> requested = new HashSet<>();
+
+    private final ConcurrentLinkedQueue<Decoded> decoded = new ConcurrentLinkedQueue<>();
+
+    private volatile int targetWidth = 0;
+
+    private volatile int targetHeight = 0;
+
+    private static class Decoded {
+        final String assetPath;
+        final Bitmap bitmap;
+
+        Decoded(String assetPath, Bitmap bitmap) {
+            this.assetPath = assetPath;
+            this.bitmap = bitmap;
+        }
+    }
+
+    public OverlayTextureCache(AssetManager assets) {
+        this(assets, DEFAULT_BUDGET_BYTES);
+    }
+
+    public OverlayTextureCache(AssetManager assets, long budgetBytes) {
+        this.assets = assets;
+        this.textures = new BudgetLruCache<>(budgetBytes,
+                texture -> OverlayDecodePolicy.textureByteSize(texture.width, texture.height),
+                (assetPath, texture) -> {
+                    GLES20.glDeleteTextures(1, new int[]{texture.id}, 0);
+                    requested.remove(assetPath);
+                });
+    }
+
+    // Overlays decoded from now on are downsampled to cover this size
+    public void setTargetSize(int width, int height) {
+        targetWidth = width;
+        targetHeight = height;
+    }
+
+    // GL thread
+    public OverlayTexture getTexture(String assetPath) {
+        uploadDecoded();
+        OverlayTexture texture = textures.get(assetPath);
+        if (texture != null || !requested.add(assetPath)) {
+            return texture;
+        }
+        int width = targetWidth;
+        int height = targetHeight;
+        executor.execute(() -> {
+            try {
+                decoded.add(new Decoded(assetPath, decode(assetPath, width, height)));
+            } catch (IOException e) {
+                // Stays requested so a missing asset is not decoded again on every frame
+                Log.w(TAG, "Could not decode overlay " + assetPath, e);
+            }
+        });
+        return null;
+    }
+
+    private Bitmap decode(String assetPath, int width, int height) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = assets.open(assetPath)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        options.inSampleSize = OverlayDecodePolicy.inSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap;
+        try (InputStream in = assets.open(assetPath)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Unsupported image " + assetPath);
+        }
+        return bitmap;
+    }
+
+    private void uploadDecoded() {
+        Decoded next;
+        while ((next = decoded.poll()) != null) {
+            if (!requested.contains(next.assetPath)) {
+                // Released while it was decoding
+                next.bitmap.recycle();
+                continue;
+            }
+            int[] texture = new int[1];
+            GLES20.glGenTextures(1, texture, 0);
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+            GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, next.bitmap, 0);
+            textures.put(next.assetPath, new OverlayTexture(texture[0], next.bitmap.getWidth(), next.bitmap.getHeight()));
+            // The GPU has its own copy now
+            next.bitmap.recycle();
+        }
+    }
+
+    public BudgetLruCache<String, OverlayTexture> getTextures() {
+        return textures;
+    }
+
+    // Stops the decode thread, from any thread. The textures go with the GL context.
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // GL thread, the cache can not be used afterwards
+    public void release() {
+        shutdown();
+        textures.clear();
+        requested.clear();
+        Decoded next;
+        while ((next = decoded.poll()) != null) {
+            next.bitmap.recycle();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.camera.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Wires planned passes to render targets. The first pass reads the camera, the last one draws to
+// the screen and everything in between ping-pongs between two framebuffer textures, so a graph of
+// any length needs at most two of them.
+public final class PassScheduler {
+
+    public enum Target {
+        CAMERA,
+        PING,
+        PONG,
+        SCREEN
+    }
+
+    public static class ScheduledPass {
+        public final FusionPlanner.Pass pass;
+        public final Target input;
+        public final Target output;
+
+        ScheduledPass(FusionPlanner.Pass pass, Target input, Target output) {
+            this.pass = pass;
+            this.input = input;
+            this.output = output;
+        }
+
+        @Override
+        public String toString() {
+            return input + " -> " + output + ": " + pass;
+        }
+    }
+
+    private PassScheduler() {
+    }
+
+    public static List<ScheduledPass> schedule(List<FusionPlanner.Pass> passes) {
+        if (passes.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to schedule");
+        }
+        List<ScheduledPass> scheduled = new ArrayList<>(passes.size());
+        Target input = Target.CAMERA;
+        for (int i = 0; i < passes.size(); i++) {
+            Target output = i == passes.size() - 1
+                    ? Target.SCREEN
+                    : input == Target.PING ? Target.PONG : Target.PING;
+            scheduled.add(new ScheduledPass(passes.get(i), input, output));
+            input = output;
+        }
+        return Collections.unmodifiableList(scheduled);
+    }
+
+    // Framebuffer textures the schedule renders into
+    public static int intermediateTargets(List<ScheduledPass> scheduled) {
+        boolean ping = false;
+        boolean pong = false;
+        for (ScheduledPass pass : scheduled) {
+            ping |= pass.output == Target.PING;
+            pong |= pass.output == Target.PONG;
+        }
+        return (ping ? 1 : 0) + (pong ? 1 : 0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.camera.filter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.Locale;
+
+// Optional on-screen readout of stage percentiles and frame counters, refreshed twice a second
+public class PerfHud {
+
+    private static final long REFRESH_INTERVAL_MS = 500;
+
+    private final TextView textView;
+
+    private final PipelineTimings timings;
+
+    private final FramePacer framePacer;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Shown while set, main thread only
+    private RecordingStats recordingStats;
+
+    private boolean running = false;
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            String text = String.format(Locale.ROOT, "frames %d in, %d drawn, %d dropped\n%-16s %5s %5s %5s\n%s",
+                    framePacer.getReceivedCount(), framePacer.getRenderedCount(), framePacer.getDroppedCount(),
+                    "stage", "p50", "p95", "p99", timings.formatHud());
+            if (recordingStats != null) {
+                text += String.format(Locale.ROOT, "\nrec %d queued, %d dropped, encoder %d (peak %d), muxer %d",
+                        recordingStats.getQueuedFrames(), recordingStats.getDroppedFrames(),
+                        recordingStats.getEncoderQueueDepth(), recordingStats.getPeakEncoderQueueDepth(),
+                        recordingStats.getMuxerQueueDepth());
+            }
+            textView.setText(text);
+            handler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    public PerfHud(TextView textView, PipelineTimings timings, FramePacer framePacer) {
+        this.textView = textView;
+        this.timings = timings;
+        this.framePacer = framePacer;
+    }
+
+    // Adds the recording's frame and queue counters, null removes them
+    public void setRecordingStats(RecordingStats recordingStats) {
+        this.recordingStats = recordingStats;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        textView.setVisibility(View.VISIBLE);
+        handler.post(refresh);
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(refresh);
+        textView.setVisibility(View.GONE);
+    }
+}
@@ -0,0 +1,54 @@
+package com.camera.filter;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.function.LongSupplier;
+
+public class PhotoNameGenerator {
+
+    private final String prefix;
+
+    private final LongSupplier clock;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS", Locale.US);
+
+    private long lastTime = Long.MIN_VALUE;
+
+    private int sequence = 0;
+
+    public PhotoNameGenerator(String prefix) {
+        this(prefix, System::currentTimeMillis, TimeZone.getDefault());
+    }
+
+    public PhotoNameGenerator(String prefix, LongSupplier clock, TimeZone timeZone) {
+        this.prefix = prefix;
+        this.clock = clock;
+        dateFormat.setTimeZone(timeZone);
+    }
+
+    // Names sort by capture time, shots within the same millisecond get a sequence suffix
+    public String nextName(SaveFormat format) {
+        return nextName(format.getExtension());
+    }
+
+    public synchronized String nextName(String extension) {
+        long time = clock.getAsLong();
+        if (time <= lastTime) {
+            // Never go backwards, even if the wall clock does
+            time = lastTime;
+            sequence++;
+        } else {
+            lastTime = time;
+            sequence = 0;
+        }
+        StringBuilder name = new StringBuilder(prefix)
+                .append('_')
+                .append(dateFormat.format(new Date(time)));
+        if (sequence > 0) {
+            name.append('_').append(sequence);
+        }
+        return name.append('.').append(extension).toString();
+    }
+}
@@ -0,0 +1,139 @@
+package com.camera.filter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Recent durations per render pipeline stage, with percentiles computed on demand by readers.
+// Each stage must be recorded from a single thread.
+public class PipelineTimings {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    public enum Stage {
+        // CPU time of the whole onDrawFrame
+        FRAME,
+        // CPU time to submit the camera preview
+        CAMERA_PREVIEW,
+        // CPU time to submit the overlay
+        OVERLAY,
+        // Synchronous glReadPixels for a capture
+        CAPTURE_READBACK,
+        // Swizzle and bitmap creation for a capture, on the readback thread
+        CAPTURE_CONVERT,
+        // GPU time of a frame from EXT_disjoint_timer_query, when available
+        GPU_FRAME,
+        // Full resolution still, from takePicture until the JPEG is in memory
+        STILL_CAPTURE,
+        // Tiled decode, filter and overlay of a full resolution still
+        STILL_PROCESS,
+        // Switch to the encoder surface, blit and swap while recording
+        RECORD
+    }
+
+    public static class Summary {
+        public final Stage stage;
+        public final long count;
+        public final long p50Nanos;
+        public final long p95Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+
+        Summary(Stage stage, LatencyHistogram histogram) {
+            this.stage = stage;
+            this.count = histogram.getCount();
+            this.p50Nanos = histogram.getPercentile(50);
+            this.p95Nanos = histogram.getPercentile(95);
+            this.p99Nanos = histogram.getPercentile(99);
+            this.maxNanos = histogram.getMax();
+        }
+    }
+
+    private final TimingRing[] rings;
+
+    // Draw calls per frame, a count rather than a duration
+    private final TimingRing drawCalls;
+
+    public PipelineTimings() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PipelineTimings(int capacity) {
+        rings = new TimingRing[Stage.values().length];
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new TimingRing(capacity);
+        }
+        drawCalls = new TimingRing(capacity);
+    }
+
+    public void record(Stage stage, long nanos) {
+        rings[stage.ordinal()].record(nanos);
+    }
+
+    // Same single writer rule as the stages, usually the GL thread at the end of a frame
+    public void recordDrawCalls(int count) {
+        drawCalls.record(count);
+    }
+
+    // Covers the samples currently in the stage's ring
+    public Summary summarize(Stage stage) {
+        return new Summary(stage, histogram(rings[stage.ordinal()]));
+    }
+
+    // Draw calls per frame over the recent frames, percentiles are plain counts
+    public LatencyHistogram getDrawCallsPerFrame() {
+        return histogram(drawCalls);
+    }
+
+    private static LatencyHistogram histogram(TimingRing ring) {
+        long[] samples = new long[ring.getCapacity()];
+        int count = ring.snapshot(samples);
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < count; i++) {
+            histogram.record(samples[i]);
+        }
+        return histogram;
+    }
+
+    // Stages that have samples, in Stage order
+    public List<Summary> summarize() {
+        List<Summary> summaries = new ArrayList<>();
+        for (Stage stage : Stage.values()) {
+            if (rings[stage.ordinal()].getWrittenCount() > 0) {
+                summaries.add(summarize(stage));
+            }
+        }
+        return summaries;
+    }
+
+    // One line per stage with samples, times in microseconds
+    public void exportCsv(Appendable out) throws IOException {
+        out.append("stage,count,p50_us,p95_us,p99_us,max_us\n");
+        for (Summary summary : summarize()) {
+            out.append(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d\n", summary.stage.name(), summary.count,
+                    summary.p50Nanos / 1000, summary.p95Nanos / 1000, summary.p99Nanos / 1000, summary.maxNanos / 1000));
+        }
+    }
+
+    // Compact text for the on-screen HUD, times in milliseconds
+    public String formatHud() {
+        StringBuilder builder = new StringBuilder();
+        for (Summary summary : summarize()) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(String.format(Locale.ROOT, "%-16s %5.1f %5.1f %5.1f ms", summary.stage.name().toLowerCase(Locale.ROOT),
+                    summary.p50Nanos / 1e6, summary.p95Nanos / 1e6, summary.p99Nanos / 1e6));
+        }
+        LatencyHistogram draws = getDrawCallsPerFrame();
+        if (draws.getCount() > 0) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(String.format(Locale.ROOT, "%-16s %5d %5d %5d", "draws/frame",
+                    draws.getPercentile(50), draws.getPercentile(95), draws.getPercentile(99)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Reads the framebuffer into pixel pack buffers. A read issued while drawing frame N is only
+// mapped while drawing frame N + 1, so the GPU never has to be drained inside glReadPixels.
+public class PixelReadback {
+
+    public interface Callback {
+        // Called on the GL thread, pixels are only valid until the callback returns
+        void onPixelsRead(ByteBuffer pixels, int width, int height);
+    }
+
+    private final int[] pixelBuffers = new int[2];
+
+    private final Callback[] pendingCallbacks = new Callback[2];
+
+    private final int[] pendingWidths = new int[2];
+
+    private final int[] pendingHeights = new int[2];
+
+    private int bufferSize = 0;
+
+    private int index = 0;
+
+    public static boolean isSupported() {
+        return ShaderHelper.isGlEs3();
+    }
+
+    public PixelReadback() {
+        GLES30.glGenBuffers(2, pixelBuffers, 0);
+    }
+
+    // Call once per frame after drawing. Delivers the read issued on the previous frame and,
+    // if callback is not null, starts a new read of the current frame.
+    public void onFrameDrawn(int width, int height, Callback callback) {
+        int previous = 1 - index;
+        if (pendingCallbacks[previous] != null) {
+            deliver(previous);
+        }
+
+        if (callback == null) {
+            return;
+        }
+        ensureCapacity(width * height * 4);
+
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pixelBuffers[index]);
+        GLES30.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, 0);
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+
+        pendingCallbacks[index] = callback;
+        pendingWidths[index] = width;
+        pendingHeights[index] = height;
+        index = previous;
+    }
+
+    public boolean hasPendingReads() {
+        return pendingCallbacks[0] != null || pendingCallbacks[1] != null;
+    }
+
+    // Maps and delivers everything still in flight, blocking until the GPU is done
+    public void flush() {
+        int previous = 1 - index;
+        if (pendingCallbacks[previous] != null) {
+            deliver(previous);
+        }
+        if (pendingCallbacks[index] != null) {
+            deliver(index);
+        }
+    }
+
+    private void deliver(int slot) {
+        int width = pendingWidths[slot];
+        int height = pendingHeights[slot];
+        Callback callback = pendingCallbacks[slot];
+        pendingCallbacks[slot] = null;
+
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pixelBuffers[slot]);
+        ByteBuffer pixels = (ByteBuffer) GLES30.glMapBufferRange(
+                GLES30.GL_PIXEL_PACK_BUFFER, 0, width * height * 4, GLES30.GL_MAP_READ_BIT);
+        if (pixels != null) {
+            pixels.order(ByteOrder.nativeOrder());
+            callback.onPixelsRead(pixels, width, height);
+            GLES30.glUnmapBuffer(GLES30.GL_PIXEL_PACK_BUFFER);
+        }
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+    }
+
+    private void ensureCapacity(int size) {
+        if (bufferSize >= size) {
+            return;
+        }
+        // Reallocating orphans the old storage, so anything still pending has to go first
+        flush();
+        for (int pixelBuffer : pixelBuffers) {
+            GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, pixelBuffer);
+            GLES30.glBufferData(GLES30.GL_PIXEL_PACK_BUFFER, size, null, GLES30.GL_STREAM_READ);
+        }
+        GLES30.glBindBuffer(GLES30.GL_PIXEL_PACK_BUFFER, 0);
+        bufferSize = size;
+    }
+
+    public void release() {
+        GLES30.glDeleteBuffers(2, pixelBuffers, 0);
+        pendingCallbacks[0] = null;
+        pendingCallbacks[1] = null;
+        bufferSize = 0;
+    }
+}
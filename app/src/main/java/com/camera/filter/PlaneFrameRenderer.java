@@ -0,0 +1,124 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+
+import java.io.IOException;
+
+// Draws recorded frames on the GPU straight from their planes. Each plane is uploaded from the
+// reader's mapping into its own texture, with no copy on the Java heap, and I420 frames are
+// converted to RGB in the fragment shader with PixelConverter's BT.601 full range coefficients.
+// Every output pixel reads its own luma texel and the chroma texel at half its position, found
+// from the pixel position rather than interpolated coordinates, so the planes reach the shader
+// exactly as recorded. The viewport must be the frame size. GL thread of the current context.
+public class PlaneFrameRenderer {
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+                    "void main() {\n" +
+                    "    gl_Position = aPosition;\n" +
+                    "}\n";
+
+    // Row 0 of the planes is the top of the frame, gl_FragCoord counts from the bottom
+    private static final String PIXEL =
+            "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+                    "precision highp float;\n" +
+                    "#else\n" +
+                    "precision mediump float;\n" +
+                    "#endif\n" +
+                    "uniform vec2 uSize;\n" +
+                    "vec2 pixel() {\n" +
+                    "    return vec2(floor(gl_FragCoord.x), uSize.y - 1.0 - floor(gl_FragCoord.y));\n" +
+                    "}\n";
+
+    private static final String I420_SHADER = PIXEL +
+            "uniform sampler2D uPlane0;\n" +
+            "uniform sampler2D uPlane1;\n" +
+            "uniform sampler2D uPlane2;\n" +
+            "uniform vec2 uChromaSize;\n" +
+            "void main() {\n" +
+            "    vec2 p = pixel();\n" +
+            "    float y = texture2D(uPlane0, (p + 0.5) / uSize).r * 255.0;\n" +
+            "    vec2 chroma = (floor(p / 2.0) + 0.5) / uChromaSize;\n" +
+            "    float u = texture2D(uPlane1, chroma).r * 255.0 - 128.0;\n" +
+            "    float v = texture2D(uPlane2, chroma).r * 255.0 - 128.0;\n" +
+            "    vec3 rgb = vec3(y + 1.402 * v, y - 0.344147 * u - 0.714142 * v, y + 1.772 * u);\n" +
+            "    gl_FragColor = vec4(clamp(rgb / 255.0, 0.0, 1.0), 1.0);\n" +
+            "}\n";
+
+    private static final String RGBA_SHADER = PIXEL +
+            "uniform sampler2D uPlane0;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = texture2D(uPlane0, (pixel() + 0.5) / uSize);\n" +
+            "}\n";
+
+    private final FramePixelFormat format;
+
+    private final int width;
+
+    private final int height;
+
+    private final FullScreenQuad quad = new FullScreenQuad();
+
+    private final int program;
+
+    private final int[] textures;
+
+    // Storage is allocated with the first upload, later frames only replace the contents
+    private boolean allocated = false;
+
+    public PlaneFrameRenderer(FramePixelFormat format, int width, int height) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        program = ShaderHelper.createProgram(VERTEX_SHADER,
+                format == FramePixelFormat.I420 ? I420_SHADER : RGBA_SHADER);
+        GLES20.glUseProgram(program);
+        GLES20.glUniform2f(GLES20.glGetUniformLocation(program, "uSize"), width, height);
+        GLES20.glUniform2f(GLES20.glGetUniformLocation(program, "uChromaSize"),
+                FramePixelFormat.chromaWidth(width), FramePixelFormat.chromaHeight(height));
+
+        textures = new int[format.planeCount()];
+        GLES20.glGenTextures(textures.length, textures, 0);
+        for (int plane = 0; plane < textures.length; plane++) {
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + plane);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[plane]);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glUniform1i(GLES20.glGetUniformLocation(program, "uPlane" + plane), plane);
+        }
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+    }
+
+    // Uploads the frame's planes and draws it over the whole viewport
+    public void draw(FrameRecordingReader reader, int frame) throws IOException {
+        int glFormat = format == FramePixelFormat.I420 ? GLES20.GL_LUMINANCE : GLES20.GL_RGBA;
+        // Plane rows are tightly packed, chroma rows of odd widths are not 4 byte aligned
+        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+        for (int plane = 0; plane < textures.length; plane++) {
+            int planeWidth = format.planeWidth(plane, width);
+            int planeHeight = format.planeHeight(plane, height);
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + plane);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[plane]);
+            if (allocated) {
+                GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, planeWidth, planeHeight, glFormat,
+                        GLES20.GL_UNSIGNED_BYTE, reader.getPlane(frame, plane));
+            } else {
+                GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, glFormat, planeWidth, planeHeight, 0, glFormat,
+                        GLES20.GL_UNSIGNED_BYTE, reader.getPlane(frame, plane));
+            }
+        }
+        allocated = true;
+        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 4);
+        GLES20.glUseProgram(program);
+        quad.draw();
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+    }
+
+    public void release() {
+        GLES20.glDeleteTextures(textures.length, textures, 0);
+        GLES20.glDeleteProgram(program);
+        quad.release();
+    }
+}
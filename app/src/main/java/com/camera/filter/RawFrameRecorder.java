@@ -0,0 +1,113 @@
+package com.camera.filter;
+
+import android.graphics.ImageFormat;
+import android.media.Image;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Records unprocessed camera preview frames, the stored I420 planes are the camera's bytes as they
+// were, and RecordingFrameSource uploads them unchanged on replay. Frames arrive as YUV_420_888
+// images on the camera thread, are packed into I420 there so the image can go back right away,
+// and are written by a writer thread. Frames that find the write queue full are dropped and
+// counted rather than stalling the camera.
+public class RawFrameRecorder {
+
+    private static final String TAG = "RawFrameRecorder";
+
+    // Frames waiting for the disk, about 20 MB of 720p I420
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private final File file;
+
+    private final FrameRecordingWriter writer;
+
+    private final PixelBufferPool bufferPool;
+
+    private final BoundedExecutor executor;
+
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    public RawFrameRecorder(File file, int width, int height, PixelBufferPool bufferPool) throws IOException {
+        this.file = file;
+        this.writer = new FrameRecordingWriter(file, FramePixelFormat.I420, width, height);
+        this.bufferPool = bufferPool;
+        // Frames stop at DEFAULT_QUEUE_CAPACITY, the spare slots keep close from being rejected even
+        // with a frame from the camera thread racing it
+        executor = new BoundedExecutor("RawFrameWriter", 1, DEFAULT_QUEUE_CAPACITY + 2,
+                BoundedExecutor.OverflowPolicy.REJECT);
+    }
+
+    public int getWidth() {
+        return writer.getWidth();
+    }
+
+    public int getHeight() {
+        return writer.getHeight();
+    }
+
+    // Camera thread. Takes ownership of the image and closes it before returning.
+    public void onImage(Image image) {
+        try {
+            if (closed || image.getFormat() != ImageFormat.YUV_420_888
+                    || image.getWidth() != writer.getWidth() || image.getHeight() != writer.getHeight()) {
+                return;
+            }
+            if (executor.getPendingCount() >= DEFAULT_QUEUE_CAPACITY) {
+                droppedFrames.incrementAndGet();
+                return;
+            }
+            int width = image.getWidth();
+            int height = image.getHeight();
+            ByteBuffer frame = bufferPool.acquireBuffer(writer.getFrameBytes());
+            Image.Plane[] planes = image.getPlanes();
+            for (int i = 0; i < 3; i++) {
+                int planeWidth = i == 0 ? width : FramePixelFormat.chromaWidth(width);
+                int planeHeight = i == 0 ? height : FramePixelFormat.chromaHeight(height);
+                PixelConverter.packPlane(planes[i].getBuffer(), planes[i].getRowStride(), planes[i].getPixelStride(),
+                        planeWidth, planeHeight, frame);
+            }
+            frame.flip();
+            long timestampNanos = image.getTimestamp();
+            executor.submit(() -> {
+                try {
+                    writer.write(frame, timestampNanos);
+                } finally {
+                    bufferPool.release(frame);
+                }
+                return null;
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    droppedFrames.incrementAndGet();
+                    Log.w(TAG, "Could not write frame", error);
+                }
+            });
+        } finally {
+            image.close();
+        }
+    }
+
+    // Frames the writer could not keep up with or failed to write
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    // Writes the queued frames and the index. Completes with the file on the writer thread.
+    public CompletableFuture<File> close() {
+        closed = true;
+        CompletableFuture<File> result = executor.submit(() -> {
+            writer.close();
+            Log.d(TAG, "Recorded " + writer.getFrameCount() + " frames to " + file.getName()
+                    + ", " + droppedFrames.get() + " dropped");
+            return file;
+        });
+        executor.shutdown();
+        return result;
+    }
+}
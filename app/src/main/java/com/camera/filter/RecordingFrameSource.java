@@ -0,0 +1,137 @@
+package com.camera.filter;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.util.Log;
+import android.view.Surface;
+
+import java.io.IOException;
+
+// Replays a frame recording at its recorded size and average frame rate, looping at the end.
+// Frames are drawn with GL on the source thread, in a context of its own: PlaneFrameRenderer
+// uploads each plane straight from the reader's mapping, with no copy on the Java heap, and
+// converts I420 planes in its shader, so the recorded bytes reach the GPU unchanged and come out
+// with PixelConverter's conversion. Filter programs all sample the camera's external texture, so
+// the conversion happens here, before the frame is queued to the SurfaceTexture, rather than in
+// the filter pass. The live camera's own frames are still converted by the driver.
+public class RecordingFrameSource extends TimedFrameSource {
+
+    private static final String TAG = "RecordingFrameSource";
+
+    private final FrameRecordingReader reader;
+
+    // Source thread only, made with the first frame
+    private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+
+    private EGLContext context = EGL14.EGL_NO_CONTEXT;
+
+    private EGLSurface eglSurface = EGL14.EGL_NO_SURFACE;
+
+    private PlaneFrameRenderer renderer;
+
+    // The reader is closed with the source
+    public RecordingFrameSource(SurfaceTexture surfaceTexture, FrameRecordingReader reader) {
+        super(surfaceTexture, new StreamSize(reader.getWidth(), reader.getHeight()), frameRate(reader));
+        if (reader.getFrameCount() == 0) {
+            throw new IllegalArgumentException("Recording has no frames");
+        }
+        this.reader = reader;
+    }
+
+    // Average rate between the first and last frame, 30 fps for a single frame
+    static int frameRate(FrameRecordingReader reader) {
+        int frames = reader.getFrameCount();
+        if (frames < 2) {
+            return DEFAULT_FRAME_RATE;
+        }
+        long span = reader.getTimestampNanos(frames - 1) - reader.getTimestampNanos(0);
+        return span > 0 ? (int) Math.max(1, Math.round((frames - 1) * 1e9 / span)) : DEFAULT_FRAME_RATE;
+    }
+
+    @Override
+    protected void postFrame(Surface surface, long frameIndex, int width, int height) {
+        if (renderer == null) {
+            createContext(surface);
+            renderer = new PlaneFrameRenderer(reader.getFormat(), width, height);
+        }
+        GLES20.glViewport(0, 0, width, height);
+        try {
+            renderer.draw(reader, (int) (frameIndex % reader.getFrameCount()));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not map frame " + frameIndex, e);
+            return;
+        }
+        if (!EGL14.eglSwapBuffers(display, eglSurface)) {
+            throw new IllegalStateException("Could not queue frame: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+    }
+
+    // Window surface on the SurfaceTexture's Surface, current on the source thread from now on
+    private void createContext(Surface surface) {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(display, version, 0, version, 1)) {
+            throw new IllegalStateException("Could not initialize EGL: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        int[] attributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT,
+                EGL14.EGL_NONE};
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        if (!EGL14.eglChooseConfig(display, attributes, 0, configs, 0, 1, count, 0) || count[0] == 0) {
+            throw new IllegalStateException("No RGBA 8888 EGL config");
+        }
+        context = EGL14.eglCreateContext(display, configs[0], EGL14.EGL_NO_CONTEXT,
+                new int[]{EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE}, 0);
+        if (context == null || context.equals(EGL14.EGL_NO_CONTEXT)) {
+            context = EGL14.EGL_NO_CONTEXT;
+            throw new IllegalStateException("Could not create context: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        // Fails once the SurfaceTexture is released, which stops the source like a lost canvas
+        eglSurface = EGL14.eglCreateWindowSurface(display, configs[0], surface, new int[]{EGL14.EGL_NONE}, 0);
+        if (eglSurface == null || eglSurface.equals(EGL14.EGL_NO_SURFACE)) {
+            eglSurface = EGL14.EGL_NO_SURFACE;
+            throw new IllegalStateException("Could not create window surface: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        if (!EGL14.eglMakeCurrent(display, eglSurface, eglSurface, context)) {
+            throw new IllegalStateException("Could not make context current: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+    }
+
+    @Override
+    protected void onRelease() {
+        if (renderer != null) {
+            renderer.release();
+            renderer = null;
+        }
+        if (!display.equals(EGL14.EGL_NO_DISPLAY)) {
+            // The display is shared with the view, so it is not terminated
+            EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+            if (!eglSurface.equals(EGL14.EGL_NO_SURFACE)) {
+                EGL14.eglDestroySurface(display, eglSurface);
+            }
+            if (!context.equals(EGL14.EGL_NO_CONTEXT)) {
+                EGL14.eglDestroyContext(display, context);
+            }
+            EGL14.eglReleaseThread();
+            eglSurface = EGL14.EGL_NO_SURFACE;
+            context = EGL14.EGL_NO_CONTEXT;
+            display = EGL14.EGL_NO_DISPLAY;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not close recording", e);
+        }
+    }
+}
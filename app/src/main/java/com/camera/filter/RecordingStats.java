@@ -0,0 +1,161 @@
+package com.camera.filter;
+
+import java.util.Locale;
+
+// Frame accounting for one recording. The GL thread asks before queueing each rendered frame to the
+// encoder, the encoder and muxer threads report back, and any thread may read the counters.
+// A frame is dropped rather than queued while the encoder already holds too many, so a slow
+// encoder costs frames in the file instead of stalling the preview. Encoders with lookahead or
+// B-frames keep several frames before their first output, so a full queue that has produced
+// nothing for STALL_TIMEOUT_NANOS of camera time is taken as frames the encoder holds on to and
+// cleared, otherwise such an encoder would never see the input it waits for.
+public class RecordingStats {
+
+    // About 270 ms of frames at 30 fps, above the lookahead of common hardware encoders
+    public static final int DEFAULT_MAX_ENCODER_QUEUE_DEPTH = 8;
+
+    public static final long STALL_TIMEOUT_NANOS = 500_000_000L;
+
+    private final int maxEncoderQueueDepth;
+
+    private long lastTimestampNanos = Long.MIN_VALUE;
+
+    private long firstQueuedNanos = Long.MIN_VALUE;
+
+    private long lastQueuedNanos = Long.MIN_VALUE;
+
+    private int encoderQueueDepth = 0;
+
+    // Camera time of the last frame rendered before the encoder last made progress
+    private long lastProgressNanos = Long.MIN_VALUE;
+
+    private int stalls = 0;
+
+    private int peakEncoderQueueDepth = 0;
+
+    private int muxerQueueDepth = 0;
+
+    private int peakMuxerQueueDepth = 0;
+
+    private long queuedFrames = 0;
+
+    private long encodedFrames = 0;
+
+    private long droppedFrames = 0;
+
+    private long writtenBytes = 0;
+
+    public RecordingStats() {
+        this(DEFAULT_MAX_ENCODER_QUEUE_DEPTH);
+    }
+
+    public RecordingStats(int maxEncoderQueueDepth) {
+        if (maxEncoderQueueDepth < 1) {
+            throw new IllegalArgumentException("Encoder queue depth must be at least 1: " + maxEncoderQueueDepth);
+        }
+        this.maxEncoderQueueDepth = maxEncoderQueueDepth;
+    }
+
+    // Once per rendered frame with its camera timestamp, true when it should be queued to the encoder.
+    // Redraws of a camera frame that was already seen are neither queued nor counted as dropped.
+    public synchronized boolean onFrameRendered(long timestampNanos) {
+        if (timestampNanos <= lastTimestampNanos) {
+            return false;
+        }
+        lastTimestampNanos = timestampNanos;
+        if (encoderQueueDepth >= maxEncoderQueueDepth) {
+            if (timestampNanos - lastProgressNanos < STALL_TIMEOUT_NANOS) {
+                droppedFrames++;
+                return false;
+            }
+            // Nothing came out for too long, the frames counted here are held by the encoder
+            encoderQueueDepth = 0;
+            stalls++;
+        }
+        if (encoderQueueDepth == 0) {
+            lastProgressNanos = timestampNanos;
+        }
+        encoderQueueDepth++;
+        peakEncoderQueueDepth = Math.max(peakEncoderQueueDepth, encoderQueueDepth);
+        queuedFrames++;
+        if (firstQueuedNanos == Long.MIN_VALUE) {
+            firstQueuedNanos = timestampNanos;
+        }
+        lastQueuedNanos = timestampNanos;
+        return true;
+    }
+
+    // A frame accepted by onFrameRendered that could not be handed to the encoder after all
+    public synchronized void onFrameLost() {
+        encoderQueueDepth = Math.max(0, encoderQueueDepth - 1);
+        queuedFrames--;
+        droppedFrames++;
+    }
+
+    // The encoder produced a sample, which is now waiting for the muxer
+    public synchronized void onFrameEncoded() {
+        encoderQueueDepth = Math.max(0, encoderQueueDepth - 1);
+        lastProgressNanos = lastTimestampNanos;
+        encodedFrames++;
+        muxerQueueDepth++;
+        peakMuxerQueueDepth = Math.max(peakMuxerQueueDepth, muxerQueueDepth);
+    }
+
+    public synchronized void onSampleWritten(int bytes) {
+        muxerQueueDepth = Math.max(0, muxerQueueDepth - 1);
+        writtenBytes += bytes;
+    }
+
+    public synchronized long getQueuedFrames() {
+        return queuedFrames;
+    }
+
+    public synchronized long getEncodedFrames() {
+        return encodedFrames;
+    }
+
+    // Frames rendered while the encoder queue was full
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    // Frames queued to the encoder that it has not returned yet
+    public synchronized int getEncoderQueueDepth() {
+        return encoderQueueDepth;
+    }
+
+    // Times a full encoder queue was cleared because the encoder produced nothing
+    public synchronized int getStalls() {
+        return stalls;
+    }
+
+    public synchronized int getPeakEncoderQueueDepth() {
+        return peakEncoderQueueDepth;
+    }
+
+    // Encoded samples not yet written to the file
+    public synchronized int getMuxerQueueDepth() {
+        return muxerQueueDepth;
+    }
+
+    public synchronized int getPeakMuxerQueueDepth() {
+        return peakMuxerQueueDepth;
+    }
+
+    public synchronized long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    // Camera time from the first to the last queued frame
+    public synchronized long getDurationNanos() {
+        return queuedFrames == 0 ? 0 : lastQueuedNanos - firstQueuedNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT,
+                "%d queued, %d encoded, %d dropped, encoder queue %d (peak %d, %d stalls), muxer queue %d (peak %d), %d bytes in %.1f s",
+                queuedFrames, encodedFrames, droppedFrames, encoderQueueDepth, peakEncoderQueueDepth, stalls,
+                muxerQueueDepth, peakMuxerQueueDepth, writtenBytes, getDurationNanos() / 1e9);
+    }
+}
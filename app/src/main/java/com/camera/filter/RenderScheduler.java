@@ -0,0 +1,67 @@
+package com.camera.filter;
+
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Choreographer;
+
+// Turns camera frames into draw requests on a thread of its own. Frame callbacks and vsync
+// callbacks both run here and call requestRender directly, nothing goes through the main thread.
+public class RenderScheduler implements Choreographer.FrameCallback {
+
+    private final FramePacer framePacer;
+
+    private final HandlerThread thread = new HandlerThread("RenderScheduler");
+
+    private final Handler handler;
+
+    // Scheduler thread only
+    private Choreographer choreographer;
+
+    private volatile Runnable renderRequester;
+
+    public RenderScheduler(FramePacer framePacer) {
+        this.framePacer = framePacer;
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        // A Choreographer belongs to the looper of the thread that asks for it
+        handler.post(() -> choreographer = Choreographer.getInstance());
+    }
+
+    // Usually GLSurfaceView::requestRender, which is safe to call from any thread
+    public void setRenderRequester(Runnable renderRequester) {
+        this.renderRequester = renderRequester;
+    }
+
+    // onFrame runs on the scheduler thread for every frame before it is paced
+    public void attach(SurfaceTexture surfaceTexture, SurfaceTexture.OnFrameAvailableListener onFrame) {
+        surfaceTexture.setOnFrameAvailableListener(texture -> {
+            onFrame.onFrameAvailable(texture);
+            apply(framePacer.onFrameAvailable());
+        }, handler);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        apply(framePacer.onVsync(frameTimeNanos));
+    }
+
+    private void apply(FramePacer.Action action) {
+        if (action == FramePacer.Action.REQUEST_RENDER) {
+            Runnable requester = renderRequester;
+            if (requester != null) {
+                requester.run();
+            }
+        } else if (action == FramePacer.Action.SCHEDULE_VSYNC) {
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    public FramePacer getFramePacer() {
+        return framePacer;
+    }
+
+    public void release() {
+        thread.quitSafely();
+    }
+}
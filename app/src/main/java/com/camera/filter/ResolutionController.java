@@ -0,0 +1,118 @@
+package com.camera.filter;
+
+import java.util.concurrent.TimeUnit;
+
+// Picks the scale the filter pass renders at. In automatic mode frame costs are averaged over a
+// window and the scale is moved so the predicted cost lands under the target, assuming cost grows
+// with the pixel count, i.e. the square of the scale. It drops as far as needed at once but only
+// climbs one step per window, so a scene on the edge does not flip back and forth.
+public class ResolutionController {
+
+    public static final float MIN_SCALE = 0.5f;
+
+    public static final float MAX_SCALE = 1.0f;
+
+    // Scales are multiples of this, small changes would only churn framebuffer allocations
+    public static final float STEP = 0.05f;
+
+    public static final long DEFAULT_TARGET_FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 30;
+
+    public static final int DEFAULT_WINDOW = 30;
+
+    // Aim below the target after a drop, and only climb when the bigger scale still fits with room to spare
+    private static final float DROP_TARGET = 0.8f;
+
+    private static final float CLIMB_TARGET = 0.9f;
+
+    private final long targetFrameNanos;
+
+    private final int window;
+
+    private volatile boolean auto = true;
+
+    private volatile float scale = MAX_SCALE;
+
+    // Frame cost feed, single thread
+    private long sum = 0;
+
+    private int count = 0;
+
+    public ResolutionController() {
+        this(DEFAULT_TARGET_FRAME_NANOS, DEFAULT_WINDOW);
+    }
+
+    public ResolutionController(long targetFrameNanos, int window) {
+        if (targetFrameNanos <= 0 || window < 1) {
+            throw new IllegalArgumentException("Invalid target " + targetFrameNanos + " or window " + window);
+        }
+        this.targetFrameNanos = targetFrameNanos;
+        this.window = window;
+    }
+
+    // Turns automatic mode off and renders at the given scale, clamped to MIN_SCALE..MAX_SCALE
+    public void setFixedScale(float scale) {
+        auto = false;
+        this.scale = quantize(scale);
+    }
+
+    // Automatic mode starts again from the current scale
+    public void setAuto(boolean auto) {
+        if (auto && !this.auto) {
+            resetWindow();
+        }
+        this.auto = auto;
+    }
+
+    public boolean isAuto() {
+        return auto;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    // Cost of one frame rendered at the current scale. Returns the scale for the next frames.
+    public float onFrameTime(long frameNanos) {
+        if (!auto) {
+            return scale;
+        }
+        sum += frameNanos;
+        if (++count < window) {
+            return scale;
+        }
+        double average = sum / (double) count;
+        resetWindow();
+
+        float current = scale;
+        if (average > targetFrameNanos) {
+            double fit = current * Math.sqrt(DROP_TARGET * targetFrameNanos / average);
+            // Round down so the new scale is at or below the one that fits
+            scale = clamp((float) (Math.floor(fit / STEP + 1e-4) * STEP));
+        } else if (current < MAX_SCALE) {
+            float next = quantize(current + STEP);
+            double predicted = average * (next / current) * (next / current);
+            if (predicted <= CLIMB_TARGET * targetFrameNanos) {
+                scale = next;
+            }
+        }
+        return scale;
+    }
+
+    private void resetWindow() {
+        sum = 0;
+        count = 0;
+    }
+
+    // Pixels along one side at the given scale, never zero
+    public static int scaledSize(int size, float scale) {
+        return Math.max(1, Math.round(size * scale));
+    }
+
+    static float quantize(float scale) {
+        return clamp(Math.round(scale / STEP) * STEP);
+    }
+
+    private static float clamp(float scale) {
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+}
@@ -0,0 +1,23 @@
+package com.camera.filter;
+
+public enum SaveFormat {
+    JPEG("jpg", "image/jpeg"),
+    WEBP("webp", "image/webp"),
+    PNG("png", "image/png");
+
+    private final String extension;
+    private final String mimeType;
+
+    SaveFormat(String extension, String mimeType) {
+        this.extension = extension;
+        this.mimeType = mimeType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+}
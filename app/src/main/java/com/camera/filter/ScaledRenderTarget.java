@@ -0,0 +1,102 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+
+// Offscreen target for rendering below the surface resolution. The filter pass draws into it
+// like into the screen, then drawToScreen stretches it over the surface with bilinear filtering.
+// GL thread only.
+public class ScaledRenderTarget {
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+                    "varying vec2 vTextureCoord;\n" +
+                    "\n" +
+                    "void main() {\n" +
+                    "    gl_Position = aPosition;\n" +
+                    "    vTextureCoord = aPosition.xy * 0.5 + 0.5;\n" +
+                    "}\n";
+
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;\n" +
+                    "varying vec2 vTextureCoord;\n" +
+                    "uniform sampler2D uTexture;\n" +
+                    "\n" +
+                    "void main() {\n" +
+                    "    gl_FragColor = texture2D(uTexture, vTextureCoord);\n" +
+                    "}\n";
+
+    private final FullScreenQuad quad;
+
+    private final int program;
+
+    private final int textureHandle;
+
+    private final int[] framebuffer = new int[1];
+
+    private final int[] texture = new int[1];
+
+    private int width = 0;
+
+    private int height = 0;
+
+    public ScaledRenderTarget(FullScreenQuad quad) {
+        this.quad = quad;
+        program = ShaderHelper.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        textureHandle = GLES20.glGetUniformLocation(program, "uTexture");
+        GLES20.glGenFramebuffers(1, framebuffer, 0);
+        GLES20.glGenTextures(1, texture, 0);
+    }
+
+    // Binds the target at the given size with a matching viewport and clears it
+    public void begin(int width, int height) {
+        ensureSize(width, height);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+    }
+
+    // Upscales what was drawn since begin onto the surface
+    public void drawToScreen(int screenWidth, int screenHeight) {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        GLES20.glViewport(0, 0, screenWidth, screenHeight);
+        GLES20.glUseProgram(program);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+        GLES20.glUniform1i(textureHandle, 0);
+        GLES20.glDisable(GLES20.GL_BLEND);
+        quad.draw();
+        GLES20.glEnable(GLES20.GL_BLEND);
+    }
+
+    public int getFramebuffer() {
+        return framebuffer[0];
+    }
+
+    private void ensureSize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, texture[0], 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+    }
+
+    public void release() {
+        GLES20.glDeleteProgram(program);
+        GLES20.glDeleteFramebuffers(1, framebuffer, 0);
+        GLES20.glDeleteTextures(1, texture, 0);
+        width = 0;
+        height = 0;
+    }
+}
@@ -0,0 +1,46 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+
+public final class ShaderHelper {
+
+    public static int createProgram(String vertexShaderCode, String fragmentShaderCode) {
+        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
+        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
+
+        int program = GLES20.glCreateProgram();
+
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        // Fixed locations let every program share the attribute setup of FullScreenQuad
+        GLES20.glBindAttribLocation(program, FullScreenQuad.POSITION_LOCATION, "aPosition");
+        GLES20.glBindAttribLocation(program, FullScreenQuad.TEXTURE_COORD_LOCATION, "aTextureCoord");
+        GLES20.glLinkProgram(program);
+
+        // The program keeps the shaders alive, they are freed together with it
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+
+        int[] linkStatus = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != GLES20.GL_TRUE) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new RuntimeException("Error linking program: " + log);
+        }
+        return program;
+    }
+
+    // True for an ES 3 or newer context, must be called with a context current
+    public static boolean isGlEs3() {
+        String version = GLES20.glGetString(GLES20.GL_VERSION);
+        return version != null && version.startsWith("OpenGL ES ") && !version.startsWith("OpenGL ES 2");
+    }
+
+    public static int loadShader(int type, String shaderCode) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, shaderCode);
+        GLES20.glCompileShader(shader);
+        return shader;
+    }
+}
@@ -0,0 +1,85 @@
+package com.camera.filter;
+
+import android.opengl.GLES20;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ShaderProgramCache {
+
+    public static final int DEFAULT_CAPACITY = 6;
+
+    public static class Program {
+        public final int id;
+        public final int mvpMatrixHandle;
+        public final int lutHandle;
+
+        // Attributes sit at the FullScreenQuad locations, only uniforms need looking up
+        Program(int id) {
+            this.id = id;
+            mvpMatrixHandle = GLES20.glGetUniformLocation(id, "uMVPMatrix");
+            lutHandle = GLES20.glGetUniformLocation(id, "uLut");
+        }
+    }
+
+    private final int capacity;
+
+    // Access ordered, the eldest entry is the least recently drawn program
+    private final LinkedHashMap<String, Program> programs = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ShaderProgramCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ShaderProgramCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    // Must be called on the GL thread
+    public Program get(FilterType filterType) {
+        Program program = programs.get(filterType.name());
+        if (program == null) {
+            program = put(filterType.name(), FilterShaderSource.fragmentShader(filterType));
+        }
+        return program;
+    }
+
+    public Program getLut(FilterType filterType, int lutSize) {
+        String key = filterType.name() + "/lut" + lutSize;
+        Program program = programs.get(key);
+        if (program == null) {
+            program = put(key, FilterShaderSource.lutFragmentShader(filterType, lutSize));
+        }
+        return program;
+    }
+
+    private Program put(String key, String fragmentShaderCode) {
+        Program program = new Program(ShaderHelper.createProgram(FilterShaderSource.VERTEX_SHADER, fragmentShaderCode));
+        programs.put(key, program);
+        evict();
+        return program;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Program>> iterator = programs.entrySet().iterator();
+        while (programs.size() > capacity && iterator.hasNext()) {
+            GLES20.glDeleteProgram(iterator.next().getValue().id);
+            iterator.remove();
+        }
+    }
+
+    public int size() {
+        return programs.size();
+    }
+
+    public void release() {
+        for (Program program : programs.values()) {
+            GLES20.glDeleteProgram(program.id);
+        }
+        programs.clear();
+    }
+}
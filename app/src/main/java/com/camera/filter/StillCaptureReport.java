@@ -0,0 +1,43 @@
+package com.camera.filter;
+
+import java.util.Locale;
+
+// Where the time and memory of one full resolution still went
+public class StillCaptureReport {
+
+    public final int width;
+    public final int height;
+    // takePicture until the JPEG is in memory
+    public final long captureNanos;
+    public final long decodeNanos;
+    public final long filterNanos;
+    public final long compositeNanos;
+    // Decode, filter, rotate and overlay of all bands, without encoding the result
+    public final long processNanos;
+    // Estimate, not a measurement: the pixel and JPEG buffers the processor holds at once, summed
+    // from their sizes
+    public final long estimatedPeakBytes;
+    // Same estimate for decoding, filtering and rotating the whole frame at once
+    public final long estimatedUntiledBytes;
+
+    public StillCaptureReport(int width, int height, long captureNanos, long decodeNanos, long filterNanos,
+                              long compositeNanos, long processNanos, long estimatedPeakBytes, long estimatedUntiledBytes) {
+        this.width = width;
+        this.height = height;
+        this.captureNanos = captureNanos;
+        this.decodeNanos = decodeNanos;
+        this.filterNanos = filterNanos;
+        this.compositeNanos = compositeNanos;
+        this.processNanos = processNanos;
+        this.estimatedPeakBytes = estimatedPeakBytes;
+        this.estimatedUntiledBytes = estimatedUntiledBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%dx%d capture %.0f ms, process %.0f ms (decode %.0f, filter %.0f, overlay %.0f), estimated peak %.1f MB (untiled %.1f MB)",
+                width, height, captureNanos / 1e6, processNanos / 1e6, decodeNanos / 1e6, filterNanos / 1e6,
+                compositeNanos / 1e6, estimatedPeakBytes / 1048576.0, estimatedUntiledBytes / 1048576.0);
+    }
+}
@@ -0,0 +1,202 @@
+package com.camera.filter;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+// Applies the preview's filter and overlay to a full resolution JPEG on the CPU. The JPEG is never
+// decoded whole: bands of sensor rows are decoded, filtered, rotated upright and blended with the
+// overlay one after another, then copied into the result. Peak memory is the result bitmap plus a
+// few band sized buffers instead of several full frames. The result has to be a whole Bitmap for
+// Bitmap.compress, so stills above maxOutputPixels are decoded subsampled by a power of two to
+// keep it bounded, a 48 MP sensor gives a 12 MP photo.
+public class StillProcessor {
+
+    // 4 MB per ARGB band buffer
+    public static final int DEFAULT_BAND_PIXELS = 1024 * 1024;
+
+    // 64 MB result bitmap, 12 MP sensors keep their full resolution
+    public static final long DEFAULT_MAX_OUTPUT_PIXELS = 16L * 1024 * 1024;
+
+    public static class Result {
+        public final Bitmap bitmap;
+        public final StillCaptureReport report;
+
+        Result(Bitmap bitmap, StillCaptureReport report) {
+            this.bitmap = bitmap;
+            this.report = report;
+        }
+    }
+
+    private final AssetManager assets;
+
+    private final ImportedLuts importedLuts;
+
+    private final CpuFilterEngine filterEngine;
+
+    private final int bandPixels;
+
+    private final long maxOutputPixels;
+
+    // One still at a time, each holds a result bitmap of up to maxOutputPixels
+    private final BoundedExecutor executor = new BoundedExecutor("StillProcessor", 1, 1,
+            BoundedExecutor.OverflowPolicy.REJECT);
+
+    public StillProcessor(AssetManager assets, ImportedLuts importedLuts) {
+        this(assets, importedLuts, new CpuFilterEngine(), DEFAULT_BAND_PIXELS, DEFAULT_MAX_OUTPUT_PIXELS);
+    }
+
+    public StillProcessor(AssetManager assets, ImportedLuts importedLuts, CpuFilterEngine filterEngine, int bandPixels,
+                          long maxOutputPixels) {
+        this.assets = assets;
+        this.importedLuts = importedLuts;
+        this.filterEngine = filterEngine;
+        this.bandPixels = bandPixels;
+        this.maxOutputPixels = maxOutputPixels;
+    }
+
+    // Completes on the processor thread, or exceptionally with a RejectedExecutionException while
+    // the previous still is being processed. lutFilter replaces filterType when not null, overlayPath
+    // may be null. aspectRatio is width / height of the upright photo, the JPEG is center cropped to it.
+    public CompletableFuture<Result> process(byte[] jpeg, int rotationDegrees, long captureNanos, float aspectRatio,
+                                             FilterType filterType, LutFilter lutFilter, String overlayPath,
+                                             float overlayAlpha) {
+        return executor.submit(() -> processNow(jpeg, rotationDegrees, captureNanos, aspectRatio, filterType,
+                lutFilter != null ? importedLuts.load(lutFilter) : null, overlayPath, overlayAlpha));
+    }
+
+    private Result processNow(byte[] jpeg, int rotationDegrees, long captureNanos, float aspectRatio,
+                              FilterType filterType, Lut3D lut, String overlayPath, float overlayAlpha)
+            throws IOException {
+        long start = System.nanoTime();
+        BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(jpeg, 0, jpeg.length, false);
+        if (decoder == null) {
+            throw new IOException("Could not decode still");
+        }
+        try {
+            int[] crop = StillTiling.cropRect(decoder.getWidth(), decoder.getHeight(),
+                    StillTiling.sensorAspectRatio(aspectRatio, rotationDegrees));
+            int sampleSize = StillTiling.sampleSize(crop[2], crop[3], maxOutputPixels);
+            // Sizes in subsampled pixels. The crop is trimmed to whole samples so every region
+            // decodes to exactly width x rows.
+            int width = crop[2] / sampleSize;
+            int height = crop[3] / sampleSize;
+            int outWidth = StillTiling.rotatedWidth(width, height, rotationDegrees);
+            int outHeight = StillTiling.rotatedHeight(width, height, rotationDegrees);
+            int bandRows = StillTiling.bandRows(width, height, bandPixels);
+            long bandBytes = (long) width * bandRows * 4;
+
+            int[] overlay = null;
+            int[] overlaySize = new int[2];
+            if (overlayPath != null && overlayAlpha > 0f) {
+                overlay = decodeOverlay(overlayPath, outWidth, outHeight, overlaySize);
+            }
+
+            Bitmap result = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.ARGB_8888);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            options.inMutable = true;
+            options.inSampleSize = sampleSize;
+            options.inBitmap = Bitmap.createBitmap(width, bandRows, Bitmap.Config.ARGB_8888);
+            int[] band = new int[width * bandRows];
+            int[] rotated = new int[width * bandRows];
+            float[] scratch = new float[3];
+
+            long decodeNanos = 0;
+            long filterNanos = 0;
+            long compositeNanos = 0;
+            Rect region = new Rect();
+            for (int firstRow = 0; firstRow < height; firstRow += bandRows) {
+                int rows = Math.min(bandRows, height - firstRow);
+                long t0 = System.nanoTime();
+                region.set(crop[0], crop[1] + firstRow * sampleSize, crop[0] + width * sampleSize,
+                        crop[1] + (firstRow + rows) * sampleSize);
+                Bitmap decoded = decoder.decodeRegion(region, options);
+                decoded.getPixels(band, 0, width, 0, 0, width, rows);
+                if (decoded != options.inBitmap) {
+                    // The decoder could not reuse the band bitmap
+                    decoded.recycle();
+                }
+                long t1 = System.nanoTime();
+
+                if (lut != null) {
+                    applyLut(lut, band, width * rows, scratch);
+                } else {
+                    filterEngine.applyBand(filterType, band, width, rows, firstRow, height);
+                }
+                StillTiling.rotate(band, width, rows, rotationDegrees, rotated);
+                long t2 = System.nanoTime();
+
+                int[] rect = StillTiling.bandRect(width, height, firstRow, rows, rotationDegrees);
+                if (overlay != null) {
+                    OverlayCompositor.composite(rotated, rect[0], rect[1], rect[2], rect[3], outWidth, outHeight,
+                            overlay, overlaySize[0], overlaySize[1], overlayAlpha);
+                }
+                result.setPixels(rotated, 0, rect[2], rect[0], rect[1], rect[2], rect[3]);
+                long t3 = System.nanoTime();
+
+                decodeNanos += t1 - t0;
+                filterNanos += t2 - t1;
+                compositeNanos += t3 - t2;
+            }
+            options.inBitmap.recycle();
+
+            long resultBytes = (long) outWidth * outHeight * 4;
+            long overlayBytes = overlay != null ? overlay.length * 4L : 0;
+            // Estimated from the buffer sizes, not measured: band bitmap, band pixels and rotated band
+            // next to the result, the overlay and the JPEG
+            long estimatedPeakBytes = jpeg.length + resultBytes + 3 * bandBytes + overlayBytes;
+            // Decoded frame, its pixels and the rotated copy next to the result
+            long estimatedUntiledBytes = jpeg.length + resultBytes + 3 * resultBytes + overlayBytes;
+            StillCaptureReport report = new StillCaptureReport(outWidth, outHeight, captureNanos, decodeNanos,
+                    filterNanos, compositeNanos, System.nanoTime() - start, estimatedPeakBytes, estimatedUntiledBytes);
+            return new Result(result, report);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    // Decoded near the photo size and kept as pixels, the bitmap itself is dropped right away
+    private int[] decodeOverlay(String assetPath, int width, int height, int[] size) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = assets.open(assetPath)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        options.inSampleSize = OverlayDecodePolicy.inSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap;
+        try (InputStream in = assets.open(assetPath)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Unsupported image " + assetPath);
+        }
+        size[0] = bitmap.getWidth();
+        size[1] = bitmap.getHeight();
+        int[] pixels = new int[size[0] * size[1]];
+        bitmap.getPixels(pixels, 0, size[0], 0, 0, size[0], size[1]);
+        bitmap.recycle();
+        return pixels;
+    }
+
+    private static void applyLut(Lut3D lut, int[] pixels, int count, float[] rgb) {
+        for (int i = 0; i < count; i++) {
+            int pixel = pixels[i];
+            lut.sample(((pixel >> 16) & 0xff) / 255f, ((pixel >> 8) & 0xff) / 255f, (pixel & 0xff) / 255f, rgb);
+            pixels[i] = (pixel & 0xff000000)
+                    | (CpuFilters.toByte(rgb[0]) << 16) | (CpuFilters.toByte(rgb[1]) << 8) | CpuFilters.toByte(rgb[2]);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,109 @@
+package com.camera.filter;
+
+// Geometry for processing a still in horizontal bands of the sensor image. Each band is filtered
+// in sensor orientation and rotated on its own, which turns it into a band of rows or columns of
+// the upright photo.
+public final class StillTiling {
+
+    private StillTiling() {
+    }
+
+    // Centered {x, y, width, height} of a width x height image cut to width / height == aspectRatio
+    public static int[] cropRect(int width, int height, float aspectRatio) {
+        if (aspectRatio <= 0) {
+            throw new IllegalArgumentException("Invalid aspect ratio " + aspectRatio);
+        }
+        int cropWidth = width;
+        int cropHeight = height;
+        if (width / (float) height > aspectRatio) {
+            cropWidth = Math.max(1, Math.min(width, Math.round(height * aspectRatio)));
+        } else {
+            cropHeight = Math.max(1, Math.min(height, Math.round(width / aspectRatio)));
+        }
+        return new int[]{(width - cropWidth) / 2, (height - cropHeight) / 2, cropWidth, cropHeight};
+    }
+
+    // Aspect ratio in sensor orientation that becomes uprightAspectRatio after the rotation
+    public static float sensorAspectRatio(float uprightAspectRatio, int rotationDegrees) {
+        return isTransposed(rotationDegrees) ? 1f / uprightAspectRatio : uprightAspectRatio;
+    }
+
+    // Smallest power of two to divide both sides by so the image holds at most maxPixels, the same
+    // subsampling BitmapRegionDecoder applies for inSampleSize
+    public static int sampleSize(int width, int height, long maxPixels) {
+        int sampleSize = 1;
+        while ((long) (width / sampleSize) * (height / sampleSize) > maxPixels
+                && width / (sampleSize * 2) > 0 && height / (sampleSize * 2) > 0) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Rows per band so one band holds at most maxBandPixels, at least one row
+    public static int bandRows(int width, int height, int maxBandPixels) {
+        return Math.max(1, Math.min(height, maxBandPixels / Math.max(1, width)));
+    }
+
+    public static int rotatedWidth(int width, int height, int rotationDegrees) {
+        return isTransposed(rotationDegrees) ? height : width;
+    }
+
+    public static int rotatedHeight(int width, int height, int rotationDegrees) {
+        return isTransposed(rotationDegrees) ? width : height;
+    }
+
+    private static boolean isTransposed(int rotationDegrees) {
+        int rotation = normalize(rotationDegrees);
+        return rotation == 90 || rotation == 270;
+    }
+
+    // Where rows [firstRow, firstRow + rows) of a width x height image end up after a clockwise
+    // rotation, as {x, y, width, height} in the rotated image
+    public static int[] bandRect(int width, int height, int firstRow, int rows, int rotationDegrees) {
+        switch (normalize(rotationDegrees)) {
+            case 90:
+                return new int[]{height - firstRow - rows, 0, rows, width};
+            case 180:
+                return new int[]{0, height - firstRow - rows, width, rows};
+            case 270:
+                return new int[]{firstRow, 0, rows, width};
+            default:
+                return new int[]{0, firstRow, width, rows};
+        }
+    }
+
+    // Rotates a width x height image clockwise into dst, which is laid out with the rotated width
+    public static void rotate(int[] src, int width, int height, int rotationDegrees, int[] dst) {
+        int rotation = normalize(rotationDegrees);
+        if (rotation == 0) {
+            System.arraycopy(src, 0, dst, 0, width * height);
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int index;
+                switch (rotation) {
+                    case 90:
+                        index = x * height + (height - 1 - y);
+                        break;
+                    case 180:
+                        index = (height - 1 - y) * width + (width - 1 - x);
+                        break;
+                    default:
+                        index = (width - 1 - x) * height + y;
+                        break;
+                }
+                dst[index] = src[row + x];
+            }
+        }
+    }
+
+    private static int normalize(int rotationDegrees) {
+        int rotation = ((rotationDegrees % 360) + 360) % 360;
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90: " + rotationDegrees);
+        }
+        return rotation;
+    }
+}
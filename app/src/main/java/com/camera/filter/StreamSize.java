@@ -0,0 +1,61 @@
+package com.camera.filter;
+
+// Output size of a camera stream. Sizes from StreamConfigurationMap are in sensor orientation,
+// which is landscape on almost every device.
+public class StreamSize {
+
+    private final int width;
+
+    private final int height;
+
+    public StreamSize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    // Landscape size with the given long side and the ratio of aspectRatio or its inverse, heights
+    // rounded to even. How sources without a sensor size their frames.
+    public static StreamSize landscape(int longSide, float aspectRatio) {
+        float ratio = Math.max(aspectRatio, 1 / aspectRatio);
+        int shortSide = Math.max(2, Math.round(longSide / ratio) & ~1);
+        return new StreamSize(longSide, shortSide);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getPixels() {
+        return (long) width * height;
+    }
+
+    // Long side over short side, so 1920x1080 and 1080x1920 both give 16:9
+    public float getAspectRatio() {
+        return Math.max(width, height) / (float) Math.min(width, height);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StreamSize)) return false;
+        StreamSize other = (StreamSize) o;
+        return width == other.width && height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return width * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height;
+    }
+}
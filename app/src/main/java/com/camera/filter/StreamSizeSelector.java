@@ -0,0 +1,76 @@
+package com.camera.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Picks a camera output size for a view aspect ratio and a pixel budget
+public final class StreamSizeSelector {
+
+    // 16:9 vs 1920x1088 style sizes still count as a match
+    public static final float ASPECT_TOLERANCE = 0.02f;
+
+    public static final long DEFAULT_TARGET_PIXELS = 1920L * 1080;
+
+    private StreamSizeSelector() {
+    }
+
+    // aspectRatio is width / height of the view and may be portrait or landscape. Among the sizes
+    // matching that shape, returns the smallest one with at least targetPixels, or the largest one
+    // if none is big enough. Without a matching shape, the closest shape that still covers the
+    // budget wins. Returns null only for an empty list.
+    public static StreamSize select(List<StreamSize> sizes, float aspectRatio, long targetPixels) {
+        if (sizes.isEmpty()) {
+            return null;
+        }
+        if (aspectRatio <= 0) {
+            throw new IllegalArgumentException("Invalid aspect ratio " + aspectRatio);
+        }
+        float target = Math.max(aspectRatio, 1.0f / aspectRatio);
+
+        List<StreamSize> matching = new ArrayList<>();
+        List<StreamSize> bigEnough = new ArrayList<>();
+        for (StreamSize size : sizes) {
+            if (aspectError(size, target) <= ASPECT_TOLERANCE) {
+                matching.add(size);
+            }
+            if (size.getPixels() >= targetPixels) {
+                bigEnough.add(size);
+            }
+        }
+        if (!matching.isEmpty()) {
+            return smallestOrLargest(matching, targetPixels);
+        }
+
+        List<StreamSize> pool = bigEnough.isEmpty() ? sizes : bigEnough;
+        float bestError = Float.MAX_VALUE;
+        for (StreamSize size : pool) {
+            bestError = Math.min(bestError, aspectError(size, target));
+        }
+        List<StreamSize> closest = new ArrayList<>();
+        for (StreamSize size : pool) {
+            if (aspectError(size, target) <= bestError + ASPECT_TOLERANCE) {
+                closest.add(size);
+            }
+        }
+        return smallestOrLargest(closest, targetPixels);
+    }
+
+    private static StreamSize smallestOrLargest(List<StreamSize> sizes, long targetPixels) {
+        StreamSize smallestEnough = null;
+        StreamSize largest = null;
+        for (StreamSize size : sizes) {
+            if (size.getPixels() >= targetPixels
+                    && (smallestEnough == null || size.getPixels() < smallestEnough.getPixels())) {
+                smallestEnough = size;
+            }
+            if (largest == null || size.getPixels() > largest.getPixels()) {
+                largest = size;
+            }
+        }
+        return smallestEnough != null ? smallestEnough : largest;
+    }
+
+    private static float aspectError(StreamSize size, float target) {
+        return Math.abs(size.getAspectRatio() - target) / target;
+    }
+}
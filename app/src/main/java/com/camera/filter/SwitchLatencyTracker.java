@@ -0,0 +1,84 @@
+package com.camera.filter;
+
+import java.util.Arrays;
+
+// Measures camera switches from the tap to the first frame from the new camera. A frame only
+// counts once the new session is running, frames still queued from the old camera are ignored.
+// Safe to call from the UI, camera and frame callback threads.
+public class SwitchLatencyTracker {
+
+    public static final int HISTORY_SIZE = 32;
+
+    public interface Listener {
+        // Called on the thread that delivered the first frame
+        void onSwitchComplete(long tapToSessionNanos, long tapToFrameNanos);
+    }
+
+    private final long[] history = new long[HISTORY_SIZE];
+
+    private int switchCount = 0;
+
+    private long tapNanos = -1;
+
+    private long sessionNanos = -1;
+
+    private volatile Listener listener;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // A tap while a switch is pending restarts the measurement
+    public synchronized void onSwitchRequested(long nowNanos) {
+        tapNanos = nowNanos;
+        sessionNanos = -1;
+    }
+
+    public synchronized void onSessionStarted(long nowNanos) {
+        if (tapNanos >= 0 && sessionNanos < 0) {
+            sessionNanos = nowNanos;
+        }
+    }
+
+    // Returns the tap to frame latency if this frame completed a switch, -1 otherwise
+    public long onFrame(long nowNanos) {
+        long tapToSession;
+        long tapToFrame;
+        synchronized (this) {
+            if (sessionNanos < 0) {
+                return -1;
+            }
+            tapToSession = sessionNanos - tapNanos;
+            tapToFrame = nowNanos - tapNanos;
+            history[switchCount % HISTORY_SIZE] = tapToFrame;
+            switchCount++;
+            tapNanos = -1;
+            sessionNanos = -1;
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.onSwitchComplete(tapToSession, tapToFrame);
+        }
+        return tapToFrame;
+    }
+
+    public synchronized boolean isSwitching() {
+        return tapNanos >= 0;
+    }
+
+    public synchronized int getSwitchCount() {
+        return switchCount;
+    }
+
+    // Nearest rank percentile over the last HISTORY_SIZE switches, -1 before the first one
+    public synchronized long getPercentileNanos(double percentile) {
+        int count = Math.min(switchCount, HISTORY_SIZE);
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(history, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+}
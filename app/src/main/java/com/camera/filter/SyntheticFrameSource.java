@@ -0,0 +1,48 @@
+package com.camera.filter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.SurfaceTexture;
+
+// Frames generated from TestPatterns, identical on every run and every device
+public class SyntheticFrameSource extends TimedFrameSource {
+
+    private final TestPatterns.Pattern pattern;
+
+    // Source thread only, reallocated when the size changes
+    private Bitmap bitmap;
+
+    private int[] pixels = new int[0];
+
+    public SyntheticFrameSource(SurfaceTexture surfaceTexture, float aspectRatio, TestPatterns.Pattern pattern) {
+        this(surfaceTexture, aspectRatio, pattern, DEFAULT_LONG_SIDE, DEFAULT_FRAME_RATE);
+    }
+
+    public SyntheticFrameSource(SurfaceTexture surfaceTexture, float aspectRatio, TestPatterns.Pattern pattern,
+                                int longSide, int frameRate) {
+        super(surfaceTexture, aspectRatio, longSide, frameRate);
+        this.pattern = pattern;
+    }
+
+    @Override
+    protected void drawFrame(Canvas canvas, long frameIndex, int width, int height) {
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            pixels = new int[width * height];
+        }
+        TestPatterns.render(pattern, frameIndex, pixels, width, height);
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+        canvas.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    @Override
+    protected void onRelease() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+}
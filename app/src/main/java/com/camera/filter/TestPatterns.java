@@ -0,0 +1,69 @@
+package com.camera.filter;
+
+// Deterministic ARGB frames for sources without a camera. The same pattern, frame index and size
+// always give the same pixels, so filtered output can be compared run to run.
+public final class TestPatterns {
+
+    public enum Pattern {
+        // Eight vertical SMPTE style bars, static
+        COLOR_BARS,
+        // Red across, green down, blue from the frame index, so every frame differs slightly
+        GRADIENT,
+        // Black and white checkerboard that moves one pixel per frame
+        MOVING_CHECKERBOARD,
+        // Per pixel pseudo random colors, reseeded every frame. Worst case for filters and encoders.
+        NOISE
+    }
+
+    static final int CHECKER_SIZE = 32;
+
+    private static final int[] BAR_COLORS = {
+            0xffc0c0c0, 0xffc0c000, 0xff00c0c0, 0xff00c000,
+            0xffc000c0, 0xffc00000, 0xff0000c0, 0xff000000
+    };
+
+    private TestPatterns() {
+    }
+
+    // Fills width * height pixels of argb, row by row from the top
+    public static void render(Pattern pattern, long frameIndex, int[] argb, int width, int height) {
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("Need " + width * height + " pixels, got " + argb.length);
+        }
+        switch (pattern) {
+            case COLOR_BARS:
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        argb[y * width + x] = BAR_COLORS[x * BAR_COLORS.length / width];
+                    }
+                }
+                break;
+            case GRADIENT:
+                int blue = (int) (frameIndex & 0xff);
+                for (int y = 0; y < height; y++) {
+                    int green = height > 1 ? y * 255 / (height - 1) : 0;
+                    for (int x = 0; x < width; x++) {
+                        int red = width > 1 ? x * 255 / (width - 1) : 0;
+                        argb[y * width + x] = 0xff000000 | red << 16 | green << 8 | blue;
+                    }
+                }
+                break;
+            case MOVING_CHECKERBOARD:
+                int offset = (int) (frameIndex % (2 * CHECKER_SIZE));
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        boolean white = (((x + offset) / CHECKER_SIZE) + (y / CHECKER_SIZE)) % 2 == 0;
+                        argb[y * width + x] = white ? 0xffffffff : 0xff000000;
+                    }
+                }
+                break;
+            case NOISE:
+                int seed = (int) (frameIndex * 2654435761L) | 1;
+                for (int i = 0; i < width * height; i++) {
+                    seed = seed * 1103515245 + 12345;
+                    argb[i] = 0xff000000 | (seed >>> 8);
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.camera.filter;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+import android.os.Handler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Live filter thumbnails. A few times per second the unfiltered camera frame is drawn into a small
+// framebuffer, read back, and every filter is applied to it on the CPU in one batch. Results go into
+// two sets of bitmaps used in turn, so the set on screen is never the one being written.
+public class ThumbnailRenderer {
+
+    public static final int DEFAULT_SHORT_SIDE = 96;
+
+    public static final long DEFAULT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    public interface Listener {
+        // Main thread. Indexed like the filter list, valid until the listener is called again.
+        void onThumbnails(Bitmap[] thumbnails);
+    }
+
+    private final FilterThumbnails filterThumbnails;
+
+    private final FrameThrottle throttle;
+
+    private final int shortSide;
+
+    private final Handler handler;
+
+    private final Listener listener;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // GL thread only
+    private final PixelReadback pixelReadback;
+
+    private final int[] framebuffer = new int[1];
+
+    private final int[] texture = new int[1];
+
+    private int width = 0;
+
+    private int height = 0;
+
+    private ByteBuffer syncPixels;
+
+    // Only touched by the batch in flight, the throttle keeps batches from overlapping
+    private int[] source = new int[0];
+
+    private final Bitmap[][] bitmaps = new Bitmap[2][];
+
+    private int bitmapSet = 0;
+
+    // Must be created on the GL thread
+    public ThumbnailRenderer(List<FilterType> filterTypes, int shortSide, long intervalNanos,
+                             Handler handler, Listener listener) {
+        this.filterThumbnails = new FilterThumbnails(filterTypes);
+        this.throttle = new FrameThrottle(intervalNanos);
+        this.shortSide = shortSide;
+        this.handler = handler;
+        this.listener = listener;
+        this.pixelReadback = PixelReadback.isSupported() ? new PixelReadback() : null;
+        GLES20.glGenFramebuffers(1, framebuffer, 0);
+        GLES20.glGenTextures(1, texture, 0);
+    }
+
+    // GL thread, after the frame is drawn. draw renders the unfiltered preview into the bound framebuffer.
+    public void onFrameDrawn(long nowNanos, int surfaceWidth, int surfaceHeight, Runnable draw) {
+        if (pixelReadback != null && pixelReadback.hasPendingReads()) {
+            // Delivers the read issued on the previous frame
+            pixelReadback.onFrameDrawn(width, height, null);
+        }
+        if (surfaceWidth <= 0 || surfaceHeight <= 0 || !throttle.tryBegin(nowNanos)) {
+            return;
+        }
+        // Same aspect as the surface, the thumbnail views crop to their own shape
+        float scale = shortSide / (float) Math.min(surfaceWidth, surfaceHeight);
+        ensureFramebuffer(Math.max(1, Math.round(surfaceWidth * scale)), Math.max(1, Math.round(surfaceHeight * scale)));
+
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        draw.run();
+        if (pixelReadback != null) {
+            pixelReadback.onFrameDrawn(width, height, this::onPixelsRead);
+        } else {
+            syncPixels.clear();
+            GLES20.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, syncPixels);
+            onPixelsRead(syncPixels, width, height);
+        }
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        GLES20.glViewport(0, 0, surfaceWidth, surfaceHeight);
+    }
+
+    private void ensureFramebuffer(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, texture[0], 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        if (pixelReadback == null) {
+            syncPixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // GL thread, pixels are only valid until this returns
+    private void onPixelsRead(ByteBuffer pixels, int width, int height) {
+        if (source.length != width * height) {
+            source = new int[width * height];
+        }
+        PixelConverter.rgbaToArgbFlipped(pixels.asIntBuffer(), source, width, height);
+        int[] frame = source;
+        executor.execute(() -> {
+            filterThumbnails.render(frame, width, height);
+            Bitmap[] thumbnails = nextBitmaps(width, height);
+            for (int i = 0; i < thumbnails.length; i++) {
+                thumbnails[i].setPixels(filterThumbnails.getPixels(i), 0, width, 0, 0, width, height);
+            }
+            handler.post(() -> {
+                listener.onThumbnails(thumbnails);
+                // Only now is the other set off screen and free to be written
+                throttle.end();
+            });
+        });
+    }
+
+    private Bitmap[] nextBitmaps(int width, int height) {
+        bitmapSet = 1 - bitmapSet;
+        Bitmap[] set = bitmaps[bitmapSet];
+        if (set == null || set[0].getWidth() != width || set[0].getHeight() != height) {
+            set = new Bitmap[filterThumbnails.getFilterTypes().size()];
+            for (int i = 0; i < set.length; i++) {
+                set[i] = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            }
+            bitmaps[bitmapSet] = set;
+        }
+        return set;
+    }
+
+    public FrameThrottle getThrottle() {
+        return throttle;
+    }
+
+    // Stops the filter thread, from any thread. The framebuffer goes with the GL context.
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // GL thread
+    public void release() {
+        shutdown();
+        if (pixelReadback != null) {
+            pixelReadback.release();
+        }
+        GLES20.glDeleteFramebuffers(1, framebuffer, 0);
+        GLES20.glDeleteTextures(1, texture, 0);
+    }
+}
@@ -0,0 +1,162 @@
+package com.camera.filter;
+
+import android.graphics.Canvas;
+import android.graphics.SurfaceTexture;
+import android.util.Log;
+import android.view.Surface;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Base of the sources that draw frames themselves. Every frame is drawn with a hardware canvas, or
+// with GL by sources overriding postFrame, straight into the SurfaceTexture's buffer queue on the
+// source thread, at a fixed rate, so the renderer sees the same buffer flow as from a camera.
+public abstract class TimedFrameSource implements FrameSource {
+
+    private static final String TAG = "TimedFrameSource";
+
+    // 720p frames, enough to exercise the filters without making the source the bottleneck
+    public static final int DEFAULT_LONG_SIDE = 1280;
+
+    public static final int DEFAULT_FRAME_RATE = 30;
+
+    private final SurfaceTexture surfaceTexture;
+
+    // 0 for sources with a fixed frame size
+    private final int longSide;
+
+    private final long frameIntervalNanos;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private volatile StreamSize previewSize;
+
+    // Main thread only
+    private ScheduledFuture<?> frames;
+
+    // Source thread only
+    private Surface surface;
+
+    private StreamSize bufferSize;
+
+    private long frameIndex = 0;
+
+    private volatile long drawnFrames = 0;
+
+    protected TimedFrameSource(SurfaceTexture surfaceTexture, float aspectRatio, int longSide, int frameRate) {
+        this(surfaceTexture, StreamSize.landscape(longSide, aspectRatio), longSide, frameRate);
+    }
+
+    // Frames of exactly frameSize whatever the aspect ratio
+    protected TimedFrameSource(SurfaceTexture surfaceTexture, StreamSize frameSize, int frameRate) {
+        this(surfaceTexture, frameSize, 0, frameRate);
+    }
+
+    private TimedFrameSource(SurfaceTexture surfaceTexture, StreamSize frameSize, int longSide, int frameRate) {
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("Invalid frame rate " + frameRate);
+        }
+        this.surfaceTexture = surfaceTexture;
+        this.longSide = longSide;
+        this.frameIntervalNanos = 1_000_000_000L / frameRate;
+        previewSize = frameSize;
+    }
+
+    @Override
+    public void start() {
+        executor.execute(() -> {
+            surface = new Surface(surfaceTexture);
+            onStart();
+        });
+        // Fixed rate, frames that fall behind are drawn back to back until the source catches up
+        frames = executor.scheduleAtFixedRate(this::drawFrame, 0, frameIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Frames from the next one on have the new size
+    @Override
+    public void setAspectRatio(float aspectRatio) {
+        if (longSide > 0) {
+            previewSize = StreamSize.landscape(longSide, aspectRatio);
+        }
+    }
+
+    @Override
+    public StreamSize getPreviewSize() {
+        return previewSize;
+    }
+
+    // Frames handed to the SurfaceTexture so far
+    public long getDrawnFrames() {
+        return drawnFrames;
+    }
+
+    @Override
+    public void release() {
+        if (frames != null) {
+            frames.cancel(false);
+        }
+        try {
+            executor.execute(this::stop);
+        } catch (RejectedExecutionException e) {
+            // Already stopped itself when the surface went away
+        }
+        executor.shutdown();
+    }
+
+    // Source thread, before the first frame. For loading what the frames are drawn from.
+    protected void onStart() {
+    }
+
+    // Source thread. Draws frame frameIndex over the whole canvas of width x height.
+    protected void drawFrame(Canvas canvas, long frameIndex, int width, int height) {
+    }
+
+    // Source thread. Queues frame frameIndex of width x height into the surface, through a hardware
+    // canvas and drawFrame unless overridden. Throws IllegalStateException when the surface is gone.
+    protected void postFrame(Surface surface, long frameIndex, int width, int height) {
+        Canvas canvas = surface.lockHardwareCanvas();
+        try {
+            drawFrame(canvas, frameIndex, width, height);
+        } finally {
+            surface.unlockCanvasAndPost(canvas);
+        }
+    }
+
+    // Source thread, after the last frame
+    protected void onRelease() {
+    }
+
+    private void drawFrame() {
+        if (surface == null) {
+            return;
+        }
+        StreamSize size = previewSize;
+        if (!size.equals(bufferSize)) {
+            bufferSize = size;
+            surfaceTexture.setDefaultBufferSize(size.getWidth(), size.getHeight());
+        }
+        try {
+            postFrame(surface, frameIndex, size.getWidth(), size.getHeight());
+        } catch (IllegalStateException e) {
+            // The SurfaceTexture was released with the GL context, the renderer makes a new one
+            Log.w(TAG, "Surface gone, stopping", e);
+            stop();
+            executor.shutdown();
+            return;
+        }
+        frameIndex++;
+        drawnFrames++;
+    }
+
+    // Source thread
+    private void stop() {
+        if (surface != null) {
+            onRelease();
+            surface.release();
+            surface = null;
+        }
+    }
+}
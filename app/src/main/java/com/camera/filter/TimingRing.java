@@ -0,0 +1,55 @@
+package com.camera.filter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fixed size ring of recent durations. One thread records, without locks or allocation, any thread
+// can take a snapshot. A snapshot racing the writer may include one sample from the next lap,
+// which is fine for statistics.
+public class TimingRing {
+
+    private final long[] samples;
+
+    private final int mask;
+
+    private final AtomicLong written = new AtomicLong();
+
+    // capacity is rounded up to a power of two
+    public TimingRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        samples = new long[size];
+        mask = size - 1;
+    }
+
+    public void record(long nanos) {
+        long index = written.get();
+        samples[(int) (index & mask)] = nanos;
+        // Publishes the sample before the count that makes it visible
+        written.lazySet(index + 1);
+    }
+
+    // Copies up to getCapacity newest samples into out, oldest first. Returns how many were copied.
+    public int snapshot(long[] out) {
+        long end = written.get();
+        int count = (int) Math.min(Math.min(end, samples.length), out.length);
+        long start = end - count;
+        for (int i = 0; i < count; i++) {
+            out[i] = samples[(int) ((start + i) & mask)];
+        }
+        return count;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    // Total samples ever recorded
+    public long getWrittenCount() {
+        return written.get();
+    }
+}
@@ -0,0 +1,222 @@
+package com.camera.filter;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+// H.264 encoder fed through its input Surface, so filtered frames go from GL to the encoder without
+// a CPU copy. Output samples are drained on an encoder thread and written to an MP4 by a separate
+// muxer thread, so slow storage never holds up the codec callbacks. Only the compressed samples are
+// copied, which frees the codec's output buffer right away.
+public class VideoRecorder {
+
+    private static final String TAG = "VideoRecorder";
+
+    private static final String MIME_TYPE = MediaFormat.MIMETYPE_VIDEO_AVC;
+
+    private static final int I_FRAME_INTERVAL_SECONDS = 1;
+
+    // Samples waiting for the muxer before the encoder thread blocks, a second of video
+    private static final int MUXER_QUEUE_CAPACITY = 30;
+
+    private final File file;
+
+    private final VideoSettings settings;
+
+    private final RecordingStats stats = new RecordingStats();
+
+    private final HandlerThread encoderThread = new HandlerThread("VideoEncoder");
+
+    private final Handler encoderHandler;
+
+    private final BoundedExecutor muxerExecutor = new BoundedExecutor("VideoMuxer", 1, MUXER_QUEUE_CAPACITY,
+            BoundedExecutor.OverflowPolicy.BLOCK);
+
+    private final CompletableFuture<File> completion = new CompletableFuture<>();
+
+    private final MediaCodec codec;
+
+    private final Surface inputSurface;
+
+    private final MediaMuxer muxer;
+
+    // Muxer thread only
+    private int track = -1;
+
+    // Guarded by this
+    private boolean inputEnded = false;
+
+    // Encoder thread only
+    private boolean finished = false;
+
+    public VideoRecorder(File file, VideoSettings settings) throws IOException {
+        this.file = file;
+        this.settings = settings;
+        MediaFormat format = MediaFormat.createVideoFormat(MIME_TYPE, settings.getWidth(), settings.getHeight());
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, settings.getBitRate());
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, settings.getFrameRate());
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_SECONDS);
+
+        encoderThread.start();
+        encoderHandler = new Handler(encoderThread.getLooper());
+        MediaCodec codec = null;
+        Surface inputSurface = null;
+        MediaMuxer muxer = null;
+        try {
+            codec = MediaCodec.createEncoderByType(MIME_TYPE);
+            codec.setCallback(new EncoderCallback(), encoderHandler);
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            inputSurface = codec.createInputSurface();
+            muxer = new MediaMuxer(file.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            codec.start();
+        } catch (IOException | RuntimeException e) {
+            if (muxer != null) {
+                muxer.release();
+                // Never started, so nothing worth keeping was written
+                file.delete();
+            }
+            if (inputSurface != null) {
+                inputSurface.release();
+            }
+            if (codec != null) {
+                codec.release();
+            }
+            encoderThread.quitSafely();
+            muxerExecutor.shutdown();
+            throw e;
+        }
+        this.codec = codec;
+        this.inputSurface = inputSurface;
+        this.muxer = muxer;
+    }
+
+    // Target of the EGL window surface that frames are rendered into
+    public Surface getInputSurface() {
+        return inputSurface;
+    }
+
+    public VideoSettings getSettings() {
+        return settings;
+    }
+
+    public RecordingStats getStats() {
+        return stats;
+    }
+
+    // Completes on the muxer thread with the finished file once the last sample is written
+    public CompletableFuture<File> getCompletion() {
+        return completion;
+    }
+
+    // Call after the last frame was swapped into the input surface. Any thread, once.
+    public synchronized void endOfInput() {
+        if (inputEnded) {
+            return;
+        }
+        inputEnded = true;
+        try {
+            codec.signalEndOfInputStream();
+        } catch (IllegalStateException e) {
+            // The codec already failed and is being torn down
+            Log.w(TAG, "Could not end input", e);
+        }
+    }
+
+    private class EncoderCallback extends MediaCodec.Callback {
+
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            // Input comes through the surface
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            boolean end = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            // Codec config data reaches the muxer through the output format instead
+            if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0) {
+                ByteBuffer data = codec.getOutputBuffer(index);
+                ByteBuffer sample = ByteBuffer.allocateDirect(info.size);
+                data.position(info.offset).limit(info.offset + info.size);
+                sample.put(data).flip();
+                MediaCodec.BufferInfo sampleInfo = new MediaCodec.BufferInfo();
+                sampleInfo.set(0, info.size, info.presentationTimeUs, info.flags & ~MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                stats.onFrameEncoded();
+                muxerExecutor.submit(() -> {
+                    muxer.writeSampleData(track, sample, sampleInfo);
+                    stats.onSampleWritten(sampleInfo.size);
+                    return null;
+                });
+            }
+            codec.releaseOutputBuffer(index, false);
+            if (end) {
+                finish(null);
+            }
+        }
+
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            Log.e(TAG, "Encoder failed", e);
+            finish(e);
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            muxerExecutor.submit(() -> {
+                track = muxer.addTrack(format);
+                muxer.start();
+                return null;
+            });
+        }
+    }
+
+    // Encoder thread. Queued after every sample, so the muxer stops only once they are all written.
+    private void finish(Throwable error) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        muxerExecutor.submit(() -> {
+            Throwable failure = error;
+            try {
+                if (track >= 0) {
+                    muxer.stop();
+                } else if (failure == null) {
+                    failure = new IllegalStateException("No frames were encoded");
+                }
+            } catch (RuntimeException e) {
+                failure = failure != null ? failure : e;
+            }
+            muxer.release();
+            Log.d(TAG, "Recording " + file.getName() + ": " + stats);
+            if (failure != null) {
+                completion.completeExceptionally(failure);
+            } else {
+                completion.complete(file);
+            }
+            return null;
+        });
+        muxerExecutor.shutdown();
+        // Released after this callback returns, never from inside it
+        encoderHandler.post(() -> {
+            try {
+                codec.stop();
+            } catch (IllegalStateException e) {
+                // Already in the error state, release still works
+            }
+            codec.release();
+            inputSurface.release();
+            encoderThread.quitSafely();
+        });
+    }
+}
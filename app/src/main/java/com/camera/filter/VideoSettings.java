@@ -0,0 +1,72 @@
+package com.camera.filter;
+
+// Encoder size, bit rate and frame rate for recording what the preview shows
+public class VideoSettings {
+
+    // Hardware AVC encoders handle 1080p everywhere, larger sizes only on some devices
+    public static final int DEFAULT_MAX_LONG_SIDE = 1920;
+
+    public static final int DEFAULT_FRAME_RATE = 30;
+
+    // Bits per pixel and frame, about 12 Mbit/s for 1080p at 30 fps
+    static final float BITS_PER_PIXEL = 0.2f;
+
+    private final int width;
+
+    private final int height;
+
+    private final int bitRate;
+
+    private final int frameRate;
+
+    public VideoSettings(int width, int height, int bitRate, int frameRate) {
+        // YUV 4:2:0 needs even sizes
+        if (width <= 0 || height <= 0 || width % 2 != 0 || height % 2 != 0) {
+            throw new IllegalArgumentException("Invalid video size " + width + "x" + height);
+        }
+        if (bitRate <= 0 || frameRate <= 0) {
+            throw new IllegalArgumentException("Invalid bit rate " + bitRate + " or frame rate " + frameRate);
+        }
+        this.width = width;
+        this.height = height;
+        this.bitRate = bitRate;
+        this.frameRate = frameRate;
+    }
+
+    // Same aspect as the surface, scaled down to maxLongSide if larger and rounded down to even sizes
+    public static VideoSettings forSurface(int surfaceWidth, int surfaceHeight, int maxLongSide, int frameRate) {
+        if (surfaceWidth <= 0 || surfaceHeight <= 0) {
+            throw new IllegalArgumentException("Invalid surface size " + surfaceWidth + "x" + surfaceHeight);
+        }
+        float scale = Math.min(1f, maxLongSide / (float) Math.max(surfaceWidth, surfaceHeight));
+        int width = even(Math.round(surfaceWidth * scale));
+        int height = even(Math.round(surfaceHeight * scale));
+        long bitRate = (long) ((double) width * height * frameRate * BITS_PER_PIXEL);
+        return new VideoSettings(width, height, (int) Math.min(Integer.MAX_VALUE, bitRate), frameRate);
+    }
+
+    private static int even(int size) {
+        return Math.max(2, size & ~1);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    public int getFrameRate() {
+        return frameRate;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " " + bitRate / 1000 + " kbit/s " + frameRate + " fps";
+    }
+}
@@ -0,0 +1,163 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FilterGraphTest {
+
+    private static final FilterStage LOOK = FilterStage.look(FilterType.LOMO_CLASSIC);
+
+    private static final FilterStage VIGNETTE = FilterStage.vignette(0.5f);
+
+    private static final FilterStage GRAIN = FilterStage.grain(0.1f);
+
+    private static final FilterStage SCRATCHES = FilterStage.overlay("overlays/scratches.png", 0.8f);
+
+    @Test
+    public void emptyGraphIsOneCopyPassToTheScreen() {
+        List<FusionPlanner.Pass> passes = new FusionPlanner().plan(new FilterGraph.Builder().build());
+
+        assertEquals(1, passes.size());
+        assertTrue(passes.get(0).readsCamera);
+        assertNull(passes.get(0).head);
+        assertTrue(passes.get(0).stages.isEmpty());
+    }
+
+    @Test
+    public void colorStagesFuseIntoOnePass() {
+        FilterGraph graph = new FilterGraph.Builder().add(LOOK).add(VIGNETTE).add(GRAIN).add(SCRATCHES).build();
+
+        List<FusionPlanner.Pass> passes = new FusionPlanner().plan(graph);
+
+        assertEquals(1, passes.size());
+        assertEquals(graph.getStages(), passes.get(0).stages);
+        assertEquals(1, passes.get(0).getTextureCount());
+    }
+
+    @Test
+    public void withoutFusionEveryStageGetsAPass() {
+        FilterGraph graph = new FilterGraph.Builder().add(LOOK).add(VIGNETTE).add(GRAIN).build();
+
+        List<FusionPlanner.Pass> passes = new FusionPlanner(false, FusionPlanner.DEFAULT_MAX_TEXTURES_PER_PASS).plan(graph);
+
+        assertEquals(3, passes.size());
+        assertTrue(passes.get(0).readsCamera);
+        assertFalse(passes.get(1).readsCamera);
+        assertEquals(GRAIN, passes.get(2).stages.get(0));
+    }
+
+    @Test
+    public void blurStartsPassesAndFusesWhatFollows() {
+        FilterGraph graph = new FilterGraph.Builder()
+                .add(LOOK)
+                .addAll(FilterStage.blur(4f))
+                .add(VIGNETTE)
+                .add(GRAIN)
+                .build();
+
+        List<FusionPlanner.Pass> passes = new FusionPlanner().plan(graph);
+
+        assertEquals(3, passes.size());
+        assertEquals(1, passes.get(0).stages.size());
+        assertEquals("blur:h", passes.get(1).head.getName());
+        assertTrue(passes.get(1).stages.isEmpty());
+        assertEquals("blur:v", passes.get(2).head.getName());
+        assertEquals(2, passes.get(2).stages.size());
+    }
+
+    @Test
+    public void leadingBlurGetsACameraCopyPass() {
+        FilterGraph graph = new FilterGraph.Builder().addAll(FilterStage.blur(2f)).build();
+
+        List<FusionPlanner.Pass> passes = new FusionPlanner().plan(graph);
+
+        assertEquals(3, passes.size());
+        assertTrue(passes.get(0).readsCamera);
+        assertNull(passes.get(0).head);
+        assertTrue(passes.get(0).stages.isEmpty());
+        assertFalse(passes.get(1).readsCamera);
+    }
+
+    @Test
+    public void texturesPerPassAreLimited() {
+        FilterGraph graph = new FilterGraph.Builder().add(SCRATCHES).add(VIGNETTE).add(SCRATCHES).add(SCRATCHES).build();
+
+        List<FusionPlanner.Pass> passes = new FusionPlanner(true, 2).plan(graph);
+
+        assertEquals(2, passes.size());
+        assertEquals(3, passes.get(0).stages.size());
+        assertEquals(2, passes.get(0).getTextureCount());
+        assertEquals(1, passes.get(1).getTextureCount());
+    }
+
+    @Test
+    public void passesPingPongBetweenTwoTargets() {
+        FilterGraph graph = new FilterGraph.Builder()
+                .add(LOOK)
+                .addAll(FilterStage.blur(4f))
+                .addAll(FilterStage.blur(8f))
+                .add(GRAIN)
+                .build();
+
+        List<PassScheduler.ScheduledPass> scheduled = PassScheduler.schedule(new FusionPlanner().plan(graph));
+
+        assertEquals(5, scheduled.size());
+        assertEquals(PassScheduler.Target.CAMERA, scheduled.get(0).input);
+        assertEquals(PassScheduler.Target.PING, scheduled.get(0).output);
+        assertEquals(PassScheduler.Target.PONG, scheduled.get(1).output);
+        assertEquals(PassScheduler.Target.PING, scheduled.get(2).output);
+        assertEquals(PassScheduler.Target.PONG, scheduled.get(3).output);
+        assertEquals(PassScheduler.Target.SCREEN, scheduled.get(4).output);
+        for (int i = 1; i < scheduled.size(); i++) {
+            assertEquals(scheduled.get(i - 1).output, scheduled.get(i).input);
+        }
+        assertEquals(2, PassScheduler.intermediateTargets(scheduled));
+    }
+
+    @Test
+    public void singlePassDrawsStraightToTheScreen() {
+        List<PassScheduler.ScheduledPass> scheduled = PassScheduler.schedule(
+                new FusionPlanner().plan(new FilterGraph.Builder().add(LOOK).build()));
+
+        assertEquals(1, scheduled.size());
+        assertEquals(PassScheduler.Target.CAMERA, scheduled.get(0).input);
+        assertEquals(PassScheduler.Target.SCREEN, scheduled.get(0).output);
+        assertEquals(0, PassScheduler.intermediateTargets(scheduled));
+    }
+
+    @Test
+    public void fusedShaderCallsEveryStageInOrder() {
+        FilterGraph graph = new FilterGraph.Builder().add(LOOK).add(VIGNETTE).add(GRAIN).build();
+
+        String shader = FilterGraphShaders.fragmentShader(new FusionPlanner().plan(graph).get(0));
+
+        assertTrue(shader.contains("samplerExternalOES uSource"));
+        assertTrue(shader.contains("vec3 s0_apply(vec3 color)"));
+        assertTrue(shader.contains("uniform float s1_uStrength;"));
+        assertFalse(shader.contains(FilterStage.PREFIX_PLACEHOLDER));
+        assertFalse(shader.contains(FilterShaderSource.functionName(FilterType.LOMO_CLASSIC)));
+        int look = shader.indexOf("color.rgb = s0_apply");
+        int vignette = shader.indexOf("color.rgb = s1_apply");
+        int grain = shader.indexOf("color.rgb = s2_apply");
+        assertTrue(look > 0 && look < vignette && vignette < grain);
+    }
+
+    @Test
+    public void blurPassSamplesTheIntermediateTexture() {
+        FilterGraph graph = new FilterGraph.Builder().add(LOOK).addAll(FilterStage.blur(4f)).build();
+
+        String shader = FilterGraphShaders.fragmentShader(new FusionPlanner().plan(graph).get(1));
+
+        assertFalse(shader.contains("GL_OES_EGL_image_external"));
+        assertTrue(shader.contains("uniform sampler2D uSource;"));
+        assertTrue(shader.contains("vec4 color = h_apply(vTextureCoord);"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noneHasNoLook() {
+        FilterStage.look(FilterType.NONE);
+    }
+}
@@ -0,0 +1,85 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FilterShaderSourceTest {
+
+    @Test
+    public void everyFilterHasSpecializedShader() {
+        for (FilterType filterType : FilterType.values()) {
+            String source = FilterShaderSource.fragmentShader(filterType);
+
+            assertTrue(filterType.name(), source.startsWith("#extension GL_OES_EGL_image_external : require\n"));
+            assertTrue(filterType.name(), source.contains("void main() {"));
+            assertFalse(filterType.name(), source.contains("filterType"));
+            assertFalse(filterType.name(), source.contains("if (filterType"));
+            assertEquals(filterType.name(), count(source, '{'), count(source, '}'));
+
+            String functionName = FilterShaderSource.functionName(filterType);
+            if (filterType == FilterType.NONE) {
+                assertNull(functionName);
+                assertEquals(0, occurrences(source, "vec3 apply"));
+                assertTrue(source.contains("gl_FragColor = color;"));
+            } else {
+                assertEquals(filterType.name(), 1, occurrences(source, "vec3 apply"));
+                assertTrue(filterType.name(), source.contains("vec3 " + functionName + "(vec3 color) {"));
+                assertTrue(filterType.name(), source.contains("gl_FragColor = vec4(" + functionName + "(color.rgb), color.a);"));
+            }
+        }
+    }
+
+    @Test
+    public void functionNamesFollowCategories() {
+        assertEquals("applyLomoFilter1", FilterShaderSource.functionName(FilterType.LOMO_CLASSIC));
+        assertEquals("applyRetroFilter3", FilterShaderSource.functionName(FilterType.RETRO_FADED_FILM));
+        assertEquals("applyCubeFilter5", FilterShaderSource.functionName(FilterType.CUBE_NEON));
+        assertEquals("applyBWFilter2", FilterShaderSource.functionName(FilterType.BW_HIGH_CONTRAST));
+        assertEquals("applyVignetteFilter5", FilterShaderSource.functionName(FilterType.VIGNETTE_TUNNEL));
+    }
+
+    @Test
+    public void shadersAreDistinctPerFilter() {
+        Set<String> sources = new HashSet<>();
+        for (FilterType filterType : FilterType.values()) {
+            assertTrue(filterType.name(), sources.add(FilterShaderSource.fragmentShader(filterType)));
+        }
+    }
+
+    @Test
+    public void lutShadersKeepOnlyPositionTerms() {
+        for (FilterType filterType : FilterType.values()) {
+            if (!LutBaker.isBakeable(filterType)) continue;
+            String source = FilterShaderSource.lutFragmentShader(filterType, 33);
+
+            assertTrue(filterType.name(), source.contains("uniform sampler2D uLut;"));
+            assertTrue(filterType.name(), source.contains("sampleLut(clamp(color.rgb, 0.0, 1.0))"));
+            assertTrue(filterType.name(), source.contains("/ 33.0"));
+            assertFalse(filterType.name(), source.contains("pow("));
+            assertEquals(filterType.name(), filterType == FilterType.LOMO_CLASSIC, source.contains("distance(vTextureCoord"));
+            assertEquals(filterType.name(), count(source, '{'), count(source, '}'));
+        }
+    }
+
+    private static int count(String source, char c) {
+        int count = 0;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == c) count++;
+        }
+        return count;
+    }
+
+    private static int occurrences(String source, String token) {
+        int count = 0;
+        int index = source.indexOf(token);
+        while (index >= 0) {
+            count++;
+            index = source.indexOf(token, index + token.length());
+        }
+        return count;
+    }
+}
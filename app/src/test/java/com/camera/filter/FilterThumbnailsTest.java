@@ -0,0 +1,59 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FilterThumbnailsTest {
+
+    @Test
+    public void batchMatchesFilteringEachThumbnailAlone() {
+        int width = 24, height = 18;
+        int[] source = TestImages.opaqueNoise(width, height, 7);
+        FilterThumbnails thumbnails = new FilterThumbnails(FilterType.getAllFilters());
+
+        thumbnails.render(source, width, height);
+
+        CpuFilterEngine engine = new CpuFilterEngine();
+        int[] expected = new int[width * height];
+        List<FilterType> filterTypes = thumbnails.getFilterTypes();
+        for (int i = 0; i < filterTypes.size(); i++) {
+            engine.apply(filterTypes.get(i), source, expected, width, height);
+            assertArrayEquals(filterTypes.get(i).name(), expected, thumbnails.getPixels(i));
+        }
+    }
+
+    @Test
+    public void reusesOutputsWhileSizeIsUnchanged() {
+        FilterThumbnails thumbnails = new FilterThumbnails(List.of(FilterType.NONE, FilterType.BW_CLASSIC));
+        thumbnails.render(TestImages.opaqueNoise(8, 6, 7), 8, 6);
+        int[] first = thumbnails.getPixels(1);
+
+        thumbnails.render(TestImages.opaqueNoise(8, 6, 7), 8, 6);
+        assertSame(first, thumbnails.getPixels(1));
+
+        thumbnails.render(TestImages.opaqueNoise(6, 8, 7), 6, 8);
+        assertNotSame(first, thumbnails.getPixels(1));
+    }
+
+    @Test
+    public void throttleWaitsForIntervalAndForPreviousBatch() {
+        FrameThrottle throttle = new FrameThrottle(TimeUnit.MILLISECONDS.toNanos(250));
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+
+        assertTrue(throttle.tryBegin(0));
+        assertFalse(throttle.tryBegin(100 * ms));
+        // Due, but the first batch is still running
+        assertFalse(throttle.tryBegin(300 * ms));
+        assertEquals(1, throttle.getSkipped());
+
+        throttle.end();
+        assertTrue(throttle.tryBegin(316 * ms));
+        throttle.end();
+        assertFalse(throttle.tryBegin(500 * ms));
+        assertTrue(throttle.tryBegin(566 * ms));
+    }
+}
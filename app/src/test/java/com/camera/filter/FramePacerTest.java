@@ -0,0 +1,94 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import static com.camera.filter.FramePacer.Action.*;
+import static org.junit.Assert.*;
+
+public class FramePacerTest {
+
+    private static final long VSYNC_60 = 16_666_667L;
+
+    @Test
+    public void immediateModeRequestsOneDrawPerBurstOfFrames() {
+        FramePacer pacer = new FramePacer(FramePacer.Mode.IMMEDIATE);
+
+        assertEquals(REQUEST_RENDER, pacer.onFrameAvailable());
+        assertEquals(NONE, pacer.onFrameAvailable());
+        assertEquals(NONE, pacer.onFrameAvailable());
+
+        // The draw latches all three and keeps the newest
+        assertEquals(3, pacer.onRenderStarted());
+        assertEquals(REQUEST_RENDER, pacer.onFrameAvailable());
+        assertEquals(1, pacer.onRenderStarted());
+
+        assertEquals(4, pacer.getReceivedCount());
+        assertEquals(2, pacer.getRenderedCount());
+        assertEquals(2, pacer.getDroppedCount());
+    }
+
+    @Test
+    public void vsyncModeDrawsOnTheNextVsyncWithANewFrame() {
+        FramePacer pacer = new FramePacer(FramePacer.Mode.VSYNC);
+        long clock = 0;
+
+        assertEquals(SCHEDULE_VSYNC, pacer.onFrameAvailable());
+        assertEquals(NONE, pacer.onFrameAvailable());
+        clock += VSYNC_60;
+        assertEquals(REQUEST_RENDER, pacer.onVsync(clock));
+        assertEquals(2, pacer.onRenderStarted());
+
+        // A vsync with nothing new does not draw
+        assertEquals(SCHEDULE_VSYNC, pacer.onFrameAvailable());
+        assertEquals(1, pacer.onRenderStarted());
+        clock += VSYNC_60;
+        assertEquals(NONE, pacer.onVsync(clock));
+        assertEquals(1, pacer.getDroppedCount());
+    }
+
+    @Test
+    public void slowDrawSkipsVsyncUntilItStarts() {
+        FramePacer pacer = new FramePacer(FramePacer.Mode.VSYNC);
+        pacer.onFrameAvailable();
+        assertEquals(REQUEST_RENDER, pacer.onVsync(VSYNC_60));
+
+        // GL thread is still busy with the previous frame
+        assertEquals(SCHEDULE_VSYNC, pacer.onFrameAvailable());
+        assertEquals(NONE, pacer.onVsync(2 * VSYNC_60));
+
+        assertEquals(2, pacer.onRenderStarted());
+        assertEquals(1, pacer.getRenderedCount());
+        assertEquals(1, pacer.getDroppedCount());
+    }
+
+    @Test
+    public void minimumIntervalCapsRateOnFastDisplays() {
+        FramePacer pacer = new FramePacer(FramePacer.Mode.VSYNC);
+        long vsync120 = 8_333_333L;
+        pacer.setMinFrameIntervalNanos(33_000_000L);
+        long clock = 0;
+        int draws = 0;
+        // Camera at 60 fps, display at 120 Hz, 24 vsyncs = 200 ms
+        for (int i = 1; i <= 24; i++) {
+            clock += vsync120;
+            if (i % 2 == 0) {
+                pacer.onFrameAvailable();
+            }
+            if (pacer.onVsync(clock) == REQUEST_RENDER) {
+                pacer.onRenderStarted();
+                draws++;
+            }
+        }
+        assertEquals(6, draws);
+        assertEquals(12, pacer.getReceivedCount());
+        // Every draw after the first skips one frame, the last frame is still waiting
+        assertEquals(5, pacer.getDroppedCount());
+    }
+
+    @Test
+    public void drawWithoutNewFrameLatchesNothing() {
+        FramePacer pacer = new FramePacer(FramePacer.Mode.IMMEDIATE);
+        assertEquals(0, pacer.onRenderStarted());
+        assertEquals(0, pacer.getRenderedCount());
+    }
+}
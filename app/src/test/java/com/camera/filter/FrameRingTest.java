@@ -0,0 +1,59 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameRingTest {
+
+    @Test
+    public void producerSkipsWhenRingIsFull() throws Exception {
+        FrameRing<int[]> ring = new FrameRing<>(Arrays.asList(new int[1], new int[1]));
+
+        FrameRing.Slot<int[]> first = ring.tryAcquire();
+        FrameRing.Slot<int[]> second = ring.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(ring.tryAcquire());
+
+        first.sequence = 0;
+        second.sequence = 1;
+        ring.publish(first);
+        ring.publish(second);
+        assertEquals(2, ring.getFilledCount());
+
+        FrameRing.Slot<int[]> consumed = ring.poll(0, TimeUnit.MILLISECONDS);
+        assertSame(first, consumed);
+        ring.recycle(consumed);
+
+        assertSame(first, ring.tryAcquire());
+        assertSame(second, ring.poll(0, TimeUnit.MILLISECONDS));
+        assertNull(ring.poll(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void cancelledSlotsAreNotPublished() throws Exception {
+        FrameRing<int[]> ring = new FrameRing<>(Arrays.asList(new int[1]));
+
+        ring.cancel(ring.tryAcquire());
+
+        assertNull(ring.poll(0, TimeUnit.MILLISECONDS));
+        assertNotNull(ring.tryAcquire());
+    }
+
+    @Test
+    public void burstStatsSummarizeLatencies() {
+        BurstStats stats = new BurstStats(6, 2, new long[]{40, 10, 30, 20});
+
+        assertEquals(4, stats.getCapturedFrames());
+        assertEquals(2, stats.getSkippedFrames());
+        assertEquals(10, stats.getMinLatencyNanos());
+        assertEquals(40, stats.getMaxLatencyNanos());
+        assertEquals(25, stats.getMeanLatencyNanos());
+        assertEquals(20, stats.getLatencyPercentileNanos(50));
+        assertEquals(40, stats.getLatencyPercentileNanos(95));
+    }
+}
@@ -0,0 +1,55 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class PhotoNameGeneratorTest {
+
+    // 2024-03-05 07:08:09.123 UTC
+    private static final long TIME = 1709622489123L;
+
+    @Test
+    public void namesContainTimestampAndExtension() {
+        PhotoNameGenerator generator = new PhotoNameGenerator("IMG", () -> TIME, TimeZone.getTimeZone("UTC"));
+
+        assertEquals("IMG_20240305_070809_123.jpg", generator.nextName(SaveFormat.JPEG));
+    }
+
+    @Test
+    public void takesAnyExtension() {
+        PhotoNameGenerator generator = new PhotoNameGenerator("VID", () -> TIME, TimeZone.getTimeZone("UTC"));
+
+        assertEquals("VID_20240305_070809_123.mp4", generator.nextName("mp4"));
+        assertEquals("VID_20240305_070809_123_1.mp4", generator.nextName("mp4"));
+    }
+
+    @Test
+    public void sameMillisecondGetsSequenceSuffix() {
+        PhotoNameGenerator generator = new PhotoNameGenerator("IMG", () -> TIME, TimeZone.getTimeZone("UTC"));
+
+        assertEquals("IMG_20240305_070809_123.png", generator.nextName(SaveFormat.PNG));
+        assertEquals("IMG_20240305_070809_123_1.png", generator.nextName(SaveFormat.PNG));
+        assertEquals("IMG_20240305_070809_123_2.webp", generator.nextName(SaveFormat.WEBP));
+    }
+
+    @Test
+    public void clockGoingBackwardsStillGivesUniqueNames() {
+        long[] now = {TIME};
+        PhotoNameGenerator generator = new PhotoNameGenerator("IMG", () -> now[0], TimeZone.getTimeZone("UTC"));
+
+        Set<String> names = new HashSet<>();
+        names.add(generator.nextName(SaveFormat.JPEG));
+        now[0] = TIME - 1000;
+        names.add(generator.nextName(SaveFormat.JPEG));
+        now[0] = TIME + 1;
+        names.add(generator.nextName(SaveFormat.JPEG));
+
+        assertEquals(3, names.size());
+        assertTrue(names.contains("IMG_20240305_070809_124.jpg"));
+    }
+}
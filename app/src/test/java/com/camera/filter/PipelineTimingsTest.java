@@ -0,0 +1,89 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PipelineTimingsTest {
+
+    @Test
+    public void ringKeepsNewestSamplesOldestFirst() {
+        TimingRing ring = new TimingRing(3);
+        assertEquals(4, ring.getCapacity());
+        for (int i = 1; i <= 6; i++) {
+            ring.record(i);
+        }
+        long[] out = new long[8];
+        assertEquals(4, ring.snapshot(out));
+        assertArrayEquals(new long[]{3, 4, 5, 6}, Arrays.copyOf(out, 4));
+        assertEquals(6, ring.getWrittenCount());
+    }
+
+    @Test
+    public void snapshotWhileWriting() throws InterruptedException {
+        TimingRing ring = new TimingRing(64);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                ring.record(1000 + (i & 7));
+            }
+        });
+        writer.start();
+        long[] out = new long[64];
+        while (writer.isAlive()) {
+            int count = ring.snapshot(out);
+            for (int i = 0; i < count; i++) {
+                assertTrue(out[i] >= 1000 && out[i] < 1008);
+            }
+        }
+        writer.join();
+        assertEquals(200_000, ring.getWrittenCount());
+    }
+
+    @Test
+    public void summarizesOnlyRecordedStages() {
+        PipelineTimings timings = new PipelineTimings(128);
+        for (int i = 1; i <= 100; i++) {
+            timings.record(PipelineTimings.Stage.FRAME, i * 100_000L);
+        }
+        timings.record(PipelineTimings.Stage.OVERLAY, 250_000L);
+
+        List<PipelineTimings.Summary> summaries = timings.summarize();
+        assertEquals(2, summaries.size());
+        PipelineTimings.Summary frame = summaries.get(0);
+        assertEquals(PipelineTimings.Stage.FRAME, frame.stage);
+        assertEquals(100, frame.count);
+        assertEquals(5_000_000L, frame.p50Nanos, 5_000_000L / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(9_900_000L, frame.p99Nanos, 9_900_000L / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(10_000_000L, frame.maxNanos);
+    }
+
+    @Test
+    public void exportsCsv() throws IOException {
+        PipelineTimings timings = new PipelineTimings();
+        timings.record(PipelineTimings.Stage.GPU_FRAME, 3_000_000L);
+        StringBuilder out = new StringBuilder();
+
+        timings.exportCsv(out);
+
+        assertEquals("stage,count,p50_us,p95_us,p99_us,max_us\nGPU_FRAME,1,3000,3000,3000,3000\n", out.toString());
+        assertTrue(timings.formatHud().startsWith("gpu_frame"));
+    }
+
+    @Test
+    public void drawCallsAreKeptApartFromDurations() {
+        PipelineTimings timings = new PipelineTimings(16);
+        timings.recordDrawCalls(2);
+        timings.recordDrawCalls(2);
+        timings.recordDrawCalls(3);
+
+        assertEquals(3, timings.getDrawCallsPerFrame().getCount());
+        assertEquals(2, timings.getDrawCallsPerFrame().getPercentile(50));
+        assertEquals(3, timings.getDrawCallsPerFrame().getMax());
+        assertTrue(timings.summarize().isEmpty());
+        assertTrue(timings.formatHud().startsWith("draws/frame"));
+    }
+}
@@ -0,0 +1,127 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecordingStatsTest {
+
+    private static final long FRAME = 33_333_333L;
+
+    @Test
+    public void redrawsOfTheSameFrameAreNotQueued() {
+        RecordingStats stats = new RecordingStats(3);
+
+        assertTrue(stats.onFrameRendered(FRAME));
+        assertFalse(stats.onFrameRendered(FRAME));
+        assertFalse(stats.onFrameRendered(FRAME - 1));
+
+        assertEquals(1, stats.getQueuedFrames());
+        assertEquals(0, stats.getDroppedFrames());
+    }
+
+    @Test
+    public void dropsWhileTheEncoderQueueIsFull() {
+        RecordingStats stats = new RecordingStats(2);
+
+        assertTrue(stats.onFrameRendered(FRAME));
+        assertTrue(stats.onFrameRendered(2 * FRAME));
+        assertFalse(stats.onFrameRendered(3 * FRAME));
+        assertEquals(2, stats.getEncoderQueueDepth());
+        assertEquals(1, stats.getDroppedFrames());
+
+        stats.onFrameEncoded();
+        assertTrue(stats.onFrameRendered(4 * FRAME));
+        assertEquals(3, stats.getQueuedFrames());
+        assertEquals(2, stats.getPeakEncoderQueueDepth());
+    }
+
+    @Test
+    public void encodersThatHoldMoreFramesThanTheQueueDoNotStall() {
+        RecordingStats stats = new RecordingStats(8);
+        // Returns a frame only once it holds ten, like an encoder with lookahead and B-frames
+        int latency = 10;
+        int held = 0;
+        for (int i = 1; i <= 300; i++) {
+            if (stats.onFrameRendered(i * FRAME)) {
+                held++;
+                if (held > latency) {
+                    stats.onFrameEncoded();
+                    held--;
+                }
+            }
+        }
+
+        // Frames 9 to 16 fall within the stall timeout of the first one, after that input flows again
+        assertEquals(1, stats.getStalls());
+        assertEquals(8, stats.getDroppedFrames());
+        assertEquals(292, stats.getQueuedFrames());
+        assertEquals(292 - latency, stats.getEncodedFrames());
+    }
+
+    @Test
+    public void slowEncodersStillDropWithinTheTimeout() {
+        RecordingStats stats = new RecordingStats(2);
+        assertTrue(stats.onFrameRendered(FRAME));
+        assertTrue(stats.onFrameRendered(2 * FRAME));
+        // Some progress keeps the queue counted as full
+        stats.onFrameEncoded();
+        assertTrue(stats.onFrameRendered(3 * FRAME));
+        assertFalse(stats.onFrameRendered(4 * FRAME));
+        assertFalse(stats.onFrameRendered(2 * FRAME + RecordingStats.STALL_TIMEOUT_NANOS - 1));
+        assertTrue(stats.onFrameRendered(2 * FRAME + RecordingStats.STALL_TIMEOUT_NANOS));
+        assertEquals(1, stats.getStalls());
+        assertEquals(1, stats.getEncoderQueueDepth());
+    }
+
+    @Test
+    public void lostFramesCountAsDropped() {
+        RecordingStats stats = new RecordingStats(1);
+
+        assertTrue(stats.onFrameRendered(FRAME));
+        stats.onFrameLost();
+
+        assertEquals(0, stats.getQueuedFrames());
+        assertEquals(1, stats.getDroppedFrames());
+        assertEquals(0, stats.getEncoderQueueDepth());
+        assertTrue(stats.onFrameRendered(2 * FRAME));
+    }
+
+    @Test
+    public void samplesMoveFromTheEncoderToTheMuxer() {
+        RecordingStats stats = new RecordingStats();
+        stats.onFrameRendered(FRAME);
+        stats.onFrameRendered(2 * FRAME);
+
+        stats.onFrameEncoded();
+        stats.onFrameEncoded();
+        assertEquals(0, stats.getEncoderQueueDepth());
+        assertEquals(2, stats.getMuxerQueueDepth());
+
+        stats.onSampleWritten(1000);
+        stats.onSampleWritten(500);
+        assertEquals(0, stats.getMuxerQueueDepth());
+        assertEquals(2, stats.getPeakMuxerQueueDepth());
+        assertEquals(2, stats.getEncodedFrames());
+        assertEquals(1500, stats.getWrittenBytes());
+    }
+
+    @Test
+    public void durationSpansQueuedFrames() {
+        RecordingStats stats = new RecordingStats(1);
+        assertEquals(0, stats.getDurationNanos());
+
+        stats.onFrameRendered(5 * FRAME);
+        // Dropped, so it does not extend the duration
+        stats.onFrameRendered(6 * FRAME);
+        stats.onFrameEncoded();
+        stats.onFrameRendered(8 * FRAME);
+
+        assertEquals(3 * FRAME, stats.getDurationNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyQueue() {
+        new RecordingStats(0);
+    }
+}
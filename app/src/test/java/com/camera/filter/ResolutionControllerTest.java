@@ -0,0 +1,132 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResolutionControllerTest {
+
+    private static final long TARGET = 10_000_000L;
+
+    private static final float EPSILON = 1e-4f;
+
+    private static float feed(ResolutionController controller, long frameNanos, int frames) {
+        float scale = controller.getScale();
+        for (int i = 0; i < frames; i++) {
+            scale = controller.onFrameTime(frameNanos);
+        }
+        return scale;
+    }
+
+    @Test
+    public void startsAtFullResolution() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+
+        assertEquals(1f, controller.getScale(), EPSILON);
+        assertTrue(controller.isAuto());
+    }
+
+    @Test
+    public void staysWhileFramesFit() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+
+        assertEquals(1f, feed(controller, TARGET / 2, 40), EPSILON);
+    }
+
+    @Test
+    public void scaleOnlyChangesOncePerWindow() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+
+        assertEquals(1f, feed(controller, TARGET * 2, 3), EPSILON);
+        assertTrue(controller.onFrameTime(TARGET * 2) < 1f);
+    }
+
+    @Test
+    public void dropsToTheScaleThatFits() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+
+        // Twice the budget: 1.0 * sqrt(0.8 / 2) = 0.632, rounded down to a step
+        assertEquals(0.6f, feed(controller, TARGET * 2, 4), EPSILON);
+    }
+
+    @Test
+    public void neverDropsBelowTheMinimum() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+
+        assertEquals(ResolutionController.MIN_SCALE, feed(controller, TARGET * 100, 12), EPSILON);
+    }
+
+    @Test
+    public void climbsOneStepPerWindowWithHeadroom() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+        feed(controller, TARGET * 2, 4);
+
+        // At 0.6 a 5 ms frame predicts 5 * (0.65 / 0.6)^2 = 5.9 ms at 0.65
+        assertEquals(0.65f, feed(controller, TARGET / 2, 4), EPSILON);
+        assertEquals(0.7f, feed(controller, TARGET / 2, 4), EPSILON);
+    }
+
+    @Test
+    public void holdsWhenTheNextStepWouldNotFit() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+        feed(controller, TARGET * 2, 4);
+
+        // 8.5 ms at 0.6 predicts 9.98 ms at 0.65, over the climb threshold but under the target
+        assertEquals(0.6f, feed(controller, 8_500_000L, 40), EPSILON);
+    }
+
+    @Test
+    public void settlesInsteadOfOscillating() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+        // Cost proportional to the pixel count, 20 ms at full resolution
+        float scale = controller.getScale();
+        float previous = -1f;
+        int changes = 0;
+        for (int window = 0; window < 50; window++) {
+            long cost = (long) (TARGET * 2 * scale * scale);
+            scale = feed(controller, cost, 4);
+            if (window >= 20 && Math.abs(scale - previous) > EPSILON) {
+                changes++;
+            }
+            previous = scale;
+        }
+        assertEquals(0, changes);
+        assertTrue(TARGET * 2 * scale * scale <= TARGET);
+    }
+
+    @Test
+    public void fixedScaleIgnoresFrameTimes() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+        controller.setFixedScale(0.75f);
+
+        assertFalse(controller.isAuto());
+        assertEquals(0.75f, feed(controller, TARGET * 10, 40), EPSILON);
+    }
+
+    @Test
+    public void fixedScaleIsClampedAndQuantized() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+
+        controller.setFixedScale(0.2f);
+        assertEquals(ResolutionController.MIN_SCALE, controller.getScale(), EPSILON);
+        controller.setFixedScale(1.7f);
+        assertEquals(ResolutionController.MAX_SCALE, controller.getScale(), EPSILON);
+        controller.setFixedScale(0.83f);
+        assertEquals(0.85f, controller.getScale(), EPSILON);
+    }
+
+    @Test
+    public void autoResumesFromTheFixedScale() {
+        ResolutionController controller = new ResolutionController(TARGET, 4);
+        controller.setFixedScale(0.5f);
+        controller.setAuto(true);
+
+        assertEquals(0.55f, feed(controller, TARGET / 4, 4), EPSILON);
+    }
+
+    @Test
+    public void scaledSizeIsNeverZero() {
+        assertEquals(540, ResolutionController.scaledSize(1080, 0.5f));
+        assertEquals(1, ResolutionController.scaledSize(1, 0.5f));
+    }
+}
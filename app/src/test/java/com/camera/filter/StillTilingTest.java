@@ -0,0 +1,100 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StillTilingTest {
+
+    private static int[] image(int width, int height) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i;
+        }
+        return pixels;
+    }
+
+    @Test
+    public void rotatesClockwise() {
+        // 1 2 3
+        // 4 5 6
+        int[] src = {1, 2, 3, 4, 5, 6};
+        int[] dst = new int[6];
+
+        StillTiling.rotate(src, 3, 2, 90, dst);
+        assertArrayEquals(new int[]{4, 1, 5, 2, 6, 3}, dst);
+
+        StillTiling.rotate(src, 3, 2, 180, dst);
+        assertArrayEquals(new int[]{6, 5, 4, 3, 2, 1}, dst);
+
+        StillTiling.rotate(src, 3, 2, 270, dst);
+        assertArrayEquals(new int[]{3, 6, 2, 5, 1, 4}, dst);
+
+        StillTiling.rotate(src, 3, 2, 0, dst);
+        assertArrayEquals(src, dst);
+    }
+
+    @Test
+    public void rotatedBandsAssembleTheRotatedImage() {
+        int width = 7, height = 10, bandRows = 3;
+        int[] src = image(width, height);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            int outWidth = StillTiling.rotatedWidth(width, height, rotation);
+            int outHeight = StillTiling.rotatedHeight(width, height, rotation);
+            int[] expected = new int[src.length];
+            StillTiling.rotate(src, width, height, rotation, expected);
+
+            int[] assembled = new int[src.length];
+            int[] band = new int[width * bandRows];
+            int[] rotated = new int[width * bandRows];
+            for (int firstRow = 0; firstRow < height; firstRow += bandRows) {
+                int rows = Math.min(bandRows, height - firstRow);
+                System.arraycopy(src, firstRow * width, band, 0, width * rows);
+                StillTiling.rotate(band, width, rows, rotation, rotated);
+                int[] rect = StillTiling.bandRect(width, height, firstRow, rows, rotation);
+                assertTrue(rect[0] + rect[2] <= outWidth && rect[1] + rect[3] <= outHeight);
+                for (int y = 0; y < rect[3]; y++) {
+                    System.arraycopy(rotated, y * rect[2], assembled, (rect[1] + y) * outWidth + rect[0], rect[2]);
+                }
+            }
+            assertArrayEquals("rotation " + rotation, expected, assembled);
+        }
+    }
+
+    @Test
+    public void bandRowsStayWithinTheBudget() {
+        assertEquals(260, StillTiling.bandRows(4032, 3024, 1024 * 1024));
+        assertEquals(3024, StillTiling.bandRows(4032, 3024, Integer.MAX_VALUE));
+        assertEquals(1, StillTiling.bandRows(4032, 3024, 10));
+    }
+
+    @Test
+    public void subsamplesLargeStillsUnderTheCap() {
+        long cap = 16L * 1024 * 1024;
+        assertEquals(1, StillTiling.sampleSize(4032, 3024, cap));
+        assertEquals(2, StillTiling.sampleSize(8000, 6000, cap));
+        assertEquals(4, StillTiling.sampleSize(16000, 12000, cap));
+        // A single row can not be halved below one pixel
+        assertEquals(1, StillTiling.sampleSize(100000, 1, 10));
+    }
+
+    @Test
+    public void cropsToTheAspectRatioAroundTheCenter() {
+        assertArrayEquals(new int[]{504, 0, 3024, 3024}, StillTiling.cropRect(4032, 3024, 1f));
+        assertArrayEquals(new int[]{0, 378, 4032, 2268}, StillTiling.cropRect(4032, 3024, 16 / 9f));
+        assertArrayEquals(new int[]{0, 0, 4032, 3024}, StillTiling.cropRect(4032, 3024, 4 / 3f));
+    }
+
+    @Test
+    public void uprightAspectIsTransposedForSensorRotation() {
+        // A 3:4 portrait photo from a landscape sensor mounted at 90 degrees is a 4:3 sensor crop
+        assertEquals(4 / 3f, StillTiling.sensorAspectRatio(3 / 4f, 90), 1e-6f);
+        assertEquals(3 / 4f, StillTiling.sensorAspectRatio(3 / 4f, 180), 1e-6f);
+        assertEquals(2 / 1f, StillTiling.sensorAspectRatio(1 / 2f, 270), 1e-6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddRotations() {
+        StillTiling.rotatedWidth(4, 3, 45);
+    }
+}
@@ -0,0 +1,88 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamSizeSelectorTest {
+
+    // SurfaceTexture output sizes reported by a Pixel 6 back camera
+    private static final List<StreamSize> PIXEL_6 = sizes(
+            4032, 3024, 4000, 3000, 3840, 2160, 3264, 2448, 3200, 2400, 2592, 1944, 2048, 1536,
+            1920, 1440, 1920, 1080, 1600, 1200, 1440, 1080, 1280, 960, 1280, 720, 1024, 768,
+            800, 600, 720, 480, 640, 480, 640, 360, 352, 288, 320, 240, 176, 144);
+
+    // A budget device without any square or 2:1 modes
+    private static final List<StreamSize> BUDGET = sizes(
+            1920, 1088, 1280, 720, 960, 720, 640, 480, 320, 240);
+
+    private static List<StreamSize> sizes(int... dimensions) {
+        List<StreamSize> sizes = new ArrayList<>();
+        for (int i = 0; i < dimensions.length; i += 2) {
+            sizes.add(new StreamSize(dimensions[i], dimensions[i + 1]));
+        }
+        return sizes;
+    }
+
+    private static StreamSize select(List<StreamSize> sizes, int ratioWidth, int ratioHeight) {
+        return StreamSizeSelector.select(sizes, ratioWidth / (float) ratioHeight, StreamSizeSelector.DEFAULT_TARGET_PIXELS);
+    }
+
+    @Test
+    public void picksSmallestSizeCoveringTheBudgetForTheRatio() {
+        assertEquals(new StreamSize(1920, 1080), select(PIXEL_6, 16, 9));
+        assertEquals(new StreamSize(1920, 1440), select(PIXEL_6, 4, 3));
+    }
+
+    @Test
+    public void portraitAndLandscapeRatiosAreTheSame() {
+        assertEquals(select(PIXEL_6, 4, 3), select(PIXEL_6, 3, 4));
+        assertEquals(select(PIXEL_6, 2, 1), select(PIXEL_6, 1, 2));
+    }
+
+    @Test
+    public void fallsBackToClosestShape() {
+        // No square mode, 4:3 is the nearest shape
+        assertEquals(new StreamSize(1920, 1440), select(PIXEL_6, 1, 1));
+        // No 2:1 mode, 16:9 is the nearest shape
+        assertEquals(new StreamSize(1920, 1080), select(PIXEL_6, 2, 1));
+    }
+
+    @Test
+    public void toleratesPaddedSizes() {
+        assertEquals(new StreamSize(1920, 1088), select(BUDGET, 16, 9));
+    }
+
+    @Test
+    public void takesLargestWhenNothingCoversTheBudget() {
+        assertEquals(new StreamSize(960, 720), select(BUDGET, 4, 3));
+        assertEquals(new StreamSize(4032, 3024),
+                StreamSizeSelector.select(PIXEL_6, 4 / 3f, 48_000_000L));
+    }
+
+    @Test
+    public void smallBudgetPicksSmallSize() {
+        assertEquals(new StreamSize(640, 360), StreamSizeSelector.select(PIXEL_6, 16 / 9f, 640 * 360));
+    }
+
+    @Test
+    public void orderOfTheListDoesNotMatter() {
+        List<StreamSize> shuffled = new ArrayList<>(PIXEL_6);
+        Collections.reverse(shuffled);
+        assertEquals(select(PIXEL_6, 16, 9), select(shuffled, 16, 9));
+        assertNull(StreamSizeSelector.select(Collections.emptyList(), 1.0f, 1));
+    }
+
+    @Test
+    public void landscapeSizesFollowEitherOrientation() {
+        assertEquals(new StreamSize(1280, 720), StreamSize.landscape(1280, 16 / 9f));
+        assertEquals(new StreamSize(1280, 960), StreamSize.landscape(1280, 3 / 4f));
+        assertEquals(new StreamSize(1280, 1280), StreamSize.landscape(1280, 1));
+        // 1280 / 2.1 rounds to 610
+        assertEquals(new StreamSize(1280, 610), StreamSize.landscape(1280, 2.1f));
+    }
+}
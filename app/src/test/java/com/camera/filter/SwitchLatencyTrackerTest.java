@@ -0,0 +1,69 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SwitchLatencyTrackerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void measuresTapToFirstFrameOfNewSession() {
+        SwitchLatencyTracker tracker = new SwitchLatencyTracker();
+        List<long[]> reported = new ArrayList<>();
+        tracker.setListener((session, frame) -> reported.add(new long[]{session, frame}));
+
+        tracker.onSwitchRequested(100 * MS);
+        // Still queued from the old camera
+        assertEquals(-1, tracker.onFrame(110 * MS));
+        assertTrue(tracker.isSwitching());
+
+        tracker.onSessionStarted(280 * MS);
+        assertEquals(230 * MS, tracker.onFrame(330 * MS));
+
+        assertFalse(tracker.isSwitching());
+        assertEquals(1, reported.size());
+        assertEquals(180 * MS, reported.get(0)[0]);
+        assertEquals(230 * MS, reported.get(0)[1]);
+        // Later frames are not switches
+        assertEquals(-1, tracker.onFrame(360 * MS));
+    }
+
+    @Test
+    public void sessionWithoutTapIsIgnored() {
+        SwitchLatencyTracker tracker = new SwitchLatencyTracker();
+        tracker.onSessionStarted(10 * MS);
+        assertEquals(-1, tracker.onFrame(20 * MS));
+        assertEquals(0, tracker.getSwitchCount());
+        assertEquals(-1, tracker.getPercentileNanos(50));
+    }
+
+    @Test
+    public void secondTapRestartsMeasurement() {
+        SwitchLatencyTracker tracker = new SwitchLatencyTracker();
+        tracker.onSwitchRequested(0);
+        tracker.onSwitchRequested(50 * MS);
+        tracker.onSessionStarted(200 * MS);
+        assertEquals(200 * MS, tracker.onFrame(250 * MS));
+    }
+
+    @Test
+    public void percentilesCoverRecentSwitches() {
+        SwitchLatencyTracker tracker = new SwitchLatencyTracker();
+        for (int i = 1; i <= SwitchLatencyTracker.HISTORY_SIZE + 8; i++) {
+            long tap = i * 1000 * MS;
+            tracker.onSwitchRequested(tap);
+            tracker.onSessionStarted(tap + i * MS);
+            tracker.onFrame(tap + i * 10 * MS);
+        }
+        // Only switches 9 to 40 are kept
+        assertEquals(SwitchLatencyTracker.HISTORY_SIZE + 8, tracker.getSwitchCount());
+        assertEquals(90 * MS, tracker.getPercentileNanos(0));
+        assertEquals(400 * MS, tracker.getPercentileNanos(100));
+        assertEquals(240 * MS, tracker.getPercentileNanos(50));
+    }
+}
@@ -0,0 +1,73 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class TestPatternsTest {
+
+    private static final int WIDTH = 64;
+
+    private static final int HEIGHT = 36;
+
+    private static int[] render(TestPatterns.Pattern pattern, long frameIndex) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        TestPatterns.render(pattern, frameIndex, pixels, WIDTH, HEIGHT);
+        return pixels;
+    }
+
+    @Test
+    public void everyPatternIsDeterministicAndOpaque() {
+        for (TestPatterns.Pattern pattern : TestPatterns.Pattern.values()) {
+            int[] pixels = render(pattern, 7);
+            assertArrayEquals(pattern.name(), pixels, render(pattern, 7));
+            for (int pixel : pixels) {
+                assertEquals(pattern.name(), 0xff, pixel >>> 24);
+            }
+        }
+    }
+
+    @Test
+    public void colorBarsAreStatic() {
+        int[] pixels = render(TestPatterns.Pattern.COLOR_BARS, 0);
+        assertArrayEquals(pixels, render(TestPatterns.Pattern.COLOR_BARS, 100));
+        assertEquals(0xffc0c0c0, pixels[0]);
+        assertEquals(0xff000000, pixels[WIDTH - 1]);
+        // Eight bars of eight columns each
+        assertEquals(0xffc0c000, pixels[8]);
+        assertEquals(pixels[8], pixels[(HEIGHT - 1) * WIDTH + 15]);
+    }
+
+    @Test
+    public void gradientSpansTheFullRange() {
+        int[] pixels = render(TestPatterns.Pattern.GRADIENT, 3);
+        assertEquals(0xff000003, pixels[0]);
+        assertEquals(0xffff0003, pixels[WIDTH - 1]);
+        assertEquals(0xffffff03, pixels[WIDTH * HEIGHT - 1]);
+    }
+
+    @Test
+    public void checkerboardMovesOnePixelPerFrame() {
+        int[] first = render(TestPatterns.Pattern.MOVING_CHECKERBOARD, 0);
+        int[] next = render(TestPatterns.Pattern.MOVING_CHECKERBOARD, 1);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x + 1 < WIDTH; x++) {
+                assertEquals(first[y * WIDTH + x + 1], next[y * WIDTH + x]);
+            }
+        }
+        // Repeats after two squares
+        assertArrayEquals(first, render(TestPatterns.Pattern.MOVING_CHECKERBOARD, 2 * TestPatterns.CHECKER_SIZE));
+    }
+
+    @Test
+    public void noiseChangesEveryFrame() {
+        assertFalse(Arrays.equals(render(TestPatterns.Pattern.NOISE, 0), render(TestPatterns.Pattern.NOISE, 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSmallBuffers() {
+        TestPatterns.render(TestPatterns.Pattern.GRADIENT, 0, new int[WIDTH], WIDTH, HEIGHT);
+    }
+}
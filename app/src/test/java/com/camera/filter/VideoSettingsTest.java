@@ -0,0 +1,47 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VideoSettingsTest {
+
+    @Test
+    public void keepsSmallSurfacesAtEvenSizes() {
+        VideoSettings settings = VideoSettings.forSurface(1081, 1441, 1920, 30);
+
+        assertEquals(1080, settings.getWidth());
+        assertEquals(1440, settings.getHeight());
+        assertEquals(30, settings.getFrameRate());
+    }
+
+    @Test
+    public void scalesTheLongSideDown() {
+        VideoSettings settings = VideoSettings.forSurface(1440, 2560, 1920, 30);
+
+        assertEquals(1080, settings.getWidth());
+        assertEquals(1920, settings.getHeight());
+    }
+
+    @Test
+    public void bitRateFollowsPixelsAndFrameRate() {
+        VideoSettings full = VideoSettings.forSurface(1920, 1080, 1920, 30);
+        VideoSettings half = VideoSettings.forSurface(1920, 1080, 1920, 15);
+
+        assertEquals(12_441_600, full.getBitRate());
+        assertEquals(full.getBitRate() / 2, half.getBitRate());
+    }
+
+    @Test
+    public void tinySurfacesStillEncode() {
+        VideoSettings settings = VideoSettings.forSurface(1, 3000, 1920, 30);
+
+        assertEquals(2, settings.getWidth());
+        assertEquals(1920, settings.getHeight());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddSizes() {
+        new VideoSettings(1921, 1080, 1_000_000, 30);
+    }
+}
@@ -0,0 +1,37 @@
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmhImplementation(project(":filter-core"))
+    jmhImplementation(testFixtures(project(":filter-core")))
+}
+
+// ./gradlew :benchmark:jmh writes every score to build/results/jmh/results.json. Narrow a run with
+// -Pjmh.includes=FilterBenchmark -Pjmh.params=resolution=1920x1080|8000x6000,threads=4
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    // Short iterations keep a full run of every benchmark under an hour, the scores settle well within a second
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    // Two 48 MP int images are close to 400 MB
+    jvmArgs.set(listOf("-Xms4g", "-Xmx4g"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    project.findProperty("jmh.includes")?.let { includes.set(listOf(it.toString())) }
+    project.findProperty("jmh.params")?.let { value ->
+        benchmarkParameters.set(value.toString().split(",").associate { parameter ->
+            val (name, values) = parameter.split("=", limit = 2)
+            name to objects.listProperty(String::class.java).value(values.split("|"))
+        })
+    }
+}
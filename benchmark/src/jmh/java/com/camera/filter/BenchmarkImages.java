@@ -0,0 +1,36 @@
+package com.camera.filter;
+
+// Shared inputs of the benchmarks. Resolutions are "WIDTHxHEIGHT" JMH parameters, by default 720p,
+// 1080p, a 12 MP still and a 48 MP still.
+final class BenchmarkImages {
+
+    private BenchmarkImages() {
+    }
+
+    static int width(String resolution) {
+        return Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+    }
+
+    static int height(String resolution) {
+        return Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+    }
+
+    // Opaque pixels with some structure, so encoders and filters do not see a flat image
+    static int[] argb(int width, int height) {
+        int[] pixels = TestImages.noise(width * height, 42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = (pixels[y * width + x] >>> 28) - 8;
+                int r = clamp(x * 255 / width + noise);
+                int g = clamp(y * 255 / height + noise);
+                int b = clamp(((x / 64 + y / 64) & 1) * 192 + noise);
+                pixels[y * width + x] = 0xff000000 | r << 16 | g << 8 | b;
+            }
+        }
+        return pixels;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
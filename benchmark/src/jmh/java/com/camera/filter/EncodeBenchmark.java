@@ -0,0 +1,105 @@
+package com.camera.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+// Encoding a filtered capture into memory. Bitmap.compress only exists on Android, so this measures
+// the ImageIO encoders filter-cli writes with. Each invocation encodes one image per thread at the
+// same time, like a save pipeline with `threads` workers, so the score is the time per batch.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EncodeBenchmark {
+
+    // The quality MainActivity saves captures at
+    private static final float JPEG_QUALITY = 0.95f;
+
+    @Param({"jpg", "png"})
+    public String format;
+
+    @Param({"1280x720", "1920x1080", "4000x3000", "8000x6000"})
+    public String resolution;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private BufferedImage image;
+
+    private ExecutorService executor;
+
+    private final List<Callable<Integer>> tasks = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        int width = BenchmarkImages.width(resolution);
+        int height = BenchmarkImages.height(resolution);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(BenchmarkImages.argb(width, height), 0, pixels, 0, pixels.length);
+        executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            tasks.add(this::encode);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public int encodeBatch() throws IOException, InterruptedException, ExecutionException {
+        if (threads == 1) {
+            return encode();
+        }
+        int bytes = 0;
+        for (Future<Integer> future : executor.invokeAll(tasks)) {
+            bytes += future.get();
+        }
+        return bytes;
+    }
+
+    // Returns the encoded size
+    private int encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,65 @@
+package com.camera.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// CpuFilterEngine on one FilterType of each family, banded over a pool of `threads` workers. The
+// families share their code paths, so these stand in for the rest. Run any others with e.g.
+// -Pjmh.params=filterType=LOMO_BLUE|CUBE_NEON.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FilterBenchmark {
+
+    @Param({"NONE", "LOMO_CLASSIC", "RETRO_SEPIA", "CUBE_COLOR_ENHANCE", "BW_CLASSIC", "VIGNETTE_OVAL"})
+    public FilterType filterType;
+
+    @Param({"1280x720", "1920x1080", "4000x3000", "8000x6000"})
+    public String resolution;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private int width;
+
+    private int height;
+
+    private int[] src;
+
+    private int[] dst;
+
+    private ForkJoinPool pool;
+
+    private CpuFilterEngine engine;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkImages.width(resolution);
+        height = BenchmarkImages.height(resolution);
+        src = BenchmarkImages.argb(width, height);
+        dst = new int[src.length];
+        pool = new ForkJoinPool(threads);
+        engine = new CpuFilterEngine(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] apply() {
+        engine.apply(filterType, src, dst, width, height);
+        return dst;
+    }
+}
@@ -0,0 +1,86 @@
+package com.camera.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Replay side of the raw recording format: fetching a random I420 frame through the memory mapped
+// reader, copying it out, and converting it to ARGB on the CPU with PixelConverter, the conversion
+// RecordingFrameSource's shader reproduces on the GPU
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FrameRecordingBenchmark {
+
+    private static final int FRAMES = 8;
+
+    @Param({"1280x720", "1920x1080", "4000x3000", "8000x6000"})
+    public String resolution;
+
+    private File file;
+
+    private FrameRecordingReader reader;
+
+    private byte[] copy;
+
+    private int[] argb;
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int width = BenchmarkImages.width(resolution);
+        int height = BenchmarkImages.height(resolution);
+        file = File.createTempFile("benchmark", ".frames");
+        int frameBytes = FramePixelFormat.I420.frameBytes(width, height);
+        ByteBuffer frame = ByteBuffer.allocate(frameBytes);
+        try (FrameRecordingWriter writer = new FrameRecordingWriter(file, FramePixelFormat.I420, width, height)) {
+            for (int i = 0; i < FRAMES; i++) {
+                frame.clear();
+                for (int j = 0; j < frameBytes; j += 64) {
+                    frame.put(j, (byte) (i * 31 + j));
+                }
+                writer.write(frame, i * 33_333_333L);
+            }
+        }
+        reader = FrameRecordingReader.open(file);
+        copy = new byte[frameBytes];
+        argb = new int[width * height];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        file.delete();
+    }
+
+    // Frames in a stride that skips around the file, so consecutive reads never share a frame
+    private int nextFrame() {
+        next = (next + 5) % FRAMES;
+        return next;
+    }
+
+    @Benchmark
+    public byte[] readFrame() throws IOException {
+        reader.getFrame(nextFrame()).get(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public int[] readAndConvertFrame() throws IOException {
+        PixelConverter.i420ToArgb(reader.getFrame(nextFrame()), argb, reader.getWidth(), reader.getHeight());
+        return argb;
+    }
+}
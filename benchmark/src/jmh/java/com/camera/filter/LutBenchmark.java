@@ -0,0 +1,93 @@
+package com.camera.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// Trilinear Lut3D lookups over a whole image against evaluating the color part of the filter
+// directly, plus the one-off cost of baking a LUT of each supported size. Each benchmark only
+// takes the states whose parameters it uses, so JMH does not repeat it over the others.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LutBenchmark {
+
+    private static final FilterType FILTER_TYPE = FilterType.LOMO_CLASSIC;
+
+    @State(Scope.Thread)
+    public static class Image {
+
+        @Param({"1280x720", "1920x1080", "4000x3000", "8000x6000"})
+        public String resolution;
+
+        int[] src;
+
+        int[] dst;
+
+        @Setup
+        public void setUp() {
+            src = BenchmarkImages.argb(BenchmarkImages.width(resolution), BenchmarkImages.height(resolution));
+            dst = new int[src.length];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lut {
+
+        @Param({"17", "33", "64"})
+        public int lutSize;
+
+        Lut3D lut;
+
+        @Setup
+        public void setUp() {
+            lut = LutBaker.bake(FILTER_TYPE, lutSize);
+        }
+    }
+
+    @Benchmark
+    public int[] sample(Image image, Lut lut) {
+        int[] src = image.src;
+        int[] dst = image.dst;
+        Lut3D lut3D = lut.lut;
+        float[] rgb = new float[3];
+        for (int i = 0; i < src.length; i++) {
+            int pixel = src[i];
+            lut3D.sample(((pixel >> 16) & 0xff) / 255f, ((pixel >> 8) & 0xff) / 255f, (pixel & 0xff) / 255f, rgb);
+            dst[i] = pack(pixel, rgb);
+        }
+        return dst;
+    }
+
+    @Benchmark
+    public int[] direct(Image image) {
+        int[] src = image.src;
+        int[] dst = image.dst;
+        float[] rgb = new float[3];
+        for (int i = 0; i < src.length; i++) {
+            int pixel = src[i];
+            rgb[0] = ((pixel >> 16) & 0xff) / 255f;
+            rgb[1] = ((pixel >> 8) & 0xff) / 255f;
+            rgb[2] = (pixel & 0xff) / 255f;
+            CpuFilters.applyColor(FILTER_TYPE, rgb);
+            dst[i] = pack(pixel, rgb);
+        }
+        return dst;
+    }
+
+    @Benchmark
+    public Lut3D bake(Lut lut) {
+        return LutBaker.bake(FILTER_TYPE, lut.lutSize);
+    }
+
+    private static int pack(int pixel, float[] rgb) {
+        return (pixel & 0xff000000) | CpuFilters.toByte(rgb[0]) << 16 | CpuFilters.toByte(rgb[1]) << 8
+                | CpuFilters.toByte(rgb[2]);
+    }
+}
@@ -0,0 +1,102 @@
+package com.camera.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// OverlayCompositor blending a 1024 x 1024 overlay with mixed alpha over the whole image, split
+// into one band of rows per thread the way StillProcessor composites tiles
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OverlayBenchmark {
+
+    private static final int OVERLAY_SIZE = 1024;
+
+    @Param({"1280x720", "1920x1080", "4000x3000", "8000x6000"})
+    public String resolution;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private int width;
+
+    private int height;
+
+    private int[] overlay;
+
+    private int[][] bands;
+
+    private int[] bandRows;
+
+    private ExecutorService executor;
+
+    private final List<Callable<Void>> tasks = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkImages.width(resolution);
+        height = BenchmarkImages.height(resolution);
+        // Transparent, half and fully opaque areas, like a frame or sticker overlay
+        overlay = BenchmarkImages.argb(OVERLAY_SIZE, OVERLAY_SIZE);
+        for (int i = 0; i < overlay.length; i++) {
+            int alpha = (i / OVERLAY_SIZE) * 3 / OVERLAY_SIZE * 0x80;
+            overlay[i] = Math.min(alpha, 0xff) << 24 | (overlay[i] & 0xffffff);
+        }
+        int[] image = BenchmarkImages.argb(width, height);
+        bands = new int[threads][];
+        bandRows = new int[threads + 1];
+        for (int i = 0; i < threads; i++) {
+            bandRows[i + 1] = height * (i + 1) / threads;
+            int rows = bandRows[i + 1] - bandRows[i];
+            bands[i] = new int[width * rows];
+            System.arraycopy(image, bandRows[i] * width, bands[i], 0, bands[i].length);
+        }
+        executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            int band = i;
+            tasks.add(() -> {
+                composite(band);
+                return null;
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    // Blending into the previous result keeps the work per pixel the same in every invocation
+    @Benchmark
+    public int[][] composite() throws InterruptedException, ExecutionException {
+        if (threads == 1) {
+            composite(0);
+            return bands;
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        return bands;
+    }
+
+    private void composite(int band) {
+        OverlayCompositor.composite(bands[band], 0, bandRows[band], width, bandRows[band + 1] - bandRows[band],
+                width, height, overlay, OVERLAY_SIZE, OVERLAY_SIZE, 0.8f);
+    }
+}
@@ -0,0 +1,71 @@
+package com.camera.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+// RGBA to ARGB swizzle and vertical flip of a read back frame: the per pixel loop captureBitmap
+// used to run against PixelConverter on arrays and on the direct buffer glReadPixels fills
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SwizzleBenchmark {
+
+    @Param({"1280x720", "1920x1080", "4000x3000", "8000x6000"})
+    public String resolution;
+
+    private int width;
+
+    private int height;
+
+    private int[] rgba;
+
+    private IntBuffer direct;
+
+    private int[] argb;
+
+    @Setup
+    public void setUp() {
+        width = BenchmarkImages.width(resolution);
+        height = BenchmarkImages.height(resolution);
+        rgba = BenchmarkImages.argb(width, height);
+        direct = ByteBuffer.allocateDirect(rgba.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        direct.put(rgba).position(0);
+        argb = new int[rgba.length];
+    }
+
+    @Benchmark
+    public int[] legacyLoop() {
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int pix = rgba[i * width + j];
+                int pb = (pix >> 16) & 0xff;
+                int pr = (pix << 16) & 0x00ff0000;
+                argb[(height - i - 1) * width + j] = (pix & 0xff00ff00) | pr | pb;
+            }
+        }
+        return argb;
+    }
+
+    @Benchmark
+    public int[] converterArray() {
+        PixelConverter.rgbaToArgbFlipped(rgba, argb, width, height);
+        return argb;
+    }
+
+    @Benchmark
+    public int[] converterDirectBuffer() {
+        PixelConverter.rgbaToArgbFlipped(direct, argb, width, height);
+        return argb;
+    }
+}
@@ -0,0 +1,17 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+application {
+    mainClass.set("com.camera.filter.BatchFilterTool")
+}
+
+dependencies {
+    implementation(project(":filter-core"))
+    testImplementation(libs.junit)
+}
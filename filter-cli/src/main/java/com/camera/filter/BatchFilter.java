@@ -0,0 +1,288 @@
+package com.camera.filter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+// Applies a FilterType and an optional overlay to a batch of image files. Images run as tasks on a
+// work-stealing pool that the CpuFilterEngine also splits each image's rows on, so a few large
+// images keep every worker busy as well as many small ones. Images are only decoded once their
+// estimated size fits the memory budget, the caller blocks until enough in-flight images finish.
+public class BatchFilter {
+
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 512L * 1024 * 1024;
+
+    // The decoded image plus the int ARGB copy that is filtered and encoded
+    private static final int BYTES_PER_PIXEL = 8;
+
+    // Semaphore permits are KB so budgets beyond 2 GB still fit in an int
+    private static final int PERMIT_BYTES = 1024;
+
+    public interface Listener {
+        void onImageDone(File input, File output, int width, int height, long latencyNanos);
+
+        void onImageFailed(File input, Exception error);
+    }
+
+    private final FilterType filterType;
+
+    private final int[] overlay;
+
+    private final int overlayWidth;
+
+    private final int overlayHeight;
+
+    private final float overlayAlpha;
+
+    private final ForkJoinPool pool;
+
+    private final CpuFilterEngine engine;
+
+    private final int budgetPermits;
+
+    private final Semaphore memory;
+
+    // Guarded by this
+    private long reservedBytes = 0;
+
+    private long peakReservedBytes = 0;
+
+    public BatchFilter(FilterType filterType, BufferedImage overlay, float overlayAlpha, int threads,
+                       long memoryBudgetBytes) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads must be positive: " + threads);
+        }
+        if (memoryBudgetBytes < PERMIT_BYTES) {
+            throw new IllegalArgumentException("Memory budget too small: " + memoryBudgetBytes);
+        }
+        this.filterType = filterType;
+        if (overlay != null) {
+            overlayWidth = overlay.getWidth();
+            overlayHeight = overlay.getHeight();
+            this.overlay = overlay.getRGB(0, 0, overlayWidth, overlayHeight, null, 0, overlayWidth);
+        } else {
+            overlayWidth = 0;
+            overlayHeight = 0;
+            this.overlay = null;
+        }
+        this.overlayAlpha = overlayAlpha;
+        pool = new ForkJoinPool(threads);
+        engine = new CpuFilterEngine(pool);
+        budgetPermits = (int) Math.min(Integer.MAX_VALUE, memoryBudgetBytes / PERMIT_BYTES);
+        memory = new Semaphore(budgetPermits);
+    }
+
+    public static long imageBytes(int width, int height) {
+        return (long) width * height * BYTES_PER_PIXEL;
+    }
+
+    // Writes each input under the same name into outputDirectory and returns once all are done.
+    // A file that can not be read or written is reported to the listener and skipped.
+    public Report run(List<File> inputs, File outputDirectory, Listener listener) throws InterruptedException {
+        Report report = new Report();
+        List<Future<?>> pending = new ArrayList<>();
+        long start = System.nanoTime();
+        for (File input : inputs) {
+            int[] size;
+            try {
+                size = readSize(input);
+            } catch (IOException e) {
+                report.onFailed();
+                listener.onImageFailed(input, e);
+                continue;
+            }
+            // An image larger than the whole budget waits until it can run alone
+            int permits = (int) Math.min(budgetPermits,
+                    (imageBytes(size[0], size[1]) + PERMIT_BYTES - 1) / PERMIT_BYTES);
+            memory.acquire(permits);
+            onReserved(permits);
+            File output = new File(outputDirectory, input.getName());
+            pending.add(pool.submit(() -> {
+                try {
+                    long begin = System.nanoTime();
+                    int[] processed = process(input, output);
+                    long latency = System.nanoTime() - begin;
+                    report.onDone(processed[0], processed[1], latency);
+                    listener.onImageDone(input, output, processed[0], processed[1], latency);
+                } catch (IOException | RuntimeException e) {
+                    report.onFailed();
+                    listener.onImageFailed(input, e);
+                } finally {
+                    onReleased(permits);
+                    memory.release(permits);
+                }
+            }));
+            pruneDone(pending);
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // Failures were already reported inside the task
+            }
+        }
+        report.onFinished(System.nanoTime() - start);
+        return report;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public synchronized long getPeakReservedBytes() {
+        return peakReservedBytes;
+    }
+
+    // Returns width and height
+    private int[] process(File input, File output) throws IOException {
+        BufferedImage decoded = ImageIO.read(input);
+        if (decoded == null) {
+            throw new IOException("No image reader for " + input.getName());
+        }
+        int width = decoded.getWidth();
+        int height = decoded.getHeight();
+        String format = formatName(output);
+        // JPEG has no alpha, writing an ARGB image to it fails
+        boolean alpha = decoded.getColorModel().hasAlpha() && !"jpg".equals(format);
+        BufferedImage result = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        decoded.getRGB(0, 0, width, height, pixels, 0, width);
+        // Only the ARGB copy is needed from here on, let the decoded one be collected
+        decoded = null;
+        engine.apply(filterType, pixels, pixels, width, height);
+        if (overlay != null) {
+            OverlayCompositor.composite(pixels, 0, 0, width, height, width, height,
+                    overlay, overlayWidth, overlayHeight, overlayAlpha);
+        }
+        if (!ImageIO.write(result, format, output)) {
+            throw new IOException("No image writer for " + format);
+        }
+        return new int[]{width, height};
+    }
+
+    // Reads just the header, the image is decoded once memory is reserved for it
+    static int[] readSize(File file) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+            if (stream == null) {
+                throw new IOException("Can not open " + file.getName());
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + file.getName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static String formatName(File file) {
+        String name = file.getName();
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return "jpeg".equals(extension) ? "jpg" : extension;
+    }
+
+    private synchronized void onReserved(int permits) {
+        reservedBytes += (long) permits * PERMIT_BYTES;
+        peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+    }
+
+    private synchronized void onReleased(int permits) {
+        reservedBytes -= (long) permits * PERMIT_BYTES;
+    }
+
+    // Keeps the list from growing with the whole batch, finished futures are of no further use
+    private static void pruneDone(List<Future<?>> pending) {
+        if (pending.size() >= 256) {
+            pending.removeIf(Future::isDone);
+        }
+    }
+
+    public static class Report {
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private int images = 0;
+
+        private int failures = 0;
+
+        private long pixels = 0;
+
+        private long wallNanos = 0;
+
+        synchronized void onDone(int width, int height, long latencyNanos) {
+            images++;
+            pixels += (long) width * height;
+            latencies.record(latencyNanos);
+        }
+
+        synchronized void onFailed() {
+            failures++;
+        }
+
+        synchronized void onFinished(long wallNanos) {
+            this.wallNanos = wallNanos;
+        }
+
+        public synchronized int getImages() {
+            return images;
+        }
+
+        public synchronized int getFailures() {
+            return failures;
+        }
+
+        public synchronized long getPixels() {
+            return pixels;
+        }
+
+        public synchronized long getWallNanos() {
+            return wallNanos;
+        }
+
+        // Per image time from decode to the written file, in ns
+        public synchronized long getLatencyPercentile(double percentile) {
+            return latencies.getPercentile(percentile);
+        }
+
+        public synchronized double getMeanLatency() {
+            return latencies.getMean();
+        }
+
+        public synchronized double getImagesPerSecond() {
+            return wallNanos == 0 ? 0 : images * 1e9 / wallNanos;
+        }
+
+        public synchronized double getMegapixelsPerSecond() {
+            return wallNanos == 0 ? 0 : pixels * 1e3 / wallNanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.ROOT,
+                    "%d images, %d failed in %.2f s: %.1f images/s, %.1f MP/s, latency mean %.1f ms, "
+                            + "p50 %.1f ms, p95 %.1f ms, max %.1f ms",
+                    images, failures, wallNanos / 1e9, getImagesPerSecond(), getMegapixelsPerSecond(),
+                    latencies.getMean() / 1e6, latencies.getPercentile(50) / 1e6,
+                    latencies.getPercentile(95) / 1e6, latencies.getMax() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.camera.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+// Command line front end of BatchFilter:
+//   filter-cli [--filter NAME|ID] [--overlay FILE] [--alpha 0..1] [--threads N] [--memory-mb MB] INPUT_DIR OUTPUT_DIR
+// Prints one line per image with its latency and a throughput summary at the end.
+public final class BatchFilterTool {
+
+    private static final String USAGE = "Usage: filter-cli [--filter NAME|ID] [--overlay FILE] [--alpha 0..1]"
+            + " [--threads N] [--memory-mb MB] INPUT_DIR OUTPUT_DIR";
+
+    private static final Set<String> EXTENSIONS = Set.of("jpg", "jpeg", "png", "bmp", "gif");
+
+    private BatchFilterTool() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        FilterType filterType = FilterType.NONE;
+        File overlayFile = null;
+        float alpha = 1f;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long memoryBudget = BatchFilter.DEFAULT_MEMORY_BUDGET_BYTES;
+        List<String> paths = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--filter":
+                        filterType = parseFilter(value(args, ++i));
+                        break;
+                    case "--overlay":
+                        overlayFile = new File(value(args, ++i));
+                        break;
+                    case "--alpha":
+                        alpha = Float.parseFloat(value(args, ++i));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--memory-mb":
+                        memoryBudget = Long.parseLong(value(args, ++i)) * 1024 * 1024;
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        paths.add(args[i]);
+                }
+            }
+            if (paths.size() != 2) {
+                throw new IllegalArgumentException("Expected an input and an output directory");
+            }
+            // BatchFilter rejects these too, but only once the images are listed
+            if (threads <= 0) {
+                throw new IllegalArgumentException("--threads must be positive: " + threads);
+            }
+            if (memoryBudget <= 0) {
+                throw new IllegalArgumentException("--memory-mb must be positive: " + memoryBudget / (1024 * 1024));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        File inputDirectory = new File(paths.get(0));
+        File outputDirectory = new File(paths.get(1));
+        List<File> inputs = listImages(inputDirectory);
+        if (inputs.isEmpty()) {
+            System.err.println("No images in " + inputDirectory);
+            System.exit(1);
+        }
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            System.err.println("Can not create " + outputDirectory);
+            System.exit(1);
+        }
+        BufferedImage overlay = null;
+        if (overlayFile != null) {
+            try {
+                overlay = ImageIO.read(overlayFile);
+            } catch (IOException e) {
+                System.err.println("Can not read overlay " + overlayFile + ": " + e.getMessage());
+            }
+            if (overlay == null) {
+                System.exit(1);
+            }
+        }
+
+        BatchFilter batch = new BatchFilter(filterType, overlay, alpha, threads, memoryBudget);
+        System.out.println(inputs.size() + " images, " + filterType.name() + ", " + threads + " threads, "
+                + memoryBudget / (1024 * 1024) + " MB in flight");
+        BatchFilter.Report report = batch.run(inputs, outputDirectory, new BatchFilter.Listener() {
+            @Override
+            public void onImageDone(File input, File output, int width, int height, long latencyNanos) {
+                System.out.printf(Locale.ROOT, "%s %dx%d %.1f ms%n", input.getName(), width, height,
+                        latencyNanos / 1e6);
+            }
+
+            @Override
+            public void onImageFailed(File input, Exception error) {
+                System.err.println(input.getName() + " failed: " + error);
+            }
+        });
+        batch.shutdown();
+        System.out.println(report);
+        System.exit(report.getFailures() == 0 ? 0 : 1);
+    }
+
+    // Enum name in any case, or the numeric id the app uses
+    static FilterType parseFilter(String value) {
+        try {
+            int id = Integer.parseInt(value);
+            FilterType filterType = FilterType.fromFilterType(id);
+            if (filterType.getFilterType() != id) {
+                throw new IllegalArgumentException("Unknown filter id " + id);
+            }
+            return filterType;
+        } catch (NumberFormatException e) {
+            return FilterType.valueOf(value.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    static List<File> listImages(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        List<File> images = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            if (file.isFile() && EXTENSIONS.contains(extension)) {
+                images.add(file);
+            }
+        }
+        return images;
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1] + " needs a value");
+        }
+        return args[index];
+    }
+}
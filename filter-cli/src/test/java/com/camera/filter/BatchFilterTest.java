@@ -0,0 +1,165 @@
+package com.camera.filter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class BatchFilterTest {
+
+    private File input;
+
+    private File output;
+
+    private final List<String> done = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+    private final BatchFilter.Listener listener = new BatchFilter.Listener() {
+        @Override
+        public void onImageDone(File input, File output, int width, int height, long latencyNanos) {
+            done.add(input.getName());
+        }
+
+        @Override
+        public void onImageFailed(File input, Exception error) {
+            failed.add(input.getName());
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        input = Files.createTempDirectory("batch-in").toFile();
+        output = Files.createTempDirectory("batch-out").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        delete(input);
+        delete(output);
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static BufferedImage image(int width, int height, int seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 7 + seed) % 256 << 16 | (y * 5 + seed) % 256 << 8 | (x + y) % 256);
+            }
+        }
+        return image;
+    }
+
+    private File write(String name, BufferedImage image) throws IOException {
+        File file = new File(input, name);
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    @Test
+    public void matchesTheEngineAndCompositor() throws Exception {
+        BufferedImage source = image(97, 61, 3);
+        List<File> inputs = List.of(write("a.png", source));
+        BufferedImage overlay = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < 8; i++) {
+            overlay.setRGB(i, i, 0x80ff00ff);
+        }
+        BatchFilter batch = new BatchFilter(FilterType.VIGNETTE_OVAL, overlay, 0.75f, 2,
+                BatchFilter.DEFAULT_MEMORY_BUDGET_BYTES);
+        BatchFilter.Report report = batch.run(inputs, output, listener);
+        batch.shutdown();
+
+        int[] expected = source.getRGB(0, 0, 97, 61, null, 0, 97);
+        new CpuFilterEngine().apply(FilterType.VIGNETTE_OVAL, expected, expected, 97, 61);
+        OverlayCompositor.composite(expected, 0, 0, 97, 61, 97, 61,
+                overlay.getRGB(0, 0, 8, 8, null, 0, 8), 8, 8, 0.75f);
+        BufferedImage result = ImageIO.read(new File(output, "a.png"));
+        assertArrayEquals(expected, result.getRGB(0, 0, 97, 61, null, 0, 97));
+        assertEquals(1, report.getImages());
+        assertEquals(97 * 61, report.getPixels());
+        assertTrue(report.getLatencyPercentile(50) > 0);
+    }
+
+    @Test
+    public void inFlightImagesStayWithinTheBudget() throws Exception {
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            inputs.add(write("image" + i + ".png", image(64, 64, i)));
+        }
+        // Room for two images at a time, with four threads that could take more
+        long budget = 2 * BatchFilter.imageBytes(64, 64) + 1024;
+        BatchFilter batch = new BatchFilter(FilterType.BW_CLASSIC, null, 1f, 4, budget);
+        BatchFilter.Report report = batch.run(inputs, output, listener);
+        batch.shutdown();
+
+        assertEquals(12, report.getImages());
+        assertEquals(12, done.size());
+        assertTrue(batch.getPeakReservedBytes() > 0);
+        assertTrue(batch.getPeakReservedBytes() <= budget);
+        assertEquals(12, BatchFilterTool.listImages(output).size());
+    }
+
+    @Test
+    public void imagesLargerThanTheBudgetStillRun() throws Exception {
+        List<File> inputs = List.of(write("big.png", image(200, 100, 0)), write("small.png", image(10, 10, 0)));
+        BatchFilter batch = new BatchFilter(FilterType.RETRO_SEPIA, null, 1f, 2, 4096);
+        BatchFilter.Report report = batch.run(inputs, output, listener);
+        batch.shutdown();
+
+        assertEquals(2, report.getImages());
+        assertEquals(4096, batch.getPeakReservedBytes());
+    }
+
+    @Test
+    public void skipsUnreadableFiles() throws Exception {
+        File broken = new File(input, "broken.png");
+        Files.write(broken.toPath(), new byte[]{1, 2, 3});
+        List<File> inputs = List.of(broken, write("fine.png", image(16, 16, 0)));
+        BatchFilter batch = new BatchFilter(FilterType.NONE, null, 1f, 1, BatchFilter.DEFAULT_MEMORY_BUDGET_BYTES);
+        BatchFilter.Report report = batch.run(inputs, output, listener);
+        batch.shutdown();
+
+        assertEquals(List.of("broken.png"), failed);
+        assertEquals(List.of("fine.png"), done);
+        assertEquals(1, report.getImages());
+        assertEquals(1, report.getFailures());
+    }
+
+    @Test
+    public void parsesFilterNamesAndIds() {
+        assertEquals(FilterType.LOMO_WARM, BatchFilterTool.parseFilter("lomo_warm"));
+        assertEquals(FilterType.BW_SOFT, BatchFilterTool.parseFilter("18"));
+        assertEquals(FilterType.NONE, BatchFilterTool.parseFilter("0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFilterIds() {
+        BatchFilterTool.parseFilter("99");
+    }
+
+    @Test
+    public void mapsExtensionsToImageIoFormats() {
+        assertEquals("jpg", BatchFilter.formatName(new File("a.JPEG")));
+        assertEquals("png", BatchFilter.formatName(new File("dir.x/b.png")));
+    }
+}
@@ -0,0 +1,130 @@
+package com.camera.filter;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs tasks on a fixed pool while capping how many may be queued or running at once
+public class BoundedExecutor {
+
+    public enum OverflowPolicy {
+        // submit() waits for a free slot, use from worker threads only
+        BLOCK,
+        // submit() returns an already failed future with a RejectedExecutionException
+        REJECT
+    }
+
+    private final ExecutorService executor;
+
+    private final Semaphore slots;
+
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BoundedExecutor(String name, int threads, int capacity, OverflowPolicy overflowPolicy) {
+        if (threads < 1 || capacity < threads) {
+            throw new IllegalArgumentException("Need at least one thread and capacity >= threads");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        slots = new Semaphore(capacity);
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        // The semaphore bounds the queue, so the queue itself can stay unbounded
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!acquireSlot()) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Queue full, " + capacity + " tasks pending"));
+            return future;
+        }
+        try {
+            executor.execute(() -> {
+                T result = null;
+                Throwable error = null;
+                try {
+                    result = task.call();
+                } catch (Throwable e) {
+                    error = e;
+                }
+                // Free the slot before completing so dependent stages can submit again right away
+                slots.release();
+                if (error == null) {
+                    completed.incrementAndGet();
+                    future.complete(result);
+                } else {
+                    failed.incrementAndGet();
+                    future.completeExceptionally(error);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            rejected.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private boolean acquireSlot() {
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            return slots.tryAcquire();
+        }
+        try {
+            slots.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Queued plus running tasks
+    public int getPendingCount() {
+        return capacity - slots.availablePermits();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    // Lets queued tasks finish but accepts no new ones
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,113 @@
+package com.camera.filter;
+
+import java.util.Arrays;
+
+// Separable box blur over all four channels with clamp to edge sampling. The halo is the radius.
+// The horizontal pass runs in place over every source row including the halo, so the vertical
+// pass sees blurred context and the only extra memory is one row and the column sums.
+public class BoxBlurKernel implements TileKernel {
+
+    private final int radius;
+
+    // Copy of the row being blurred, reused between bands
+    private int[] row = new int[0];
+
+    // A, R, G, B column sums of the vertical pass
+    private int[] sums = new int[0];
+
+    public BoxBlurKernel(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must not be negative: " + radius);
+        }
+        this.radius = radius;
+    }
+
+    @Override
+    public int getHalo() {
+        return radius;
+    }
+
+    // One row copy and four column sums
+    @Override
+    public long scratchBytes(int width) {
+        return 5L * width * 4;
+    }
+
+    // What the scratch arrays actually take so far
+    long getAllocatedScratchBytes() {
+        return (row.length + (long) sums.length) * 4;
+    }
+
+    @Override
+    public void apply(int[] src, int[] dst, int width, int outRows, int firstRow, int imageHeight) {
+        int srcRows = outRows + 2 * radius;
+        if (row.length < width) {
+            row = new int[width];
+        }
+        for (int y = 0; y < srcRows; y++) {
+            System.arraycopy(src, y * width, row, 0, width);
+            blurRow(row, src, y * width, width);
+        }
+        // Vertical running sums per column, row by row so memory is read in order
+        int taps = 2 * radius + 1;
+        int half = taps / 2;
+        if (sums.length < 4 * width) {
+            sums = new int[4 * width];
+        }
+        Arrays.fill(sums, 0, 4 * width, 0);
+        for (int i = 0; i < taps; i++) {
+            addRow(src, i * width, width, 1);
+        }
+        for (int y = 0; y < outRows; y++) {
+            int out = y * width;
+            for (int x = 0, s4 = 0; x < width; x++, s4 += 4) {
+                dst[out + x] = pack(sums[s4], sums[s4 + 1], sums[s4 + 2], sums[s4 + 3], taps, half);
+            }
+            if (y + 1 < outRows) {
+                addRow(src, y * width, width, -1);
+                addRow(src, (y + taps) * width, width, 1);
+            }
+        }
+    }
+
+    private void addRow(int[] src, int offset, int width, int sign) {
+        for (int x = 0, s4 = 0; x < width; x++, s4 += 4) {
+            int pixel = src[offset + x];
+            sums[s4] += sign * (pixel >>> 24);
+            sums[s4 + 1] += sign * ((pixel >> 16) & 0xff);
+            sums[s4 + 2] += sign * ((pixel >> 8) & 0xff);
+            sums[s4 + 3] += sign * (pixel & 0xff);
+        }
+    }
+
+    // Running sum along one row of src into dst at offset, edge pixels repeat past both ends
+    private void blurRow(int[] src, int[] dst, int offset, int width) {
+        int taps = 2 * radius + 1;
+        int half = taps / 2;
+        int a = 0, r = 0, g = 0, b = 0;
+        for (int i = -radius; i <= radius; i++) {
+            int pixel = src[clamp(i, width)];
+            a += pixel >>> 24;
+            r += (pixel >> 16) & 0xff;
+            g += (pixel >> 8) & 0xff;
+            b += pixel & 0xff;
+        }
+        for (int x = 0; x < width; x++) {
+            dst[offset + x] = pack(a, r, g, b, taps, half);
+            int leaving = src[clamp(x - radius, width)];
+            int entering = src[clamp(x + radius + 1, width)];
+            a += (entering >>> 24) - (leaving >>> 24);
+            r += ((entering >> 16) & 0xff) - ((leaving >> 16) & 0xff);
+            g += ((entering >> 8) & 0xff) - ((leaving >> 8) & 0xff);
+            b += (entering & 0xff) - (leaving & 0xff);
+        }
+    }
+
+    private static int pack(int a, int r, int g, int b, int taps, int half) {
+        return ((a + half) / taps) << 24 | ((r + half) / taps) << 16 | ((g + half) / taps) << 8 | (b + half) / taps;
+    }
+
+    private static int clamp(int x, int width) {
+        return x < 0 ? 0 : x >= width ? width - 1 : x;
+    }
+}
@@ -0,0 +1,154 @@
+package com.camera.filter;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// LRU map bounded by the total size of its values rather than their count
+public class BudgetLruCache<K, V> {
+
+    public interface Sizer<V> {
+        long sizeOf(V value);
+    }
+
+    public interface EvictionListener<K, V> {
+        // Called without the cache lock held, for evicted, replaced and removed entries
+        void onEvicted(K key, V value);
+    }
+
+    private final long budget;
+
+    private final Sizer<V> sizer;
+
+    private final EvictionListener<K, V> evictionListener;
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long evictions = 0;
+
+    public BudgetLruCache(long budget, Sizer<V> sizer) {
+        this(budget, sizer, null);
+    }
+
+    public BudgetLruCache(long budget, Sizer<V> sizer, EvictionListener<K, V> evictionListener) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + budget);
+        }
+        this.budget = budget;
+        this.sizer = sizer;
+        this.evictionListener = evictionListener;
+    }
+
+    public V get(K key) {
+        synchronized (this) {
+            V value = entries.get(key);
+            if (value != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return value;
+        }
+    }
+
+    public boolean contains(K key) {
+        synchronized (this) {
+            return entries.containsKey(key);
+        }
+    }
+
+    // A value larger than the whole budget is not kept and is handed straight to the listener
+    public void put(K key, V value) {
+        List<Map.Entry<K, V>> evicted = new ArrayList<>();
+        synchronized (this) {
+            V previous = entries.remove(key);
+            if (previous != null) {
+                size -= sizer.sizeOf(previous);
+                if (previous != value) {
+                    evicted.add(new AbstractMap.SimpleImmutableEntry<>(key, previous));
+                }
+            }
+            entries.put(key, value);
+            size += sizer.sizeOf(value);
+            Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+            while (size > budget && iterator.hasNext()) {
+                Map.Entry<K, V> eldest = iterator.next();
+                iterator.remove();
+                size -= sizer.sizeOf(eldest.getValue());
+                evictions++;
+                evicted.add(new AbstractMap.SimpleImmutableEntry<>(eldest.getKey(), eldest.getValue()));
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    public V remove(K key) {
+        V value;
+        synchronized (this) {
+            value = entries.remove(key);
+            if (value == null) {
+                return null;
+            }
+            size -= sizer.sizeOf(value);
+        }
+        if (evictionListener != null) {
+            evictionListener.onEvicted(key, value);
+        }
+        return value;
+    }
+
+    public void clear() {
+        List<Map.Entry<K, V>> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>(entries.size());
+            for (Map.Entry<K, V> entry : entries.entrySet()) {
+                evicted.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            }
+            entries.clear();
+            size = 0;
+        }
+        notifyEvicted(evicted);
+    }
+
+    private void notifyEvicted(List<Map.Entry<K, V>> evicted) {
+        if (evictionListener == null) {
+            return;
+        }
+        for (Map.Entry<K, V> entry : evicted) {
+            evictionListener.onEvicted(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public synchronized int count() {
+        return entries.size();
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
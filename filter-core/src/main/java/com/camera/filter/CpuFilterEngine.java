@@ -0,0 +1,108 @@
+package com.camera.filter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Applies a FilterType to packed ARGB images without a GL context, split into row bands
+// that run on a fork/join pool
+public class CpuFilterEngine {
+
+    private static final int MIN_BAND_PIXELS = 16 * 1024;
+
+    private final ForkJoinPool pool;
+
+    public CpuFilterEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public CpuFilterEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // src and dst may be the same array
+    public void apply(FilterType filterType, int[] src, int[] dst, int width, int height) {
+        checkSize(src, dst, width, height);
+        if (filterType == FilterType.NONE) {
+            if (src != dst) System.arraycopy(src, 0, dst, 0, width * height);
+            return;
+        }
+        invoke(filterType, src, dst, width, height, 0, height);
+    }
+
+    // Filters rows of a taller image in place. pixels holds `rows` rows starting at image row
+    // firstRow, position dependent terms use the position in the whole totalHeight rows.
+    public void applyBand(FilterType filterType, int[] pixels, int width, int rows, int firstRow, int totalHeight) {
+        checkSize(pixels, pixels, width, rows);
+        if (filterType == FilterType.NONE) {
+            return;
+        }
+        invoke(filterType, pixels, pixels, width, rows, firstRow, totalHeight);
+    }
+
+    private void invoke(FilterType filterType, int[] src, int[] dst, int width, int rows, int firstRow, int totalHeight) {
+        int minRows = Math.max(1, MIN_BAND_PIXELS / Math.max(1, width));
+        // A few bands per worker keeps the pool balanced when some bands run slower
+        int bandRows = Math.max(minRows, rows / (pool.getParallelism() * 4) + 1);
+        pool.invoke(new BandTask(filterType, src, dst, width, 0, rows, firstRow, totalHeight, bandRows));
+    }
+
+    // Single threaded version, also used for each band. Rows are in [fromRow, toRow).
+    public static void applyRows(FilterType filterType, int[] src, int[] dst, int width, int height,
+                                 int fromRow, int toRow) {
+        applyRows(filterType, src, dst, width, fromRow, toRow, 0, height);
+    }
+
+    // Row y of the arrays is row firstRow + y of an image totalHeight rows high
+    private static void applyRows(FilterType filterType, int[] src, int[] dst, int width,
+                                  int fromRow, int toRow, int firstRow, int totalHeight) {
+        float[] scratch = new float[3];
+        for (int y = fromRow; y < toRow; y++) {
+            CpuFilters.applyRow(filterType, src, dst, y * width, width, (firstRow + y + 0.5f) / totalHeight, scratch);
+        }
+    }
+
+    private static void checkSize(int[] src, int[] dst, int width, int height) {
+        long size = (long) width * height;
+        if (width <= 0 || height <= 0 || src.length < size || dst.length < size) {
+            throw new IllegalArgumentException("Buffers too small for " + width + "x" + height);
+        }
+    }
+
+    private static class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FilterType filterType;
+        private final int[] src;
+        private final int[] dst;
+        private final int width;
+        private final int fromRow;
+        private final int toRow;
+        private final int firstRow;
+        private final int totalHeight;
+        private final int bandRows;
+
+        BandTask(FilterType filterType, int[] src, int[] dst, int width, int fromRow, int toRow,
+                 int firstRow, int totalHeight, int bandRows) {
+            this.filterType = filterType;
+            this.src = src;
+            this.dst = dst;
+            this.width = width;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.firstRow = firstRow;
+            this.totalHeight = totalHeight;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandRows) {
+                applyRows(filterType, src, dst, width, fromRow, toRow, firstRow, totalHeight);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new BandTask(filterType, src, dst, width, fromRow, middle, firstRow, totalHeight, bandRows),
+                    new BandTask(filterType, src, dst, width, middle, toRow, firstRow, totalHeight, bandRows));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.camera.filter;
+
+// Pure Java mirror of the applyXxxFilterN shader functions in FilterShaderSource.
+// Colors are in [0, 1]. u and v play the role of vTextureCoord and are measured along the
+// x and y axis of the processed image, so spatial terms follow the image, not the camera texture.
+public final class CpuFilters {
+
+    private CpuFilters() {
+    }
+
+    // Full shader function: the per-color part followed by the position dependent part
+    public static void apply(FilterType filterType, float[] rgb, float u, float v) {
+        applyColor(filterType, rgb);
+        applyPosition(filterType, rgb, u, v);
+    }
+
+    // The part of the filter that only depends on the input color
+    public static void applyColor(FilterType filterType, float[] rgb) {
+        float r = rgb[0];
+        float g = rgb[1];
+        float b = rgb[2];
+        float gray;
+        switch (filterType) {
+            case LOMO_CLASSIC:
+                r = pow(r, 1.2f);
+                g = pow(g, 1.2f);
+                b = pow(b, 1.2f);
+                gray = dot(r, g, b, 0.299f, 0.587f, 0.114f);
+                r = mix(gray, r, 0.7f);
+                g = mix(gray, g, 0.7f);
+                b = mix(gray, b, 0.7f);
+                break;
+            case LOMO_BLUE:
+                r = pow(r * 0.8f, 1.1f);
+                g = pow(g * 0.9f, 1.1f);
+                b = pow(b * 1.2f, 1.1f);
+                break;
+            case LOMO_WARM:
+                r = pow(r * 1.3f, 0.9f);
+                g = pow(g * 1.1f, 0.9f);
+                b = pow(b * 0.8f, 0.9f);
+                break;
+            case LOMO_GREEN:
+                r = pow(r * 0.9f, 1.05f);
+                g = pow(g * 1.2f, 1.05f);
+                b = pow(b * 0.9f, 1.05f);
+                break;
+            case LOMO_PURPLE:
+                r = pow(r * 1.1f, 1.15f);
+                g = pow(g * 0.8f, 1.15f);
+                b = pow(b * 1.3f, 1.15f);
+                break;
+            case RETRO_SEVENTIES:
+                r = pow(r * 1.4f + 0.1f, 0.8f);
+                g = pow(g * 1.2f + 0.05f, 0.8f);
+                b = pow(b * 0.8f, 0.8f);
+                break;
+            case RETRO_SEPIA:
+                gray = dot(r, g, b, 0.299f, 0.587f, 0.114f);
+                r = gray * 1.2f;
+                g = gray;
+                b = gray * 0.8f;
+                break;
+            case RETRO_FADED_FILM:
+                r = pow(r, 1.3f) * 0.8f + 0.2f;
+                g = pow(g, 1.3f) * 0.8f + 0.2f;
+                b = pow(b, 1.3f) * 0.8f + 0.2f;
+                break;
+            case RETRO_VINTAGE_PINK:
+                r = r * 1.2f + 0.1f;
+                g = g * 0.9f;
+                b = b * 1.1f + 0.05f;
+                break;
+            case RETRO_ORANGE_CRUSH:
+                r = pow(Math.min(r * 1.5f, 1.0f), 0.9f);
+                g = pow(g * 1.1f, 0.9f);
+                b = pow(b * 0.7f, 0.9f);
+                break;
+            case CUBE_COLOR_ENHANCE:
+                r = pow(r, 0.8f);
+                g = pow(g, 1.2f);
+                b = pow(b, 0.9f);
+                break;
+            case CUBE_HIGH_CONTRAST:
+                r = clamp(pow(r, 0.7f) * 1.3f);
+                g = clamp(pow(g, 0.7f) * 1.3f);
+                b = clamp(pow(b, 0.7f) * 1.3f);
+                break;
+            case CUBE_CYAN_MAGENTA:
+                float temp = r;
+                r = g * 0.8f + r * 0.2f;
+                g = b * 0.8f + g * 0.2f;
+                b = temp * 0.8f + b * 0.2f;
+                break;
+            case CUBE_COOL_TONE:
+                r = pow(r * 0.7f, 1.1f);
+                g = pow(g * 1.1f, 1.1f);
+                b = pow(b * 1.4f, 1.1f);
+                break;
+            case CUBE_NEON:
+                r = neon(pow(r, 0.6f));
+                g = neon(pow(g, 0.6f));
+                b = neon(pow(b, 0.6f));
+                break;
+            case BW_CLASSIC:
+                r = g = b = dot(r, g, b, 0.299f, 0.587f, 0.114f);
+                break;
+            case BW_HIGH_CONTRAST:
+                r = g = b = pow(dot(r, g, b, 0.299f, 0.587f, 0.114f), 1.5f);
+                break;
+            case BW_SOFT:
+                r = g = b = pow(dot(r, g, b, 0.2126f, 0.7152f, 0.0722f), 0.8f);
+                break;
+            case BW_RED_CHANNEL:
+                r = g = b = r * 0.8f + g * 0.1f + b * 0.1f;
+                break;
+            case BW_BLUE_CHANNEL:
+                r = g = b = r * 0.1f + g * 0.2f + b * 0.7f;
+                break;
+            default:
+                return;
+        }
+        rgb[0] = r;
+        rgb[1] = g;
+        rgb[2] = b;
+    }
+
+    // The part of the filter that depends on the pixel position, identity for pure color filters
+    public static void applyPosition(FilterType filterType, float[] rgb, float u, float v) {
+        float dx = u - 0.5f;
+        float dy = v - 0.5f;
+        float vignette;
+        switch (filterType) {
+            case LOMO_CLASSIC:
+                vignette = 1.0f - (float) Math.sqrt(dx * dx + dy * dy) * 1.4f * 0.5f;
+                break;
+            case VIGNETTE_CLASSIC:
+                vignette = 1.0f - smoothstep(0.3f, 0.8f, (float) Math.sqrt(dx * dx + dy * dy));
+                break;
+            case VIGNETTE_STRONG:
+                vignette = 1.0f - smoothstep(0.2f, 0.9f, (float) Math.sqrt(dx * dx + dy * dy));
+                break;
+            case VIGNETTE_OVAL:
+                dx *= 1.5f;
+                vignette = 1.0f - smoothstep(0.4f, 0.8f, (float) Math.sqrt(dx * dx + dy * dy));
+                break;
+            case VIGNETTE_COLOR:
+                vignette = smoothstep(0.5f, 1.0f, (float) Math.sqrt(dx * dx + dy * dy));
+                rgb[0] += vignette * 0.2f;
+                rgb[1] += vignette * 0.1f;
+                return;
+            case VIGNETTE_TUNNEL:
+                vignette = 1.0f - smoothstep(0.1f, 0.6f, dx * dx + dy * dy);
+                break;
+            default:
+                return;
+        }
+        rgb[0] *= vignette;
+        rgb[1] *= vignette;
+        rgb[2] *= vignette;
+    }
+
+    public static boolean hasPositionTerm(FilterType filterType) {
+        return filterType == FilterType.LOMO_CLASSIC || filterType.isVignetteFilter();
+    }
+
+    // Filters one row of packed ARGB pixels, alpha is passed through like the shader does.
+    // scratch must hold at least 3 floats.
+    public static void applyRow(FilterType filterType, int[] src, int[] dst, int offset, int width,
+                                float v, float[] scratch) {
+        float du = 1.0f / width;
+        float u = du * 0.5f;
+        for (int i = offset, end = offset + width; i < end; i++, u += du) {
+            int pix = src[i];
+            scratch[0] = ((pix >> 16) & 0xff) / 255.0f;
+            scratch[1] = ((pix >> 8) & 0xff) / 255.0f;
+            scratch[2] = (pix & 0xff) / 255.0f;
+            applyColor(filterType, scratch);
+            applyPosition(filterType, scratch, u, v);
+            dst[i] = (pix & 0xff000000) | (toByte(scratch[0]) << 16) | (toByte(scratch[1]) << 8) | toByte(scratch[2]);
+        }
+    }
+
+    public static int toByte(float c) {
+        if (!(c > 0.0f)) return 0;
+        if (c >= 1.0f) return 255;
+        return (int) (c * 255.0f + 0.5f);
+    }
+
+    private static float neon(float c) {
+        return c > 0.5f ? Math.min(c * 1.5f, 1.0f) : c;
+    }
+
+    private static float pow(float x, float y) {
+        return (float) Math.pow(x, y);
+    }
+
+    private static float dot(float r, float g, float b, float wr, float wg, float wb) {
+        return r * wr + g * wg + b * wb;
+    }
+
+    private static float mix(float x, float y, float a) {
+        return x * (1.0f - a) + y * a;
+    }
+
+    private static float clamp(float x) {
+        return Math.max(0.0f, Math.min(1.0f, x));
+    }
+
+    private static float smoothstep(float edge0, float edge1, float x) {
+        float t = clamp((x - edge0) / (edge1 - edge0));
+        return t * t * (3.0f - 2.0f * t);
+    }
+}
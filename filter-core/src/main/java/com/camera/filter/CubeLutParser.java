@@ -0,0 +1,266 @@
+package com.camera.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reads Adobe / Resolve .cube 3D LUTs straight from a byte stream. Numbers are parsed in place,
+// so data lines do not create Strings. An instance reuses its read buffer and is not thread safe.
+public class CubeLutParser {
+
+    // The largest size in common use, about 3 MB of floats. Checked before the data is allocated so
+    // a large but valid file fails with an IOException instead of running out of memory.
+    public static final int MAX_SIZE = 65;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final double[] POWERS_OF_TEN = new double[24];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final StringBuilder keyword = new StringBuilder();
+
+    private InputStream in;
+
+    private int position;
+
+    private int limit;
+
+    private int line;
+
+    public Lut3D parse(InputStream in) throws IOException {
+        this.in = in;
+        position = 0;
+        limit = 0;
+        line = 1;
+        try {
+            return parse();
+        } finally {
+            this.in = null;
+        }
+    }
+
+    private Lut3D parse() throws IOException {
+        int size = 0;
+        float[] data = null;
+        int index = 0;
+        while (true) {
+            int c = skipSpaces();
+            if (c < 0) {
+                break;
+            }
+            if (c == '\n' || c == '\r') {
+                next();
+                continue;
+            }
+            if (c == '#') {
+                skipLine();
+                continue;
+            }
+            if (isNumberStart(c)) {
+                if (data == null) {
+                    throw error("Data before LUT_3D_SIZE");
+                }
+                if (index == data.length) {
+                    throw error("More than " + size + "^3 entries");
+                }
+                data[index++] = parseFloat();
+                data[index++] = parseFloat();
+                data[index++] = parseFloat();
+                endLine();
+                continue;
+            }
+
+            String name = readKeyword();
+            switch (name) {
+                case "LUT_3D_SIZE":
+                    if (data != null) {
+                        throw error("Duplicate LUT_3D_SIZE");
+                    }
+                    size = (int) parseFloat();
+                    if (size < 2 || size > MAX_SIZE) {
+                        throw error("Unsupported LUT_3D_SIZE " + size);
+                    }
+                    data = new float[size * size * size * 3];
+                    endLine();
+                    break;
+                case "LUT_1D_SIZE":
+                    throw error("1D LUTs are not supported");
+                case "DOMAIN_MIN":
+                    checkDomain(0.0f);
+                    break;
+                case "DOMAIN_MAX":
+                    checkDomain(1.0f);
+                    break;
+                case "LUT_3D_INPUT_RANGE":
+                    if (parseFloat() != 0.0f || parseFloat() != 1.0f) {
+                        throw error("Only an input range of 0 to 1 is supported");
+                    }
+                    endLine();
+                    break;
+                default:
+                    // TITLE and vendor specific keywords carry nothing we need
+                    skipLine();
+                    break;
+            }
+        }
+        if (data == null) {
+            throw error("Missing LUT_3D_SIZE");
+        }
+        if (index != data.length) {
+            throw error("Expected " + size + "^3 entries but found " + index / 3);
+        }
+        return new Lut3D(size, data);
+    }
+
+    private void checkDomain(float expected) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            if (parseFloat() != expected) {
+                throw error("Only a domain of 0 to 1 is supported");
+            }
+        }
+        endLine();
+    }
+
+    private String readKeyword() throws IOException {
+        keyword.setLength(0);
+        int c = peek();
+        while (c >= 0 && c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+            keyword.append((char) c);
+            next();
+            c = peek();
+        }
+        return keyword.toString();
+    }
+
+    private float parseFloat() throws IOException {
+        int c = skipSpaces();
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            next();
+            c = peek();
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        while (c >= '0' && c <= '9') {
+            any = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) digits++;
+            } else {
+                exponent++;
+            }
+            next();
+            c = peek();
+        }
+        if (c == '.') {
+            next();
+            c = peek();
+            while (c >= '0' && c <= '9') {
+                any = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                }
+                next();
+                c = peek();
+            }
+        }
+        if (!any) {
+            throw error("Expected a number");
+        }
+        if (c == 'e' || c == 'E') {
+            next();
+            c = peek();
+            boolean negativeExponent = false;
+            if (c == '-' || c == '+') {
+                negativeExponent = c == '-';
+                next();
+                c = peek();
+            }
+            int value = 0;
+            boolean anyExponent = false;
+            while (c >= '0' && c <= '9') {
+                anyExponent = true;
+                value = Math.min(value * 10 + (c - '0'), 1000);
+                next();
+                c = peek();
+            }
+            if (!anyExponent) {
+                throw error("Malformed exponent");
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        double result = mantissa;
+        if (exponent < 0) {
+            result = -exponent < POWERS_OF_TEN.length ? result / POWERS_OF_TEN[-exponent] : result * Math.pow(10, exponent);
+        } else if (exponent > 0) {
+            result = exponent < POWERS_OF_TEN.length ? result * POWERS_OF_TEN[exponent] : result * Math.pow(10, exponent);
+        }
+        return (float) (negative ? -result : result);
+    }
+
+    // Anything after the values on a line other than a comment is an error
+    private void endLine() throws IOException {
+        int c = skipSpaces();
+        if (c == '#') {
+            skipLine();
+        } else if (c >= 0 && c != '\n' && c != '\r') {
+            throw error("Unexpected '" + (char) c + "'");
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c = peek();
+        while (c >= 0 && c != '\n' && c != '\r') {
+            next();
+            c = peek();
+        }
+    }
+
+    private int skipSpaces() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t') {
+            next();
+            c = peek();
+        }
+        return c;
+    }
+
+    private static boolean isNumberStart(int c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private void next() {
+        if (buffer[position] == '\n') {
+            line++;
+        }
+        position++;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Line " + line + ": " + message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.camera.filter;
+
+// A FilterType as a tile kernel. Needs no halo, the vignette terms only need to know where the
+// band sits in the whole image.
+public class FilterKernel implements TileKernel {
+
+    private final FilterType filterType;
+
+    public FilterKernel(FilterType filterType) {
+        this.filterType = filterType;
+    }
+
+    @Override
+    public int getHalo() {
+        return 0;
+    }
+
+    @Override
+    public long scratchBytes(int width) {
+        return 0;
+    }
+
+    @Override
+    public void apply(int[] src, int[] dst, int width, int outRows, int firstRow, int imageHeight) {
+        if (filterType == FilterType.NONE) {
+            System.arraycopy(src, 0, dst, 0, width * outRows);
+            return;
+        }
+        float[] scratch = new float[3];
+        for (int y = 0; y < outRows; y++) {
+            CpuFilters.applyRow(filterType, src, dst, y * width, width, (firstRow + y + 0.5f) / imageHeight, scratch);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.camera.filter;
+
+// Pixel layouts a frame recording can hold, with the id stored in the file header
+public enum FramePixelFormat {
+    // 4 bytes per pixel in R, G, B, A order, as glReadPixels returns them
+    RGBA_8888(1),
+    // Full size Y plane, then quarter size U and V planes, tightly packed. What YUV_420_888 camera
+    // frames become once their strides are removed.
+    I420(2);
+
+    private final int id;
+
+    FramePixelFormat(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static FramePixelFormat fromId(int id) {
+        for (FramePixelFormat format : values()) {
+            if (format.id == id) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown pixel format " + id);
+    }
+
+    public int frameBytes(int width, int height) {
+        switch (this) {
+            case RGBA_8888:
+                return width * height * 4;
+            case I420:
+                return width * height + 2 * chromaWidth(width) * chromaHeight(height);
+            default:
+                throw new IllegalStateException(name());
+        }
+    }
+
+    // Planes of a frame in file order: the RGBA pixels, or the Y, U and V planes
+    public int planeCount() {
+        return this == I420 ? 3 : 1;
+    }
+
+    // Width in pixels of a plane, each pixel being 4 bytes for RGBA and 1 byte for I420
+    public int planeWidth(int plane, int width) {
+        checkPlane(plane);
+        return plane == 0 ? width : chromaWidth(width);
+    }
+
+    public int planeHeight(int plane, int height) {
+        checkPlane(plane);
+        return plane == 0 ? height : chromaHeight(height);
+    }
+
+    // Byte offset of a plane from the start of the frame
+    public int planeOffset(int plane, int width, int height) {
+        checkPlane(plane);
+        return plane == 0 ? 0 : width * height + (plane - 1) * chromaWidth(width) * chromaHeight(height);
+    }
+
+    public int planeBytes(int plane, int width, int height) {
+        int pixels = planeWidth(plane, width) * planeHeight(plane, height);
+        return this == RGBA_8888 ? pixels * 4 : pixels;
+    }
+
+    private void checkPlane(int plane) {
+        if (plane < 0 || plane >= planeCount()) {
+            throw new IndexOutOfBoundsException("Plane " + plane + " of " + name());
+        }
+    }
+
+    // Chroma planes round up for odd sizes
+    public static int chromaWidth(int width) {
+        return (width + 1) / 2;
+    }
+
+    public static int chromaHeight(int height) {
+        return (height + 1) / 2;
+    }
+}
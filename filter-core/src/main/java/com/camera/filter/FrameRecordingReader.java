@@ -0,0 +1,256 @@
+package com.camera.filter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Random access to the frames of a FrameRecordingWriter file. The file is memory mapped in segments
+// of whole frames, mapped on first use, and getFrame returns a view straight into the mapping, so
+// replaying costs no copies and no heap beyond the index. Safe for concurrent readers.
+public class FrameRecordingReader implements Closeable {
+
+    private final FileChannel channel;
+
+    private final FramePixelFormat format;
+
+    private final int width;
+
+    private final int height;
+
+    private final int frameBytes;
+
+    private final long[] offsets;
+
+    private final long[] timestamps;
+
+    private final boolean recovered;
+
+    private final int[] segmentOfFrame;
+
+    private final long[] segmentStarts;
+
+    private final long[] segmentEnds;
+
+    private final MappedByteBuffer[] segments;
+
+    public static FrameRecordingReader open(File file) throws IOException {
+        return new FrameRecordingReader(file, MappedImage.MAX_SEGMENT_BYTES);
+    }
+
+    FrameRecordingReader(File file, long maxSegmentBytes) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = read(0, FrameRecordingWriter.HEADER_BYTES, size);
+            if (header == null || header.getInt() != FrameRecordingWriter.HEADER_MAGIC) {
+                throw new IOException("Not a frame recording: " + file);
+            }
+            int version = header.getInt();
+            if (version != FrameRecordingWriter.VERSION) {
+                throw new IOException("Unsupported frame recording version " + version);
+            }
+            try {
+                format = FramePixelFormat.fromId(header.getInt());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            width = header.getInt();
+            height = header.getInt();
+            frameBytes = header.getInt();
+            if (width <= 0 || height <= 0 || frameBytes != format.frameBytes(width, height)) {
+                throw new IOException("Corrupt header: " + width + "x" + height + ", " + frameBytes + " bytes per frame");
+            }
+
+            long[][] index = readIndex(size);
+            recovered = index == null;
+            if (index == null) {
+                index = scanChunks(size);
+            }
+            offsets = index[0];
+            timestamps = index[1];
+
+            // Whole frames per segment, a frame larger than the limit gets a segment of its own
+            segmentOfFrame = new int[offsets.length];
+            long[] starts = new long[offsets.length];
+            long[] ends = new long[offsets.length];
+            int count = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                long end = offsets[i] + frameBytes;
+                if (count == 0 || end - starts[count - 1] > maxSegmentBytes) {
+                    starts[count++] = offsets[i];
+                }
+                ends[count - 1] = end;
+                segmentOfFrame[i] = count - 1;
+            }
+            segmentStarts = Arrays.copyOf(starts, count);
+            segmentEnds = Arrays.copyOf(ends, count);
+            segments = new MappedByteBuffer[count];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Offsets and timestamps from the index, or null without a valid trailer
+    private long[][] readIndex(long size) throws IOException {
+        ByteBuffer trailer = read(size - FrameRecordingWriter.TRAILER_BYTES, FrameRecordingWriter.TRAILER_BYTES, size);
+        if (trailer == null) {
+            return null;
+        }
+        long indexOffset = trailer.getLong();
+        int frameCount = trailer.getInt();
+        if (trailer.getInt() != FrameRecordingWriter.TRAILER_MAGIC || frameCount < 0
+                || indexOffset + 8 + (long) frameCount * FrameRecordingWriter.INDEX_ENTRY_BYTES
+                != size - FrameRecordingWriter.TRAILER_BYTES) {
+            return null;
+        }
+        ByteBuffer index = read(indexOffset, 8 + frameCount * FrameRecordingWriter.INDEX_ENTRY_BYTES, size);
+        if (index == null || index.getInt() != FrameRecordingWriter.INDEX_MAGIC || index.getInt() != frameCount) {
+            return null;
+        }
+        long[] offsets = new long[frameCount];
+        long[] timestamps = new long[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            offsets[i] = index.getLong();
+            timestamps[i] = index.getLong();
+            if (offsets[i] < FrameRecordingWriter.HEADER_BYTES || offsets[i] + frameBytes > indexOffset) {
+                throw new IOException("Corrupt index entry " + i + " at " + offsets[i]);
+            }
+        }
+        return new long[][]{offsets, timestamps};
+    }
+
+    // Walks the chunk headers of a file that was never closed, up to the first incomplete chunk
+    private long[][] scanChunks(long size) throws IOException {
+        long[] offsets = new long[256];
+        long[] timestamps = new long[256];
+        int count = 0;
+        long position = FrameRecordingWriter.HEADER_BYTES;
+        while (true) {
+            ByteBuffer chunk = read(position, 16, size);
+            if (chunk == null || chunk.getInt() != FrameRecordingWriter.CHUNK_MAGIC || chunk.getInt() != frameBytes) {
+                break;
+            }
+            long payload = position + FrameRecordingWriter.CHUNK_HEADER_BYTES;
+            if (payload + frameBytes > size) {
+                break;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                timestamps = Arrays.copyOf(timestamps, count * 2);
+            }
+            offsets[count] = payload;
+            timestamps[count] = chunk.getLong();
+            count++;
+            position = FrameRecordingWriter.align(payload + frameBytes);
+        }
+        return new long[][]{Arrays.copyOf(offsets, count), Arrays.copyOf(timestamps, count)};
+    }
+
+    // length bytes at offset in little endian order, or null if the file ends before that
+    private ByteBuffer read(long offset, int length, long size) throws IOException {
+        if (offset < 0 || offset + length > size) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public FramePixelFormat getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    public int getFrameCount() {
+        return offsets.length;
+    }
+
+    // True when the file had no index and the frames were found by scanning the chunks
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    public long getTimestampNanos(int frame) {
+        checkFrame(frame);
+        return timestamps[frame];
+    }
+
+    // Read only view of the frame's pixels in the mapping, positioned at 0 with getFrameBytes()
+    // remaining. Stays valid after close until garbage collected, like any mapping.
+    public ByteBuffer getFrame(int frame) throws IOException {
+        checkFrame(frame);
+        int segment = segmentOfFrame[frame];
+        MappedByteBuffer mapped = segment(segment);
+        int start = (int) (offsets[frame] - segmentStarts[segment]);
+        ByteBuffer view = mapped.duplicate();
+        view.position(start).limit(start + frameBytes);
+        return view.slice();
+    }
+
+    // Read only view of one plane of the frame, see FramePixelFormat.planeCount. Also straight into
+    // the mapping, so it can be handed to glTexImage2D as it is.
+    public ByteBuffer getPlane(int frame, int plane) throws IOException {
+        ByteBuffer view = getFrame(frame);
+        int offset = format.planeOffset(plane, width, height);
+        view.position(offset).limit(offset + format.planeBytes(plane, width, height));
+        return view.slice();
+    }
+
+    // Last frame at or before timestampNanos, -1 if the recording starts later
+    public int frameAt(long timestampNanos) {
+        int low = 0, high = timestamps.length - 1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= timestampNanos) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private synchronized MappedByteBuffer segment(int segment) throws IOException {
+        if (segments[segment] == null) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, segmentStarts[segment],
+                    segmentEnds[segment] - segmentStarts[segment]);
+            segments[segment] = mapped;
+        }
+        return segments[segment];
+    }
+
+    private void checkFrame(int frame) {
+        if (frame < 0 || frame >= offsets.length) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + offsets.length);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
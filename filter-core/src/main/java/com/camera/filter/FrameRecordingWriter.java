@@ -0,0 +1,177 @@
+package com.camera.filter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Writes raw frames with their timestamps to a chunked file that FrameRecordingReader maps back.
+//
+// Layout, little endian:
+//   header   64 bytes: magic, version, format id, width, height, frame bytes
+//   chunks   one per frame at a 64 byte aligned offset: a 64 byte chunk header with magic, payload
+//            size and timestamp, then the pixels, so every payload starts 64 byte aligned
+//   index    magic, frame count, then payload offset and timestamp per frame
+//   trailer  16 bytes: index offset, frame count, magic
+//
+// A recording cut short before close has no index, the reader then rebuilds it from the chunk
+// headers. Not thread safe.
+public class FrameRecordingWriter implements Closeable {
+
+    static final int HEADER_MAGIC = 0x4d524643; // "CFRM"
+
+    static final int CHUNK_MAGIC = 0x43524643; // "CFRC"
+
+    static final int INDEX_MAGIC = 0x49524643; // "CFRI"
+
+    static final int TRAILER_MAGIC = 0x45524643; // "CFRE"
+
+    static final int VERSION = 1;
+
+    static final int ALIGNMENT = 64;
+
+    static final int HEADER_BYTES = 64;
+
+    static final int CHUNK_HEADER_BYTES = 64;
+
+    static final int INDEX_ENTRY_BYTES = 16;
+
+    static final int TRAILER_BYTES = 16;
+
+    private final FileChannel channel;
+
+    private final FramePixelFormat format;
+
+    private final int width;
+
+    private final int height;
+
+    private final int frameBytes;
+
+    private final ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final ByteBuffer padding = ByteBuffer.allocate(ALIGNMENT);
+
+    // Payload offset and timestamp per frame, grown as needed
+    private long[] offsets = new long[256];
+
+    private long[] timestamps = new long[256];
+
+    private int frameCount = 0;
+
+    private long position;
+
+    private boolean closed = false;
+
+    public FrameRecordingWriter(File file, FramePixelFormat format, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.frameBytes = format.frameBytes(width, height);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(HEADER_MAGIC).putInt(VERSION).putInt(format.getId())
+                .putInt(width).putInt(height).putInt(frameBytes);
+        header.clear();
+        writeFully(header);
+        position = HEADER_BYTES;
+    }
+
+    public FramePixelFormat getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    // Appends the remaining bytes of pixels, exactly getFrameBytes() of them, and returns the frame
+    // number. Timestamps may not go backwards so frames can be looked up by time.
+    public int write(ByteBuffer pixels, long timestampNanos) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Recording closed");
+        }
+        if (pixels.remaining() != frameBytes) {
+            throw new IllegalArgumentException("Frame has " + pixels.remaining() + " bytes, expected " + frameBytes);
+        }
+        if (frameCount > 0 && timestampNanos < timestamps[frameCount - 1]) {
+            throw new IllegalArgumentException("Timestamp " + timestampNanos + " before " + timestamps[frameCount - 1]);
+        }
+        if (frameCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, frameCount * 2);
+            timestamps = Arrays.copyOf(timestamps, frameCount * 2);
+        }
+        chunkHeader.clear();
+        chunkHeader.putInt(CHUNK_MAGIC).putInt(frameBytes).putLong(timestampNanos);
+        chunkHeader.clear();
+        writeFully(chunkHeader);
+        offsets[frameCount] = position + CHUNK_HEADER_BYTES;
+        timestamps[frameCount] = timestampNanos;
+        writeFully(pixels);
+        position += CHUNK_HEADER_BYTES + frameBytes;
+        pad();
+        return frameCount++;
+    }
+
+    // Writes the index and trailer. Frames written so far stay readable even if this never runs.
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(8 + frameCount * INDEX_ENTRY_BYTES + TRAILER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            index.putInt(INDEX_MAGIC).putInt(frameCount);
+            for (int i = 0; i < frameCount; i++) {
+                index.putLong(offsets[i]).putLong(timestamps[i]);
+            }
+            index.putLong(indexOffset).putInt(frameCount).putInt(TRAILER_MAGIC);
+            index.flip();
+            writeFully(index);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void pad() throws IOException {
+        int remainder = (int) (position % ALIGNMENT);
+        if (remainder != 0) {
+            padding.clear().limit(ALIGNMENT - remainder);
+            writeFully(padding);
+            position += ALIGNMENT - remainder;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
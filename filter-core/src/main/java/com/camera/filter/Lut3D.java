@@ -0,0 +1,117 @@
+package com.camera.filter;
+
+import java.nio.ByteBuffer;
+
+// Cube of output colors indexed by input color. Entries are stored red fastest, then green,
+// then blue, the same order .cube files use.
+public class Lut3D {
+
+    private final int size;
+
+    private final float[] data;
+
+    public Lut3D(int size) {
+        this(size, new float[size * size * size * 3]);
+    }
+
+    public Lut3D(int size, float[] data) {
+        if (size < 2 || data.length != size * size * size * 3) {
+            throw new IllegalArgumentException("Invalid LUT size " + size + " for " + data.length + " values");
+        }
+        this.size = size;
+        this.data = data;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Backing array, three floats per entry
+    public float[] getData() {
+        return data;
+    }
+
+    public int getByteSize() {
+        return data.length * 4;
+    }
+
+    public void set(int r, int g, int b, float outR, float outG, float outB) {
+        int index = ((b * size + g) * size + r) * 3;
+        data[index] = outR;
+        data[index + 1] = outG;
+        data[index + 2] = outB;
+    }
+
+    // Trilinear lookup, input is clamped to [0, 1]. out must hold at least 3 floats.
+    public void sample(float r, float g, float b, float[] out) {
+        float max = size - 1;
+        float fr = clamp(r) * max;
+        float fg = clamp(g) * max;
+        float fb = clamp(b) * max;
+        int r0 = Math.min((int) fr, size - 2);
+        int g0 = Math.min((int) fg, size - 2);
+        int b0 = Math.min((int) fb, size - 2);
+        float tr = fr - r0;
+        float tg = fg - g0;
+        float tb = fb - b0;
+
+        int strideG = size * 3;
+        int strideB = size * size * 3;
+        int i000 = ((b0 * size + g0) * size + r0) * 3;
+        for (int c = 0; c < 3; c++) {
+            int i = i000 + c;
+            float c00 = lerp(data[i], data[i + 3], tr);
+            float c10 = lerp(data[i + strideG], data[i + strideG + 3], tr);
+            float c01 = lerp(data[i + strideB], data[i + strideB + 3], tr);
+            float c11 = lerp(data[i + strideB + strideG], data[i + strideB + strideG + 3], tr);
+            out[c] = lerp(lerp(c00, c10, tg), lerp(c01, c11, tg), tb);
+        }
+    }
+
+    // RGBA8 texture of size*size x size texels: the blue slices laid out left to right,
+    // red along x inside a slice, green along y
+    public ByteBuffer toTexture(ByteBuffer out) {
+        out.clear();
+        for (int g = 0; g < size; g++) {
+            for (int b = 0; b < size; b++) {
+                for (int r = 0; r < size; r++) {
+                    int index = ((b * size + g) * size + r) * 3;
+                    out.put((byte) CpuFilters.toByte(data[index]));
+                    out.put((byte) CpuFilters.toByte(data[index + 1]));
+                    out.put((byte) CpuFilters.toByte(data[index + 2]));
+                    out.put((byte) 0xff);
+                }
+            }
+        }
+        out.flip();
+        return out;
+    }
+
+    // Trilinear resample to another grid size, used when a LUT is too large for the GPU
+    public Lut3D resample(int newSize) {
+        Lut3D resampled = new Lut3D(newSize);
+        float[] rgb = new float[3];
+        float max = newSize - 1;
+        for (int b = 0; b < newSize; b++) {
+            for (int g = 0; g < newSize; g++) {
+                for (int r = 0; r < newSize; r++) {
+                    sample(r / max, g / max, b / max, rgb);
+                    resampled.set(r, g, b, rgb[0], rgb[1], rgb[2]);
+                }
+            }
+        }
+        return resampled;
+    }
+
+    public int getTextureByteSize() {
+        return size * size * size * 4;
+    }
+
+    private static float clamp(float x) {
+        return x < 0.0f ? 0.0f : (x > 1.0f ? 1.0f : x);
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+}
@@ -0,0 +1,70 @@
+package com.camera.filter;
+
+public final class LutBaker {
+
+    public static final int[] SUPPORTED_SIZES = {17, 33, 64};
+
+    public static final int DEFAULT_SIZE = 33;
+
+    private LutBaker() {
+    }
+
+    // Filters whose color part can be replaced by a LUT. Vignette filters have no color part
+    // and CUBE_NEON jumps at 0.5, which trilinear interpolation would smear.
+    public static boolean isBakeable(FilterType filterType) {
+        return filterType != FilterType.NONE
+                && filterType != FilterType.CUBE_NEON
+                && !filterType.isVignetteFilter();
+    }
+
+    // Evaluates the color part of the filter on a size^3 grid. The position dependent part
+    // (see CpuFilters.applyPosition) is not included and has to be applied after the lookup.
+    public static Lut3D bake(FilterType filterType, int size) {
+        Lut3D lut = new Lut3D(size);
+        float[] rgb = new float[3];
+        float step = 1.0f / (size - 1);
+        for (int b = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++) {
+                    rgb[0] = r * step;
+                    rgb[1] = g * step;
+                    rgb[2] = b * step;
+                    CpuFilters.applyColor(filterType, rgb);
+                    // The framebuffer clamps anyway and no bakeable filter uses values above 1 later
+                    lut.set(r, g, b, clamp(rgb[0]), clamp(rgb[1]), clamp(rgb[2]));
+                }
+            }
+        }
+        return lut;
+    }
+
+    // Largest difference, in 8 bit steps, between the LUT and the reference over a steps^3 grid
+    public static int maxError(FilterType filterType, Lut3D lut, int steps) {
+        float[] expected = new float[3];
+        float[] actual = new float[3];
+        int maxError = 0;
+        for (int b = 0; b < steps; b++) {
+            for (int g = 0; g < steps; g++) {
+                for (int r = 0; r < steps; r++) {
+                    float fr = r / (steps - 1.0f);
+                    float fg = g / (steps - 1.0f);
+                    float fb = b / (steps - 1.0f);
+                    expected[0] = fr;
+                    expected[1] = fg;
+                    expected[2] = fb;
+                    CpuFilters.applyColor(filterType, expected);
+                    lut.sample(fr, fg, fb, actual);
+                    for (int c = 0; c < 3; c++) {
+                        int error = Math.abs(CpuFilters.toByte(expected[c]) - CpuFilters.toByte(actual[c]));
+                        maxError = Math.max(maxError, error);
+                    }
+                }
+            }
+        }
+        return maxError;
+    }
+
+    private static float clamp(float x) {
+        return x < 0.0f ? 0.0f : (x > 1.0f ? 1.0f : x);
+    }
+}
@@ -0,0 +1,89 @@
+package com.camera.filter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Baked LUTs on disk. File layout, big endian:
+//   int magic 'CFLT', int format version, int filter version, int filter id, int size,
+//   size^3 * 3 unsigned shorts (red fastest, values scaled to 0..65535)
+public class LutFileCache {
+
+    public static final int MAGIC = 0x43464c54;
+
+    public static final int FORMAT_VERSION = 1;
+
+    // Bump whenever CpuFilters changes the output of a filter, stale files are then re-baked
+    public static final int FILTER_VERSION = 1;
+
+    private final File directory;
+
+    public LutFileCache(File directory) {
+        this.directory = directory;
+    }
+
+    // Loads the LUT from disk, or bakes and stores it when missing or stale
+    public Lut3D getOrBake(FilterType filterType, int size) throws IOException {
+        File file = fileFor(filterType, size);
+        if (file.exists()) {
+            try {
+                return read(file, filterType, size);
+            } catch (IOException e) {
+                // Corrupt or from an older version, bake again below
+                file.delete();
+            }
+        }
+        Lut3D lut = LutBaker.bake(filterType, size);
+        write(lut, filterType, file);
+        return lut;
+    }
+
+    public File fileFor(FilterType filterType, int size) {
+        return new File(directory, filterType.name().toLowerCase() + "_" + size + "_v" + FILTER_VERSION + ".lut");
+    }
+
+    public static void write(Lut3D lut, FilterType filterType, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        // Write next to the target and rename, so readers never see half a file
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(FILTER_VERSION);
+            out.writeInt(filterType.getFilterType());
+            out.writeInt(lut.getSize());
+            for (float value : lut.getData()) {
+                out.writeShort(Math.round(Math.max(0.0f, Math.min(1.0f, value)) * 65535.0f));
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not rename " + temp + " to " + file);
+        }
+    }
+
+    public static Lut3D read(File file, FilterType filterType, int size) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || in.readInt() != FILTER_VERSION
+                    || in.readInt() != filterType.getFilterType()
+                    || in.readInt() != size) {
+                throw new IOException("Stale or foreign LUT file " + file);
+            }
+            float[] data = new float[size * size * size * 3];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = in.readUnsignedShort() / 65535.0f;
+            }
+            return new Lut3D(size, data);
+        }
+    }
+}
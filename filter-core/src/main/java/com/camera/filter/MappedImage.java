@@ -0,0 +1,128 @@
+package com.camera.filter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// ARGB pixels kept in a memory mapped file instead of the heap. The file is mapped in segments of
+// whole rows, so even images past 2 GB work and the OS pages rows in and out as bands move through.
+public class MappedImage implements Closeable {
+
+    // Per mapping, well below the 2 GB limit of a single MappedByteBuffer
+    static final long MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+
+    private final File file;
+
+    private final boolean deleteOnClose;
+
+    private final RandomAccessFile randomAccessFile;
+
+    private final int width;
+
+    private final int height;
+
+    private final int rowsPerSegment;
+
+    private final IntBuffer[] segments;
+
+    // Scratch file of width x height pixels in directory, deleted again on close
+    public static MappedImage createTemp(File directory, int width, int height) throws IOException {
+        File file = File.createTempFile("tile", ".argb", directory);
+        return new MappedImage(file, width, height, true, MAX_SEGMENT_BYTES);
+    }
+
+    // Maps an existing raw ARGB file, or creates it, width * height * 4 bytes in native order
+    public static MappedImage open(File file, int width, int height) throws IOException {
+        return new MappedImage(file, width, height, false, MAX_SEGMENT_BYTES);
+    }
+
+    MappedImage(File file, int width, int height, boolean deleteOnClose, long maxSegmentBytes) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+        long rowBytes = width * 4L;
+        if (rowBytes > maxSegmentBytes) {
+            throw new IllegalArgumentException("Rows too wide to map: " + width);
+        }
+        this.file = file;
+        this.deleteOnClose = deleteOnClose;
+        this.width = width;
+        this.height = height;
+        this.rowsPerSegment = (int) Math.min(height, maxSegmentBytes / rowBytes);
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(rowBytes * height);
+            FileChannel channel = randomAccessFile.getChannel();
+            segments = new IntBuffer[(height + rowsPerSegment - 1) / rowsPerSegment];
+            for (int i = 0; i < segments.length; i++) {
+                int rows = Math.min(rowsPerSegment, height - i * rowsPerSegment);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE,
+                        i * rowsPerSegment * rowBytes, rows * rowBytes);
+                segments[i] = mapped.order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+        } catch (IOException | RuntimeException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Copies rows [firstRow, firstRow + rows) into dst at offset. Not thread safe.
+    public void readRows(int firstRow, int rows, int[] dst, int offset) {
+        checkRows(firstRow, rows);
+        for (int row = firstRow; row < firstRow + rows; ) {
+            IntBuffer segment = segments[row / rowsPerSegment];
+            int segmentRow = row % rowsPerSegment;
+            int count = Math.min(firstRow + rows - row, rowsPerSegment - segmentRow);
+            segment.position(segmentRow * width);
+            segment.get(dst, offset, count * width);
+            offset += count * width;
+            row += count;
+        }
+    }
+
+    // Copies rows from src at offset into rows [firstRow, firstRow + rows). Not thread safe.
+    public void writeRows(int firstRow, int rows, int[] src, int offset) {
+        checkRows(firstRow, rows);
+        for (int row = firstRow; row < firstRow + rows; ) {
+            IntBuffer segment = segments[row / rowsPerSegment];
+            int segmentRow = row % rowsPerSegment;
+            int count = Math.min(firstRow + rows - row, rowsPerSegment - segmentRow);
+            segment.position(segmentRow * width);
+            segment.put(src, offset, count * width);
+            offset += count * width;
+            row += count;
+        }
+    }
+
+    private void checkRows(int firstRow, int rows) {
+        if (firstRow < 0 || rows < 0 || firstRow + rows > height) {
+            throw new IndexOutOfBoundsException("Rows " + firstRow + "+" + rows + " outside " + height);
+        }
+    }
+
+    // Mappings stay valid until garbage collected, only the file handle is closed here
+    @Override
+    public void close() throws IOException {
+        randomAccessFile.close();
+        if (deleteOnClose && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
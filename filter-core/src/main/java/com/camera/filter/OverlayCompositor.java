@@ -0,0 +1,43 @@
+package com.camera.filter;
+
+// CPU version of the overlay blend for stills. The overlay is stretched over the whole image like
+// the preview stretches it over the view, and blended with its own alpha times the overlay alpha,
+// which is what GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA does on screen.
+public final class OverlayCompositor {
+
+    private OverlayCompositor() {
+    }
+
+    // Blends into the x, y, width x height part of an imageWidth x imageHeight image. pixels holds
+    // just that part, row by row. The overlay is sampled nearest neighbor.
+    public static void composite(int[] pixels, int x, int y, int width, int height,
+                                 int imageWidth, int imageHeight,
+                                 int[] overlay, int overlayWidth, int overlayHeight, float alpha) {
+        int alpha256 = Math.round(Math.max(0f, Math.min(1f, alpha)) * 256);
+        if (alpha256 == 0) {
+            return;
+        }
+        int[] columns = new int[width];
+        for (int i = 0; i < width; i++) {
+            columns[i] = (int) ((x + i) * (long) overlayWidth / imageWidth);
+        }
+        for (int j = 0; j < height; j++) {
+            int overlayRow = (int) ((y + j) * (long) overlayHeight / imageHeight) * overlayWidth;
+            int row = j * width;
+            for (int i = 0; i < width; i++) {
+                int over = overlay[overlayRow + columns[i]];
+                // 0..256 so a fully opaque overlay at alpha 1 replaces the pixel exactly
+                int a = ((over >>> 24) * alpha256 + 128) / 255;
+                if (a == 0) {
+                    continue;
+                }
+                int under = pixels[row + i];
+                int inv = 256 - a;
+                int r = (((over >> 16) & 0xff) * a + ((under >> 16) & 0xff) * inv + 128) >> 8;
+                int g = (((over >> 8) & 0xff) * a + ((under >> 8) & 0xff) * inv + 128) >> 8;
+                int b = ((over & 0xff) * a + (under & 0xff) * inv + 128) >> 8;
+                pixels[row + i] = (under & 0xff000000) | (r << 16) | (g << 8) | b;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.camera.filter;
+
+// Sizing rules for decoding overlay assets, kept free of Android types so they can be unit tested
+public final class OverlayDecodePolicy {
+
+    private OverlayDecodePolicy() {
+    }
+
+    // Largest power of two that keeps the decoded image at least as large as the target on both
+    // axes, the same rule BitmapFactory applies. A target of 0 on either axis decodes at full size.
+    public static int inSampleSize(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0 || sourceWidth <= 0 || sourceHeight <= 0) {
+            return 1;
+        }
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= targetWidth && sourceHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Size of the decoded image, BitmapFactory rounds each axis down
+    public static int sampledSize(int sourceSize, int sampleSize) {
+        return Math.max(1, sourceSize / sampleSize);
+    }
+
+    public static long textureByteSize(int width, int height) {
+        return (long) width * height * 4;
+    }
+}
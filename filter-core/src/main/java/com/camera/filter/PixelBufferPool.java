@@ -0,0 +1,163 @@
+package com.camera.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reuses pixel buffers between captures. Buffers are grouped by kind and size, idle buffers
+// are kept until their total size exceeds the budget, then the least recently used size goes first.
+public class PixelBufferPool {
+
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    private static final long KIND_INTS = 0;
+    private static final long KIND_BYTES = 1;
+
+    private final long budgetBytes;
+
+    private final LinkedHashMap<Long, ArrayDeque<Object>> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long idleBytes = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private long allocatedBytes = 0;
+
+    private long evictions = 0;
+
+    public PixelBufferPool() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public PixelBufferPool(long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    public synchronized int[] acquireInts(int length) {
+        Object buffer = take(key(KIND_INTS, length), length * 4L);
+        if (buffer != null) {
+            return (int[]) buffer;
+        }
+        allocatedBytes += length * 4L;
+        return new int[length];
+    }
+
+    // Direct, native ordered, positioned at 0 with the limit set to size
+    public synchronized ByteBuffer acquireBuffer(int size) {
+        ByteBuffer buffer = (ByteBuffer) take(key(KIND_BYTES, size), size);
+        if (buffer == null) {
+            allocatedBytes += size;
+            buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public synchronized void release(int[] buffer) {
+        put(key(KIND_INTS, buffer.length), buffer, buffer.length * 4L);
+    }
+
+    public synchronized void release(ByteBuffer buffer) {
+        put(key(KIND_BYTES, buffer.capacity()), buffer, buffer.capacity());
+    }
+
+    private Object take(long key, long bytes) {
+        ArrayDeque<Object> buffers = idle.get(key);
+        if (buffers == null || buffers.isEmpty()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        idleBytes -= bytes;
+        Object buffer = buffers.pollLast();
+        if (buffers.isEmpty()) {
+            idle.remove(key);
+        }
+        return buffer;
+    }
+
+    private void put(long key, Object buffer, long bytes) {
+        if (bytes > budgetBytes) {
+            evictions++;
+            return;
+        }
+        ArrayDeque<Object> buffers = idle.get(key);
+        if (buffers == null) {
+            buffers = new ArrayDeque<>();
+            idle.put(key, buffers);
+        }
+        buffers.addLast(buffer);
+        idleBytes += bytes;
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Long, ArrayDeque<Object>>> iterator = idle.entrySet().iterator();
+        while (idleBytes > budgetBytes && iterator.hasNext()) {
+            Map.Entry<Long, ArrayDeque<Object>> entry = iterator.next();
+            long bytes = bytesOf(entry.getKey());
+            ArrayDeque<Object> buffers = entry.getValue();
+            while (idleBytes > budgetBytes && !buffers.isEmpty()) {
+                buffers.pollFirst();
+                idleBytes -= bytes;
+                evictions++;
+            }
+            if (buffers.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        idle.clear();
+        idleBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, allocatedBytes, evictions, idleBytes);
+    }
+
+    private static long key(long kind, int size) {
+        return ((long) size << 1) | kind;
+    }
+
+    private static long bytesOf(long key) {
+        long size = key >>> 1;
+        return (key & 1) == KIND_INTS ? size * 4 : size;
+    }
+
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long allocatedBytes;
+        public final long evictions;
+        public final long idleBytes;
+
+        Stats(long hits, long misses, long allocatedBytes, long evictions, long idleBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.allocatedBytes = allocatedBytes;
+            this.evictions = evictions;
+            this.idleBytes = idleBytes;
+        }
+
+        // Every miss is served by a fresh allocation
+        public long getAllocations() {
+            return misses;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + " misses=" + misses + " allocatedBytes=" + allocatedBytes
+                    + " evictions=" + evictions + " idleBytes=" + idleBytes;
+        }
+    }
+}
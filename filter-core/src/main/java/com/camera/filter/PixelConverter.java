@@ -0,0 +1,94 @@
+package com.camera.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+public class PixelConverter {
+
+    private int[] pixels = new int[0];
+
+    // Returns an internal buffer that is only valid until the next call, so the converter
+    // must not be shared between threads
+    public int[] convert(IntBuffer rgba, int width, int height) {
+        int size = width * height;
+        if (pixels.length != size) {
+            pixels = new int[size];
+        }
+        rgbaToArgbFlipped(rgba, pixels, width, height);
+        return pixels;
+    }
+
+    // glReadPixels returns RGBA bytes bottom row first, read in native order they become
+    // 0xAABBGGRR ints. Bitmaps expect 0xAARRGGBB top row first.
+    public static void rgbaToArgbFlipped(IntBuffer rgba, int[] argb, int width, int height) {
+        int start = rgba.position();
+        for (int i = 0; i < height; i++) {
+            int offset = (height - i - 1) * width;
+            rgba.position(start + i * width);
+            rgba.get(argb, offset, width);
+            swizzleRow(argb, offset, width);
+        }
+        rgba.position(start);
+    }
+
+    public static void rgbaToArgbFlipped(int[] rgba, int[] argb, int width, int height) {
+        for (int i = 0; i < height; i++) {
+            int offset = (height - i - 1) * width;
+            System.arraycopy(rgba, i * width, argb, offset, width);
+            swizzleRow(argb, offset, width);
+        }
+    }
+
+    private static void swizzleRow(int[] pixels, int offset, int width) {
+        for (int j = offset, end = offset + width; j < end; j++) {
+            int pix = pixels[j];
+            pixels[j] = (pix & 0xff00ff00) | ((pix << 16) & 0x00ff0000) | ((pix >> 16) & 0xff);
+        }
+    }
+
+    // Copies a width x height plane with the given strides into dst tightly packed, advancing dst.
+    // For the planes of YUV_420_888 images, whose last row may end right after its last pixel.
+    // src is read from its position on, which does not move.
+    public static void packPlane(ByteBuffer src, int rowStride, int pixelStride, int width, int height, ByteBuffer dst) {
+        int start = src.position();
+        if (pixelStride == 1) {
+            ByteBuffer row = src.duplicate();
+            for (int y = 0; y < height; y++) {
+                row.limit(start + y * rowStride + width).position(start + y * rowStride);
+                dst.put(row);
+            }
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            int offset = start + y * rowStride;
+            for (int x = 0; x < width; x++) {
+                dst.put(src.get(offset + x * pixelStride));
+            }
+        }
+    }
+
+    // Full range BT.601 as camera YUV_420_888 frames use, 16 bit fixed point. i420 is read from its
+    // position on, which does not move. argb gets 0xAARRGGBB top row first.
+    public static void i420ToArgb(ByteBuffer i420, int[] argb, int width, int height) {
+        int yStart = i420.position();
+        int chromaWidth = FramePixelFormat.chromaWidth(width);
+        int uStart = yStart + width * height;
+        int vStart = uStart + chromaWidth * FramePixelFormat.chromaHeight(height);
+        for (int y = 0; y < height; y++) {
+            int chromaRow = (y >> 1) * chromaWidth;
+            for (int x = 0; x < width; x++) {
+                int luma = (i420.get(yStart + y * width + x) & 0xff) << 16;
+                int u = (i420.get(uStart + chromaRow + (x >> 1)) & 0xff) - 128;
+                int v = (i420.get(vStart + chromaRow + (x >> 1)) & 0xff) - 128;
+                int r = clamp((luma + 91881 * v + 32768) >> 16);
+                int g = clamp((luma - 22554 * u - 46802 * v + 32768) >> 16);
+                int b = clamp((luma + 116130 * u + 32768) >> 16);
+                argb[y * width + x] = 0xff000000 | r << 16 | g << 8 | b;
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+}
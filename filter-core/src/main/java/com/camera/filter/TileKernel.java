@@ -0,0 +1,17 @@
+package com.camera.filter;
+
+// One filter step of the TiledFilterEngine, run on a band of full width rows at a time
+public interface TileKernel {
+
+    // Rows of context needed above and below every output row
+    int getHalo();
+
+    // Heap the kernel keeps for itself while running on rows of width pixels, counted against the
+    // engine's budget
+    long scratchBytes(int width);
+
+    // src holds outRows + 2 * getHalo() rows, the first one being image row firstRow - getHalo().
+    // Rows beyond the image edge repeat the edge row. Writes outRows rows to dst, the first one
+    // being image row firstRow. src and dst are never the same array, src may be used as scratch.
+    void apply(int[] src, int[] dst, int width, int outRows, int firstRow, int imageHeight);
+}
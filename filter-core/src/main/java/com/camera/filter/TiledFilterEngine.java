@@ -0,0 +1,106 @@
+package com.camera.filter;
+
+import java.util.List;
+
+// Streams an image through a chain of kernels in bands of full width rows, so the heap only ever
+// holds two band buffers however large the image is. Each band is read with enough halo rows for
+// every kernel in the chain, and each kernel shrinks the band by its own halo, leaving exactly the
+// band's rows at the end. Rows past the image edge repeat the edge row after every kernel, so the
+// result is identical to running each kernel over the whole image with clamp to edge sampling.
+// A library building block for filters with neighbourhoods, the app's still path only runs
+// pointwise FilterTypes and bands them itself in StillProcessor.
+public class TiledFilterEngine {
+
+    private final long budgetBytes;
+
+    private long peakBufferBytes = 0;
+
+    // Heap the band buffers and the kernels' scratch may use together
+    public TiledFilterEngine(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    // Image rows per band within the budget
+    public int bandRows(int width, int height, List<TileKernel> kernels) {
+        long rowBytes = width * 4L;
+        long rows = (budgetBytes - scratchBytes(width, kernels)) / (2 * rowBytes) - 2L * totalHalo(kernels);
+        if (rows < 1) {
+            throw new IllegalArgumentException("Budget of " + budgetBytes + " bytes too small for rows of "
+                    + width + " pixels and a halo of " + totalHalo(kernels));
+        }
+        return (int) Math.min(rows, height);
+    }
+
+    // src and dst must have the same size and may not be the same image
+    public void process(MappedImage src, MappedImage dst, List<TileKernel> kernels) {
+        if (src.getWidth() != dst.getWidth() || src.getHeight() != dst.getHeight()) {
+            throw new IllegalArgumentException("Size mismatch: " + src.getWidth() + "x" + src.getHeight()
+                    + " and " + dst.getWidth() + "x" + dst.getHeight());
+        }
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int halo = totalHalo(kernels);
+        int bandRows = bandRows(width, height, kernels);
+
+        int[] in = new int[(bandRows + 2 * halo) * width];
+        int[] out = new int[in.length];
+        peakBufferBytes = Math.max(peakBufferBytes, 2L * in.length * 4);
+
+        for (int firstRow = 0; firstRow < height; firstRow += bandRows) {
+            int rows = Math.min(bandRows, height - firstRow);
+            readClamped(src, firstRow - halo, rows + 2 * halo, in);
+            int remainingHalo = halo;
+            for (TileKernel kernel : kernels) {
+                remainingHalo -= kernel.getHalo();
+                int outRows = rows + 2 * remainingHalo;
+                kernel.apply(in, out, width, outRows, firstRow - remainingHalo, height);
+                clampEdges(out, width, outRows, firstRow - remainingHalo, height);
+                int[] swap = in;
+                in = out;
+                out = swap;
+            }
+            dst.writeRows(firstRow, rows, in, 0);
+        }
+    }
+
+    // Reads image rows [firstRow, firstRow + rows), which may reach past either edge
+    private static void readClamped(MappedImage image, int firstRow, int rows, int[] dst) {
+        int width = image.getWidth();
+        int top = Math.max(0, firstRow);
+        int bottom = Math.min(image.getHeight(), firstRow + rows);
+        image.readRows(top, bottom - top, dst, (top - firstRow) * width);
+        clampEdges(dst, width, rows, firstRow, image.getHeight());
+    }
+
+    // Overwrites rows outside [0, height) with the nearest edge row
+    private static void clampEdges(int[] pixels, int width, int rows, int firstRow, int height) {
+        for (int y = 0; y < rows && firstRow + y < 0; y++) {
+            System.arraycopy(pixels, -firstRow * width, pixels, y * width, width);
+        }
+        int last = height - 1 - firstRow;
+        for (int y = Math.max(0, last + 1); y < rows; y++) {
+            System.arraycopy(pixels, last * width, pixels, y * width, width);
+        }
+    }
+
+    private static int totalHalo(List<TileKernel> kernels) {
+        int halo = 0;
+        for (TileKernel kernel : kernels) {
+            halo += kernel.getHalo();
+        }
+        return halo;
+    }
+
+    private static long scratchBytes(int width, List<TileKernel> kernels) {
+        long bytes = 0;
+        for (TileKernel kernel : kernels) {
+            bytes += kernel.scratchBytes(width);
+        }
+        return bytes;
+    }
+
+    // Largest band buffers allocated by a process call so far, the kernels' scratch comes on top
+    public long getPeakBufferBytes() {
+        return peakBufferBytes;
+    }
+}
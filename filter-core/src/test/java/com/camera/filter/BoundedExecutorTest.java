@@ -0,0 +1,94 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BoundedExecutorTest {
+
+    @Test
+    public void completesFuturesWithResults() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor("test", 1, 2, BoundedExecutor.OverflowPolicy.REJECT);
+
+        assertEquals("done", executor.submit(() -> "done").get(1, TimeUnit.SECONDS));
+        assertEquals(1, executor.getCompletedCount());
+        assertEquals(0, executor.getPendingCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void rejectsWhenFull() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor("test", 1, 2, BoundedExecutor.OverflowPolicy.REJECT);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> first = executor.submit(() -> {
+            release.await();
+            return 1;
+        });
+        CompletableFuture<Integer> second = executor.submit(() -> 2);
+        CompletableFuture<Integer> third = executor.submit(() -> 3);
+
+        assertTrue(third.isCompletedExceptionally());
+        assertEquals(2, executor.getPendingCount());
+        assertEquals(1, executor.getRejectedCount());
+        try {
+            third.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        release.countDown();
+        assertEquals(Integer.valueOf(1), first.get(1, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), second.get(1, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(4), executor.submit(() -> 4).get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void blockingPolicyWaitsForSlot() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor("test", 1, 1, BoundedExecutor.OverflowPolicy.BLOCK);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            release.await();
+            return 1;
+        });
+        started.await();
+
+        CompletableFuture<CompletableFuture<Integer>> blocked = CompletableFuture.supplyAsync(() -> executor.submit(() -> 2));
+        Thread.sleep(50);
+        assertFalse(blocked.isDone());
+
+        release.countDown();
+        assertEquals(Integer.valueOf(2), blocked.get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS));
+        assertEquals(0, executor.getRejectedCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void failuresCompleteExceptionally() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor("test", 1, 1, BoundedExecutor.OverflowPolicy.REJECT);
+
+        CompletableFuture<Object> future = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, executor.getFailedCount());
+        assertEquals(0, executor.getPendingCount());
+        executor.shutdown();
+    }
+}
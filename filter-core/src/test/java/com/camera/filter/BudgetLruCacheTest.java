@@ -0,0 +1,78 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BudgetLruCacheTest {
+
+    private final List<String> evicted = new ArrayList<>();
+
+    private final BudgetLruCache<String, byte[]> cache =
+            new BudgetLruCache<>(100, value -> value.length, (key, value) -> evicted.add(key));
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() {
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", new byte[40]);
+
+        assertEquals(List.of("b"), evicted);
+        assertTrue(cache.contains("a"));
+        assertEquals(80, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void replacingAnEntryNotifiesAndResizes() {
+        byte[] first = new byte[60];
+        cache.put("a", first);
+        cache.put("a", new byte[10]);
+
+        assertEquals(List.of("a"), evicted);
+        assertEquals(10, cache.size());
+        assertEquals(1, cache.count());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void oversizedValueIsNotKept() {
+        cache.put("a", new byte[10]);
+        cache.put("huge", new byte[200]);
+
+        assertFalse(cache.contains("huge"));
+        assertEquals(List.of("a", "huge"), evicted);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        cache.put("a", new byte[1]);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void removeAndClearNotify() {
+        cache.put("a", new byte[1]);
+        cache.put("b", new byte[1]);
+        cache.put("c", new byte[1]);
+
+        assertNotNull(cache.remove("a"));
+        assertNull(cache.remove("a"));
+        cache.clear();
+
+        assertEquals(List.of("a", "b", "c"), evicted);
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,148 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class CpuFilterEngineTest {
+
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 3;
+
+    private static final int[] SOURCE = {
+            0xff000000, 0xffffffff, 0xff808080, 0xffff0000,
+            0xff00ff00, 0xff0000ff, 0xffc08040, 0x80204060,
+            0xff3366cc, 0xfff0e0d0, 0xff102030, 0xff7f7f7f
+    };
+
+    // Expected output per FilterType in declaration order, computed independently in double
+    // precision from the GLSL in FilterShaderSource and rounded to 8 bits
+    private static final int[][] GOLDEN = {
+            // NONE
+            {0xff000000, 0xffffffff, 0xff808080, 0xffff0000, 0xff00ff00, 0xff0000ff, 0xffc08040, 0x80204060, 0xff3366cc, 0xfff0e0d0, 0xff102030, 0xff7f7f7f},
+            // LOMO_CLASSIC
+            {0xff000000, 0xffbfbfbf, 0xff545454, 0xff830f0f, 0xff21a521, 0xff0808ab, 0xff966a41, 0x80152332, 0xff213769, 0xffafa59b, 0xff090f16, 0xff484848},
+            // LOMO_BLUE
+            {0xff000000, 0xffc7e3ff, 0xff5d6a92, 0xffc70000, 0xff00e300, 0xff0000ff, 0xff926a44, 0x8014326a, 0xff2253f4, 0xffbbc5f9, 0xff091732, 0xff5d6991},
+            // LOMO_WARM
+            {0xff000000, 0xffffffd1, 0xffae9570, 0xffff0000, 0xff00ff00, 0xff0000d1, 0xfffa953c, 0x80325057, 0xff4c7aab, 0xfffff7ae, 0xff1b2b2e, 0xffac946f},
+            // LOMO_GREEN
+            {0xff000000, 0xffe4ffe4, 0xff6f966f, 0xffe40000, 0xff00ff00, 0xff0000e4, 0xffa99635, 0x801a4852, 0xff2a76b5, 0xffd6ffb8, 0xff0c2328, 0xff6e956e},
+            // LOMO_PURPLE
+            {0xff000000, 0xffffc5ff, 0xff81599c, 0xffff0000, 0xff00c500, 0xff0000ff, 0xffcd5946, 0x801a2870, 0xff2d45ff, 0xffffaaff, 0xff0c1233, 0xff80599b},
+            // RETRO_SEVENTIES
+            {0xff281700, 0xffffffd5, 0xffd6b57b, 0xffff1700, 0xff28ff00, 0xff2817d5, 0xffffb547, 0x805b6e62, 0xff7699b2, 0xffffffb5, 0xff434738, 0xffd5b47a},
+            // RETRO_SEPIA
+            {0xff000000, 0xffffffcc, 0xff9a8066, 0xff5b4c3d, 0xffb49678, 0xff231d17, 0xffa88c70, 0x80463a2e, 0xff76624f, 0xffffe3b6, 0xff231d17, 0xff987f66},
+            // RETRO_FADED_FILM
+            {0xff333333, 0xffffffff, 0xff868686, 0xffff3333, 0xff33ff33, 0xff3333ff, 0xffc08655, 0x8041556c, 0xff4c71cc, 0xfff0dfd0, 0xff39414a, 0xff858585},
+            // RETRO_VINTAGE_PINK
+            {0xff1a000d, 0xffffe6ff, 0xffb3739a, 0xffff000d, 0xff1ae60d, 0xff1a00ff, 0xffff7353, 0x80403a76, 0xff575ced, 0xffffcaf2, 0xff2d1d42, 0xffb27298},
+            // RETRO_ORANGE_CRUSH
+            {0xff000000, 0xffffffb9, 0xffc69563, 0xffff0000, 0xff00ff00, 0xff0000b9, 0xffff9535, 0x8039504d, 0xff567a97, 0xfffff79a, 0xff1e2b29, 0xffc49463},
+            // CUBE_COLOR_ENHANCE
+            {0xff000000, 0xffffffff, 0xff937089, 0xffff0000, 0xff00ff00, 0xff0000ff, 0xffcb7049, 0x8030316a, 0xff4655d1, 0xfff3dad4, 0xff1c1539, 0xff926e88},
+            // CUBE_HIGH_CONTRAST
+            {0xff000000, 0xffffffff, 0xffcdcdcd, 0xffff0000, 0xff00ff00, 0xff0000ff, 0xffffcd7e, 0x804e7ea7, 0xff6bafff, 0xffffffff, 0xff304e67, 0xffcccccc},
+            // CUBE_CYAN_MAGENTA
+            {0xff000000, 0xffffffff, 0xff808080, 0xff3300cc, 0xffcc3300, 0xff00cc33, 0xff8d4da6, 0x803a5a2d, 0xff5cb852, 0xffe3d3ea, 0xff1d2d16, 0xff7f7f7f},
+            // CUBE_COOL_TONE
+            {0xff000000, 0xffacffff, 0xff5185ad, 0xffac0000, 0xff00ff00, 0xff0000ff, 0xff7e8551, 0x80123e7e, 0xff1d67ff, 0xffa1f6ff, 0xff081d3b, 0xff5084ac},
+            // CUBE_NEON
+            {0xff000000, 0xffffffff, 0xfffdfdfd, 0xffff0000, 0xff00ff00, 0xff0000ff, 0xfffffd6f, 0x80496fd5, 0xff61ddff, 0xffffffff, 0xff30495e, 0xfffcfcfc},
+            // BW_CLASSIC
+            {0xff000000, 0xffffffff, 0xff808080, 0xff4c4c4c, 0xff969696, 0xff1d1d1d, 0xff8c8c8c, 0x803a3a3a, 0xff626262, 0xffe3e3e3, 0xff1d1d1d, 0xff7f7f7f},
+            // BW_HIGH_CONTRAST
+            {0xff000000, 0xffffffff, 0xff5b5b5b, 0xff2a2a2a, 0xff737373, 0xff0a0a0a, 0xff686868, 0x801c1c1c, 0xff3d3d3d, 0xffd6d6d6, 0xff0a0a0a, 0xff5a5a5a},
+            // BW_SOFT
+            {0xff000000, 0xffffffff, 0xff939393, 0xff4a4a4a, 0xffc3c3c3, 0xff1f1f1f, 0xff9b9b9b, 0x80505050, 0xff777777, 0xffe8e8e8, 0xff2e2e2e, 0xff929292},
+            // BW_RED_CHANNEL
+            {0xff000000, 0xffffffff, 0xff808080, 0xffcccccc, 0xff1a1a1a, 0xff1a1a1a, 0xffadadad, 0x802a2a2a, 0xff474747, 0xffebebeb, 0xff151515, 0xff7f7f7f},
+            // BW_BLUE_CHANNEL
+            {0xff000000, 0xffffffff, 0xff808080, 0xff1a1a1a, 0xff333333, 0xffb3b3b3, 0xff5a5a5a, 0x80535353, 0xffa8a8a8, 0xffd6d6d6, 0xff2a2a2a, 0xff7f7f7f},
+            // VIGNETTE_CLASSIC
+            {0xff000000, 0xfff6f6f6, 0xff7c7c7c, 0xffa40000, 0xff00f000, 0xff0000ff, 0xffc08040, 0x801e3c5a, 0xff214283, 0xffe8d8c9, 0xff0f1f2e, 0xff525252},
+            // VIGNETTE_STRONG
+            {0xff000000, 0xffdfdfdf, 0xff707070, 0xff9a0000, 0xff00d700, 0xff0000ff, 0xffc08040, 0x801b3651, 0xff1f3d7b, 0xffd2c4b6, 0xff0e1c2a, 0xff4d4d4d},
+            // VIGNETTE_OVAL
+            {0xff000000, 0xffffffff, 0xff808080, 0xff4d0000, 0xff00a300, 0xff0000ff, 0xffc08040, 0x8014293d, 0xff0f1f3e, 0xfff0e0d0, 0xff102030, 0xff262626},
+            // VIGNETTE_COLOR
+            {0xff000000, 0xffffffff, 0xff808080, 0xffff0000, 0xff00ff00, 0xff0000ff, 0xffc08040, 0x80204060, 0xff3366cc, 0xfff0e0d0, 0xff102030, 0xff7f7f7f},
+            // VIGNETTE_TUNNEL
+            {0xff000000, 0xfffdfdfd, 0xff7f7f7f, 0xffc70000, 0xff00fa00, 0xff0000ff, 0xffc08040, 0x801f3f5e, 0xff28509f, 0xffeedece, 0xff102030, 0xff636363},
+    };
+
+    @Test
+    public void goldenImagesMatchForEveryFilter() {
+        FilterType[] filterTypes = FilterType.values();
+        assertEquals(GOLDEN.length, filterTypes.length);
+        CpuFilterEngine engine = new CpuFilterEngine();
+        for (FilterType filterType : filterTypes) {
+            int[] output = new int[SOURCE.length];
+            engine.apply(filterType, SOURCE, output, WIDTH, HEIGHT);
+            assertImageEquals(filterType.name(), GOLDEN[filterType.ordinal()], output, 1);
+        }
+    }
+
+    @Test
+    public void parallelMatchesSingleThreaded() {
+        int width = 301, height = 257;
+        int[] source = TestImages.opaqueNoise(width, height, 7);
+        CpuFilterEngine engine = new CpuFilterEngine(new ForkJoinPool(4));
+        for (FilterType filterType : FilterType.values()) {
+            int[] expected = new int[source.length];
+            CpuFilterEngine.applyRows(filterType, source, expected, width, height, 0, height);
+            int[] actual = new int[source.length];
+            engine.apply(filterType, source, actual, width, height);
+            assertArrayEquals(filterType.name(), expected, actual);
+        }
+    }
+
+    @Test
+    public void bandsMatchTheWholeImage() {
+        int width = 37, height = 29;
+        int[] source = TestImages.opaqueNoise(width, height, 11);
+        CpuFilterEngine engine = new CpuFilterEngine(new ForkJoinPool(2));
+        for (FilterType filterType : FilterType.values()) {
+            int[] expected = new int[source.length];
+            engine.apply(filterType, source, expected, width, height);
+            int[] banded = new int[source.length];
+            for (int firstRow = 0; firstRow < height; firstRow += 8) {
+                int rows = Math.min(8, height - firstRow);
+                int[] band = new int[width * rows];
+                System.arraycopy(source, firstRow * width, band, 0, band.length);
+                engine.applyBand(filterType, band, width, rows, firstRow, height);
+                System.arraycopy(band, 0, banded, firstRow * width, band.length);
+            }
+            assertArrayEquals(filterType.name(), expected, banded);
+        }
+    }
+
+    @Test
+    public void filtersInPlace() {
+        int[] image = SOURCE.clone();
+        new CpuFilterEngine().apply(FilterType.BW_CLASSIC, image, image, WIDTH, HEIGHT);
+        assertImageEquals("in place", GOLDEN[FilterType.BW_CLASSIC.ordinal()], image, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortBuffers() {
+        new CpuFilterEngine().apply(FilterType.NONE, new int[4], new int[4], 4, 2);
+    }
+
+    private static void assertImageEquals(String message, int[] expected, int[] actual, int tolerance) {
+        assertEquals(message, expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int e = (expected[i] >>> shift) & 0xff;
+                int a = (actual[i] >>> shift) & 0xff;
+                if (Math.abs(e - a) > tolerance) {
+                    fail(message + " pixel " + i + ": expected " + Integer.toHexString(expected[i])
+                            + " but was " + Integer.toHexString(actual[i]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class CubeLutParserTest {
+
+    private static Lut3D parse(String text) throws IOException {
+        return new CubeLutParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String identityCube(int size) {
+        StringBuilder builder = new StringBuilder("TITLE \"Identity\"\nLUT_3D_SIZE ").append(size).append('\n');
+        for (int b = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++) {
+                    builder.append(String.format(Locale.ROOT, "%.6f %.6f %.6f\n",
+                            r / (size - 1f), g / (size - 1f), b / (size - 1f)));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void parsesHeaderCommentsAndRedFastestData() throws IOException {
+        Lut3D lut = parse("# Created by hand\r\n"
+                + "TITLE \"Warm\"\r\n"
+                + "DOMAIN_MIN 0 0 0\r\n"
+                + "DOMAIN_MAX 1.0 1.0 1.0\r\n"
+                + "LUT_3D_SIZE 2\r\n"
+                + "\r\n"
+                + "0 0 0\r\n"
+                + "1 0 0   # red\r\n"
+                + "0 1 0\r\n"
+                + "1 1 0\r\n"
+                + "0 0 1\r\n"
+                + "1 0 1\r\n"
+                + "0 1 1\r\n"
+                + ".5 -1.25e-1 +2E0");
+
+        assertEquals(2, lut.getSize());
+        float[] data = lut.getData();
+        assertEquals(1.0f, data[3], 0.0f);
+        assertEquals(0.0f, data[4], 0.0f);
+        assertEquals(1.0f, data[7], 0.0f);
+        assertEquals(1.0f, data[14], 0.0f);
+        assertEquals(0.5f, data[21], 0.0f);
+        assertEquals(-0.125f, data[22], 0.0f);
+        assertEquals(2.0f, data[23], 0.0f);
+    }
+
+    @Test
+    public void parsedIdentitySamplesExactly() throws IOException {
+        Lut3D lut = parse(identityCube(17));
+        float[] out = new float[3];
+
+        lut.sample(0.3f, 0.55f, 0.91f, out);
+
+        assertEquals(0.3f, out[0], 1e-5f);
+        assertEquals(0.55f, out[1], 1e-5f);
+        assertEquals(0.91f, out[2], 1e-5f);
+    }
+
+    @Test
+    public void floatsMatchJdkParsing() throws IOException {
+        String[] values = {"0", "1", "0.000001", "0.123456789", "123456.5", "1e-7", "9.99999E+2", "-0.0625", "0.30000001192092896"};
+        for (String value : values) {
+            Lut3D lut = parse("LUT_3D_SIZE 2\n" + (value + " 0 0\n") + "0 0 0\n0 0 0\n0 0 0\n0 0 0\n0 0 0\n0 0 0\n0 0 0\n");
+            float expected = Float.parseFloat(value);
+            assertEquals(value, expected, lut.getData()[0], Math.ulp(expected));
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedFilesWithLineNumbers() {
+        assertError("LUT_1D_SIZE 1024\n", "Line 1");
+        assertError("TITLE \"x\"\nDOMAIN_MAX 2 2 2\nLUT_3D_SIZE 2\n", "Line 2");
+        assertError("0 0 0\n", "before LUT_3D_SIZE");
+        assertError("LUT_3D_SIZE 2\n0 0 0\n0 0\n", "Line 3");
+        assertError("LUT_3D_SIZE 2\n0 0 0\n0 0 0 x\n", "Line 3");
+        assertError("LUT_3D_SIZE 2\n0 0 0\n", "found 1");
+        assertError("# nothing\n", "Missing LUT_3D_SIZE");
+    }
+
+    @Test
+    public void rejectsSizesAboveTheLimitBeforeReadingData() throws IOException {
+        assertEquals(CubeLutParser.MAX_SIZE, parse(identityCube(CubeLutParser.MAX_SIZE)).getSize());
+        // Only the header, a 256^3 LUT would need about 200 MB
+        assertError("LUT_3D_SIZE 256\n", "Unsupported LUT_3D_SIZE 256");
+        assertError("LUT_3D_SIZE " + (CubeLutParser.MAX_SIZE + 1) + "\n", "Unsupported LUT_3D_SIZE");
+    }
+
+    private static void assertError(String text, String expectedMessage) {
+        try {
+            parse(text);
+            fail("Expected an error for " + text);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    @Test
+    public void parsesLargeLutsQuickly() throws IOException {
+        byte[] cube = identityCube(64).getBytes(StandardCharsets.US_ASCII);
+        CubeLutParser parser = new CubeLutParser();
+
+        // Warm up, then keep the best of a few runs to stay stable on a busy machine
+        parser.parse(new ByteArrayInputStream(cube));
+        long best = Long.MAX_VALUE;
+        Lut3D lut = null;
+        for (int i = 0; i < 5; i++) {
+            InputStream in = new ByteArrayInputStream(cube);
+            long start = System.nanoTime();
+            lut = parser.parse(in);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        assertEquals(64, lut.getSize());
+        assertEquals(1.0f, lut.getData()[lut.getData().length - 1], 0.0f);
+        double megabytesPerSecond = cube.length / (best / 1e9) / (1024 * 1024);
+        assertTrue("Parsed at " + megabytesPerSecond + " MB/s", megabytesPerSecond > 20);
+    }
+}
@@ -0,0 +1,198 @@
+package com.camera.filter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class FrameRecordingTest {
+
+    private static final int WIDTH = 13;
+
+    private static final int HEIGHT = 7;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("frames", ".frames").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    // Every byte depends on the frame, so a frame read from the wrong offset shows up
+    private static ByteBuffer frame(FramePixelFormat format, int index) {
+        return ByteBuffer.wrap(TestImages.noiseBytes(format.frameBytes(WIDTH, HEIGHT), index * 7919 + 1));
+    }
+
+    private static long timestamp(int index) {
+        return 1_000_000_000L + index * 33_333_333L;
+    }
+
+    private void record(FramePixelFormat format, int frames, boolean close) throws IOException {
+        FrameRecordingWriter writer = new FrameRecordingWriter(file, format, WIDTH, HEIGHT);
+        for (int i = 0; i < frames; i++) {
+            assertEquals(i, writer.write(frame(format, i), timestamp(i)));
+        }
+        if (close) {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void readsFramesInAnyOrder() throws IOException {
+        record(FramePixelFormat.I420, 20, true);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            assertEquals(FramePixelFormat.I420, reader.getFormat());
+            assertEquals(WIDTH, reader.getWidth());
+            assertEquals(HEIGHT, reader.getHeight());
+            assertEquals(20, reader.getFrameCount());
+            assertFalse(reader.isRecovered());
+            for (int i : new int[]{19, 0, 7, 7, 3, 18}) {
+                ByteBuffer read = reader.getFrame(i);
+                assertEquals(FramePixelFormat.I420.frameBytes(WIDTH, HEIGHT), read.remaining());
+                assertEquals("frame " + i, frame(FramePixelFormat.I420, i), read);
+                assertEquals(timestamp(i), reader.getTimestampNanos(i));
+            }
+        }
+    }
+
+    @Test
+    public void framesAreReadOnlyViews() throws IOException {
+        record(FramePixelFormat.RGBA_8888, 2, true);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            ByteBuffer first = reader.getFrame(1);
+            assertTrue(first.isReadOnly());
+            // Views are independent, consuming one leaves the next untouched
+            first.get(new byte[10]);
+            assertEquals(frame(FramePixelFormat.RGBA_8888, 1), reader.getFrame(1));
+        }
+    }
+
+    @Test
+    public void planesAreViewsOfTheRecordedPlanes() throws IOException {
+        record(FramePixelFormat.I420, 3, true);
+        int chroma = FramePixelFormat.chromaWidth(WIDTH) * FramePixelFormat.chromaHeight(HEIGHT);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            byte[] recorded = frame(FramePixelFormat.I420, 2).array();
+            int[] starts = {0, WIDTH * HEIGHT, WIDTH * HEIGHT + chroma};
+            int[] lengths = {WIDTH * HEIGHT, chroma, chroma};
+            for (int plane = 0; plane < 3; plane++) {
+                ByteBuffer read = reader.getPlane(2, plane);
+                // Direct, so GL reads it in place rather than from a heap copy
+                assertTrue(read.isDirect());
+                assertTrue(read.isReadOnly());
+                assertEquals("plane " + plane,
+                        ByteBuffer.wrap(recorded, starts[plane], lengths[plane]).slice(), read);
+            }
+        }
+        record(FramePixelFormat.RGBA_8888, 1, true);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            assertEquals(frame(FramePixelFormat.RGBA_8888, 0), reader.getPlane(0, 0));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rgbaFramesHaveOnePlane() throws IOException {
+        record(FramePixelFormat.RGBA_8888, 1, true);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            reader.getPlane(0, 1);
+        }
+    }
+
+    @Test
+    public void payloadsAreAligned() throws IOException {
+        record(FramePixelFormat.RGBA_8888, 3, true);
+        // Frames of 364 bytes, so every chunk needs padding
+        long frameBytes = FramePixelFormat.RGBA_8888.frameBytes(WIDTH, HEIGHT);
+        long chunk = FrameRecordingWriter.align(FrameRecordingWriter.CHUNK_HEADER_BYTES + frameBytes);
+        long index = FrameRecordingWriter.HEADER_BYTES + 3 * chunk;
+        assertEquals(index + 8 + 3 * FrameRecordingWriter.INDEX_ENTRY_BYTES + FrameRecordingWriter.TRAILER_BYTES,
+                file.length());
+    }
+
+    @Test
+    public void findsFramesByTime() throws IOException {
+        record(FramePixelFormat.I420, 5, true);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            assertEquals(-1, reader.frameAt(timestamp(0) - 1));
+            assertEquals(0, reader.frameAt(timestamp(0)));
+            assertEquals(2, reader.frameAt(timestamp(3) - 1));
+            assertEquals(4, reader.frameAt(Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void recoversFramesOfAnUnclosedRecording() throws IOException {
+        record(FramePixelFormat.I420, 6, false);
+        // Cut into the last frame like a crash mid write
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() - 100);
+        }
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            assertTrue(reader.isRecovered());
+            assertEquals(5, reader.getFrameCount());
+            assertEquals(frame(FramePixelFormat.I420, 4), reader.getFrame(4));
+            assertEquals(timestamp(4), reader.getTimestampNanos(4));
+        }
+    }
+
+    @Test
+    public void mapsFramesAcrossSegments() throws IOException {
+        record(FramePixelFormat.RGBA_8888, 9, true);
+        // Room for about two chunks per segment
+        try (FrameRecordingReader reader = new FrameRecordingReader(file, 1000)) {
+            for (int i = 8; i >= 0; i--) {
+                assertEquals("frame " + i, frame(FramePixelFormat.RGBA_8888, i), reader.getFrame(i));
+            }
+        }
+    }
+
+    @Test
+    public void emptyRecordingsHaveNoFrames() throws IOException {
+        record(FramePixelFormat.I420, 0, true);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            assertEquals(0, reader.getFrameCount());
+            assertEquals(-1, reader.frameAt(0));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        Files.write(file.toPath(), new byte[128]);
+        FrameRecordingReader.open(file).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTimestampsGoingBack() throws IOException {
+        try (FrameRecordingWriter writer = new FrameRecordingWriter(file, FramePixelFormat.I420, WIDTH, HEIGHT)) {
+            writer.write(frame(FramePixelFormat.I420, 0), timestamp(1));
+            writer.write(frame(FramePixelFormat.I420, 1), timestamp(0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFramesOfTheWrongSize() throws IOException {
+        try (FrameRecordingWriter writer = new FrameRecordingWriter(file, FramePixelFormat.RGBA_8888, WIDTH, HEIGHT)) {
+            writer.write(frame(FramePixelFormat.I420, 0), timestamp(0));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsFramesPastTheEnd() throws IOException {
+        record(FramePixelFormat.I420, 2, true);
+        try (FrameRecordingReader reader = FrameRecordingReader.open(file)) {
+            reader.getFrame(2);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.camera.filter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class LutBakerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void bakedLutsMatchReference() {
+        // Largest allowed error in 8 bit steps for 17, 33 and 64 entries per axis
+        int[] tolerances = {6, 3, 1};
+        for (FilterType filterType : FilterType.values()) {
+            if (!LutBaker.isBakeable(filterType)) continue;
+            for (int i = 0; i < LutBaker.SUPPORTED_SIZES.length; i++) {
+                int size = LutBaker.SUPPORTED_SIZES[i];
+                int error = LutBaker.maxError(filterType, LutBaker.bake(filterType, size), 41);
+                assertTrue(filterType + " at " + size + " is off by " + error, error <= tolerances[i]);
+            }
+        }
+    }
+
+    @Test
+    public void positionAndDiscontinuousFiltersAreNotBaked() {
+        assertFalse(LutBaker.isBakeable(FilterType.NONE));
+        assertFalse(LutBaker.isBakeable(FilterType.CUBE_NEON));
+        for (FilterType filterType : FilterType.getVignetteFilters()) {
+            assertFalse(LutBaker.isBakeable(filterType));
+        }
+        assertTrue(LutBaker.isBakeable(FilterType.LOMO_CLASSIC));
+        assertTrue(LutBaker.isBakeable(FilterType.BW_SOFT));
+    }
+
+    @Test
+    public void identityLutSamplesExactly() {
+        Lut3D lut = LutBaker.bake(FilterType.NONE, 17);
+        float[] out = new float[3];
+
+        lut.sample(0.3f, 0.55f, 0.91f, out);
+
+        assertEquals(0.3f, out[0], 1e-5f);
+        assertEquals(0.55f, out[1], 1e-5f);
+        assertEquals(0.91f, out[2], 1e-5f);
+    }
+
+    @Test
+    public void textureLaysOutBlueSlicesHorizontally() {
+        Lut3D lut = new Lut3D(2);
+        lut.set(1, 0, 1, 1.0f, 0.0f, 0.5f);
+        ByteBuffer texture = lut.toTexture(ByteBuffer.allocate(lut.getTextureByteSize()));
+
+        // row g = 0, slice b = 1, column r = 1 -> texel x = 3
+        int offset = 3 * 4;
+        assertEquals((byte) 255, texture.get(offset));
+        assertEquals((byte) 0, texture.get(offset + 1));
+        assertEquals((byte) 128, texture.get(offset + 2));
+        assertEquals((byte) 255, texture.get(offset + 3));
+    }
+
+    @Test
+    public void fileCacheRoundTrips() throws Exception {
+        LutFileCache cache = new LutFileCache(temporaryFolder.getRoot());
+
+        Lut3D baked = cache.getOrBake(FilterType.RETRO_SEPIA, 17);
+        File file = cache.fileFor(FilterType.RETRO_SEPIA, 17);
+        assertTrue(file.exists());
+        assertEquals(20 + 17 * 17 * 17 * 3 * 2, file.length());
+
+        Lut3D loaded = LutFileCache.read(file, FilterType.RETRO_SEPIA, 17);
+        float[] expected = baked.getData();
+        float[] actual = loaded.getData();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], 1.0f / 65535);
+        }
+    }
+
+    @Test
+    public void staleFilesAreBakedAgain() throws Exception {
+        LutFileCache cache = new LutFileCache(temporaryFolder.getRoot());
+        File file = cache.fileFor(FilterType.BW_CLASSIC, 17);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(LutFileCache.MAGIC);
+            out.writeInt(LutFileCache.FORMAT_VERSION);
+            out.writeInt(LutFileCache.FILTER_VERSION - 1);
+        }
+
+        Lut3D lut = cache.getOrBake(FilterType.BW_CLASSIC, 17);
+
+        assertEquals(0, LutBaker.maxError(FilterType.BW_CLASSIC, lut, 17));
+        assertEquals(20 + 17 * 17 * 17 * 3 * 2, file.length());
+    }
+}
@@ -0,0 +1,76 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class OverlayCompositorTest {
+
+    @Test
+    public void opaqueOverlayAtFullAlphaReplacesPixels() {
+        int[] pixels = {0xff102030, 0xff405060};
+        OverlayCompositor.composite(pixels, 0, 0, 2, 1, 2, 1, new int[]{0xffffffff, 0xff000000}, 2, 1, 1f);
+
+        assertArrayEquals(new int[]{0xffffffff, 0xff000000}, pixels);
+    }
+
+    @Test
+    public void transparentOverlayOrZeroAlphaLeavesPixels() {
+        int[] pixels = {0xff102030, 0xff405060};
+        OverlayCompositor.composite(pixels, 0, 0, 2, 1, 2, 1, new int[]{0x00ffffff, 0x00ffffff}, 2, 1, 1f);
+        assertArrayEquals(new int[]{0xff102030, 0xff405060}, pixels);
+
+        OverlayCompositor.composite(pixels, 0, 0, 2, 1, 2, 1, new int[]{0xffffffff, 0xffffffff}, 2, 1, 0f);
+        assertArrayEquals(new int[]{0xff102030, 0xff405060}, pixels);
+    }
+
+    @Test
+    public void blendsWithOverlayAlphaTimesAlpha() {
+        int[] pixels = {0xff000000};
+        OverlayCompositor.composite(pixels, 0, 0, 1, 1, 1, 1, new int[]{0xffffffff}, 1, 1, 0.5f);
+
+        assertEquals(0xff808080, pixels[0]);
+        // The image keeps its own alpha
+        int[] translucent = {0x40000000};
+        OverlayCompositor.composite(translucent, 0, 0, 1, 1, 1, 1, new int[]{0xffffffff}, 1, 1, 1f);
+        assertEquals(0x40ffffff, translucent[0]);
+    }
+
+    @Test
+    public void overlayIsStretchedOverTheWholeImage() {
+        // 2x2 overlay over a 4x4 image, each overlay pixel covers a 2x2 block
+        int[] overlay = {0xffff0000, 0xff00ff00, 0xff0000ff, 0xffffffff};
+        int[] pixels = new int[16];
+        Arrays.fill(pixels, 0xff000000);
+        OverlayCompositor.composite(pixels, 0, 0, 4, 4, 4, 4, overlay, 2, 2, 1f);
+
+        assertEquals(0xffff0000, pixels[0]);
+        assertEquals(0xff00ff00, pixels[3]);
+        assertEquals(0xff0000ff, pixels[12]);
+        assertEquals(0xffffffff, pixels[15]);
+    }
+
+    @Test
+    public void partsMatchTheWholeImage() {
+        int[] overlay = new int[5 * 3];
+        for (int i = 0; i < overlay.length; i++) {
+            overlay[i] = (i * 17) << 24 | i * 0x010203;
+        }
+        int width = 11, height = 9;
+        int[] whole = new int[width * height];
+        Arrays.fill(whole, 0xff336699);
+        OverlayCompositor.composite(whole, 0, 0, width, height, width, height, overlay, 5, 3, 0.7f);
+
+        // Columns 4..6, like a rotated band
+        int[] part = new int[3 * height];
+        Arrays.fill(part, 0xff336699);
+        OverlayCompositor.composite(part, 4, 0, 3, height, width, height, overlay, 5, 3, 0.7f);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < 3; x++) {
+                assertEquals(whole[y * width + 4 + x], part[y * 3 + x]);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OverlayDecodePolicyTest {
+
+    @Test
+    public void keepsDecodedImageAtLeastTargetSize() {
+        assertEquals(1, OverlayDecodePolicy.inSampleSize(1080, 1920, 1080, 1920));
+        assertEquals(2, OverlayDecodePolicy.inSampleSize(2160, 3840, 1080, 1920));
+        assertEquals(2, OverlayDecodePolicy.inSampleSize(4000, 3000, 1080, 1440));
+        assertEquals(4, OverlayDecodePolicy.inSampleSize(4000, 6000, 720, 1280));
+    }
+
+    @Test
+    public void limitingAxisDecides() {
+        // Wide enough to halve but not tall enough
+        assertEquals(1, OverlayDecodePolicy.inSampleSize(4000, 1900, 1080, 1000));
+    }
+
+    @Test
+    public void neverUpsamplesOrDividesByZero() {
+        assertEquals(1, OverlayDecodePolicy.inSampleSize(300, 300, 1080, 1920));
+        assertEquals(1, OverlayDecodePolicy.inSampleSize(4000, 3000, 0, 0));
+        assertEquals(1, OverlayDecodePolicy.inSampleSize(0, 0, 1080, 1920));
+    }
+
+    @Test
+    public void sampledSizeRoundsDown() {
+        assertEquals(1000, OverlayDecodePolicy.sampledSize(4001, 4));
+        assertEquals(1, OverlayDecodePolicy.sampledSize(3, 4));
+        assertEquals(8_294_400L, OverlayDecodePolicy.textureByteSize(1080, 1920));
+    }
+
+    @Test
+    public void budgetKeepsMostRecentOverlays() {
+        // 1080p overlays under a budget that fits two of them
+        long overlay = OverlayDecodePolicy.textureByteSize(1080, 1920);
+        BudgetLruCache<String, Long> cache = new BudgetLruCache<>(2 * overlay, size -> size);
+        cache.put("scratch1", overlay);
+        cache.put("scratch2", overlay);
+        cache.get("scratch1");
+        cache.put("scratch3", overlay);
+
+        assertTrue(cache.contains("scratch1"));
+        assertFalse(cache.contains("scratch2"));
+        assertTrue(cache.contains("scratch3"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class PixelBufferPoolTest {
+
+    @Test
+    public void releasedBuffersAreReused() {
+        PixelBufferPool pool = new PixelBufferPool(1024);
+
+        int[] ints = pool.acquireInts(16);
+        pool.release(ints);
+        ByteBuffer bytes = pool.acquireBuffer(64);
+        pool.release(bytes);
+
+        assertSame(ints, pool.acquireInts(16));
+        assertSame(bytes, pool.acquireBuffer(64));
+
+        PixelBufferPool.Stats stats = pool.getStats();
+        assertEquals(2, stats.hits);
+        assertEquals(2, stats.misses);
+        assertEquals(2, stats.getAllocations());
+        assertEquals(16 * 4 + 64, stats.allocatedBytes);
+        assertEquals(0, stats.idleBytes);
+    }
+
+    @Test
+    public void buffersAreKeyedBySizeAndKind() {
+        PixelBufferPool pool = new PixelBufferPool(1024);
+        pool.release(new int[16]);
+        pool.release(ByteBuffer.allocateDirect(64));
+
+        // int[16] and a 64 byte buffer have the same footprint but must not be mixed up
+        assertEquals(32, pool.acquireInts(32).length);
+        assertEquals(128, pool.acquireBuffer(128).capacity());
+        assertEquals(0, pool.getStats().hits);
+        assertEquals(16 * 4 + 64, pool.getStats().idleBytes);
+    }
+
+    @Test
+    public void byteBuffersAreDirectNativeAndCleared() {
+        PixelBufferPool pool = new PixelBufferPool(1024);
+        ByteBuffer buffer = pool.acquireBuffer(32);
+        buffer.position(10).limit(20);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquireBuffer(32);
+        assertTrue(reused.isDirect());
+        assertEquals(ByteOrder.nativeOrder(), reused.order());
+        assertEquals(0, reused.position());
+        assertEquals(32, reused.limit());
+    }
+
+    @Test
+    public void leastRecentlyUsedSizeIsEvictedOverBudget() {
+        PixelBufferPool pool = new PixelBufferPool(100);
+        int[] small = new int[10];
+        int[] medium = new int[12];
+        pool.release(small);
+        pool.release(medium);
+        // touch the small size so the medium one becomes the eldest
+        pool.release(pool.acquireInts(10));
+        pool.release(new int[5]);
+
+        PixelBufferPool.Stats stats = pool.getStats();
+        assertEquals(1, stats.evictions);
+        assertEquals(10 * 4 + 5 * 4, stats.idleBytes);
+        assertSame(small, pool.acquireInts(10));
+        assertNotSame(medium, pool.acquireInts(12));
+    }
+
+    @Test
+    public void buffersLargerThanBudgetAreDropped() {
+        PixelBufferPool pool = new PixelBufferPool(16);
+        pool.release(new int[8]);
+
+        assertEquals(1, pool.getStats().evictions);
+        assertEquals(0, pool.getStats().idleBytes);
+    }
+
+    @Test
+    public void clearDropsIdleBuffers() {
+        PixelBufferPool pool = new PixelBufferPool(1024);
+        int[] ints = new int[4];
+        pool.release(ints);
+        pool.clear();
+
+        assertNotSame(ints, pool.acquireInts(4));
+        assertEquals(0, pool.getStats().idleBytes);
+    }
+}
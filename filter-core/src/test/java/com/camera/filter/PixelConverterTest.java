@@ -0,0 +1,126 @@
+package com.camera.filter;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import static org.junit.Assert.*;
+
+public class PixelConverterTest {
+
+    // Same per-pixel loop CameraGLRenderer.captureBitmap used before the converter existed
+    private static int[] legacyConvert(int[] buffer, int width, int height) {
+        int[] pixelsBuffer = new int[width * height];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                int pix = buffer[i * width + j];
+                int pb = (pix >> 16) & 0xff;
+                int pr = (pix << 16) & 0x00ff0000;
+                int pix1 = (pix & 0xff00ff00) | pr | pb;
+                pixelsBuffer[(height - i - 1) * width + j] = pix1;
+            }
+        }
+        return pixelsBuffer;
+    }
+
+    @Test
+    public void matchesLegacyLoopForArrays() {
+        int width = 37, height = 23;
+        int[] rgba = TestImages.noise(width * height, 42);
+        int[] argb = new int[width * height];
+
+        PixelConverter.rgbaToArgbFlipped(rgba, argb, width, height);
+
+        assertArrayEquals(legacyConvert(rgba, width, height), argb);
+    }
+
+    @Test
+    public void matchesLegacyLoopForDirectBuffers() {
+        int width = 16, height = 9;
+        int[] rgba = TestImages.noise(width * height, 42);
+        IntBuffer buffer = ByteBuffer.allocateDirect(rgba.length * 4)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+        buffer.put(rgba).position(0);
+
+        int[] argb = new PixelConverter().convert(buffer, width, height);
+
+        assertArrayEquals(legacyConvert(rgba, width, height), argb);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void readsRgbaBytesAsArgb() {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(8).order(ByteOrder.nativeOrder());
+        // bottom row: opaque red, top row: half transparent blue
+        bytes.put((byte) 0xff).put((byte) 0).put((byte) 0).put((byte) 0xff);
+        bytes.put((byte) 0).put((byte) 0).put((byte) 0xff).put((byte) 0x80);
+        bytes.position(0);
+
+        int[] argb = new PixelConverter().convert(bytes.asIntBuffer(), 1, 2);
+
+        assertEquals(0x800000ff, argb[0]);
+        assertEquals(0xffff0000, argb[1]);
+    }
+
+    @Test
+    public void reusesOutputBuffer() {
+        PixelConverter converter = new PixelConverter();
+        IntBuffer buffer = IntBuffer.wrap(TestImages.noise(64, 42));
+
+        int[] first = converter.convert(buffer, 8, 8);
+        int[] second = converter.convert(buffer, 8, 8);
+        int[] resized = converter.convert(buffer, 4, 4);
+
+        assertSame(first, second);
+        assertEquals(16, resized.length);
+    }
+
+    @Test
+    public void packsStridedPlanes() {
+        // 3x2 plane, row stride 8, interleaved with another plane at pixel stride 2
+        ByteBuffer src = ByteBuffer.allocate(8 + 5);
+        byte[] values = {1, 2, 3, 4, 5, 6};
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 3; x++) {
+                src.put(y * 8 + x * 2, values[y * 3 + x]);
+            }
+        }
+        ByteBuffer dst = ByteBuffer.allocate(6);
+        PixelConverter.packPlane(src, 8, 2, 3, 2, dst);
+        assertArrayEquals(values, dst.array());
+        assertEquals(0, src.position());
+
+        ByteBuffer tight = ByteBuffer.allocate(8 + 3);
+        tight.put(0, (byte) 1).put(1, (byte) 2).put(2, (byte) 3).put(8, (byte) 4).put(9, (byte) 5).put(10, (byte) 6);
+        dst.clear();
+        PixelConverter.packPlane(tight, 8, 1, 3, 2, dst);
+        assertArrayEquals(values, dst.array());
+    }
+
+    @Test
+    public void convertsI420ToArgb() {
+        // 2x2 luma, one chroma sample: grey, then saturated red
+        ByteBuffer grey = ByteBuffer.wrap(new byte[]{0, (byte) 128, (byte) 255, 16, (byte) 128, (byte) 128});
+        int[] argb = new int[4];
+        PixelConverter.i420ToArgb(grey, argb, 2, 2);
+        assertArrayEquals(new int[]{0xff000000, 0xff808080, 0xffffffff, 0xff101010}, argb);
+
+        ByteBuffer red = ByteBuffer.wrap(new byte[]{76, 76, 76, 76, 85, (byte) 255});
+        PixelConverter.i420ToArgb(red, argb, 2, 2);
+        assertEquals(0xfffe0000, argb[0]);
+    }
+
+    @Test
+    public void i420ChromaCoversOddSizes() {
+        // 3x1: three luma samples, two chroma columns, the last pixel uses the second
+        ByteBuffer i420 = ByteBuffer.wrap(new byte[]{(byte) 128, (byte) 128, (byte) 128, (byte) 128, (byte) 228, (byte) 128, (byte) 128});
+        int[] argb = new int[3];
+        PixelConverter.i420ToArgb(i420, argb, 3, 1);
+        assertEquals(0xff808080, argb[0]);
+        assertEquals(0xff808080, argb[1]);
+        assertNotEquals(0xff808080, argb[2]);
+    }
+}
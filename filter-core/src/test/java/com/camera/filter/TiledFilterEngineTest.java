@@ -0,0 +1,217 @@
+package com.camera.filter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TiledFilterEngineTest {
+
+    private static final int WIDTH = 53;
+
+    private static final int HEIGHT = 41;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tiles").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private int[] run(long budgetBytes, int[] pixels, int width, int height, List<TileKernel> kernels) throws IOException {
+        try (MappedImage src = MappedImage.createTemp(directory, width, height);
+             MappedImage dst = MappedImage.createTemp(directory, width, height)) {
+            src.writeRows(0, height, pixels, 0);
+            new TiledFilterEngine(budgetBytes).process(src, dst, kernels);
+            int[] result = new int[width * height];
+            dst.readRows(0, height, result, 0);
+            return result;
+        }
+    }
+
+    // Whole image, clamp to edge, rounded like BoxBlurKernel
+    private static int[] naiveBoxBlur(int[] pixels, int width, int height, int radius) {
+        int taps = 2 * radius + 1;
+        int[] horizontal = new int[pixels.length];
+        int[] result = new int[pixels.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] sum = new int[4];
+                for (int i = -radius; i <= radius; i++) {
+                    add(sum, pixels[y * width + Math.max(0, Math.min(width - 1, x + i))]);
+                }
+                horizontal[y * width + x] = average(sum, taps);
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] sum = new int[4];
+                for (int i = -radius; i <= radius; i++) {
+                    add(sum, horizontal[Math.max(0, Math.min(height - 1, y + i)) * width + x]);
+                }
+                result[y * width + x] = average(sum, taps);
+            }
+        }
+        return result;
+    }
+
+    private static void add(int[] sum, int pixel) {
+        sum[0] += pixel >>> 24;
+        sum[1] += (pixel >> 16) & 0xff;
+        sum[2] += (pixel >> 8) & 0xff;
+        sum[3] += pixel & 0xff;
+    }
+
+    private static int average(int[] sum, int taps) {
+        int half = taps / 2;
+        return ((sum[0] + half) / taps) << 24 | ((sum[1] + half) / taps) << 16
+                | ((sum[2] + half) / taps) << 8 | (sum[3] + half) / taps;
+    }
+
+    private static long budgetForRows(int width, int rows, List<TileKernel> kernels) {
+        int halo = 0;
+        long scratch = 0;
+        for (TileKernel kernel : kernels) {
+            halo += kernel.getHalo();
+            scratch += kernel.scratchBytes(width);
+        }
+        return 2L * (rows + 2 * halo) * width * 4 + scratch;
+    }
+
+    // What the kernels really allocated, measured rather than taken from scratchBytes
+    private static long allocatedScratchBytes(List<TileKernel> kernels) {
+        long bytes = 0;
+        for (TileKernel kernel : kernels) {
+            if (kernel instanceof BoxBlurKernel) {
+                bytes += ((BoxBlurKernel) kernel).getAllocatedScratchBytes();
+            }
+        }
+        return bytes;
+    }
+
+    @Test
+    public void blurMatchesTheWholeImage() throws IOException {
+        int[] pixels = TestImages.opaqueNoise(WIDTH, HEIGHT, 3);
+        for (int radius : new int[]{0, 1, 4}) {
+            List<TileKernel> kernels = Collections.singletonList(new BoxBlurKernel(radius));
+            int[] tiled = run(budgetForRows(WIDTH, 3, kernels), pixels, WIDTH, HEIGHT, kernels);
+            assertArrayEquals("radius " + radius, naiveBoxBlur(pixels, WIDTH, HEIGHT, radius), tiled);
+        }
+    }
+
+    @Test
+    public void filterMatchesTheCpuFilterEngine() throws IOException {
+        int[] pixels = TestImages.opaqueNoise(WIDTH, HEIGHT, 3);
+        CpuFilterEngine engine = new CpuFilterEngine();
+        for (FilterType filterType : FilterType.values()) {
+            int[] expected = new int[pixels.length];
+            engine.apply(filterType, pixels, expected, WIDTH, HEIGHT);
+            List<TileKernel> kernels = Collections.singletonList(new FilterKernel(filterType));
+            int[] tiled = run(budgetForRows(WIDTH, 5, kernels), pixels, WIDTH, HEIGHT, kernels);
+            assertArrayEquals(filterType.name(), expected, tiled);
+        }
+    }
+
+    @Test
+    public void chainsMatchOneBandForEveryBandSize() throws IOException {
+        int[] pixels = TestImages.opaqueNoise(WIDTH, HEIGHT, 3);
+        List<TileKernel> kernels = Arrays.asList(new FilterKernel(FilterType.VIGNETTE_STRONG), new BoxBlurKernel(3),
+                new FilterKernel(FilterType.RETRO_SEPIA), new BoxBlurKernel(1));
+        int[] whole = run(Long.MAX_VALUE / 2, pixels, WIDTH, HEIGHT, kernels);
+        for (int rows : new int[]{1, 2, 7, 40}) {
+            assertArrayEquals("rows " + rows, whole, run(budgetForRows(WIDTH, rows, kernels), pixels, WIDTH, HEIGHT, kernels));
+        }
+    }
+
+    @Test
+    public void haloLargerThanTheImageStillClamps() throws IOException {
+        int[] pixels = TestImages.opaqueNoise(5, 3, 3);
+        List<TileKernel> kernels = Collections.singletonList(new BoxBlurKernel(6));
+        int[] tiled = run(budgetForRows(5, 1, kernels), pixels, 5, 3, kernels);
+        assertArrayEquals(naiveBoxBlur(pixels, 5, 3, 6), tiled);
+    }
+
+    @Test
+    public void peakStaysWithinTheBudget() throws IOException {
+        int width = 400, height = 300;
+        long budget = 64 * 1024;
+        try (MappedImage src = MappedImage.createTemp(directory, width, height);
+             MappedImage dst = MappedImage.createTemp(directory, width, height)) {
+            TiledFilterEngine engine = new TiledFilterEngine(budget);
+            List<TileKernel> kernels = Arrays.asList(new BoxBlurKernel(2), new FilterKernel(FilterType.LOMO_CLASSIC));
+            // (64 KB - the blur's 8000 bytes of scratch) / two 1600 byte rows, less a halo of two rows on each side
+            assertEquals(13, engine.bandRows(width, height, kernels));
+            engine.process(src, dst, kernels);
+            // An input band of 13 rows plus both halos and the output band, where the whole source on
+            // the heap would take 480 KB
+            assertEquals(2 * (13 + 4) * width * 4L, engine.getPeakBufferBytes());
+            assertEquals(8000, allocatedScratchBytes(kernels));
+            assertTrue(engine.getPeakBufferBytes() + allocatedScratchBytes(kernels) <= budget);
+        }
+    }
+
+    @Test
+    public void everyKernelsScratchCountsAgainstTheBudget() throws IOException {
+        int width = 400, height = 300;
+        long budget = 64 * 1024;
+        try (MappedImage src = MappedImage.createTemp(directory, width, height);
+             MappedImage dst = MappedImage.createTemp(directory, width, height)) {
+            TiledFilterEngine engine = new TiledFilterEngine(budget);
+            List<TileKernel> kernels = Arrays.asList(new BoxBlurKernel(2), new FilterKernel(FilterType.RETRO_SEPIA),
+                    new BoxBlurKernel(1));
+            // (64 KB - two blurs' 16000 bytes of scratch) / two 1600 byte rows, less a halo of three rows on each side
+            assertEquals(9, engine.bandRows(width, height, kernels));
+            engine.process(src, dst, kernels);
+            assertEquals(2 * (9 + 6) * width * 4L, engine.getPeakBufferBytes());
+            assertEquals(16000, allocatedScratchBytes(kernels));
+            assertTrue(engine.getPeakBufferBytes() + allocatedScratchBytes(kernels) <= budget);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBudgetsBelowOneBand() {
+        new TiledFilterEngine(1024).bandRows(4000, 3000, Collections.singletonList(new BoxBlurKernel(8)));
+    }
+
+    @Test
+    public void mappedImageReadsAcrossSegments() throws IOException {
+        File file = new File(directory, "segments.argb");
+        int width = 7, height = 23;
+        int[] pixels = TestImages.opaqueNoise(width, height, 3);
+        // Three rows per segment
+        try (MappedImage image = new MappedImage(file, width, height, true, width * 4L * 3)) {
+            image.writeRows(0, 10, pixels, 0);
+            image.writeRows(10, height - 10, pixels, 10 * width);
+            int[] read = new int[width * 9];
+            image.readRows(2, 9, read, 0);
+            assertArrayEquals(Arrays.copyOfRange(pixels, 2 * width, 11 * width), read);
+        }
+        assertFalse(file.exists());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void mappedImageRejectsRowsPastTheEnd() throws IOException {
+        try (MappedImage image = MappedImage.createTemp(directory, 4, 4)) {
+            image.readRows(2, 3, new int[12], 0);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.camera.filter;
+
+// Deterministic pseudo random images for tests and benchmarks, the same for a given seed on every run.
+// A plain linear congruential generator, the low bits are weak so every value takes the high ones.
+public final class TestImages {
+
+    private TestImages() {
+    }
+
+    private static int next(int seed) {
+        return seed * 1103515245 + 12345;
+    }
+
+    // Raw generator output, alpha included
+    public static int[] noise(int length, int seed) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            seed = next(seed);
+            values[i] = seed;
+        }
+        return values;
+    }
+
+    // Opaque ARGB pixels with random colors
+    public static int[] opaqueNoise(int width, int height, int seed) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            seed = next(seed);
+            pixels[i] = 0xff000000 | (seed >>> 8);
+        }
+        return pixels;
+    }
+
+    public static byte[] noiseBytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            seed = next(seed);
+            bytes[i] = (byte) (seed >>> 24);
+        }
+        return bytes;
+    }
+}
@@ -21,4 +21,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "CameraFilter"
 include(":app")
+include(":filter-core")
+include(":filter-cli")
+include(":benchmark")
  
\ No newline at end of file